@@ -0,0 +1,147 @@
+package org.apache.storm.starter.bolt;
+
+import org.apache.storm.Config;
+import org.apache.storm.starter.twitter.ColumnarTweetFormat;
+import org.apache.storm.starter.twitter.ColumnarTweetWriter;
+import org.apache.storm.starter.twitter.Tweets;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.topology.OutputFieldsDeclarer;
+import org.apache.storm.topology.base.BaseRichBolt;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.utils.TupleUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storm bolt that stores the tweets in columnar files (see {@link ColumnarTweetFormat}), so that analyses which read a
+ * few fields, e.g. hashtags by language, do not have to re-read the text of every tweet.
+ * <p/>
+ * Every task writes its own files into the directory and starts a new file after the configured number of stripes.
+ * The writer rewrites the footer after every stripe, so a file is readable while it is written and after the worker
+ * died. The tuples of the stripe being filled are only acked once their stripe has been written; tick tuples write
+ * the stripe early, as a partial one, so that its tuples are acked well within the message timeout even when fewer
+ * tweets than a stripe arrive in the flush interval. A stripe that can not be written fails all of its tuples and the
+ * bolt starts a new file.
+ */
+public class ColumnarTweetBolt extends BaseRichBolt {
+
+    // Constants
+    private final static String FILE_NAME_FORMAT = "tweets-%d-%013d" + ColumnarTweetFormat.FILE_EXTENSION;
+
+    private final String outputDirectory;
+    private final int stripeRows;
+    private final int stripesPerFile;
+    private final int flushIntervalSeconds;
+
+    private OutputCollector outputCollector;
+    private int taskId;
+    private ColumnarTweetWriter writer;
+    private final List<Tuple> unwrittenTuples = new ArrayList<Tuple>();
+
+    /**
+     * Constructor
+     *
+     * @param outputDirectory      directory of the columnar files, created if needed
+     * @param stripeRows           number of tweets per stripe
+     * @param stripesPerFile       number of stripes after which a new file is started
+     * @param flushIntervalSeconds time after which a partial stripe is written, must be well below the message timeout
+     */
+    public ColumnarTweetBolt(String outputDirectory, int stripeRows, int stripesPerFile, int flushIntervalSeconds) {
+        if (flushIntervalSeconds <= 0) {
+            throw new IllegalArgumentException(
+                    "Flush interval must be positive (you requested " + flushIntervalSeconds + ")");
+        }
+        this.outputDirectory = outputDirectory;
+        this.stripeRows = stripeRows;
+        this.stripesPerFile = stripesPerFile;
+        this.flushIntervalSeconds = flushIntervalSeconds;
+    }
+
+    @Override
+    public void prepare(Map stormConf, TopologyContext context, OutputCollector collector) {
+        this.outputCollector = collector;
+        this.taskId = context.getThisTaskId();
+        File directory = new File(outputDirectory);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new RuntimeException("Could not create " + outputDirectory);
+        }
+    }
+
+    @Override
+    public void execute(Tuple tuple) {
+        try {
+            if (TupleUtils.isTick(tuple)) {
+                if (writer != null) {
+                    writer.flush();
+                    stripeWritten();
+                }
+                return;
+            }
+
+            unwrittenTuples.add(tuple);
+            if (writer == null) {
+                writer = new ColumnarTweetWriter(new File(outputDirectory,
+                        String.format(FILE_NAME_FORMAT, taskId, System.currentTimeMillis())), stripeRows);
+            }
+            writer.append(Tweets.from(tuple.getValue(0)));
+            if (writer.getBufferedRowCount() == 0) {
+                stripeWritten();
+            }
+        } catch (IOException e) {
+            outputCollector.reportError(e);
+            for (Tuple unwritten : unwrittenTuples) {
+                outputCollector.fail(unwritten);
+            }
+            unwrittenTuples.clear();
+            closeWriter();
+        }
+    }
+
+    /**
+     * Ack the tuples of the written stripes and start a new file once this one is full
+     */
+    private void stripeWritten() throws IOException {
+        for (Tuple written : unwrittenTuples) {
+            outputCollector.ack(written);
+        }
+        unwrittenTuples.clear();
+        if (writer.getStripeCount() >= stripesPerFile) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            writer = null;
+        }
+    }
+
+    @Override
+    public void declareOutputFields(OutputFieldsDeclarer declarer) {
+    }
+
+    @Override
+    public Map<String, Object> getComponentConfiguration() {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS, flushIntervalSeconds);
+        return conf;
+    }
+
+    @Override
+    public void cleanup() {
+        // The unwritten tuples were not acked and are replayed; closing writes them anyway, e.g. in local mode
+        closeWriter();
+    }
+}
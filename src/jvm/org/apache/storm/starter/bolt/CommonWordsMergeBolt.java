@@ -0,0 +1,154 @@
+package org.apache.storm.starter.bolt;
+
+import org.apache.storm.starter.tools.TopCountSelector;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.topology.OutputFieldsDeclarer;
+import org.apache.storm.topology.base.BaseRichBolt;
+import org.apache.storm.tuple.Fields;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.tuple.Values;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Last stage of the parallel common words pipeline: merges the partial window counts of all
+ * {@link WindowedWordCountBolt} tasks and finds the 50% of common words of each window, with the same output as
+ * {@link TwitterCommonWordsFilterPrinterBolt}.
+ * <p/>
+ * A window is complete once every counting task has reported it or a later one, as each task reports its windows in
+ * order. Complete windows are emitted in order. As the partial results of the tasks never share a word, merging them
+ * only concatenates them, so this bolt does little work and runs as a single task with a global grouping.
+ * <p/>
+ * The partial results are not anchored, see {@link WindowedWordCountBolt}: a crashed counting task loses the counts of
+ * its open window, which is then emitted without them, and until the restarted task reports again the last window
+ * known from it keeps the later windows pending.
+ */
+public class CommonWordsMergeBolt extends BaseRichBolt {
+
+    // Constants
+    private final static String COMMON_WORD_OUTPUT_FIELD = "commonWords";
+
+    private final String outputFilePath;
+    private final boolean printToLocal;
+    private boolean orderedOutput = true;
+
+    private OutputCollector outputCollector;
+    private TopCountSelector selector;
+    private HashMap<Integer, Long> lastWindowIdByTask;
+    private TreeMap<Long, MergedWindow> pendingWindows;
+
+    /**
+     * Constructor
+     *
+     * @param outputFilePath
+     * @param printToLocal
+     */
+    public CommonWordsMergeBolt(String outputFilePath, boolean printToLocal) {
+        this.outputFilePath = outputFilePath;
+        this.printToLocal = printToLocal;
+    }
+
+    /**
+     * See {@link TwitterCommonWordsFilterPrinterBolt#withOrderedOutput(boolean)}.
+     *
+     * @param orderedOutput
+     * @return this bolt
+     */
+    public CommonWordsMergeBolt withOrderedOutput(boolean orderedOutput) {
+        this.orderedOutput = orderedOutput;
+        return this;
+    }
+
+    @Override
+    public void prepare(Map stormConf, TopologyContext context, OutputCollector collector) {
+        this.outputCollector = collector;
+        this.selector = new TopCountSelector();
+        this.lastWindowIdByTask = new HashMap<>();
+        this.pendingWindows = new TreeMap<>();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void execute(Tuple tuple) {
+        long windowId = tuple.getLongByField(WindowedWordCountBolt.WINDOW_ID_FIELD);
+        int taskCount = tuple.getIntegerByField(WindowedWordCountBolt.TASK_COUNT_FIELD);
+        List<String> words = (List<String>) tuple.getValueByField(WindowedWordCountBolt.WORDS_FIELD);
+        int[] counts = (int[]) tuple.getValueByField(WindowedWordCountBolt.COUNTS_FIELD);
+
+        MergedWindow window = pendingWindows.get(windowId);
+        if (window == null) {
+            window = new MergedWindow();
+            pendingWindows.put(windowId, window);
+        }
+        window.add(words, counts);
+        lastWindowIdByTask.put(tuple.getSourceTask(), windowId);
+        outputCollector.ack(tuple);
+
+        // Until every task has reported once, none of the windows is known to be complete
+        if (lastWindowIdByTask.size() < taskCount) {
+            return;
+        }
+        long completeWindowId = Long.MAX_VALUE;
+        for (long lastWindowId : lastWindowIdByTask.values()) {
+            completeWindowId = Math.min(completeWindowId, lastWindowId);
+        }
+        while (!pendingWindows.isEmpty() && pendingWindows.firstKey() <= completeWindowId) {
+            emitCommonWords(pendingWindows.pollFirstEntry().getValue());
+        }
+    }
+
+    private void emitCommonWords(MergedWindow window) {
+        // Find 50% common words i.e the half of the words with the highest counts
+        int[] commonWordIndices = selector.selectTop(window.counts, window.words.size(), window.words.size() / 2,
+                orderedOutput);
+        StringBuilder commonWords = new StringBuilder();
+        for (int index : commonWordIndices) {
+            commonWords.append(" ");
+            commonWords.append(window.words.get(index));
+        }
+        commonWords.append("\n\n");
+
+        if (printToLocal) {
+            try {
+                FileWriter fileWriter = new FileWriter(outputFilePath, true);
+                fileWriter.write(commonWords.toString());
+                fileWriter.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        outputCollector.emit(new Values(commonWords.toString()));
+    }
+
+    @Override
+    public void declareOutputFields(OutputFieldsDeclarer declarer) {
+        declarer.declare(new Fields(COMMON_WORD_OUTPUT_FIELD));
+    }
+
+    /**
+     * The concatenated partial counts of one window
+     */
+    private static final class MergedWindow {
+
+        private final ArrayList<String> words = new ArrayList<>();
+        private int[] counts = new int[0];
+
+        private void add(List<String> partialWords, int[] partialCounts) {
+            int size = words.size();
+            if (counts.length < size + partialCounts.length) {
+                counts = Arrays.copyOf(counts, Math.max(size + partialCounts.length, counts.length * 2));
+            }
+            System.arraycopy(partialCounts, 0, counts, size, partialCounts.length);
+            words.addAll(partialWords);
+        }
+    }
+}
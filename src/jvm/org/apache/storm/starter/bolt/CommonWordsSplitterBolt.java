@@ -0,0 +1,92 @@
+package org.apache.storm.starter.bolt;
+
+import org.apache.storm.starter.tools.CharSequenceSet;
+import org.apache.storm.starter.tools.StopWordsFile;
+import org.apache.storm.starter.tools.WordTokenizer;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.topology.OutputFieldsDeclarer;
+import org.apache.storm.topology.base.BaseRichBolt;
+import org.apache.storm.tuple.Fields;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.tuple.Values;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * First stage of the parallel common words pipeline: splits each input text into words, the same way
+ * {@link TwitterCommonWordsFilterPrinterBolt} does, and emits every distinct word that is not a stop word together
+ * with its number of occurrences in the text.
+ * <p/>
+ * The bolt keeps no state across inputs apart from the stop words, so it can run with any parallelism. Subscribe
+ * {@link WindowedWordCountBolt} to it with a fields grouping on {@link #WORD_FIELD}.
+ */
+public class CommonWordsSplitterBolt extends BaseRichBolt {
+
+    // Constants
+    public final static String WORD_FIELD = "word";
+    public final static String COUNT_FIELD = "count";
+
+    private CharSequenceSet stopWords = new CharSequenceSet(TwitterCommonWordsFilterPrinterBolt.getStopWords());
+    private String stopWordsFileName;
+
+    private OutputCollector outputCollector;
+    private StopWordsFile stopWordsFile;
+    private WordTokenizer tokenizer;
+    private HashMap<String, Integer> wordCounts;
+
+    /**
+     * Filter the stop words listed in a file instead of the built-in English ones, see
+     * {@link TwitterCommonWordsFilterPrinterBolt#withStopWordsFile(String)}. Every task reads the file on its own, so
+     * the tasks may filter with different lists for up to the poll interval after it changed.
+     *
+     * @param fileName path of the stop words file on the workers
+     * @return this bolt
+     */
+    public CommonWordsSplitterBolt withStopWordsFile(String fileName) {
+        this.stopWordsFileName = fileName;
+        return this;
+    }
+
+    @Override
+    public void prepare(Map stormConf, TopologyContext context, OutputCollector collector) {
+        this.outputCollector = collector;
+        this.tokenizer = new WordTokenizer();
+        this.wordCounts = new HashMap<>();
+        if (stopWordsFileName != null) {
+            this.stopWordsFile = new StopWordsFile(stopWordsFileName, stopWords,
+                    StopWordsFile.DEFAULT_POLL_INTERVAL_MILLIS);
+            this.stopWords = stopWordsFile.poll(System.currentTimeMillis());
+        }
+    }
+
+    @Override
+    public void execute(Tuple tuple) {
+        if (stopWordsFile != null) {
+            stopWords = stopWordsFile.poll(System.currentTimeMillis());
+        }
+
+        // Pre-aggregate the words of the text, so repeated words are sent downstream once
+        wordCounts.clear();
+        tokenizer.reset((String) tuple.getValue(0));
+        while (tokenizer.next()) {
+            CharSequence word = tokenizer.word();
+            if (!stopWords.contains(word)) {
+                String tweetWord = word.toString();
+                Integer count = wordCounts.get(tweetWord);
+                wordCounts.put(tweetWord, count == null ? 1 : count + 1);
+            }
+        }
+
+        for (Map.Entry<String, Integer> entry : wordCounts.entrySet()) {
+            outputCollector.emit(tuple, new Values(entry.getKey(), entry.getValue()));
+        }
+        outputCollector.ack(tuple);
+    }
+
+    @Override
+    public void declareOutputFields(OutputFieldsDeclarer declarer) {
+        declarer.declare(new Fields(WORD_FIELD, COUNT_FIELD));
+    }
+}
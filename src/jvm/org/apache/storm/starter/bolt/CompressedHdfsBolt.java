@@ -0,0 +1,155 @@
+package org.apache.storm.starter.bolt;
+
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.client.HdfsDataOutputStream;
+import org.apache.storm.hdfs.bolt.AbstractHdfsBolt;
+import org.apache.storm.hdfs.bolt.format.FileNameFormat;
+import org.apache.storm.hdfs.bolt.format.RecordFormat;
+import org.apache.storm.hdfs.bolt.rotation.FileRotationPolicy;
+import org.apache.storm.hdfs.bolt.sync.SyncPolicy;
+import org.apache.storm.starter.twitter.CompressedBlockEncoder;
+import org.apache.storm.starter.twitter.CompressedBlockFormat;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.tuple.Tuple;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * HdfsBolt that writes the output of a record format block-compressed (see {@link CompressedBlockFormat}); inflating a
+ * written file gives back exactly what the plain HdfsBolt would have written.
+ * <p/>
+ * Records are collected into blocks that are compressed once they are full. The block being filled is finished
+ * whenever the sync policy fires, right before the data is synced, and before a file is rotated or closed. The
+ * AbstractHdfsBolt only acks tuples after a sync, so every acked tuple is in a complete block on HDFS. The tuples of
+ * a block lost with the worker are only replayed if the bolts upstream emit them anchored, as TweetsCounterPrinterBolt
+ * does; from an unanchored stream they are lost, up to a sync policy's worth of tuples per task. The sync policy
+ * therefore also bounds the size of the blocks: syncing more often than a block fills up gives smaller blocks and a
+ * lower compression ratio.
+ */
+public class CompressedHdfsBolt extends AbstractHdfsBolt {
+
+    private RecordFormat format;
+    private int blockBytes = CompressedBlockFormat.DEFAULT_BLOCK_BYTES;
+    private int level = Deflater.DEFAULT_COMPRESSION;
+
+    private transient FSDataOutputStream out;
+    private transient CompressedBlockEncoder encoder;
+
+    public CompressedHdfsBolt withFsUrl(String fsUrl) {
+        this.fsUrl = fsUrl;
+        return this;
+    }
+
+    public CompressedHdfsBolt withConfigKey(String configKey) {
+        this.configKey = configKey;
+        return this;
+    }
+
+    public CompressedHdfsBolt withFileNameFormat(FileNameFormat fileNameFormat) {
+        this.fileNameFormat = fileNameFormat;
+        return this;
+    }
+
+    public CompressedHdfsBolt withRecordFormat(RecordFormat format) {
+        this.format = format;
+        return this;
+    }
+
+    public CompressedHdfsBolt withSyncPolicy(SyncPolicy syncPolicy) {
+        this.syncPolicy = syncPolicy;
+        return this;
+    }
+
+    /**
+     * The rotation policy sees the compressed size of the file
+     *
+     * @param rotationPolicy
+     * @return this bolt
+     */
+    public CompressedHdfsBolt withRotationPolicy(FileRotationPolicy rotationPolicy) {
+        this.rotationPolicy = rotationPolicy;
+        return this;
+    }
+
+    public CompressedHdfsBolt withTickTupleIntervalSeconds(int interval) {
+        this.tickTupleInterval = interval;
+        return this;
+    }
+
+    /**
+     * @param blockBytes uncompressed size after which a block is compressed
+     * @param level      deflate level
+     * @return this bolt
+     */
+    public CompressedHdfsBolt withBlock(int blockBytes, int level) {
+        this.blockBytes = blockBytes;
+        this.level = level;
+        return this;
+    }
+
+    @Override
+    protected void doPrepare(Map conf, TopologyContext topologyContext, OutputCollector collector)
+            throws IOException {
+        this.fs = FileSystem.get(URI.create(this.fsUrl), hdfsConfig);
+        // Created on the worker, the deflater can not be serialized
+        this.encoder = new CompressedBlockEncoder(blockBytes, level);
+    }
+
+    @Override
+    protected void writeTuple(Tuple tuple) throws IOException {
+        byte[] record = format.format(tuple);
+        write(encoder.append(record, 0, record.length));
+    }
+
+    @Override
+    protected void syncTuples() throws IOException {
+        write(encoder.finishBlock());
+        if (out instanceof HdfsDataOutputStream) {
+            ((HdfsDataOutputStream) out).hsync(EnumSet.of(HdfsDataOutputStream.SyncFlag.UPDATE_LENGTH));
+        } else {
+            out.hsync();
+        }
+    }
+
+    @Override
+    protected void closeOutputFile() throws IOException {
+        write(encoder.finishBlock());
+        out.close();
+    }
+
+    @Override
+    protected Path createOutputFile() throws IOException {
+        Path path = new Path(fileNameFormat.getPath(), fileNameFormat.getName(rotation, System.currentTimeMillis()));
+        out = fs.create(path);
+        return path;
+    }
+
+    private void write(byte[] frame) throws IOException {
+        if (frame.length > 0) {
+            out.write(frame);
+            offset += frame.length;
+        }
+    }
+
+    @Override
+    public void cleanup() {
+        // Unsynced tuples were not acked and time out, so the unfinished block is not written; they are replayed if
+        // they were emitted anchored, otherwise the unfinished block is lost
+        synchronized (writeLock) {
+            if (rotationTimer != null) {
+                rotationTimer.cancel();
+            }
+            if (encoder != null) {
+                encoder.end();
+                encoder = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package org.apache.storm.starter.bolt;
+
+import org.apache.storm.Config;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.topology.OutputFieldsDeclarer;
+import org.apache.storm.topology.base.BaseRichBolt;
+import org.apache.storm.tuple.Fields;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.tuple.Values;
+import org.apache.storm.utils.NimbusClient;
+import org.apache.storm.utils.Time;
+import org.apache.storm.utils.TupleUtils;
+import org.apache.storm.utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Storm bolt that hands out a global quota of tweets in leases, so that the counting bolt can run with many tasks and
+ * collection still stops after exactly the quota.
+ * <p/>
+ * Counting tasks send lease requests on {@link #REQUEST_STREAM}, together with the number of tweets they processed
+ * from one of their leases since their last message. The coordinator answers each request on the direct
+ * {@link #GRANT_STREAM} with the next block of the quota, which is smaller or zero once the quota runs out. When the
+ * reported consumption reaches the quota, i.e. every lease has been used up, the coordinator kills the topology,
+ * exactly once. Run it as a single task subscribed to the requests with a global grouping, and subscribe the counting
+ * bolt to the grants with a direct grouping.
+ * <p/>
+ * Requests and grants are emitted unanchored, so either may be lost, and a counting task may restart with the leases
+ * it held. A lease therefore has to be used up within the lease timeout: a task gives back what is left of a lease
+ * after half the timeout, and the coordinator reclaims what is still unreported after the full timeout, so a lost
+ * grant or a crashed task delays the shutdown by at most the timeout instead of blocking it. Consumption reported
+ * after its lease was reclaimed still counts, so the quota is exceeded only by tweets of a reclaimed lease that was
+ * handed out again before their late report arrived.
+ */
+public class QuotaCoordinatorBolt extends BaseRichBolt {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QuotaCoordinatorBolt.class);
+
+    // Constants
+    public final static String REQUEST_STREAM = "quotaRequest";
+    public final static String GRANT_STREAM = "quotaGrant";
+    public final static String TASK_ID_FIELD = "taskId";
+    public final static String LEASE_ID_FIELD = "leaseId";
+    public final static String CONSUMED_FIELD = "consumed";
+    public final static String RETURNED_FIELD = "returned";
+    public final static String REQUEST_FIELD = "request";
+    public final static String GRANTED_FIELD = "granted";
+    public final static long NO_LEASE = -1L;
+    public final static int DEFAULT_LEASE_TIMEOUT_SECS = 60;
+    private final static int TICKS_PER_LEASE_TIMEOUT = 4;
+
+    private final long quota;
+    private final int leaseSize;
+    private final String topologyName;
+    private int leaseTimeoutSecs = DEFAULT_LEASE_TIMEOUT_SECS;
+
+    private OutputCollector outputCollector;
+    private long granted = 0;
+    private long consumed = 0;
+    private long nextLeaseId = 0;
+    private boolean shutdownSignaled = false;
+    // In the order of granting, which is also the order of expiry
+    private final Map<Long, Lease> leases = new LinkedHashMap<>();
+
+    private static final class Lease {
+        final int taskId;
+        final long grantedAtMillis;
+        long remaining;
+
+        Lease(int taskId, long grantedAtMillis, long remaining) {
+            this.taskId = taskId;
+            this.grantedAtMillis = grantedAtMillis;
+            this.remaining = remaining;
+        }
+    }
+
+    /**
+     * Constructor
+     *
+     * @param quota        total number of tweets to collect
+     * @param leaseSize    number of tweets granted per request
+     * @param topologyName topology to kill once the quota has been consumed
+     */
+    public QuotaCoordinatorBolt(long quota, int leaseSize, String topologyName) {
+        if (leaseSize <= 0) {
+            throw new IllegalArgumentException("Lease size must be positive (you requested " + leaseSize + ")");
+        }
+        this.quota = quota;
+        this.leaseSize = leaseSize;
+        this.topologyName = topologyName;
+    }
+
+    /**
+     * Reclaim leases that are not used up within the timeout; the counting bolt must use the same timeout, see
+     * {@link TweetsCounterPrinterBolt#withQuota(int, int)}
+     *
+     * @param leaseTimeoutSecs
+     * @return this bolt
+     */
+    public QuotaCoordinatorBolt withLeaseTimeout(int leaseTimeoutSecs) {
+        if (leaseTimeoutSecs <= 0) {
+            throw new IllegalArgumentException(
+                    "Lease timeout must be positive (you requested " + leaseTimeoutSecs + ")");
+        }
+        this.leaseTimeoutSecs = leaseTimeoutSecs;
+        return this;
+    }
+
+    /**
+     * @param leaseTimeoutSecs
+     * @return the tick frequency at which the coordinator and the counting tasks check their leases
+     */
+    static int leaseCheckIntervalSecs(int leaseTimeoutSecs) {
+        return Math.max(1, leaseTimeoutSecs / TICKS_PER_LEASE_TIMEOUT);
+    }
+
+    @Override
+    public void prepare(Map stormConf, TopologyContext context, OutputCollector collector) {
+        this.outputCollector = collector;
+    }
+
+    @Override
+    public void execute(Tuple tuple) {
+        if (TupleUtils.isTick(tuple)) {
+            reclaimExpiredLeases();
+            return;
+        }
+
+        long consumedNow = tuple.getLongByField(CONSUMED_FIELD);
+        long returned = tuple.getLongByField(RETURNED_FIELD);
+        consumed += consumedNow;
+        Lease lease = leases.get(tuple.getLongByField(LEASE_ID_FIELD));
+        if (lease != null) {
+            lease.remaining -= consumedNow + returned;
+            granted -= returned;
+            if (lease.remaining <= 0) {
+                leases.remove(tuple.getLongByField(LEASE_ID_FIELD));
+            }
+        } else {
+            // The lease was reclaimed already, take back what was used of it after all
+            granted += consumedNow;
+        }
+
+        if (tuple.getBooleanByField(REQUEST_FIELD)) {
+            int taskId = tuple.getIntegerByField(TASK_ID_FIELD);
+            long amount = Math.max(0L, Math.min(leaseSize, quota - granted));
+            long leaseId = NO_LEASE;
+            if (amount > 0) {
+                granted += amount;
+                leaseId = nextLeaseId++;
+                leases.put(leaseId, new Lease(taskId, Time.currentTimeMillis(), amount));
+            }
+            outputCollector.emitDirect(taskId, GRANT_STREAM, new Values(leaseId, amount));
+        }
+        outputCollector.ack(tuple);
+
+        if (consumed >= quota && !shutdownSignaled) {
+            shutdownSignaled = true;
+            LOG.info("Collected the quota of {} tweets, killing topology {}", quota, topologyName);
+            killTopology();
+        }
+    }
+
+    private void reclaimExpiredLeases() {
+        long expiredBeforeMillis = Time.currentTimeMillis() - leaseTimeoutSecs * 1000L;
+        Iterator<Lease> iterator = leases.values().iterator();
+        while (iterator.hasNext()) {
+            Lease lease = iterator.next();
+            if (lease.grantedAtMillis > expiredBeforeMillis) {
+                break;
+            }
+            LOG.warn("Reclaiming {} tweets of a lease of task {} that was not used up within {} seconds",
+                    lease.remaining, lease.taskId, leaseTimeoutSecs);
+            granted -= lease.remaining;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Kill the topology through Nimbus
+     */
+    protected void killTopology() {
+        try {
+            NimbusClient.getConfiguredClient(Utils.readStormConfig()).getClient().killTopology(topologyName);
+        } catch (Exception e) {
+            LOG.error("Failed to kill topology {}", topologyName, e);
+        }
+    }
+
+    @Override
+    public void declareOutputFields(OutputFieldsDeclarer declarer) {
+        declarer.declareStream(GRANT_STREAM, true, new Fields(LEASE_ID_FIELD, GRANTED_FIELD));
+    }
+
+    @Override
+    public Map<String, Object> getComponentConfiguration() {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS, leaseCheckIntervalSecs(leaseTimeoutSecs));
+        return conf;
+    }
+}
@@ -18,6 +18,7 @@
 package org.apache.storm.starter.bolt;
 
 import org.apache.storm.Config;
+import org.apache.storm.metric.api.IMetric;
 import org.apache.storm.task.OutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.topology.OutputFieldsDeclarer;
@@ -27,8 +28,11 @@ import org.apache.storm.tuple.Tuple;
 import org.apache.storm.tuple.Values;
 import org.apache.storm.utils.TupleUtils;
 import org.apache.log4j.Logger;
+import org.apache.storm.starter.tools.CountMinWindowCounter;
 import org.apache.storm.starter.tools.NthLastModifiedTimeTracker;
+import org.apache.storm.starter.tools.RollingCounter;
 import org.apache.storm.starter.tools.SlidingWindowCounter;
+import org.apache.storm.starter.tools.SpaceSavingWindowCounter;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -52,6 +56,13 @@ import java.util.Map.Entry;
  * length being smaller than the expected length. This behavior is expected and is caused by the way the sliding window
  * counts are initially "loaded up". You can safely ignore this warning during startup (e.g. you will see this warning
  * during the first ~ five minutes of startup time if the window length is set to five minutes).
+ * <p/>
+ * By default the bolt counts every object exactly, so its memory grows with the number of distinct objects in the
+ * window. Given a heavy hitter capacity, it instead tracks only that many objects per window chunk with a
+ * {@link SpaceSavingWindowCounter} and emits the approximate counts of the most frequent objects, each with a fourth
+ * field holding the maximum overestimation of the counts of that window. Given a relative error as well, it counts
+ * with a {@link CountMinWindowCounter} instead, whose memory does not depend on the number of distinct objects at all.
+ * Approximate bolts also report the maximum error of the latest window as the metric "countMaxError".
  */
 public class RollingCountBolt extends BaseRichBolt {
 
@@ -59,14 +70,16 @@ public class RollingCountBolt extends BaseRichBolt {
   private static final Logger LOG = Logger.getLogger(RollingCountBolt.class);
   private static final int NUM_WINDOW_CHUNKS = 5;
   private static final int DEFAULT_SLIDING_WINDOW_IN_SECONDS = NUM_WINDOW_CHUNKS * 60;
+  private static final double COUNT_MIN_FAILURE_PROBABILITY = 0.01;
   private static final int DEFAULT_EMIT_FREQUENCY_IN_SECONDS = DEFAULT_SLIDING_WINDOW_IN_SECONDS / NUM_WINDOW_CHUNKS;
   private static final String WINDOW_LENGTH_WARNING_TEMPLATE =
       "Actual window length is %d seconds when it should be %d seconds"
           + " (you can safely ignore this warning during the startup phase)";
 
-  private final SlidingWindowCounter<Object> counter;
+  private final RollingCounter<Object> counter;
   private final int windowLengthInSeconds;
   private final int emitFrequencyInSeconds;
+  private final boolean approximate;
   private OutputCollector collector;
   private NthLastModifiedTimeTracker lastModifiedTracker;
 
@@ -79,6 +92,24 @@ public class RollingCountBolt extends BaseRichBolt {
     this.emitFrequencyInSeconds = emitFrequencyInSeconds;
     counter = new SlidingWindowCounter<Object>(deriveNumWindowChunksFrom(this.windowLengthInSeconds,
         this.emitFrequencyInSeconds));
+    approximate = false;
+  }
+
+  public RollingCountBolt(int windowLengthInSeconds, int emitFrequencyInSeconds, int heavyHitterCapacity) {
+    this.windowLengthInSeconds = windowLengthInSeconds;
+    this.emitFrequencyInSeconds = emitFrequencyInSeconds;
+    counter = new SpaceSavingWindowCounter<Object>(deriveNumWindowChunksFrom(this.windowLengthInSeconds,
+        this.emitFrequencyInSeconds), heavyHitterCapacity);
+    approximate = true;
+  }
+
+  public RollingCountBolt(int windowLengthInSeconds, int emitFrequencyInSeconds, int heavyHitterCapacity,
+      double relativeError) {
+    this.windowLengthInSeconds = windowLengthInSeconds;
+    this.emitFrequencyInSeconds = emitFrequencyInSeconds;
+    counter = new CountMinWindowCounter<Object>(deriveNumWindowChunksFrom(this.windowLengthInSeconds,
+        this.emitFrequencyInSeconds), heavyHitterCapacity, relativeError, COUNT_MIN_FAILURE_PROBABILITY);
+    approximate = true;
   }
 
   private int deriveNumWindowChunksFrom(int windowLengthInSeconds, int windowUpdateFrequencyInSeconds) {
@@ -91,6 +122,14 @@ public class RollingCountBolt extends BaseRichBolt {
     this.collector = collector;
     lastModifiedTracker = new NthLastModifiedTimeTracker(deriveNumWindowChunksFrom(this.windowLengthInSeconds,
         this.emitFrequencyInSeconds));
+    if (approximate) {
+      context.registerMetric("countMaxError", new IMetric() {
+        @Override
+        public Object getValueAndReset() {
+          return counter.getMaxError();
+        }
+      }, emitFrequencyInSeconds);
+    }
   }
 
   @Override
@@ -118,7 +157,12 @@ public class RollingCountBolt extends BaseRichBolt {
     for (Entry<Object, Long> entry : counts.entrySet()) {
       Object obj = entry.getKey();
       Long count = entry.getValue();
-      collector.emit(new Values(obj, count, actualWindowLengthInSeconds));
+      if (approximate) {
+        collector.emit(new Values(obj, count, actualWindowLengthInSeconds, counter.getMaxError()));
+      }
+      else {
+        collector.emit(new Values(obj, count, actualWindowLengthInSeconds));
+      }
     }
   }
 
@@ -130,7 +174,12 @@ public class RollingCountBolt extends BaseRichBolt {
 
   @Override
   public void declareOutputFields(OutputFieldsDeclarer declarer) {
-    declarer.declare(new Fields("obj", "count", "actualWindowLengthInSeconds"));
+    if (approximate) {
+      declarer.declare(new Fields("obj", "count", "actualWindowLengthInSeconds", "maxError"));
+    }
+    else {
+      declarer.declare(new Fields("obj", "count", "actualWindowLengthInSeconds"));
+    }
   }
 
   @Override
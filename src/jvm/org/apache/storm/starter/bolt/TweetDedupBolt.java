@@ -0,0 +1,94 @@
+package org.apache.storm.starter.bolt;
+
+import org.apache.storm.Config;
+import org.apache.storm.metric.api.CountMetric;
+import org.apache.storm.starter.twitter.StatusDeduplicator;
+import org.apache.storm.starter.twitter.Tweets;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.topology.OutputFieldsDeclarer;
+import org.apache.storm.topology.base.BaseRichBolt;
+import org.apache.storm.tuple.Fields;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.tuple.Values;
+import org.apache.storm.utils.TupleUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Storm bolt that drops duplicate tweets, e.g. redelivered after a stream reconnect or, with retweet collapsing, mass
+ * retweets of one status, using a {@link StatusDeduplicator}.
+ * <p/>
+ * The filter generations are rotated by tick tuples. Memory stays fixed, but each task only sees its own input, so
+ * either run a single task or group the input by status id.
+ */
+public class TweetDedupBolt extends BaseRichBolt {
+
+    // Constants
+    private final static String TWEET_OUTPUT_FIELD = "tweet";
+    private final static String DUPLICATES_METRIC = "tweet-duplicates-dropped";
+    private final static int METRICS_TIME_BUCKET_SECS = 60;
+    private final static long MILLIS_PER_SECOND = 1000L;
+
+    private final int expectedTweetsPerInterval;
+    private final double falsePositiveRate;
+    private final int rotationIntervalSeconds;
+    private final boolean collapseRetweets;
+
+    private OutputCollector outputCollector;
+    private StatusDeduplicator deduplicator;
+    private CountMetric duplicatesMetric;
+
+    /**
+     * Constructor
+     *
+     * @param expectedTweetsPerInterval number of tweets expected within one rotation interval
+     * @param falsePositiveRate         target rate of new tweets wrongly dropped as duplicate
+     * @param rotationIntervalSeconds   how long a tweet is remembered at least
+     * @param collapseRetweets          whether to pass only one tweet per retweeted status
+     */
+    public TweetDedupBolt(int expectedTweetsPerInterval, double falsePositiveRate, int rotationIntervalSeconds,
+                          boolean collapseRetweets) {
+        this.expectedTweetsPerInterval = expectedTweetsPerInterval;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rotationIntervalSeconds = rotationIntervalSeconds;
+        this.collapseRetweets = collapseRetweets;
+    }
+
+    @Override
+    public void prepare(Map stormConf, TopologyContext context, OutputCollector collector) {
+        this.outputCollector = collector;
+        // Created here rather than in the constructor to keep the filter bits out of the serialized topology
+        this.deduplicator = new StatusDeduplicator(expectedTweetsPerInterval, falsePositiveRate,
+                rotationIntervalSeconds * MILLIS_PER_SECOND, collapseRetweets);
+        this.duplicatesMetric = context.registerMetric(DUPLICATES_METRIC, new CountMetric(), METRICS_TIME_BUCKET_SECS);
+    }
+
+    @Override
+    public void execute(Tuple tuple) {
+        if (TupleUtils.isTick(tuple)) {
+            deduplicator.rotate();
+            return;
+        }
+
+        if (deduplicator.isDuplicate(Tweets.from(tuple.getValue(0)))) {
+            duplicatesMetric.incr();
+        } else {
+            outputCollector.emit(tuple, new Values(tuple.getValue(0)));
+        }
+        outputCollector.ack(tuple);
+    }
+
+    @Override
+    public void declareOutputFields(OutputFieldsDeclarer declarer) {
+        declarer.declare(new Fields(TWEET_OUTPUT_FIELD));
+    }
+
+    @Override
+    public Map<String, Object> getComponentConfiguration() {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS, rotationIntervalSeconds);
+        return conf;
+    }
+}
@@ -0,0 +1,113 @@
+package org.apache.storm.starter.bolt;
+
+import org.apache.storm.Config;
+import org.apache.storm.starter.twitter.Tweet;
+import org.apache.storm.starter.twitter.TweetLogWriter;
+import org.apache.storm.starter.twitter.Tweets;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.topology.OutputFieldsDeclarer;
+import org.apache.storm.topology.base.BaseRichBolt;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.utils.TupleUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Storm bolt that appends the tweets to a {@link TweetLogWriter tweet log}, keyed by status id and creation time, so
+ * that backfills can look them up with a {@link org.apache.storm.starter.twitter.TweetLogReader} instead of scanning
+ * text files.
+ * <p/>
+ * Tick tuples seal segments that have been open longer than the rotation interval and force the written tweets to
+ * disk. They arrive at a fraction of the rotation interval, at least once a minute, so a segment is sealed soon after
+ * it is due rather than up to a whole interval late. A tweet that can not be written, e.g. because it does not fit
+ * into a segment, fails its tuple. A log directory belongs to a single writer, so run one task per directory.
+ */
+public class TweetLogBolt extends BaseRichBolt {
+
+    // Constants
+    private final static long MILLIS_PER_SECOND = 1000L;
+    private final static int MAX_TICK_FREQUENCY_IN_SECONDS = 60;
+    private final static int TICKS_PER_ROTATION_INTERVAL = 4;
+
+    private final String logDirectory;
+    private final int segmentBytes;
+    private final int rotationIntervalSeconds;
+
+    private OutputCollector outputCollector;
+    private TweetLogWriter logWriter;
+
+    /**
+     * Constructor
+     *
+     * @param logDirectory            directory of the tweet log
+     * @param segmentBytes            size of each segment
+     * @param rotationIntervalSeconds time after which a segment is sealed even if it is not full
+     */
+    public TweetLogBolt(String logDirectory, int segmentBytes, int rotationIntervalSeconds) {
+        this.logDirectory = logDirectory;
+        this.segmentBytes = segmentBytes;
+        this.rotationIntervalSeconds = rotationIntervalSeconds;
+    }
+
+    @Override
+    public void prepare(Map stormConf, TopologyContext context, OutputCollector collector) {
+        this.outputCollector = collector;
+        try {
+            this.logWriter = new TweetLogWriter(new File(logDirectory), segmentBytes,
+                    rotationIntervalSeconds * MILLIS_PER_SECOND, TweetLogWriter.DEFAULT_INDEX_INTERVAL_BYTES);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not open the tweet log in " + logDirectory, e);
+        }
+    }
+
+    @Override
+    public void execute(Tuple tuple) {
+        try {
+            if (TupleUtils.isTick(tuple)) {
+                logWriter.rotateIfDue(System.currentTimeMillis());
+                logWriter.flush();
+                return;
+            }
+
+            Tweet tweet = Tweets.from(tuple.getValue(0));
+            logWriter.append(tweet.getId(), tweet.getCreatedAtMillis(), tweet.getText());
+            outputCollector.ack(tuple);
+        } catch (IOException e) {
+            outputCollector.reportError(e);
+            outputCollector.fail(tuple);
+        }
+    }
+
+    @Override
+    public void declareOutputFields(OutputFieldsDeclarer declarer) {
+    }
+
+    @Override
+    public Map<String, Object> getComponentConfiguration() {
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS, tickFrequencyInSeconds());
+        return conf;
+    }
+
+    private int tickFrequencyInSeconds() {
+        if (rotationIntervalSeconds <= 0) {
+            // No time based rotation, the ticks only force the tweets to disk
+            return MAX_TICK_FREQUENCY_IN_SECONDS;
+        }
+        int frequency = Math.min(rotationIntervalSeconds / TICKS_PER_ROTATION_INTERVAL, MAX_TICK_FREQUENCY_IN_SECONDS);
+        return Math.max(1, frequency);
+    }
+
+    @Override
+    public void cleanup() {
+        try {
+            logWriter.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
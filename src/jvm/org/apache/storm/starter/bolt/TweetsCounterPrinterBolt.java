@@ -1,5 +1,8 @@
 package org.apache.storm.starter.bolt;
 
+import org.apache.storm.Config;
+import org.apache.storm.hdfs.bolt.rotation.FileSizeRotationPolicy;
+import org.apache.storm.hdfs.bolt.sync.CountSyncPolicy;
 import org.apache.storm.task.OutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.topology.OutputFieldsDeclarer;
@@ -7,28 +10,81 @@ import org.apache.storm.topology.base.BaseRichBolt;
 import org.apache.storm.tuple.Fields;
 import org.apache.storm.tuple.Tuple;
 import org.apache.storm.tuple.Values;
-import org.apache.storm.utils.NimbusClient;
-import org.apache.storm.utils.Utils;
-import twitter4j.Status;
+import org.apache.storm.starter.twitter.BufferedFileSink;
+import org.apache.storm.starter.twitter.CompressedBlockEncoder;
+import org.apache.storm.starter.twitter.CompressedBlockFormat;
+import org.apache.storm.starter.twitter.Tweets;
+import org.apache.storm.utils.Time;
+import org.apache.storm.utils.TupleUtils;
 
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.zip.Deflater;
 
 /**
  * Storm bolt class that counts the tweets
+ * <p/>
+ * With a quota, see {@link #withQuota(int)}, the bolt only passes on tweets it holds a lease for. Leases are blocks of
+ * the global quota granted by a {@link QuotaCoordinatorBolt}, so any number of tasks together stop after exactly the
+ * quota. A task asks for the next lease while a quarter of the current one is left; tweets arriving while it has none
+ * wait for the grant, and once the quota is exhausted further tweets are acked and dropped. A task uses a lease for at
+ * most half the lease timeout and then gives back what is left of it, and asks again when a request stays unanswered
+ * that long, so lost requests and grants do not stall it (see {@link QuotaCoordinatorBolt}). Without a quota the bolt
+ * counts nothing and never stops the topology; collection then runs until the topology is killed.
+ * <p/>
+ * With compressed local output the block being filled is finished whenever the file sink syncs, and on a tick once per
+ * flush interval of the sink, so a slow stream still reaches the disk and a killed worker loses at most the tweets of
+ * the last interval, as with plain output. Tweets are emitted anchored to their input, so a tweet the downstream HDFS
+ * bolt fails or never syncs is replayed by the spout.
  */
 public class TweetsCounterPrinterBolt extends BaseRichBolt {
 
     // Constants
-    private final static String COLLECT_TWEETS_TOPOLOGY = "CollectTweets";
     private final static String TWEET_OUTPUT_FIELD = "tweet";
-    private final static int MAX_TWEET_COLLECTION_LIMIT = 3000000;
+    private final static int NO_QUOTA = 0;
+    private final static int LEASE_REQUEST_FRACTION = 4;
+    private final static int SYNC_POLICY_COUNT = 1000;
+    private final static float FILE_ROTATION_POLICY_SIZE = 5.0f;
+    private final static int BLOCK_FLUSH_INTERVAL_SECS =
+            (int) (BufferedFileSink.DEFAULT_FLUSH_INTERVAL_MILLISEC / 1000);
 
     private OutputCollector outputCollector;
-    private int currentTweetsCount = 0;
+    private BufferedFileSink fileSink;
+    private CompressedBlockEncoder blockEncoder;
+    private CountSyncPolicy blockSyncPolicy;
     private String outputFilePath;
     private boolean printToLocal;
+    private boolean compressOutput;
+    private int quotaLeaseSize = NO_QUOTA;
+
+    private int leaseTimeoutSecs = QuotaCoordinatorBolt.DEFAULT_LEASE_TIMEOUT_SECS;
+
+    // Quota lease state
+    private int taskId;
+    private long leaseRemaining = 0;
+    private boolean leaseRequested = false;
+    private long leaseRequestedAtMillis;
+    private boolean quotaExhausted = false;
+    private final Deque<Lease> leases = new ArrayDeque<>();
+    private final Deque<Tuple> waitingForLease = new ArrayDeque<>();
+
+    private static final class Lease {
+        final long id;
+        final long expiresAtMillis;
+        long remaining;
+        long consumedSinceReport = 0;
+
+        Lease(long id, long remaining, long expiresAtMillis) {
+            this.id = id;
+            this.remaining = remaining;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
 
     /**
      * Constructor
@@ -37,48 +93,253 @@ public class TweetsCounterPrinterBolt extends BaseRichBolt {
      * @param printToLocal
      */
     public TweetsCounterPrinterBolt(String outputFilePath, boolean printToLocal) {
+        this(outputFilePath, printToLocal, false);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param outputFilePath
+     * @param printToLocal
+     * @param compressOutput whether to write the local file block-compressed (see {@link CompressedBlockFormat})
+     */
+    public TweetsCounterPrinterBolt(String outputFilePath, boolean printToLocal, boolean compressOutput) {
         this.outputFilePath = outputFilePath;
         this.printToLocal = printToLocal;
+        this.compressOutput = compressOutput;
+    }
+
+    /**
+     * Count against a global quota leased from a {@link QuotaCoordinatorBolt}; subscribe the bolt to its
+     * {@link QuotaCoordinatorBolt#GRANT_STREAM} with a direct grouping and the coordinator to this bolt's
+     * {@link QuotaCoordinatorBolt#REQUEST_STREAM}
+     *
+     * @param leaseSize lease size of the coordinator, used to decide when to ask for the next lease
+     * @return this bolt
+     */
+    public TweetsCounterPrinterBolt withQuota(int leaseSize) {
+        return withQuota(leaseSize, QuotaCoordinatorBolt.DEFAULT_LEASE_TIMEOUT_SECS);
+    }
+
+    /**
+     * Count against a global quota leased from a {@link QuotaCoordinatorBolt} with a lease timeout other than the
+     * default
+     *
+     * @param leaseSize        lease size of the coordinator, used to decide when to ask for the next lease
+     * @param leaseTimeoutSecs lease timeout of the coordinator, see {@link QuotaCoordinatorBolt#withLeaseTimeout(int)}
+     * @return this bolt
+     */
+    public TweetsCounterPrinterBolt withQuota(int leaseSize, int leaseTimeoutSecs) {
+        this.quotaLeaseSize = leaseSize;
+        this.leaseTimeoutSecs = leaseTimeoutSecs;
+        return this;
     }
 
     @Override
     public void prepare(Map stormConf, TopologyContext context, OutputCollector collector) {
         this.outputCollector = collector;
+        this.taskId = context.getThisTaskId();
+        if (printToLocal) {
+            // Parallel tasks each write a file of their own
+            String taskFilePath = context.getComponentTasks(context.getThisComponentId()).size() > 1
+                    ? outputFilePath + "-" + context.getThisTaskIndex() : outputFilePath;
+            try {
+                this.fileSink = new BufferedFileSink(taskFilePath, BufferedFileSink.DEFAULT_BUFFER_BYTES,
+                        new CountSyncPolicy(SYNC_POLICY_COUNT),
+                        new FileSizeRotationPolicy(FILE_ROTATION_POLICY_SIZE, FileSizeRotationPolicy.Units.MB),
+                        BufferedFileSink.DEFAULT_FLUSH_INTERVAL_MILLISEC);
+            } catch (IOException e) {
+                throw new RuntimeException("Could not open " + taskFilePath, e);
+            }
+            if (compressOutput) {
+                this.blockEncoder = new CompressedBlockEncoder(CompressedBlockFormat.DEFAULT_BLOCK_BYTES,
+                        Deflater.DEFAULT_COMPRESSION);
+                // Counts the same writes as the sync policy of the sink, so each sync includes the finished block
+                this.blockSyncPolicy = new CountSyncPolicy(SYNC_POLICY_COUNT);
+            }
+        }
     }
 
     @Override
     public void execute(Tuple tuple) {
+        if (TupleUtils.isTick(tuple)) {
+            finishBlock();
+            if (quotaLeaseSize != NO_QUOTA) {
+                checkLeases();
+            }
+            return;
+        }
+        if (QuotaCoordinatorBolt.GRANT_STREAM.equals(tuple.getSourceStreamId())) {
+            receiveLease(tuple.getLongByField(QuotaCoordinatorBolt.LEASE_ID_FIELD),
+                    tuple.getLongByField(QuotaCoordinatorBolt.GRANTED_FIELD));
+            outputCollector.ack(tuple);
+            return;
+        }
 
-        // Kill topology when the maximum number of tweets have been collected
-        if (currentTweetsCount == MAX_TWEET_COLLECTION_LIMIT) {
-            try {
-                NimbusClient.getConfiguredClient(Utils.readStormConfig()).getClient()
-                        .killTopology(COLLECT_TWEETS_TOPOLOGY);
-            } catch (Exception e) {
-                e.printStackTrace();
+        if (quotaLeaseSize == NO_QUOTA) {
+            printTweet(tuple);
+        } else if (!waitingForLease.isEmpty()) {
+            waitingForLease.add(tuple);
+        } else {
+            countTweet(tuple);
+        }
+    }
+
+    private void receiveLease(long leaseId, long amount) {
+        leaseRequested = false;
+        if (amount == 0) {
+            quotaExhausted = true;
+        } else {
+            quotaExhausted = false;
+            leases.add(new Lease(leaseId, amount, Time.currentTimeMillis() + leaseTimeoutSecs * 1000L / 2));
+            leaseRemaining += amount;
+        }
+        while (!waitingForLease.isEmpty() && (leaseRemaining > 0 || quotaExhausted)) {
+            countTweet(waitingForLease.poll());
+        }
+    }
+
+    /**
+     * Pass on a tweet against the current lease, or hold it back until the next lease arrives
+     */
+    private void countTweet(Tuple tuple) {
+        Lease lease = leases.peek();
+        if (lease == null) {
+            if (quotaExhausted) {
+                outputCollector.ack(tuple);
+                return;
             }
+            waitingForLease.add(tuple);
+            if (!leaseRequested) {
+                sendQuotaMessage(QuotaCoordinatorBolt.NO_LEASE, 0, 0, true);
+            }
+            return;
+        }
+
+        lease.remaining--;
+        lease.consumedSinceReport++;
+        leaseRemaining--;
+        printTweet(tuple);
+
+        // Report a used up lease right away, the coordinator signals the shutdown once every lease is used up
+        boolean request = !leaseRequested && leaseRemaining <= quotaLeaseSize / LEASE_REQUEST_FRACTION;
+        if (lease.remaining == 0) {
+            leases.poll();
+            sendQuotaMessage(lease.id, lease.consumedSinceReport, 0, request);
+        } else if (request) {
+            sendQuotaMessage(lease.id, lease.consumedSinceReport, 0, true);
+            lease.consumedSinceReport = 0;
+        }
+    }
+
+    /**
+     * Give back what is left of leases held for half the lease timeout, so it is reported before the coordinator
+     * reclaims it, and ask again if a request went unanswered for as long, as the request or its grant may have been
+     * lost. An exhausted quota is asked for again as well, as leases of other tasks may have been reclaimed since.
+     */
+    private void checkLeases() {
+        long now = Time.currentTimeMillis();
+        while (!leases.isEmpty() && leases.peek().expiresAtMillis <= now) {
+            Lease lease = leases.poll();
+            leaseRemaining -= lease.remaining;
+            sendQuotaMessage(lease.id, lease.consumedSinceReport, lease.remaining, false);
+        }
+        if ((leaseRequested || quotaExhausted) && now - leaseRequestedAtMillis >= leaseTimeoutSecs * 1000L / 2) {
+            sendQuotaMessage(QuotaCoordinatorBolt.NO_LEASE, 0, 0, true);
         }
+    }
 
-        currentTweetsCount++;
+    private void sendQuotaMessage(long leaseId, long consumed, long returned, boolean request) {
+        outputCollector.emit(QuotaCoordinatorBolt.REQUEST_STREAM,
+                new Values(taskId, leaseId, consumed, returned, request));
+        if (request) {
+            leaseRequested = true;
+            leaseRequestedAtMillis = Time.currentTimeMillis();
+        }
+    }
 
-        String outPutTweet = ((Status) tuple.getValue(0)).getText();
+    private void printTweet(Tuple tuple) {
+        String outPutTweet = Tweets.from(tuple.getValue(0)).getText();
 
         if (printToLocal) {
             try {
-                FileWriter fileWriter = new FileWriter(outputFilePath, true);
-                fileWriter.write(outPutTweet+ "\n\n");
-                fileWriter.close();
+                if (blockEncoder != null) {
+                    byte[] record = (outPutTweet + "\n\n").getBytes(StandardCharsets.UTF_8);
+                    byte[] frame = blockEncoder.append(record, 0, record.length);
+                    if (blockSyncPolicy.mark(tuple, 0)) {
+                        blockSyncPolicy.reset();
+                        frame = concat(frame, blockEncoder.finishBlock());
+                    }
+                    fileSink.write(tuple, frame);
+                } else {
+                    fileSink.write(tuple, outPutTweet + "\n\n");
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        outputCollector.emit(tuple, new Values(outPutTweet));
+        outputCollector.ack(tuple);
+    }
+
+    private void finishBlock() {
+        if (blockEncoder != null) {
+            try {
+                fileSink.write(null, blockEncoder.finishBlock());
             } catch (IOException e) {
                 e.printStackTrace();
             }
         }
+    }
 
-        outputCollector.emit(new Values(outPutTweet));
+    private static byte[] concat(byte[] first, byte[] second) {
+        if (first.length == 0) {
+            return second;
+        }
+        byte[] both = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, both, first.length, second.length);
+        return both;
     }
 
     @Override
     public void declareOutputFields(OutputFieldsDeclarer declarer) {
         declarer.declare(new Fields(TWEET_OUTPUT_FIELD));
+        declarer.declareStream(QuotaCoordinatorBolt.REQUEST_STREAM, new Fields(QuotaCoordinatorBolt.TASK_ID_FIELD,
+                QuotaCoordinatorBolt.LEASE_ID_FIELD, QuotaCoordinatorBolt.CONSUMED_FIELD,
+                QuotaCoordinatorBolt.RETURNED_FIELD, QuotaCoordinatorBolt.REQUEST_FIELD));
+    }
+
+    @Override
+    public Map<String, Object> getComponentConfiguration() {
+        int tickSecs = Integer.MAX_VALUE;
+        if (printToLocal && compressOutput) {
+            tickSecs = BLOCK_FLUSH_INTERVAL_SECS;
+        }
+        if (quotaLeaseSize != NO_QUOTA) {
+            tickSecs = Math.min(tickSecs, QuotaCoordinatorBolt.leaseCheckIntervalSecs(leaseTimeoutSecs));
+        }
+        if (tickSecs == Integer.MAX_VALUE) {
+            return null;
+        }
+        Map<String, Object> conf = new HashMap<String, Object>();
+        conf.put(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS, tickSecs);
+        return conf;
+    }
+
+    @Override
+    public void cleanup() {
+        if (fileSink != null) {
+            try {
+                if (blockEncoder != null) {
+                    fileSink.write(null, blockEncoder.finishBlock());
+                    blockEncoder.end();
+                }
+                fileSink.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
     }
 
 }
@@ -1,6 +1,13 @@
 package org.apache.storm.starter.bolt;
 
 
+import org.apache.storm.Config;
+import org.apache.storm.starter.tools.CharSequenceSet;
+import org.apache.storm.starter.tools.FlatSlotBasedCounter;
+import org.apache.storm.starter.tools.SpaceSavingWindowCounter;
+import org.apache.storm.starter.tools.StopWordsFile;
+import org.apache.storm.starter.tools.TopCountSelector;
+import org.apache.storm.starter.tools.WordTokenizer;
 import org.apache.storm.task.OutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.topology.OutputFieldsDeclarer;
@@ -8,24 +15,32 @@ import org.apache.storm.topology.base.BaseRichBolt;
 import org.apache.storm.tuple.Fields;
 import org.apache.storm.tuple.Tuple;
 import org.apache.storm.tuple.Values;
+import org.apache.storm.utils.TupleUtils;
 
+import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Arrays;
 import java.util.List;
 
 /**
  * Storm bolt that finds the 50% of common words in a timestamp
+ * <p/>
+ * By default every input text, e.g. the blob of filtered tweets of one interval, is counted on its own and its common
+ * words are emitted right away. With {@link #withWindow(int, int)} the bolt instead maintains the word counts of a
+ * tumbling or sliding time window across inputs, and emits the common words of the window on every tick tuple.
+ * <p/>
+ * Exact counting keeps every distinct word of the input or window in memory. With {@link #withHeavyHitters(int)} the
+ * bolt bounds this by estimating the counts with {@link SpaceSavingWindowCounter} instead.
  */
 public class TwitterCommonWordsFilterPrinterBolt extends BaseRichBolt {
 
     // Constants
     private final static String COMMON_WORD_OUTPUT_FIELD = "commonWords";
+    private final static String MAX_ERROR_OUTPUT_FIELD = "maxError";
     private final static String[] STOP_WORDS = {"a", "about", "above", "after", "again", "against", "all", "am", "an",
             "and", "any", "are", "aren't", "as", "at", "be", "because", "been", "before", "being", "below", "between",
             "both", "but", "by", "can't", "cannot", "could", "couldn't", "did", "didn't", "do", "does", "doesn't",
@@ -41,10 +56,25 @@ public class TwitterCommonWordsFilterPrinterBolt extends BaseRichBolt {
             "weren't", "what", "what's", "when", "when's", "where", "where's", "which", "while", "who", "who's",
             "whom", "why", "why's", "with", "won't", "would", "wouldn't", "you", "you'd", "you'll", "you're", "you've",
             "your", "yours", "yourself", "yourselves"};
-    private ArrayList<String> stopWords = new ArrayList<>(Arrays.asList(STOP_WORDS));
+    private CharSequenceSet stopWords = new CharSequenceSet(Arrays.asList(STOP_WORDS));
     private String outputFilePath;
     private boolean printToLocal;
+    private String stopWordsFileName;
+    private boolean orderedOutput = true;
+    private int windowLengthInSeconds;
+    private int emitFrequencyInSeconds;
+    private int heavyHitterCapacity;
     private OutputCollector outputCollector;
+    private WordTokenizer tokenizer;
+    private TopCountSelector selector;
+    private HashMap<String, Integer> wordIndices;
+    private ArrayList<String> words;
+    private int[] wordCounts;
+    private FlatSlotBasedCounter<String> windowCounter;
+    private int windowHeadSlot;
+    private SpaceSavingWindowCounter<String> heavyHitters;
+    private FlatSlotBasedCounter.Visitor<String> windowWordVisitor;
+    private StopWordsFile stopWordsFile;
 
     /**
      * Constructor
@@ -58,43 +88,206 @@ public class TwitterCommonWordsFilterPrinterBolt extends BaseRichBolt {
         this.printToLocal = printToLocal;
     }
 
+    /**
+     * Filter the stop words listed in a file instead of the built-in English ones. The file has one lowercase word per
+     * line, empty lines and lines starting with # are skipped (see {@link CharSequenceSet#load(File)}). It is read
+     * when the bolt starts and again whenever its modification time changed, checked at most every 5 seconds, so the
+     * list can be swapped without redeploying the topology, e.g. by updating it in the blobstore as described for
+     * {@link org.apache.storm.starter.twitter.TweetFilterFile}.
+     *
+     * @param fileName path of the stop words file on the workers
+     * @return this bolt
+     */
+    public TwitterCommonWordsFilterPrinterBolt withStopWordsFile(String fileName) {
+        this.stopWordsFileName = fileName;
+        return this;
+    }
+
+    /**
+     * Choose whether the common words are printed by decreasing count, the default, or in arbitrary order. Unordered
+     * output skips sorting the selected half of the words, which saves time for large vocabularies.
+     *
+     * @param orderedOutput
+     * @return this bolt
+     */
+    public TwitterCommonWordsFilterPrinterBolt withOrderedOutput(boolean orderedOutput) {
+        this.orderedOutput = orderedOutput;
+        return this;
+    }
+
+    /**
+     * Count the words over a time window instead of per input. The window is divided into slots of the emit frequency:
+     * on every tick, i.e. at the end of each slot, the common words of the last window are emitted and the oldest slot
+     * is dropped. The window tumbles if both lengths are equal and slides otherwise.
+     *
+     * @param windowLengthInSeconds  length of the window, a multiple of the emit frequency
+     * @param emitFrequencyInSeconds seconds between two outputs of the common words
+     * @return this bolt
+     */
+    public TwitterCommonWordsFilterPrinterBolt withWindow(int windowLengthInSeconds, int emitFrequencyInSeconds) {
+        if (emitFrequencyInSeconds <= 0 || windowLengthInSeconds < emitFrequencyInSeconds
+                || windowLengthInSeconds % emitFrequencyInSeconds != 0) {
+            throw new IllegalArgumentException("Window length must be a positive multiple of the emit frequency (you "
+                    + "requested " + windowLengthInSeconds + " and " + emitFrequencyInSeconds + " seconds)");
+        }
+        this.windowLengthInSeconds = windowLengthInSeconds;
+        this.emitFrequencyInSeconds = emitFrequencyInSeconds;
+        return this;
+    }
+
+    /**
+     * Estimate the word counts in fixed memory: only the given number of words with the highest counts are tracked, per
+     * input or per slot of the window, with {@link org.apache.storm.starter.tools.SpaceSaving} summaries. The common
+     * words are then the half of the tracked words with the highest estimated counts, and are emitted together with
+     * the maximum overestimation of those counts as a second field. A word that makes up more than one in capacity
+     * of the counted words is always tracked.
+     *
+     * @param capacity number of words tracked
+     * @return this bolt
+     */
+    public TwitterCommonWordsFilterPrinterBolt withHeavyHitters(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be greater than zero (you requested " + capacity + ")");
+        }
+        this.heavyHitterCapacity = capacity;
+        return this;
+    }
+
+    /**
+     * @return the built-in English stop words
+     */
+    public static List<String> getStopWords() {
+        return Arrays.asList(STOP_WORDS.clone());
+    }
+
     @Override
     public void prepare(Map configuration, TopologyContext context, OutputCollector outputCollector) {
         this.outputCollector = outputCollector;
+        this.tokenizer = new WordTokenizer();
+        this.selector = new TopCountSelector();
+        this.wordIndices = new HashMap<>();
+        this.words = new ArrayList<>();
+        this.wordCounts = new int[64];
+        if (isApproximate()) {
+            this.heavyHitters = new SpaceSavingWindowCounter<>(
+                    isWindowed() ? windowLengthInSeconds / emitFrequencyInSeconds : 1, heavyHitterCapacity);
+        } else if (isWindowed()) {
+            this.windowCounter = new FlatSlotBasedCounter<>(windowLengthInSeconds / emitFrequencyInSeconds);
+            this.windowHeadSlot = 0;
+            this.windowWordVisitor = new FlatSlotBasedCounter.Visitor<String>() {
+                @Override
+                public void visit(String word, long totalCount) {
+                    // Words of the dropped slot are only removed from the counter one tick later, skip them
+                    if (totalCount > 0) {
+                        addWordCount(word, (int) Math.min(totalCount, Integer.MAX_VALUE));
+                    }
+                }
+            };
+        }
+        if (stopWordsFileName != null) {
+            this.stopWordsFile = new StopWordsFile(stopWordsFileName, stopWords,
+                    StopWordsFile.DEFAULT_POLL_INTERVAL_MILLIS);
+            this.stopWords = stopWordsFile.poll(System.currentTimeMillis());
+        }
     }
 
     @Override
     public void execute(Tuple tuple) {
-        HashMap<String, Integer> wordCounts = new HashMap<>();
-        List<String> tweetWords = Arrays.asList(((String) tuple.getValue(0)).split("\\s+"));
-        for (String tweetWord : tweetWords) {
-            // Remove re-tweet keyword  and hash tag from tweet word
-            tweetWord = tweetWord.replaceAll("#", "").replaceAll("rt", "").replaceAll("RT", "");
-
-            // Add tweet words that are not stop words
-            if (!tweetWord.equals("") && tweetWord.matches("[a-zA-Z0-9]+") && !stopWords.contains(tweetWord)) {
-                if (wordCounts.containsKey(tweetWord)) {
-                    wordCounts.put(tweetWord, wordCounts.get(tweetWord) + 1);
+        if (isWindowed() && TupleUtils.isTick(tuple)) {
+            if (isApproximate()) {
+                emitHeavyHitterCommonWords();
+            } else {
+                emitWindowCommonWords();
+            }
+            return;
+        }
+        if (stopWordsFile != null) {
+            stopWords = stopWordsFile.poll(System.currentTimeMillis());
+        }
+
+        // Walk the lowercased words of the tweet, without re-tweet keyword and hash tags, and only materialize the
+        // words that are not stop words
+        wordIndices.clear();
+        words.clear();
+        tokenizer.reset((String) tuple.getValue(0));
+        while (tokenizer.next()) {
+            CharSequence word = tokenizer.word();
+            if (!stopWords.contains(word)) {
+                if (isApproximate()) {
+                    heavyHitters.incrementCount(word.toString());
+                } else if (isWindowed()) {
+                    windowCounter.incrementCount(word.toString(), windowHeadSlot);
                 } else {
-                    wordCounts.put(tweetWord, 1);
+                    addWordCount(word.toString(), 1);
                 }
             }
         }
 
-        // Sort the word counts map
-        List<Map.Entry<String, Integer>> sortedWordCountList = new ArrayList<>(wordCounts.entrySet());
-        Collections.sort(sortedWordCountList, new Comparator<Map.Entry<String, Integer>>() {
-            @Override
-            public int compare(Map.Entry<String, Integer> entry1, Map.Entry<String, Integer> entry2) {
-                return (entry2.getValue()).compareTo(entry1.getValue());
+        if (!isWindowed()) {
+            if (isApproximate()) {
+                emitHeavyHitterCommonWords();
+            } else {
+                emitCommonWords();
             }
-        });
+        }
+        outputCollector.ack(tuple);
+    }
+
+    private boolean isWindowed() {
+        return emitFrequencyInSeconds > 0;
+    }
 
-        // Find 50% common words i.e the first half of the sorted list
+    private boolean isApproximate() {
+        return heavyHitterCapacity > 0;
+    }
+
+    private void addWordCount(String word, int count) {
+        Integer index = wordIndices.get(word);
+        if (index != null) {
+            wordCounts[index] += count;
+        } else {
+            if (words.size() == wordCounts.length) {
+                wordCounts = Arrays.copyOf(wordCounts, wordCounts.length * 2);
+            }
+            wordIndices.put(word, words.size());
+            wordCounts[words.size()] = count;
+            words.add(word);
+        }
+    }
+
+    /**
+     * Emit the common words of the window that ends now, then start the next slot in place of the oldest one
+     */
+    private void emitWindowCommonWords() {
+        wordIndices.clear();
+        words.clear();
+        windowCounter.forEach(windowWordVisitor);
+        emitCommonWords();
+
+        windowCounter.wipeZeros();
+        windowHeadSlot = (windowHeadSlot + 1) % (windowLengthInSeconds / emitFrequencyInSeconds);
+        windowCounter.wipeSlot(windowHeadSlot);
+    }
+
+    /**
+     * Emit the common words among the heavy hitters of the input or window that ends now
+     */
+    private void emitHeavyHitterCommonWords() {
+        wordIndices.clear();
+        words.clear();
+        for (Map.Entry<String, Long> entry : heavyHitters.getCountsThenAdvanceWindow().entrySet()) {
+            addWordCount(entry.getKey(), (int) Math.min(entry.getValue(), Integer.MAX_VALUE));
+        }
+        emitCommonWords();
+    }
+
+    private void emitCommonWords() {
+        // Find 50% common words i.e the half of the words with the highest counts
+        int[] commonWordIndices = selector.selectTop(wordCounts, words.size(), words.size() / 2, orderedOutput);
         StringBuilder commonWords = new StringBuilder();
-        for (int i = 0; i < sortedWordCountList.size()/2; i++) {
+        for (int index : commonWordIndices) {
             commonWords.append(" ");
-            commonWords.append(sortedWordCountList.get(i).getKey());
+            commonWords.append(words.get(index));
         }
         commonWords.append("\n\n");
 
@@ -108,11 +301,29 @@ public class TwitterCommonWordsFilterPrinterBolt extends BaseRichBolt {
             }
         }
 
-        outputCollector.emit(new Values(commonWords.toString()));
+        if (isApproximate()) {
+            outputCollector.emit(new Values(commonWords.toString(), heavyHitters.getMaxError()));
+        } else {
+            outputCollector.emit(new Values(commonWords.toString()));
+        }
     }
 
     @Override
     public void declareOutputFields(OutputFieldsDeclarer declarer) {
-        declarer.declare(new Fields(COMMON_WORD_OUTPUT_FIELD));
+        if (isApproximate()) {
+            declarer.declare(new Fields(COMMON_WORD_OUTPUT_FIELD, MAX_ERROR_OUTPUT_FIELD));
+        } else {
+            declarer.declare(new Fields(COMMON_WORD_OUTPUT_FIELD));
+        }
+    }
+
+    @Override
+    public Map<String, Object> getComponentConfiguration() {
+        if (!isWindowed()) {
+            return null;
+        }
+        Map<String, Object> conf = new HashMap<>();
+        conf.put(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS, emitFrequencyInSeconds);
+        return conf;
     }
 }
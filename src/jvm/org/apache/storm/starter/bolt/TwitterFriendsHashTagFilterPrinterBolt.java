@@ -7,7 +7,8 @@ import org.apache.storm.topology.base.BaseRichBolt;
 import org.apache.storm.tuple.Fields;
 import org.apache.storm.tuple.Tuple;
 import org.apache.storm.tuple.Values;
-import twitter4j.Status;
+import org.apache.storm.starter.twitter.Tweet;
+import org.apache.storm.starter.twitter.Tweets;
 
 import java.io.FileWriter;
 import java.io.IOException;
@@ -27,7 +28,7 @@ public class TwitterFriendsHashTagFilterPrinterBolt extends BaseRichBolt {
     private int friendsCount = 0;
     private ArrayList<String> hashTags = new ArrayList<>();
     private OutputCollector outputCollector;
-    private Queue<Status> tweets = new LinkedList<>();
+    private Queue<Tuple> tweets = new LinkedList<>();
     private long timestamp = 0L;
     private long previousTimestamp = 0L;
     private String outputFilePath;
@@ -51,19 +52,21 @@ public class TwitterFriendsHashTagFilterPrinterBolt extends BaseRichBolt {
 
         // Track twitter streams
         if (tuple.getSourceComponent().equals(TWITTER_INPUT_STREAM_SPOUT_ID)) {
-                tweets.add((Status) tuple.getValue(0));
+                tweets.add(tuple);
         }
 
         // Track friends count stream
         if (tuple.getSourceComponent().equals(TWITTER_FRIENDS_COUNT_SPOUT_ID)) {
             friendsCount = (int) tuple.getValue(0);
             countOfFilteringStreams++;
+            outputCollector.ack(tuple);
         }
 
         // Track hash tags stream
         if (tuple.getSourceComponent().equals(TWITTER_HASHTAGS_SPOUT_ID)) {
             hashTags = (ArrayList<String>) tuple.getValue(0);
             countOfFilteringStreams++;
+            outputCollector.ack(tuple);
         }
 
         if (countOfFilteringStreams == 2) {
@@ -71,8 +74,11 @@ public class TwitterFriendsHashTagFilterPrinterBolt extends BaseRichBolt {
             countOfFilteringStreams = 0;
         }
 
+        // Tweets are acked once filtered, they are not anchored to the emitted blobs
         while (!tweets.isEmpty() && !hashTags.isEmpty() && friendsCount != 0) {
-                filterTweets(tweets.poll(), timestamp);
+                Tuple tweetTuple = tweets.poll();
+                filterTweets(Tweets.from(tweetTuple.getValue(0)), timestamp);
+                outputCollector.ack(tweetTuple);
         }
 
     }
@@ -90,25 +96,28 @@ public class TwitterFriendsHashTagFilterPrinterBolt extends BaseRichBolt {
     /**
      * Filter tweets based on friends count and hash tags
      *
-     * @param tweetStatus
+     * @param tweetRecord
      * @param timestamp
      */
-    private void filterTweets(Status tweetStatus, Long timestamp) {
+    private void filterTweets(Tweet tweetRecord, Long timestamp) {
 
-        boolean passedFriendsCountsFilter = tweetStatus != null && tweetStatus.getUser() != null &&
-                tweetStatus.getUser().getFriendsCount() < friendsCount;
+        boolean passedFriendsCountsFilter = tweetRecord.hasUser() && tweetRecord.getFriendsCount() < friendsCount;
 
+        // Only read the text of tweets that passed the friends count filter, raw tweets extract it on demand
         boolean passedHashTagsFilter = false;
-        for (String hashTag : hashTags) {
-            if (tweetStatus.getText().toLowerCase().contains(hashTag.toLowerCase())) {
-                passedHashTagsFilter = true;
-                break;
+        if (passedFriendsCountsFilter) {
+            String text = tweetRecord.getText().toLowerCase(Locale.ROOT);
+            for (String hashTag : hashTags) {
+                if (text.contains(hashTag.toLowerCase(Locale.ROOT))) {
+                    passedHashTagsFilter = true;
+                    break;
+                }
             }
         }
 
         // Collect all the tweets in an interval and output as one blob
         if (passedFriendsCountsFilter && passedHashTagsFilter) {
-            String tweet = tweetStatus.getText();
+            String tweet = tweetRecord.getText();
             if (previousTimestamp != timestamp && previousTimestamp != 0L) {
                 outputTweets.append("\n\n");
                 String tweetCollection = outputTweets.toString();
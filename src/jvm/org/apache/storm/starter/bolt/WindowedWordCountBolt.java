@@ -0,0 +1,123 @@
+package org.apache.storm.starter.bolt;
+
+import org.apache.storm.Config;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.topology.OutputFieldsDeclarer;
+import org.apache.storm.topology.base.BaseRichBolt;
+import org.apache.storm.tuple.Fields;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.tuple.Values;
+import org.apache.storm.utils.Time;
+import org.apache.storm.utils.TupleUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Second stage of the parallel common words pipeline: counts the words it receives from {@link CommonWordsSplitterBolt}
+ * in tumbling time windows and hands the counts of every closed window to {@link CommonWordsMergeBolt}.
+ * <p/>
+ * The windows are aligned to the wall clock, window n covering the milliseconds from n times the window length on, so
+ * all tasks close the same windows as long as their clocks are synchronized. A window is closed on the first tuple,
+ * usually a tick, after its end, and every task then emits one partial result per window, also for windows in which
+ * it counted nothing. These serve as end-of-window markers: the merge stage knows a window is complete once it has
+ * seen a later or the same window from every task. Since the input is grouped by word, the partial results of the
+ * tasks never share a word.
+ * <p/>
+ * Inputs are acked as soon as they are counted and the partial results are emitted unanchored, as anchoring them
+ * would hold every tuple of a window in flight for its whole length. The counts of a task that crashes are therefore
+ * lost for its open window, and the merge stage holds back all later windows until the restarted task reports its
+ * first window, at most one window length after the restart.
+ */
+public class WindowedWordCountBolt extends BaseRichBolt {
+
+    // Constants
+    public final static String WINDOW_ID_FIELD = "windowId";
+    public final static String TASK_COUNT_FIELD = "taskCount";
+    public final static String WORDS_FIELD = "words";
+    public final static String COUNTS_FIELD = "counts";
+    private final static int TICK_FREQUENCY_IN_SECONDS = 1;
+
+    private final long windowLengthMillis;
+
+    private OutputCollector outputCollector;
+    private int taskCount;
+    private long windowId;
+    private HashMap<String, Integer> wordIndices;
+    private ArrayList<String> words;
+    private int[] wordCounts;
+
+    /**
+     * Constructor
+     *
+     * @param windowLengthInSeconds length of the tumbling windows
+     */
+    public WindowedWordCountBolt(int windowLengthInSeconds) {
+        if (windowLengthInSeconds <= 0) {
+            throw new IllegalArgumentException(
+                    "Window length must be positive (you requested " + windowLengthInSeconds + ")");
+        }
+        this.windowLengthMillis = windowLengthInSeconds * 1000L;
+    }
+
+    @Override
+    public void prepare(Map stormConf, TopologyContext context, OutputCollector collector) {
+        this.outputCollector = collector;
+        this.taskCount = context.getComponentTasks(context.getThisComponentId()).size();
+        this.windowId = Time.currentTimeMillis() / windowLengthMillis;
+        this.wordIndices = new HashMap<>();
+        this.words = new ArrayList<>();
+        this.wordCounts = new int[64];
+    }
+
+    @Override
+    public void execute(Tuple tuple) {
+        long currentWindowId = Time.currentTimeMillis() / windowLengthMillis;
+        while (windowId < currentWindowId) {
+            emitWindow();
+            windowId++;
+        }
+
+        if (!TupleUtils.isTick(tuple)) {
+            String word = tuple.getStringByField(CommonWordsSplitterBolt.WORD_FIELD);
+            int count = tuple.getIntegerByField(CommonWordsSplitterBolt.COUNT_FIELD);
+            Integer index = wordIndices.get(word);
+            if (index != null) {
+                wordCounts[index] += count;
+            } else {
+                if (words.size() == wordCounts.length) {
+                    wordCounts = Arrays.copyOf(wordCounts, wordCounts.length * 2);
+                }
+                wordIndices.put(word, words.size());
+                wordCounts[words.size()] = count;
+                words.add(word);
+            }
+            outputCollector.ack(tuple);
+        }
+    }
+
+    /**
+     * Emit the counts of the current window and start counting the next one from scratch
+     */
+    private void emitWindow() {
+        outputCollector.emit(new Values(windowId, taskCount, words, Arrays.copyOf(wordCounts, words.size())));
+        // The emitted list may still be referenced by an executor in the same worker, so it is not reused
+        words = new ArrayList<>();
+        wordIndices.clear();
+    }
+
+    @Override
+    public void declareOutputFields(OutputFieldsDeclarer declarer) {
+        declarer.declare(new Fields(WINDOW_ID_FIELD, TASK_COUNT_FIELD, WORDS_FIELD, COUNTS_FIELD));
+    }
+
+    @Override
+    public Map<String, Object> getComponentConfiguration() {
+        Map<String, Object> conf = new HashMap<>();
+        conf.put(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS, TICK_FREQUENCY_IN_SECONDS);
+        return conf;
+    }
+}
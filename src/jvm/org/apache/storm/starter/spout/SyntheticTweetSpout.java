@@ -0,0 +1,326 @@
+package org.apache.storm.starter.spout;
+
+import org.apache.storm.spout.SpoutOutputCollector;
+import org.apache.storm.starter.tools.ZipfDistribution;
+import org.apache.storm.starter.twitter.TweetRecord;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.topology.OutputFieldsDeclarer;
+import org.apache.storm.topology.base.BaseRichSpout;
+import org.apache.storm.tuple.Fields;
+import org.apache.storm.tuple.Values;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Storm spout that generates synthetic tweets at a target rate, for load tests of the word count and ranking paths.
+ * <p/>
+ * Words and hashtags are drawn from Zipf distributions over preallocated vocabularies and friends counts from a
+ * log-normal distribution; a share of the tweets are retweets starting with the "RT @user:" marker. Optionally a rare
+ * hashtag starts trending every now and then: for a while it is attached to a share of the tweets and the rate is
+ * raised. Each tweet is emitted as a {@link TweetRecord} on the "tweet" field, so register
+ * {@link org.apache.storm.starter.twitter.TweetRecordSerializer} with the topology.
+ * <p/>
+ * All vocabulary strings and samplers are built in {@link #open(Map, TopologyContext, SpoutOutputCollector)}; per tweet
+ * only the text, the record and its hashtag list are allocated. Every task generates its own stream with distinct
+ * status ids.
+ */
+public class SyntheticTweetSpout extends BaseRichSpout {
+
+    // Constants
+    public final static double UNTHROTTLED = 0.0;
+    private final static String TWEET_OUTPUT_FIELD = "tweet";
+    private final static String LANG = "en";
+    private final static String RETWEET_MARKER = "RT @";
+    private final static String[] SYLLABLES = {"ba", "be", "bi", "bo", "bu", "da", "de", "di", "do", "du", "fa", "fe",
+            "fi", "fo", "ka", "ke", "ki", "ko", "ku", "la", "le", "li", "lo", "lu", "ma", "me", "mi", "mo", "mu", "na",
+            "ne", "ni", "no", "nu", "pa", "pe", "pi", "po", "pu", "ra", "re", "ri", "ro", "ru", "sa", "se", "si", "so",
+            "su", "ta", "te", "ti", "to", "tu", "va", "ve", "vi", "vo", "za", "zo"};
+    private final static int MIN_WORDS_PER_TWEET = 6;
+    private final static int MAX_WORDS_PER_TWEET = 20;
+    private final static int[] HASHTAG_COUNT_PERCENTILES = {60, 85, 95, 100};
+    private final static int RETWEET_PERCENT = 20;
+    private final static int RETWEET_ID_WINDOW = 10000;
+    private final static int EMIT_BATCH_SIZE = 100;
+    private final static double MAX_CREDIT = 10.0 * EMIT_BATCH_SIZE;
+    private final static int STATUS_ID_TASK_SHIFT = 48;
+    private final static long NANOS_PER_SECOND = 1000000000L;
+    private final static long NANOS_PER_MILLISEC = 1000000L;
+
+    private final double tweetsPerSecond;
+    private int vocabularySize = 50000;
+    private double wordExponent = 1.0;
+    private int hashtagVocabularySize = 5000;
+    private double hashtagExponent = 1.1;
+    private List<String> seedHashtags = Collections.emptyList();
+    private double friendsCountMedian = 300;
+    private double friendsCountSigma = 1.2;
+    private int numUsers = 1000000;
+    private long seed = System.nanoTime();
+    private long trendIntervalMillis;
+    private long trendDurationMillis;
+    private double trendShare;
+    private double trendRateFactor = 1.0;
+
+    private SpoutOutputCollector spoutOutputCollector;
+    private Random random;
+    private String[] words;
+    private String[] hashtags;
+    private String[] hashtagNames;
+    private ZipfDistribution wordDistribution;
+    private ZipfDistribution hashtagDistribution;
+    private double friendsCountMu;
+    private StringBuilder textBuilder;
+    private List<String> tweetHashtags;
+    private long statusIdBase;
+    private long sequence;
+    private long lastNanos;
+    private double credit;
+    private long nextTrendStartNanos;
+    private long trendEndNanos;
+    private int trendingHashtagRank = -1;
+
+    /**
+     * Constructor
+     *
+     * @param tweetsPerSecond target rate per task, or {@link #UNTHROTTLED}
+     */
+    public SyntheticTweetSpout(double tweetsPerSecond) {
+        if (tweetsPerSecond < 0) {
+            throw new IllegalArgumentException("Rate must not be negative (you requested " + tweetsPerSecond + ")");
+        }
+        this.tweetsPerSecond = tweetsPerSecond;
+    }
+
+    /**
+     * @param vocabularySize number of distinct words
+     * @param exponent       Zipf exponent of the word frequencies
+     * @return this spout
+     */
+    public SyntheticTweetSpout withWords(int vocabularySize, double exponent) {
+        this.vocabularySize = vocabularySize;
+        this.wordExponent = exponent;
+        return this;
+    }
+
+    /**
+     * @param vocabularySize number of distinct hashtags
+     * @param exponent       Zipf exponent of the hashtag frequencies
+     * @param seedHashtags   hashtags, including the '#', taking the most frequent ranks, e.g. the ones a filter
+     *                       looks for; the rest of the vocabulary is synthetic
+     * @return this spout
+     */
+    public SyntheticTweetSpout withHashtags(int vocabularySize, double exponent, List<String> seedHashtags) {
+        this.hashtagVocabularySize = Math.max(vocabularySize, seedHashtags.size());
+        this.hashtagExponent = exponent;
+        this.seedHashtags = new ArrayList<>(seedHashtags);
+        return this;
+    }
+
+    /**
+     * @param median median friends count
+     * @param sigma  standard deviation of the logarithm of the friends count
+     * @return this spout
+     */
+    public SyntheticTweetSpout withFriendsCounts(double median, double sigma) {
+        this.friendsCountMedian = median;
+        this.friendsCountSigma = sigma;
+        return this;
+    }
+
+    /**
+     * @param numUsers number of distinct authors
+     * @return this spout
+     */
+    public SyntheticTweetSpout withUsers(int numUsers) {
+        this.numUsers = numUsers;
+        return this;
+    }
+
+    /**
+     * @param seed seed of the generator, each task adds its task index; by default every run differs
+     * @return this spout
+     */
+    public SyntheticTweetSpout withSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Let a rarely used hashtag trend every intervalMillis for durationMillis
+     *
+     * @param intervalMillis time from the start of one trend to the start of the next
+     * @param durationMillis how long a trend lasts
+     * @param share          share of the tweets carrying the trending hashtag during a trend
+     * @param rateFactor     factor the rate is raised by during a trend
+     * @return this spout
+     */
+    public SyntheticTweetSpout withTrending(long intervalMillis, long durationMillis, double share, double rateFactor) {
+        this.trendIntervalMillis = intervalMillis;
+        this.trendDurationMillis = durationMillis;
+        this.trendShare = share;
+        this.trendRateFactor = rateFactor;
+        return this;
+    }
+
+    @Override
+    public void open(Map configuration, TopologyContext topologyContext, SpoutOutputCollector spoutOutputCollector) {
+        this.spoutOutputCollector = spoutOutputCollector;
+        int taskIndex = topologyContext.getThisTaskIndex();
+        this.random = new XorShiftRandom(seed + taskIndex);
+
+        words = new String[vocabularySize];
+        for (int rank = 0; rank < vocabularySize; rank++) {
+            words[rank] = syntheticWord(rank);
+        }
+        hashtags = new String[hashtagVocabularySize];
+        hashtagNames = new String[hashtagVocabularySize];
+        for (int rank = 0; rank < hashtagVocabularySize; rank++) {
+            hashtags[rank] = rank < seedHashtags.size() ? seedHashtags.get(rank) : "#" + syntheticWord(rank);
+            hashtagNames[rank] = hashtags[rank].substring(1);
+        }
+        wordDistribution = new ZipfDistribution(vocabularySize, wordExponent);
+        hashtagDistribution = new ZipfDistribution(hashtagVocabularySize, hashtagExponent);
+        friendsCountMu = Math.log(friendsCountMedian);
+
+        textBuilder = new StringBuilder(256);
+        tweetHashtags = new ArrayList<>(HASHTAG_COUNT_PERCENTILES.length);
+        statusIdBase = (long) taskIndex << STATUS_ID_TASK_SHIFT;
+        lastNanos = System.nanoTime();
+        nextTrendStartNanos = trendIntervalMillis > 0 ? lastNanos + trendIntervalMillis * NANOS_PER_MILLISEC
+                : Long.MAX_VALUE;
+    }
+
+    @Override
+    public void nextTuple() {
+        long nowNanos = System.nanoTime();
+        updateTrend(nowNanos);
+
+        int due = EMIT_BATCH_SIZE;
+        if (tweetsPerSecond != UNTHROTTLED) {
+            double rate = trendingHashtagRank < 0 ? tweetsPerSecond : tweetsPerSecond * trendRateFactor;
+            // Do not catch up on more than a few batches after the topology held the spout back
+            credit = Math.min(MAX_CREDIT, credit + (nowNanos - lastNanos) * rate / NANOS_PER_SECOND);
+            due = (int) Math.min(credit, EMIT_BATCH_SIZE);
+            credit -= due;
+        }
+        lastNanos = nowNanos;
+
+        long createdAtMillis = System.currentTimeMillis();
+        for (int i = 0; i < due; i++) {
+            spoutOutputCollector.emit(new Values(nextTweet(createdAtMillis)));
+        }
+    }
+
+    @Override
+    public void declareOutputFields(OutputFieldsDeclarer declarer) {
+        declarer.declare(new Fields(TWEET_OUTPUT_FIELD));
+    }
+
+    private void updateTrend(long nowNanos) {
+        if (trendingHashtagRank >= 0 && nowNanos >= trendEndNanos) {
+            trendingHashtagRank = -1;
+        }
+        if (nowNanos >= nextTrendStartNanos) {
+            // A hashtag from the rare half of the vocabulary suddenly becomes popular
+            trendingHashtagRank = hashtagVocabularySize / 2 + random.nextInt(hashtagVocabularySize -
+                    hashtagVocabularySize / 2);
+            trendEndNanos = nowNanos + trendDurationMillis * NANOS_PER_MILLISEC;
+            nextTrendStartNanos += trendIntervalMillis * NANOS_PER_MILLISEC;
+        }
+    }
+
+    private TweetRecord nextTweet(long createdAtMillis) {
+        long id = statusIdBase + sequence++;
+        long retweetedStatusId = TweetRecord.NO_RETWEETED_STATUS;
+        textBuilder.setLength(0);
+        tweetHashtags.clear();
+
+        if (random.nextInt(100) < RETWEET_PERCENT && sequence > RETWEET_ID_WINDOW) {
+            retweetedStatusId = id - 1 - random.nextInt(RETWEET_ID_WINDOW);
+            textBuilder.append(RETWEET_MARKER).append(words[wordDistribution.sample(random)])
+                    .append(random.nextInt(numUsers)).append(": ");
+        }
+
+        int numWords = MIN_WORDS_PER_TWEET + random.nextInt(MAX_WORDS_PER_TWEET - MIN_WORDS_PER_TWEET + 1);
+        for (int i = 0; i < numWords; i++) {
+            if (i > 0) {
+                textBuilder.append(' ');
+            }
+            textBuilder.append(words[wordDistribution.sample(random)]);
+        }
+
+        int hashtagPercentile = random.nextInt(100);
+        for (int i = 0; hashtagPercentile >= HASHTAG_COUNT_PERCENTILES[i]; i++) {
+            appendHashtag(hashtagDistribution.sample(random));
+        }
+        if (trendingHashtagRank >= 0 && random.nextDouble() < trendShare) {
+            appendHashtag(trendingHashtagRank);
+        }
+
+        int friendsCount = (int) Math.min(Integer.MAX_VALUE,
+                Math.exp(friendsCountMu + friendsCountSigma * random.nextGaussian()));
+        return new TweetRecord(id, retweetedStatusId, createdAtMillis, random.nextInt(numUsers), friendsCount, LANG,
+                textBuilder.toString(), tweetHashtags);
+    }
+
+    private void appendHashtag(int rank) {
+        textBuilder.append(' ').append(hashtags[rank]);
+        tweetHashtags.add(hashtagNames[rank]);
+    }
+
+    /**
+     * Pronounceable word for a vocabulary rank, shorter for more frequent ranks
+     */
+    private static String syntheticWord(int rank) {
+        StringBuilder word = new StringBuilder();
+        do {
+            word.append(SYLLABLES[rank % SYLLABLES.length]);
+            rank /= SYLLABLES.length;
+        } while (rank > 0);
+        return word.toString();
+    }
+
+    /**
+     * Unsynchronized xorshift generator, much cheaper than the compare-and-set of {@link Random} at high rates
+     */
+    private static final class XorShiftRandom extends Random {
+
+        private static final long serialVersionUID = 5395123402948913512L;
+
+        private long state;
+
+        XorShiftRandom(long seed) {
+            super(seed);
+        }
+
+        @Override
+        public synchronized void setSeed(long seed) {
+            // Called from the super constructor, so this must not depend on field initializers
+            state = seed == 0 ? 0x9E3779B97F4A7C15L : seed;
+        }
+
+        @Override
+        protected int next(int bits) {
+            long x = state;
+            x ^= x << 13;
+            x ^= x >>> 7;
+            x ^= x << 17;
+            state = x;
+            return (int) (x >>> (64 - bits));
+        }
+
+        @Override
+        public long nextLong() {
+            long x = state;
+            x ^= x << 13;
+            x ^= x >>> 7;
+            x ^= x << 17;
+            state = x;
+            return x;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package org.apache.storm.starter.spout;
+
+import org.apache.storm.spout.SpoutOutputCollector;
+import org.apache.storm.starter.twitter.RawTweet;
+import org.apache.storm.starter.twitter.TweetFilterFile;
+import org.apache.storm.starter.twitter.TweetPredicate;
+import org.apache.storm.starter.twitter.TweetRecord;
+import org.apache.storm.starter.twitter.TweetSegmentFormat;
+import org.apache.storm.starter.twitter.TweetSegmentReader;
+import org.apache.storm.starter.twitter.Tweets;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.topology.OutputFieldsDeclarer;
+import org.apache.storm.topology.base.BaseRichSpout;
+import org.apache.storm.tuple.Fields;
+import org.apache.storm.tuple.Values;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import twitter4j.Status;
+import twitter4j.TwitterException;
+import twitter4j.TwitterObjectFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storm spout that replays previously captured raw tweets from memory-mapped segment files instead of the live
+ * Twitter stream.
+ * <p/>
+ * The tweets are emitted on the same "tweet" field and as the same {@link Status} objects as
+ * {@link TwitterSampleSpout}, so existing topologies can be benchmarked offline. Playback is paced by the capture
+ * timestamps: a speed factor of {@link #REAL_TIME} reproduces the original rate, a factor of N plays N times faster
+ * and {@link #UNTHROTTLED} emits as fast as the topology accepts tuples. The segment directory must be present on
+ * every worker host.
+ */
+public class TweetReplaySpout extends BaseRichSpout {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TweetReplaySpout.class);
+
+    // Constants
+    public final static double REAL_TIME = 1.0;
+    public final static double UNTHROTTLED = 0.0;
+    private final static String TWEET_OUTPUT_FIELD = "tweet";
+    private final static long NANOS_PER_MILLISEC = 1000000L;
+
+    private final String segmentDirectory;
+    private double speedFactor = UNTHROTTLED;
+    private boolean loop = false;
+    private boolean compactRecords = false;
+    private boolean rawJson = false;
+    private boolean sharded = false;
+    private TweetPredicate filter;
+    private TweetFilterFile filterFile;
+
+    private SpoutOutputCollector spoutOutputCollector;
+    private List<File> segments;
+    private int nextSegmentIndex;
+    private TweetSegmentReader reader;
+    private boolean recordPending = false;
+    private long replayStartNanos;
+    private long replayStartCaptureMillis;
+
+    /**
+     * Constructor
+     *
+     * @param segmentDirectory directory holding the capture segments
+     */
+    public TweetReplaySpout(String segmentDirectory) {
+        this.segmentDirectory = segmentDirectory;
+    }
+
+    /**
+     * @param speedFactor {@link #REAL_TIME}, a multiple of it, or {@link #UNTHROTTLED}
+     * @return this spout
+     */
+    public TweetReplaySpout withSpeedFactor(double speedFactor) {
+        if (speedFactor < 0) {
+            throw new IllegalArgumentException("Speed factor must not be negative (you requested " + speedFactor + ")");
+        }
+        this.speedFactor = speedFactor;
+        return this;
+    }
+
+    /**
+     * @param loop whether to start over from the first segment once all segments have been replayed
+     * @return this spout
+     */
+    public TweetReplaySpout withLoop(boolean loop) {
+        this.loop = loop;
+        return this;
+    }
+
+    /**
+     * @param compactRecords whether to emit {@link TweetRecord}s instead of full statuses
+     * @return this spout
+     */
+    public TweetReplaySpout withCompactRecords(boolean compactRecords) {
+        this.compactRecords = compactRecords;
+        return this;
+    }
+
+    /**
+     * @param rawJson whether to emit {@link RawTweet}s, leaving field extraction to the bolts; takes precedence over
+     *                {@link #withCompactRecords(boolean)}
+     * @return this spout
+     */
+    public TweetReplaySpout withRawJson(boolean rawJson) {
+        this.rawJson = rawJson;
+        return this;
+    }
+
+    /**
+     * @param sharded whether each task replays only its share of the segments, dealt out round robin in file name
+     *                order by task index; otherwise every task replays all segments
+     * @return this spout
+     */
+    public TweetReplaySpout withSharding(boolean sharded) {
+        this.sharded = sharded;
+        return this;
+    }
+
+    /**
+     * @param filter predicate a tweet has to meet to be emitted
+     * @return this spout
+     */
+    public TweetReplaySpout withFilter(TweetPredicate filter) {
+        this.filter = filter;
+        return this;
+    }
+
+    /**
+     * @param fileName local filter file replacing the filter whenever it changes, see {@link TweetFilterFile}
+     * @return this spout
+     */
+    public TweetReplaySpout withFilterFile(String fileName) {
+        this.filterFile = new TweetFilterFile(fileName, TweetFilterFile.DEFAULT_POLL_INTERVAL_MILLISEC);
+        return this;
+    }
+
+    @Override
+    public void open(Map configuration, TopologyContext topologyContext, SpoutOutputCollector spoutOutputCollector) {
+        this.spoutOutputCollector = spoutOutputCollector;
+        this.segments = new ArrayList<>(Arrays.asList(TweetSegmentFormat.listSegments(new File(segmentDirectory))));
+        if (sharded) {
+            int taskIndex = topologyContext.getThisTaskIndex();
+            int numTasks = topologyContext.getComponentTasks(topologyContext.getThisComponentId()).size();
+            List<File> shard = new ArrayList<>();
+            for (int i = taskIndex; i < segments.size(); i += numTasks) {
+                shard.add(segments.get(i));
+            }
+            segments = shard;
+        }
+        if (segments.isEmpty()) {
+            LOG.warn("No tweet segments found in {}", segmentDirectory);
+        }
+        startReplay();
+    }
+
+    @Override
+    public void nextTuple() {
+        if (filterFile != null) {
+            TweetPredicate updated = filterFile.pollUpdate(System.currentTimeMillis());
+            if (updated != null) {
+                filter = updated;
+            }
+        }
+        if (!recordPending && !advance()) {
+            return;
+        }
+
+        // Hold the record back until it is due; storm's spout wait strategy sleeps in between
+        if (speedFactor != UNTHROTTLED) {
+            long captureOffsetMillis = reader.timestampMillis() - replayStartCaptureMillis;
+            long dueNanos = replayStartNanos + (long) (captureOffsetMillis * NANOS_PER_MILLISEC / speedFactor);
+            if (System.nanoTime() < dueNanos) {
+                recordPending = true;
+                return;
+            }
+        }
+        recordPending = false;
+
+        if (rawJson) {
+            byte[] json = reader.copyPayload();
+            if (RawTweet.isStatus(json)) {
+                RawTweet tweet = new RawTweet(json);
+                if (filter == null || filter.accept(tweet)) {
+                    spoutOutputCollector.emit(new Values(tweet));
+                }
+            }
+            return;
+        }
+        try {
+            Status status = TwitterObjectFactory.createStatus(reader.payloadAsString());
+            Object tweet = compactRecords ? TweetRecord.fromStatus(status) : status;
+            if (filter == null || filter.accept(Tweets.from(tweet))) {
+                spoutOutputCollector.emit(new Values(tweet));
+            }
+        } catch (TwitterException e) {
+            LOG.warn("Skipping unparseable tweet in {}", reader.getSegmentFile(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        closeReader();
+    }
+
+    @Override
+    public void declareOutputFields(OutputFieldsDeclarer declarer) {
+        declarer.declare(new Fields(TWEET_OUTPUT_FIELD));
+    }
+
+    private void startReplay() {
+        nextSegmentIndex = 0;
+        replayStartNanos = -1L;
+    }
+
+    /**
+     * Move to the next record, opening the following segment (or starting over when looping) as needed
+     *
+     * @return false if there is nothing left to replay
+     */
+    private boolean advance() {
+        while (reader == null || !reader.advance()) {
+            closeReader();
+            if (nextSegmentIndex == segments.size()) {
+                // Stop when not looping, or when a whole pass did not yield a single record
+                if (!loop || replayStartNanos < 0) {
+                    return false;
+                }
+                startReplay();
+            }
+            File segment = segments.get(nextSegmentIndex);
+            try {
+                reader = new TweetSegmentReader(segment);
+                nextSegmentIndex++;
+            } catch (IOException e) {
+                LOG.warn("Dropping unreadable tweet segment {}", segment, e);
+                segments.remove(nextSegmentIndex);
+            }
+        }
+
+        if (replayStartNanos < 0) {
+            replayStartNanos = System.nanoTime();
+            replayStartCaptureMillis = reader.timestampMillis();
+        }
+        return true;
+    }
+
+    private void closeReader() {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                LOG.warn("Failed to close tweet segment {}", reader.getSegmentFile(), e);
+            }
+            reader = null;
+        }
+    }
+}
@@ -23,6 +23,17 @@ public class TwitterFriendsCountSpout extends BaseRichSpout {
 
     private SpoutOutputCollector spoutOutputCollector;
 
+    /**
+     * @return the largest friends count this spout can emit
+     */
+    public static int getMaxFriendsCount() {
+        int maxFriendsCount = 0;
+        for (int friendsCount : TWITTER_FRIENDS_COUNT) {
+            maxFriendsCount = Math.max(maxFriendsCount, friendsCount);
+        }
+        return maxFriendsCount;
+    }
+
     @Override
     public void open(Map configuration, TopologyContext topologyContext, SpoutOutputCollector spoutOutputCollector) {
         this.spoutOutputCollector = spoutOutputCollector;
@@ -9,6 +9,8 @@ import org.apache.storm.tuple.Values;
 import org.apache.storm.utils.Utils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
@@ -28,6 +30,13 @@ public class TwitterHashTagSpout extends BaseRichSpout {
 
     private SpoutOutputCollector spoutOutputCollector;
 
+    /**
+     * @return all hash tags this spout samples from
+     */
+    public static List<String> getHashTags() {
+        return Arrays.asList(TWITTER_HASHTAGS.clone());
+    }
+
     @Override
     public void open(Map configuration, TopologyContext topologyContext, SpoutOutputCollector spoutOutputCollector) {
         this.spoutOutputCollector = spoutOutputCollector;
@@ -18,39 +18,118 @@
 
 package org.apache.storm.starter.spout;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 import twitter4j.FilterQuery;
+import twitter4j.RawStreamListener;
 import twitter4j.StallWarning;
 import twitter4j.Status;
 import twitter4j.StatusDeletionNotice;
 import twitter4j.StatusListener;
+import twitter4j.TwitterException;
+import twitter4j.TwitterObjectFactory;
 import twitter4j.TwitterStream;
 import twitter4j.TwitterStreamFactory;
 import twitter4j.auth.AccessToken;
 import twitter4j.conf.ConfigurationBuilder;
 
 import org.apache.storm.Config;
+import org.apache.storm.metric.api.IMetric;
+import org.apache.storm.metrics.hdrhistogram.HistogramMetric;
 import org.apache.storm.spout.SpoutOutputCollector;
+import org.apache.storm.starter.tools.IdleStrategy;
+import org.apache.storm.starter.tools.SpscRingBuffer;
+import org.apache.storm.starter.twitter.RawTweet;
+import org.apache.storm.starter.twitter.StatusDeduplicator;
+import org.apache.storm.starter.twitter.TweetFilterFile;
+import org.apache.storm.starter.twitter.TweetPredicate;
+import org.apache.storm.starter.twitter.TweetRecord;
+import org.apache.storm.starter.twitter.TweetSegmentFormat;
+import org.apache.storm.starter.twitter.TweetSegmentReader;
+import org.apache.storm.starter.twitter.TweetSegmentWriter;
+import org.apache.storm.starter.twitter.Tweets;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.topology.OutputFieldsDeclarer;
 import org.apache.storm.topology.base.BaseRichSpout;
 import org.apache.storm.tuple.Fields;
 import org.apache.storm.tuple.Values;
-import org.apache.storm.utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 @SuppressWarnings("serial")
 public class TwitterSampleSpout extends BaseRichSpout {
 
+	private static final Logger LOG = LoggerFactory.getLogger(TwitterSampleSpout.class);
+	public static final long DEFAULT_CAPTURE_SEGMENT_BYTES = 64L * 1024 * 1024;
+	private static final int CAPTURE_QUEUE_CAPACITY = 10000;
+	public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+	private static final long SPILL_SEGMENT_BYTES = 16L * 1024 * 1024;
+	private static final int METRICS_TIME_BUCKET_SECS = 60;
+	private static final long MAX_TRACKED_LATENCY_NANOS = 3600000000000L;
+
+	/**
+	 * What to do with a tweet that arrives while the queue towards
+	 * {@link #nextTuple()} is full.
+	 */
+	public enum OverflowPolicy {
+		/** Discard the arriving tweet. */
+		DROP_NEWEST,
+		/** Discard the oldest queued tweet to make room. */
+		DROP_OLDEST,
+		/** Write the arriving tweet to local disk and emit it once the queue has drained. */
+		SPILL_TO_DISK
+	}
+
 	SpoutOutputCollector _collector;
-	LinkedBlockingQueue<Status> queue = null;
+	SpscRingBuffer<Object> queue = null;
+	int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+	OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+	String spillDirectory;
+	TweetSegmentWriter _spillWriter;
+	TweetSegmentReader _spillReader;
+	long _spillRecordsRead;
+	boolean _spillRotationRequested;
+	final AtomicLong _droppedCount = new AtomicLong();
+	final AtomicLong _spilledCount = new AtomicLong();
+	final AtomicLong _duplicateCount = new AtomicLong();
+	final AtomicLong _rejectedCount = new AtomicLong();
+	int emitBatchSize = 1;
+	IdleStrategy idleStrategy = new IdleStrategy.Sleep(50);
+	HistogramMetric _latencyHistogram;
+	boolean compactRecords = false;
+	boolean rawJson = false;
+	boolean reliable = false;
+	int maxPendingTweets;
+	Map<Long, Object> _pending;
+	ArrayDeque<Object> _replayQueue;
 	TwitterStream _twitterStream;
 	String consumerKey;
 	String consumerSecret;
 	String accessToken;
 	String accessTokenSecret;
 	String[] keyWords;
+	boolean sharded = false;
+	String streamBaseUrl;
+	int dedupExpectedTweets;
+	double dedupFalsePositiveRate;
+	long dedupIntervalMillis;
+	boolean dedupCollapseRetweets;
+	StatusDeduplicator _deduplicator;
+	TweetPredicate filter;
+	TweetFilterFile filterFile;
+	volatile TweetPredicate _filter;
+	String captureDirectory;
+	long captureSegmentBytes = DEFAULT_CAPTURE_SEGMENT_BYTES;
+	TweetSegmentWriter _captureWriter;
 
 	public TwitterSampleSpout(String consumerKey, String consumerSecret,
 			String accessToken, String accessTokenSecret, String[] keyWords) {
@@ -65,18 +144,243 @@ public class TwitterSampleSpout extends BaseRichSpout {
 		// TODO Auto-generated constructor stub
 	}
 
+	/**
+	 * Record the raw JSON of every received tweet into size-rotated capture
+	 * segments, which can be replayed later with {@link TweetReplaySpout}.
+	 * Each spout task must be given its own directory. Segments are at most
+	 * {@link TweetSegmentFormat#MAX_SEGMENT_BYTES} large.
+	 */
+	public TwitterSampleSpout withCapture(String captureDirectory, long captureSegmentBytes) {
+		if (captureSegmentBytes <= TweetSegmentFormat.HEADER_SIZE
+				|| captureSegmentBytes > TweetSegmentFormat.MAX_SEGMENT_BYTES) {
+			throw new IllegalArgumentException("Capture segment size must be larger than "
+					+ TweetSegmentFormat.HEADER_SIZE + " and at most " + TweetSegmentFormat.MAX_SEGMENT_BYTES
+					+ " bytes (you requested " + captureSegmentBytes + ")");
+		}
+		this.captureDirectory = captureDirectory;
+		this.captureSegmentBytes = captureSegmentBytes;
+		return this;
+	}
+
+	/**
+	 * Size the queue between the twitter4j dispatcher thread and
+	 * {@link #nextTuple()} and choose what happens when it overflows.
+	 */
+	public TwitterSampleSpout withQueue(int queueCapacity, OverflowPolicy overflowPolicy) {
+		this.queueCapacity = queueCapacity;
+		this.overflowPolicy = overflowPolicy;
+		return this;
+	}
+
+	/**
+	 * Directory for {@link OverflowPolicy#SPILL_TO_DISK}, defaults to a task
+	 * specific directory below java.io.tmpdir. Spilled segments that were not
+	 * emitted before the spout closed are left there for
+	 * {@link TweetReplaySpout}.
+	 */
+	public TwitterSampleSpout withSpillDirectory(String spillDirectory) {
+		this.spillDirectory = spillDirectory;
+		return this;
+	}
+
+	/**
+	 * Emit up to emitBatchSize queued tweets per {@link #nextTuple()} call.
+	 * Note that a batch may overshoot topology.max.spout.pending by up to
+	 * emitBatchSize - 1 tuples.
+	 */
+	public TwitterSampleSpout withEmitBatchSize(int emitBatchSize) {
+		if (emitBatchSize < 1) {
+			throw new IllegalArgumentException("Emit batch size must be at least one (you requested "
+					+ emitBatchSize + ")");
+		}
+		this.emitBatchSize = emitBatchSize;
+		return this;
+	}
+
+	/**
+	 * How {@link #nextTuple()} waits when the queue is empty, defaults to
+	 * sleeping 50 ms. Storm's own spout wait strategy still applies on top.
+	 */
+	public TwitterSampleSpout withIdleStrategy(IdleStrategy idleStrategy) {
+		this.idleStrategy = idleStrategy;
+		return this;
+	}
+
+	/**
+	 * Emit a {@link TweetRecord} instead of the full twitter4j status. Register
+	 * {@link org.apache.storm.starter.twitter.TweetRecordSerializer} with the
+	 * topology when enabling this.
+	 */
+	public TwitterSampleSpout withCompactRecords(boolean compactRecords) {
+		this.compactRecords = compactRecords;
+		return this;
+	}
+
+	/**
+	 * Emit each tweet as a {@link RawTweet} holding its raw JSON instead of a
+	 * parsed status. twitter4j then skips parsing altogether and the fields
+	 * are only extracted when a bolt reads them. Takes precedence over
+	 * {@link #withCompactRecords(boolean)}. Register
+	 * {@link org.apache.storm.starter.twitter.RawTweetSerializer} with the
+	 * topology when enabling this.
+	 */
+	public TwitterSampleSpout withRawJson(boolean rawJson) {
+		this.rawJson = rawJson;
+		return this;
+	}
+
+	/**
+	 * Emit every tweet with its status id as message id and replay it on
+	 * {@link #fail(Object)}. At most maxPendingTweets unacked tweets are held,
+	 * or topology.max.spout.pending if that is set; no new tweets are emitted
+	 * while the limit is reached.
+	 */
+	public TwitterSampleSpout withReliableMode(int maxPendingTweets) {
+		if (maxPendingTweets < 1) {
+			throw new IllegalArgumentException("Max pending tweets must be at least one (you requested "
+					+ maxPendingTweets + ")");
+		}
+		this.reliable = true;
+		this.maxPendingTweets = maxPendingTweets;
+		return this;
+	}
+
+	/**
+	 * Drop tweets seen before, e.g. redelivered after a reconnect, before they
+	 * are queued. Ids are remembered in a rotating pair of Bloom filters of
+	 * fixed size for one to two intervals; a falsePositiveRate fraction of new
+	 * tweets is dropped as well. With collapseRetweets only one tweet per
+	 * retweeted status passes. See also
+	 * {@link org.apache.storm.starter.bolt.TweetDedupBolt}.
+	 */
+	public TwitterSampleSpout withDedup(int expectedTweetsPerInterval, double falsePositiveRate,
+			long intervalMillis, boolean collapseRetweets) {
+		this.dedupExpectedTweets = expectedTweetsPerInterval;
+		this.dedupFalsePositiveRate = falsePositiveRate;
+		this.dedupIntervalMillis = intervalMillis;
+		this.dedupCollapseRetweets = collapseRetweets;
+		return this;
+	}
+
+	/**
+	 * Only emit tweets accepted by the predicate, evaluated on the stream
+	 * thread before a tweet is queued, so rejected tweets are never serialized
+	 * or transferred. Push down only conditions that downstream bolts would
+	 * reject anyway.
+	 */
+	public TwitterSampleSpout withFilter(TweetPredicate filter) {
+		this.filter = filter;
+		return this;
+	}
+
+	/**
+	 * Replace the filter at runtime with the one defined in a local file,
+	 * e.g. a blob from the topology blobstore map, polled every few seconds.
+	 * See {@link TweetFilterFile}.
+	 */
+	public TwitterSampleSpout withFilterFile(String fileName) {
+		this.filterFile = new TweetFilterFile(fileName, TweetFilterFile.DEFAULT_POLL_INTERVAL_MILLISEC);
+		return this;
+	}
+
+	/**
+	 * Connect to another streaming endpoint than Twitter's, e.g. a
+	 * {@link org.apache.storm.starter.twitter.MockTwitterStreamServer} for
+	 * load tests. The URL must end with the API version path, such as
+	 * "http://127.0.0.1:8080/1.1/".
+	 */
+	public TwitterSampleSpout withStreamBaseUrl(String streamBaseUrl) {
+		this.streamBaseUrl = streamBaseUrl;
+		return this;
+	}
+
+	/**
+	 * Run the spout with several tasks, each tracking its own share of the
+	 * keywords over its own stream connection. The keywords are dealt out
+	 * round robin in sorted order, so every task derives the same disjoint
+	 * assignment from its task index. The parallelism is capped at the number
+	 * of keywords; without keywords only the first task samples the stream.
+	 * A tweet matching keywords of two shards is delivered by both tasks.
+	 * <p/>
+	 * All tasks connect with the credentials passed to the constructor, and
+	 * Twitter allows only one standing stream connection per account, so
+	 * against the live API the tasks keep disconnecting each other. Sharding
+	 * therefore only helps against a stream of your own, see
+	 * {@link #withStreamBaseUrl(String)}; to spread a captured stream over
+	 * several tasks, replay it with {@link TweetReplaySpout#withSharding(boolean)}.
+	 */
+	public TwitterSampleSpout withSharding(boolean sharded) {
+		this.sharded = sharded;
+		return this;
+	}
+
+	/**
+	 * The keywords tracked by one shard, in sorted order.
+	 */
+	static String[] keywordShard(String[] keyWords, int shardIndex, int numShards) {
+		String[] sorted = Arrays.copyOf(keyWords, keyWords.length);
+		Arrays.sort(sorted);
+		List<String> shard = new ArrayList<String>();
+		for (int i = shardIndex; i < sorted.length; i += numShards) {
+			shard.add(sorted[i]);
+		}
+		return shard.toArray(new String[shard.size()]);
+	}
+
 	@Override
 	public void open(Map conf, TopologyContext context,
 			SpoutOutputCollector collector) {
-		queue = new LinkedBlockingQueue<Status>(1000);
+		queue = new SpscRingBuffer<Object>(queueCapacity);
 		_collector = collector;
+		registerQueueMetrics(context);
+
+		if (reliable) {
+			Object maxSpoutPending = conf.get(Config.TOPOLOGY_MAX_SPOUT_PENDING);
+			if (maxSpoutPending != null) {
+				maxPendingTweets = ((Number) maxSpoutPending).intValue();
+			}
+			_pending = new HashMap<Long, Object>(maxPendingTweets * 2);
+			_replayQueue = new ArrayDeque<Object>();
+		}
+
+		_filter = filter;
+		pollFilterFile();
+
+		if (dedupExpectedTweets > 0) {
+			_deduplicator = new StatusDeduplicator(dedupExpectedTweets, dedupFalsePositiveRate,
+					dedupIntervalMillis, dedupCollapseRetweets);
+		}
+
+		if (overflowPolicy == OverflowPolicy.SPILL_TO_DISK) {
+			File spill = spillDirectory != null ? new File(spillDirectory)
+					: new File(System.getProperty("java.io.tmpdir"), "twitter-spout-spill-"
+							+ context.getStormId() + "-" + context.getThisTaskId());
+			try {
+				_spillWriter = new TweetSegmentWriter(spill, SPILL_SEGMENT_BYTES, CAPTURE_QUEUE_CAPACITY);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		if (captureDirectory != null) {
+			try {
+				_captureWriter = new TweetSegmentWriter(new File(captureDirectory),
+						captureSegmentBytes, CAPTURE_QUEUE_CAPACITY);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
 
 		StatusListener listener = new StatusListener() {
 
 			@Override
 			public void onStatus(Status status) {
-			
-				queue.offer(status);
+				// The raw JSON is only available on the thread that parsed the status
+				if (_captureWriter != null) {
+					_captureWriter.append(System.currentTimeMillis(),
+							TwitterObjectFactory.getRawJSON(status));
+				}
+				enqueue(status);
 			}
 
 			@Override
@@ -103,57 +407,333 @@ public class TwitterSampleSpout extends BaseRichSpout {
 
 		};
 
-		_twitterStream = new TwitterStreamFactory(
-				new ConfigurationBuilder().setJSONStoreEnabled(true).build())
+		// The listeners run on twitter4j's async dispatcher, the one producer
+		// of the single producer queue. That dispatcher is shared by all
+		// streams of the worker and created with the configuration of the
+		// first one, so every task pins it to a single thread; with more
+		// threads tweets would be lost or emitted twice.
+		ConfigurationBuilder configurationBuilder = new ConfigurationBuilder().setJSONStoreEnabled(true)
+				.setAsyncNumThreads(1);
+		if (streamBaseUrl != null) {
+			configurationBuilder.setStreamBaseURL(streamBaseUrl);
+		}
+		_twitterStream = new TwitterStreamFactory(configurationBuilder.build())
 				.getInstance();
 
-		_twitterStream.addListener(listener);
+		if (rawJson) {
+			// Without a status listener twitter4j hands over the raw lines unparsed
+			_twitterStream.addListener(new RawStreamListener() {
+
+				@Override
+				public void onMessage(String rawString) {
+					byte[] json = rawString.getBytes(StandardCharsets.UTF_8);
+					if (!RawTweet.isStatus(json)) {
+						return;
+					}
+					if (_captureWriter != null) {
+						_captureWriter.append(System.currentTimeMillis(), rawString);
+					}
+					enqueue(new RawTweet(json));
+				}
+
+				@Override
+				public void onException(Exception ex) {
+				}
+
+			});
+		} else {
+			_twitterStream.addListener(listener);
+		}
 		_twitterStream.setOAuthConsumer(consumerKey, consumerSecret);
 		AccessToken token = new AccessToken(accessToken, accessTokenSecret);
 		_twitterStream.setOAuthAccessToken(token);
-		
-		if (keyWords.length == 0) {
+
+		String[] trackedKeyWords = keyWords;
+		if (sharded) {
+			int taskIndex = context.getThisTaskIndex();
+			int numTasks = context.getComponentTasks(context.getThisComponentId()).size();
+			if (keyWords.length == 0 ? taskIndex > 0 : taskIndex >= keyWords.length) {
+				LOG.info("No keyword shard left for task {} of {}, not connecting", taskIndex, numTasks);
+				return;
+			}
+			if (keyWords.length > 0) {
+				trackedKeyWords = keywordShard(keyWords, taskIndex, numTasks);
+				LOG.info("Task {} of {} tracks {}", taskIndex, numTasks, Arrays.toString(trackedKeyWords));
+			}
+		}
+
+		if (trackedKeyWords.length == 0) {
 			_twitterStream.sample();
 		}
 
 		else {
 
-			FilterQuery query = new FilterQuery().track(keyWords);
+			FilterQuery query = new FilterQuery().track(trackedKeyWords);
 			query.language(new String[]{"en"});
 			_twitterStream.filter(query);
 		}
 
 	}
 
+	private void enqueue(Object status) {
+		TweetPredicate currentFilter = _filter;
+		if (currentFilter != null && !currentFilter.accept(Tweets.from(status))) {
+			_rejectedCount.incrementAndGet();
+			return;
+		}
+		if (_deduplicator != null && _deduplicator.isDuplicate(idOf(status),
+				dedupCollapseRetweets ? retweetedIdOf(status) : TweetRecord.NO_RETWEETED_STATUS,
+				System.currentTimeMillis())) {
+			_duplicateCount.incrementAndGet();
+			return;
+		}
+		long enqueueNanos = System.nanoTime();
+		switch (overflowPolicy) {
+		case DROP_OLDEST:
+			if (queue.offerEvictingOldest(status, enqueueNanos)) {
+				_droppedCount.incrementAndGet();
+			}
+			break;
+		case SPILL_TO_DISK:
+			if (!queue.offer(status, enqueueNanos)) {
+				if (_spillWriter.append(System.currentTimeMillis(), rawJsonOf(status))) {
+					_spilledCount.incrementAndGet();
+				} else {
+					_droppedCount.incrementAndGet();
+				}
+			}
+			break;
+		default:
+			if (!queue.offer(status, enqueueNanos)) {
+				_droppedCount.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Read back the next spilled tweet, if any. Spilled tweets are only
+	 * emitted once the in-memory queue is empty.
+	 */
+	private Object pollSpilled() {
+		if (_spillWriter == null) {
+			return null;
+		}
+		while (true) {
+			if (_spillReader == null) {
+				File segment = _spillWriter.pollCompletedSegment();
+				if (segment == null) {
+					// Spilled tweets still sit in the open segment, have it
+					// finalized; once, rather than on every idle call, so the
+					// writer does not cut a new segment per spilled tweet
+					if (!_spillRotationRequested
+							&& _spillWriter.getWrittenCount() > _spillRecordsRead) {
+						_spillWriter.requestRotation();
+						_spillRotationRequested = true;
+					}
+					return null;
+				}
+				_spillRotationRequested = false;
+				try {
+					_spillReader = new TweetSegmentReader(segment);
+				} catch (IOException e) {
+					LOG.warn("Skipping unreadable spill segment {}", segment, e);
+					continue;
+				}
+			}
+			if (_spillReader.advance()) {
+				_spillRecordsRead++;
+				if (rawJson) {
+					return new RawTweet(_spillReader.copyPayload());
+				}
+				try {
+					return TwitterObjectFactory.createStatus(_spillReader.payloadAsString());
+				} catch (TwitterException e) {
+					LOG.warn("Skipping unparseable spilled tweet", e);
+					continue;
+				}
+			}
+			closeSpillReader(true);
+		}
+	}
+
+	private void closeSpillReader(boolean deleteSegment) {
+		File segment = _spillReader.getSegmentFile();
+		try {
+			_spillReader.close();
+		} catch (IOException e) {
+			LOG.warn("Failed to close spill segment {}", segment, e);
+		}
+		_spillReader = null;
+		if (deleteSegment && !segment.delete()) {
+			LOG.warn("Failed to delete spill segment {}", segment);
+		}
+	}
+
+	private void registerQueueMetrics(TopologyContext context) {
+		context.registerMetric("twitter-queue-dropped", new IMetric() {
+			@Override
+			public Object getValueAndReset() {
+				return _droppedCount.getAndSet(0);
+			}
+		}, METRICS_TIME_BUCKET_SECS);
+		context.registerMetric("twitter-queue-spilled", new IMetric() {
+			@Override
+			public Object getValueAndReset() {
+				return _spilledCount.getAndSet(0);
+			}
+		}, METRICS_TIME_BUCKET_SECS);
+		context.registerMetric("twitter-filter-rejected", new IMetric() {
+			@Override
+			public Object getValueAndReset() {
+				return _rejectedCount.getAndSet(0);
+			}
+		}, METRICS_TIME_BUCKET_SECS);
+		context.registerMetric("twitter-duplicates-dropped", new IMetric() {
+			@Override
+			public Object getValueAndReset() {
+				return _duplicateCount.getAndSet(0);
+			}
+		}, METRICS_TIME_BUCKET_SECS);
+		context.registerMetric("twitter-queue-high-water-mark", new IMetric() {
+			@Override
+			public Object getValueAndReset() {
+				return queue.getHighWaterMarkAndReset();
+			}
+		}, METRICS_TIME_BUCKET_SECS);
+		context.registerMetric("twitter-queue-occupancy", new IMetric() {
+			@Override
+			public Object getValueAndReset() {
+				return queue.size();
+			}
+		}, METRICS_TIME_BUCKET_SECS);
+		_latencyHistogram = new HistogramMetric(MAX_TRACKED_LATENCY_NANOS, 3);
+		context.registerMetric("twitter-queue-latency-nanos", _latencyHistogram, METRICS_TIME_BUCKET_SECS);
+	}
+
+	private void pollFilterFile() {
+		if (filterFile != null) {
+			TweetPredicate updated = filterFile.pollUpdate(System.currentTimeMillis());
+			if (updated != null) {
+				_filter = updated;
+			}
+		}
+	}
+
 	@Override
 	public void nextTuple() {
-		Status ret = queue.poll();
-		if (ret == null) {
-			Utils.sleep(50);
+		pollFilterFile();
+		int emitted = 0;
+		while (emitted < emitBatchSize) {
+			if (reliable && !_replayQueue.isEmpty()) {
+				Object replay = _replayQueue.poll();
+				_collector.emit(new Values(toTupleValue(replay)), idOf(replay));
+				emitted++;
+				continue;
+			}
+			if (reliable && _pending.size() >= maxPendingTweets) {
+				break;
+			}
+
+			Object ret = queue.poll();
+			if (ret != null) {
+				long latencyNanos = System.nanoTime() - queue.getLastPolledStamp();
+				_latencyHistogram.recordValue(Math.min(latencyNanos, MAX_TRACKED_LATENCY_NANOS));
+			} else {
+				ret = pollSpilled();
+				if (ret == null) {
+					break;
+				}
+			}
+			if (reliable) {
+				long id = idOf(ret);
+				_pending.put(id, ret);
+				_collector.emit(new Values(toTupleValue(ret)), id);
+			} else {
+				_collector.emit(new Values(toTupleValue(ret)));
+			}
+			emitted++;
+		}
+
+		if (emitted == 0) {
+			idleStrategy.idle();
 		} else {
-			_collector.emit(new Values(ret));
+			idleStrategy.reset();
+		}
+	}
 
+	private Object toTupleValue(Object tweet) {
+		if (compactRecords && tweet instanceof Status) {
+			return TweetRecord.fromStatus((Status) tweet);
 		}
+		return tweet;
+	}
+
+	private static long idOf(Object tweet) {
+		return tweet instanceof RawTweet ? ((RawTweet) tweet).getId() : ((Status) tweet).getId();
+	}
+
+	private static long retweetedIdOf(Object tweet) {
+		if (tweet instanceof RawTweet) {
+			return ((RawTweet) tweet).getRetweetedStatusId();
+		}
+		Status retweeted = ((Status) tweet).getRetweetedStatus();
+		return retweeted == null ? TweetRecord.NO_RETWEETED_STATUS : retweeted.getId();
+	}
+
+	/**
+	 * For a status this only works on the twitter4j thread that parsed it.
+	 */
+	private static String rawJsonOf(Object tweet) {
+		return tweet instanceof RawTweet ? ((RawTweet) tweet).getJsonAsString()
+				: TwitterObjectFactory.getRawJSON(tweet);
 	}
 
 	@Override
 	public void close() {
 		_twitterStream.shutdown();
+		if (_captureWriter != null) {
+			try {
+				_captureWriter.close();
+			} catch (IOException e) {
+				LOG.warn("Failed to close tweet capture", e);
+			}
+			LOG.info("Captured {} tweets, dropped {}", _captureWriter.getWrittenCount(),
+					_captureWriter.getDroppedCount());
+		}
+		if (_spillReader != null) {
+			closeSpillReader(false);
+		}
+		if (_spillWriter != null) {
+			try {
+				_spillWriter.close();
+			} catch (IOException e) {
+				LOG.warn("Failed to close spill writer", e);
+			}
+		}
 	}
 
 	@Override
 	public Map<String, Object> getComponentConfiguration() {
 		Config ret = new Config();
-		ret.setMaxTaskParallelism(1);
+		ret.setMaxTaskParallelism(sharded && keyWords.length > 0 ? keyWords.length : 1);
 		return ret;
 	}
 
 	@Override
 	public void ack(Object id) {
+		if (reliable) {
+			_pending.remove(id);
+		}
 	}
 
 	@Override
 	public void fail(Object id) {
+		if (reliable) {
+			Object tweet = _pending.get(id);
+			if (tweet != null) {
+				_replayQueue.add(tweet);
+			}
+		}
 	}
 
 	@Override
@@ -0,0 +1,163 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.tools;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * An immutable set of strings that answers membership queries for any {@link CharSequence}, e.g. the reusable word
+ * views of {@link WordTokenizer}, without converting the query to a <code>String</code>.
+ * <p/>
+ * The characters of all members are stored back to back in a single array and located through an open-addressed hash
+ * table with linear probing that is at most half full, so a lookup hashes the query once and compares it with one
+ * member in the common case.
+ */
+public final class CharSequenceSet implements Serializable {
+
+  private static final long serialVersionUID = -2170485726914536082L;
+
+  private static final int EMPTY = -1;
+
+  private final char[] chars;
+  private final int[] offsets;
+  private final int[] hashes;
+  private final int[] table;
+  private final int mask;
+  private final int size;
+
+  /**
+   * @param members the members of the set; duplicates are ignored
+   */
+  public CharSequenceSet(Collection<? extends CharSequence> members) {
+    int totalLength = 0;
+    for (CharSequence member : members) {
+      totalLength += member.length();
+    }
+    int capacity = Integer.highestOneBit(Math.max(2, members.size()) * 2 - 1) << 1;
+    chars = new char[totalLength];
+    offsets = new int[members.size() + 1];
+    hashes = new int[members.size()];
+    table = new int[capacity];
+    Arrays.fill(table, EMPTY);
+    mask = capacity - 1;
+
+    int distinct = 0;
+    for (CharSequence member : members) {
+      int hash = hash(member);
+      int slot = find(member, hash);
+      if (table[slot] != EMPTY) {
+        continue;
+      }
+      int offset = offsets[distinct];
+      for (int i = 0; i < member.length(); i++) {
+        chars[offset + i] = member.charAt(i);
+      }
+      offsets[distinct + 1] = offset + member.length();
+      hashes[distinct] = hash;
+      table[slot] = distinct;
+      distinct++;
+    }
+    size = distinct;
+  }
+
+  /**
+   * Reads a set with one member per line. Leading and trailing whitespace is removed, and empty lines as well as lines
+   * starting with <code>#</code> are skipped.
+   *
+   * @param file a UTF-8 encoded text file
+   * @return the members of the file
+   * @throws IOException if the file can not be read
+   */
+  public static CharSequenceSet load(File file) throws IOException {
+    List<String> members = new ArrayList<String>();
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (!line.isEmpty() && line.charAt(0) != '#') {
+          members.add(line);
+        }
+      }
+    }
+    return new CharSequenceSet(members);
+  }
+
+  /**
+   * @param query the characters to look up
+   * @return whether the set has a member with exactly these characters
+   */
+  public boolean contains(CharSequence query) {
+    return table[find(query, hash(query))] != EMPTY;
+  }
+
+  /**
+   * @return the number of distinct members
+   */
+  public int size() {
+    return size;
+  }
+
+  // returns the slot of the member equal to the query, or the empty slot where it would be inserted
+  private int find(CharSequence query, int hash) {
+    int slot = mix(hash) & mask;
+    while (table[slot] != EMPTY && !memberEquals(table[slot], query, hash)) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private boolean memberEquals(int index, CharSequence query, int hash) {
+    int offset = offsets[index];
+    int length = offsets[index + 1] - offset;
+    if (hashes[index] != hash || length != query.length()) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (chars[offset + i] != query.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int hash(CharSequence s) {
+    int hash = 0;
+    for (int i = 0; i < s.length(); i++) {
+      hash = 31 * hash + s.charAt(i);
+    }
+    return hash;
+  }
+
+  // spreads the poorly distributed low bits of the polynomial hash over the table
+  private static int mix(int hash) {
+    hash *= 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+}
@@ -0,0 +1,247 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.tools;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Approximate sliding window counts in memory that does not depend on the number of distinct objects: like
+ * {@link SlidingWindowCounter}, but every slot of the window counts the objects in a Count-Min sketch of Cormode and
+ * Muthukrishnan instead of per-object counters.
+ * <p/>
+ * A sketch has <code>depth</code> rows of <code>width</code> counters, and every object increments one counter per row,
+ * picked by a different hash function. The estimated count of an object is the minimum of its counters, which is never
+ * lower than the true count. With a width of <code>e / relativeError</code> and a depth of
+ * <code>ln(1 / failureProbability)</code>, it exceeds the true count by more than <code>relativeError</code> times the
+ * total count of the window only with the given failure probability. {@link #getMaxError()} reports that bound.
+ * <p/>
+ * The hash functions of all rows are derived from the object's 32 bit <code>hashCode()</code>, so objects with equal
+ * hash codes, such as the strings "Aa" and "BB", share their counter in every row. Each of their estimates then
+ * includes the other's count, however wide and deep the sketch, and the bound above does not hold for them.
+ * <p/>
+ * As a sketch cannot enumerate the objects it counted, every slot also keeps a small set of heavy hitter candidates,
+ * the objects with the highest estimates seen in that slot. Reading the window returns the estimated window counts of
+ * the candidates of all slots, summing the counters of the slots per row before taking the minimum.
+ * <p/>
+ * Unlike {@link SlidingWindowCounter} a window of a single slot is allowed, which makes the window tumble instead of
+ * slide.
+ *
+ * @param <T> The type of those objects we want to count.
+ */
+public final class CountMinWindowCounter<T> implements RollingCounter<T>, Serializable {
+
+  private static final long serialVersionUID = -6253718098534192765L;
+
+  private final Slot<T>[] slots;
+  private final int width;
+  private final int depth;
+  private final int candidatesPerSlot;
+  private final double relativeError;
+  private int headSlot;
+  private long maxError;
+
+  /**
+   * @param windowLengthInSlots number of slots of the window
+   * @param candidatesPerSlot   number of heavy hitter candidates kept per slot
+   * @param relativeError       maximum overestimation as a fraction of the total count of the window, between 0 and 1
+   * @param failureProbability  probability that an estimate exceeds that error, between 0 and 1
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public CountMinWindowCounter(int windowLengthInSlots, int candidatesPerSlot, double relativeError,
+      double failureProbability) {
+    if (windowLengthInSlots < 1) {
+      throw new IllegalArgumentException(
+          "Window length in slots must be at least one (you requested " + windowLengthInSlots + ")");
+    }
+    if (candidatesPerSlot <= 0) {
+      throw new IllegalArgumentException(
+          "Candidates per slot must be greater than zero (you requested " + candidatesPerSlot + ")");
+    }
+    if (relativeError <= 0 || relativeError >= 1) {
+      throw new IllegalArgumentException(
+          "Relative error must be between 0 and 1 (you requested " + relativeError + ")");
+    }
+    if (failureProbability <= 0 || failureProbability >= 1) {
+      throw new IllegalArgumentException(
+          "Failure probability must be between 0 and 1 (you requested " + failureProbability + ")");
+    }
+    long sketchWidth = (long) Math.ceil(Math.E / relativeError);
+    this.depth = (int) Math.ceil(Math.log(1 / failureProbability));
+    if (sketchWidth * depth > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Sketch of " + sketchWidth + " x " + depth + " counters is too large");
+    }
+    this.width = (int) sketchWidth;
+    this.candidatesPerSlot = candidatesPerSlot;
+    this.relativeError = relativeError;
+    this.slots = new Slot[windowLengthInSlots];
+    for (int i = 0; i < windowLengthInSlots; i++) {
+      slots[i] = new Slot<T>(width * depth);
+    }
+    this.headSlot = 0;
+  }
+
+  @Override
+  public void incrementCount(T obj) {
+    Slot<T> slot = slots[headSlot];
+    long hash = mix(obj.hashCode());
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < depth; row++) {
+      estimate = Math.min(estimate, ++slot.sketch[index(row, h1, h2)]);
+    }
+    slot.total++;
+    slot.offerCandidate(obj, estimate, candidatesPerSlot);
+  }
+
+  /**
+   * Return the estimated counts of the heavy hitter candidates of the current window, then advance the window.
+   *
+   * @return The estimated (total) counts of the candidates.
+   */
+  @Override
+  public Map<T, Long> getCountsThenAdvanceWindow() {
+    Set<T> candidates = new HashSet<T>();
+    long total = 0;
+    for (Slot<T> slot : slots) {
+      candidates.addAll(slot.candidates.keySet());
+      total += slot.total;
+    }
+    Map<T, Long> counts = new HashMap<T, Long>(candidates.size() * 2);
+    for (T obj : candidates) {
+      counts.put(obj, estimateWindowCount(obj));
+    }
+    maxError = (long) Math.ceil(relativeError * total);
+
+    headSlot = (headSlot + 1) % slots.length;
+    slots[headSlot].clear();
+    return counts;
+  }
+
+  /**
+   * @return the error bound of the counts returned by the last call to {@link #getCountsThenAdvanceWindow()}, which
+   * holds for each of them with the configured probability
+   */
+  @Override
+  public long getMaxError() {
+    return maxError;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+
+  private long estimateWindowCount(T obj) {
+    long hash = mix(obj.hashCode());
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < depth; row++) {
+      int index = index(row, h1, h2);
+      long sum = 0;
+      for (Slot<T> slot : slots) {
+        sum += slot.sketch[index];
+      }
+      estimate = Math.min(estimate, sum);
+    }
+    return estimate;
+  }
+
+  private int index(int row, int h1, int h2) {
+    return row * width + ((h1 + row * h2) & Integer.MAX_VALUE) % width;
+  }
+
+  /**
+   * Finalizer of MurmurHash3, so that the hash codes of similar objects pick unrelated counters.
+   */
+  private static long mix(long key) {
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb9fe1a85ec53L;
+    key ^= key >>> 33;
+    return key;
+  }
+
+  private static final class Slot<T> implements Serializable {
+
+    private static final long serialVersionUID = 1853046216734105982L;
+
+    private final long[] sketch;
+    private final Map<T, Long> candidates = new HashMap<T, Long>();
+    private long total;
+    // the candidate with the lowest estimate, found again only when a new object might replace it
+    private T minCandidate;
+    private long minEstimate;
+    private boolean minStale = true;
+
+    private Slot(int counters) {
+      this.sketch = new long[counters];
+    }
+
+    private void offerCandidate(T obj, long estimate, int capacity) {
+      if (candidates.containsKey(obj)) {
+        candidates.put(obj, estimate);
+        minStale |= obj.equals(minCandidate);
+      }
+      else if (candidates.size() < capacity) {
+        candidates.put(obj, estimate);
+        minStale = true;
+      }
+      else {
+        if (minStale) {
+          findMinCandidate();
+        }
+        if (estimate > minEstimate) {
+          candidates.remove(minCandidate);
+          candidates.put(obj, estimate);
+          minStale = true;
+        }
+      }
+    }
+
+    private void findMinCandidate() {
+      minEstimate = Long.MAX_VALUE;
+      for (Map.Entry<T, Long> entry : candidates.entrySet()) {
+        if (entry.getValue() < minEstimate) {
+          minCandidate = entry.getKey();
+          minEstimate = entry.getValue();
+        }
+      }
+      minStale = false;
+    }
+
+    private void clear() {
+      Arrays.fill(sketch, 0L);
+      candidates.clear();
+      total = 0;
+      minCandidate = null;
+      minStale = true;
+    }
+  }
+
+}
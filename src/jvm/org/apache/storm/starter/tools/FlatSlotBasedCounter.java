@@ -0,0 +1,231 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.tools;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link SlotBasedCounter} for many distinct objects: per-slot counts in flat primitive arrays instead of a
+ * <code>long[]</code> per object in a <code>HashMap</code>.
+ * <p/>
+ * The objects are stored in an open-addressed hash table with linear probing. Entry <code>i</code> of the table owns
+ * the object at <code>keys[i]</code>, the slot counts <code>counts[i * numSlots]</code> to
+ * <code>counts[i * numSlots + numSlots - 1]</code> and their sum <code>totals[i]</code>, which is updated with every
+ * change, so reading the total count of an object does not add up its slots. An entry costs a reference and
+ * <code>numSlots + 1</code> longs, at a load factor of at most 3/4, instead of a map entry, a boxed count array and the
+ * boxed totals of every read.
+ * <p/>
+ * {@link #forEach(Visitor)} iterates over the total counts without boxing them; {@link #getCounts()} returns them as a
+ * map like {@link SlotBasedCounter#getCounts()}.
+ * <p/>
+ * This class is NOT thread-safe.
+ *
+ * @param <T> The type of those objects we want to count.
+ */
+public final class FlatSlotBasedCounter<T> implements Serializable {
+
+  private static final long serialVersionUID = 3159420876415528369L;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  /**
+   * Callback for {@link #forEach(Visitor)}.
+   *
+   * @param <T> The type of the counted objects.
+   */
+  public interface Visitor<T> {
+
+    void visit(T obj, long totalCount);
+  }
+
+  private final int numSlots;
+  private Object[] keys;
+  private long[] counts;
+  private long[] totals;
+  private int mask;
+  private int size;
+
+  public FlatSlotBasedCounter(int numSlots) {
+    if (numSlots <= 0) {
+      throw new IllegalArgumentException("Number of slots must be greater than zero (you requested " + numSlots + ")");
+    }
+    this.numSlots = numSlots;
+    allocate(INITIAL_CAPACITY);
+  }
+
+  public void incrementCount(T obj, int slot) {
+    int index = find(obj);
+    if (keys[index] == null) {
+      if (size + 1 > keys.length / 4 * 3) {
+        resize(keys.length * 2);
+        index = find(obj);
+      }
+      keys[index] = obj;
+      size++;
+    }
+    counts[index * numSlots + slot]++;
+    totals[index]++;
+  }
+
+  public long getCount(T obj, int slot) {
+    int index = find(obj);
+    return keys[index] == null ? 0 : counts[index * numSlots + slot];
+  }
+
+  public long getTotalCount(T obj) {
+    int index = find(obj);
+    return keys[index] == null ? 0 : totals[index];
+  }
+
+  /**
+   * @return the number of tracked objects, including those whose total count dropped to zero since the last
+   * {@link #wipeZeros()}
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Pass every tracked object with its total count over all slots to the visitor.
+   *
+   * @param visitor
+   */
+  @SuppressWarnings("unchecked")
+  public void forEach(Visitor<? super T> visitor) {
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != null) {
+        visitor.visit((T) keys[i], totals[i]);
+      }
+    }
+  }
+
+  public Map<T, Long> getCounts() {
+    final Map<T, Long> result = new HashMap<T, Long>(size * 2);
+    forEach(new Visitor<T>() {
+      @Override
+      public void visit(T obj, long totalCount) {
+        result.put(obj, totalCount);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Reset the slot count of any tracked objects to zero for the given slot.
+   *
+   * @param slot
+   */
+  public void wipeSlot(int slot) {
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != null) {
+        totals[i] -= counts[i * numSlots + slot];
+        counts[i * numSlots + slot] = 0;
+      }
+    }
+  }
+
+  /**
+   * Remove any object from the counter whose total count is zero (to free up memory).
+   */
+  public void wipeZeros() {
+    int i = 0;
+    while (i < keys.length) {
+      if (keys[i] != null && totals[i] == 0) {
+        // the removal may shift a later entry into this position, so check it again
+        remove(i);
+      }
+      else {
+        i++;
+      }
+    }
+  }
+
+  private int find(Object obj) {
+    int index = mix(obj.hashCode()) & mask;
+    while (keys[index] != null && !keys[index].equals(obj)) {
+      index = (index + 1) & mask;
+    }
+    return index;
+  }
+
+  /**
+   * Backward shift deletion: moves the following entries of the probe sequence into the hole, as long as that does
+   * not put them before their home position, so lookups never need tombstones.
+   */
+  private void remove(int index) {
+    int hole = index;
+    int next = index;
+    while (true) {
+      next = (next + 1) & mask;
+      if (keys[next] == null) {
+        break;
+      }
+      int home = mix(keys[next].hashCode()) & mask;
+      boolean homeInRange = next > hole ? (home > hole && home <= next) : (home > hole || home <= next);
+      if (!homeInRange) {
+        move(next, hole);
+        hole = next;
+      }
+    }
+    keys[hole] = null;
+    totals[hole] = 0;
+    Arrays.fill(counts, hole * numSlots, (hole + 1) * numSlots, 0L);
+    size--;
+  }
+
+  private void move(int from, int to) {
+    keys[to] = keys[from];
+    totals[to] = totals[from];
+    System.arraycopy(counts, from * numSlots, counts, to * numSlots, numSlots);
+  }
+
+  private void resize(int capacity) {
+    Object[] oldKeys = keys;
+    long[] oldCounts = counts;
+    long[] oldTotals = totals;
+    allocate(capacity);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != null) {
+        int index = find(oldKeys[i]);
+        keys[index] = oldKeys[i];
+        totals[index] = oldTotals[i];
+        System.arraycopy(oldCounts, i * numSlots, counts, index * numSlots, numSlots);
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    if ((long) capacity * numSlots > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Counter of " + capacity + " x " + numSlots + " counts is too large");
+    }
+    keys = new Object[capacity];
+    counts = new long[capacity * numSlots];
+    totals = new long[capacity];
+    mask = capacity - 1;
+  }
+
+  // spreads the hash codes, whose low bits alone pick the home position
+  private static int mix(int hash) {
+    hash *= 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+}
@@ -0,0 +1,137 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.tools;
+
+import java.io.Serializable;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decides how a polling thread waits when it found no work.
+ * <p/>
+ * The poller calls {@link #idle()} after every poll that came back empty and {@link #reset()} after every poll that
+ * found work, which lets stateful strategies such as {@link BackoffPark} escalate during a lull and respond quickly
+ * once work arrives again.
+ */
+public interface IdleStrategy extends Serializable {
+
+  void idle();
+
+  void reset();
+
+  /**
+   * Spin without giving up the CPU. Lowest latency, burns a core while idle.
+   */
+  final class BusySpin implements IdleStrategy {
+
+    private static final long serialVersionUID = -3127400410592591376L;
+
+    @Override
+    public void idle() {
+    }
+
+    @Override
+    public void reset() {
+    }
+  }
+
+  /**
+   * Yield the CPU to other runnable threads while idle.
+   */
+  final class Yield implements IdleStrategy {
+
+    private static final long serialVersionUID = 4563251726457393016L;
+
+    @Override
+    public void idle() {
+      Thread.yield();
+    }
+
+    @Override
+    public void reset() {
+    }
+  }
+
+  /**
+   * Park for an exponentially growing period, starting at <code>minParkNanos</code> and capped at
+   * <code>maxParkNanos</code>.
+   */
+  final class BackoffPark implements IdleStrategy {
+
+    private static final long serialVersionUID = -8409513276478851906L;
+
+    private final long minParkNanos;
+    private final long maxParkNanos;
+    private long parkNanos;
+
+    public BackoffPark(long minParkNanos, long maxParkNanos) {
+      if (minParkNanos <= 0 || maxParkNanos < minParkNanos) {
+        throw new IllegalArgumentException(
+            "Park period must satisfy 0 < min <= max (you requested " + minParkNanos + ", " + maxParkNanos + ")");
+      }
+      this.minParkNanos = minParkNanos;
+      this.maxParkNanos = maxParkNanos;
+      this.parkNanos = minParkNanos;
+    }
+
+    @Override
+    public void idle() {
+      LockSupport.parkNanos(parkNanos);
+      parkNanos = Math.min(parkNanos << 1, maxParkNanos);
+    }
+
+    @Override
+    public void reset() {
+      parkNanos = minParkNanos;
+    }
+
+    /**
+     * @return how long the next {@link #idle()} parks
+     */
+    long nextParkNanos() {
+      return parkNanos;
+    }
+  }
+
+  /**
+   * Sleep for a fixed period while idle.
+   */
+  final class Sleep implements IdleStrategy {
+
+    private static final long serialVersionUID = 2046409733152480719L;
+
+    private final long sleepMillis;
+
+    public Sleep(long sleepMillis) {
+      this.sleepMillis = sleepMillis;
+    }
+
+    @Override
+    public void idle() {
+      try {
+        Thread.sleep(sleepMillis);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    @Override
+    public void reset() {
+    }
+  }
+}
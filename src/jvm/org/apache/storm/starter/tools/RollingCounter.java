@@ -0,0 +1,45 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.tools;
+
+import java.util.Map;
+
+/**
+ * Counts objects over a sliding window that is advanced by its reader, see {@link SlidingWindowCounter} for the exact
+ * implementation and {@link SpaceSavingWindowCounter} for a bounded-memory approximation.
+ *
+ * @param <T> The type of those objects we want to count.
+ */
+public interface RollingCounter<T> {
+
+  void incrementCount(T obj);
+
+  /**
+   * Return the current (total) counts of all tracked objects, then advance the window.
+   *
+   * @return The current (total) counts of all tracked objects.
+   */
+  Map<T, Long> getCountsThenAdvanceWindow();
+
+  /**
+   * @return by how much the counts returned by the last call to {@link #getCountsThenAdvanceWindow()} may exceed the
+   * true counts, and the highest true count of any object missing from them; zero for exact counters
+   */
+  long getMaxError();
+
+}
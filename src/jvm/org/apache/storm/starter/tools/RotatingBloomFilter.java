@@ -0,0 +1,142 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.tools;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A pair of Bloom filters over <code>long</code> keys that forgets old keys by rotation.
+ * <p/>
+ * New keys are added to the current generation, while lookups consult both the current and the previous generation.
+ * {@link #rotate()} discards the previous generation and starts an empty current one, so a key is remembered for at
+ * least one and at most two rotation intervals. Both generations are allocated up front and reused, i.e. the memory
+ * footprint is fixed no matter how many keys are added.
+ * <p/>
+ * Like any Bloom filter it has no false negatives within that memory window, but it reports a key that was never added
+ * as present with a small probability, which is bounded by the configured false positive rate as long as no more than
+ * the expected number of keys are added per generation.
+ * <p/>
+ * This class is NOT thread-safe.
+ */
+public final class RotatingBloomFilter implements Serializable {
+
+  private static final long serialVersionUID = 4961853214390875213L;
+
+  private static final double LN2 = Math.log(2);
+
+  private final int numBits;
+  private final int numHashes;
+  private long[] current;
+  private long[] previous;
+
+  /**
+   * @param expectedKeysPerGeneration number of keys added between two rotations
+   * @param falsePositiveRate         target false positive rate of one generation, between 0 and 1 (exclusive)
+   */
+  public RotatingBloomFilter(int expectedKeysPerGeneration, double falsePositiveRate) {
+    if (expectedKeysPerGeneration < 1) {
+      throw new IllegalArgumentException(
+          "Expected keys per generation must be >= 1 (you requested " + expectedKeysPerGeneration + ")");
+    }
+    if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+      throw new IllegalArgumentException(
+          "False positive rate must be between 0 and 1 (you requested " + falsePositiveRate + ")");
+    }
+    long bits = (long) Math.ceil(-expectedKeysPerGeneration * Math.log(falsePositiveRate) / (LN2 * LN2));
+    if (bits > Integer.MAX_VALUE - 63) {
+      throw new IllegalArgumentException("Filter of " + bits + " bits per generation is too large");
+    }
+    this.numBits = (int) Math.max(64, bits);
+    this.numHashes = Math.max(1, (int) Math.round((double) numBits / expectedKeysPerGeneration * LN2));
+    this.current = new long[(numBits + 63) >>> 6];
+    this.previous = new long[current.length];
+  }
+
+  /**
+   * Add a key to the current generation.
+   *
+   * @return true if the key was (possibly) present already in either generation
+   */
+  public boolean put(long key) {
+    long hash = mix(key);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    boolean inCurrent = true;
+    boolean inPrevious = true;
+    for (int i = 0; i < numHashes; i++) {
+      int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % numBits;
+      int word = bit >>> 6;
+      long mask = 1L << bit;
+      if ((current[word] & mask) == 0) {
+        inCurrent = false;
+        current[word] |= mask;
+      }
+      inPrevious &= (previous[word] & mask) != 0;
+    }
+    return inCurrent || inPrevious;
+  }
+
+  /**
+   * @return true if the key is (possibly) present in either generation
+   */
+  public boolean mightContain(long key) {
+    long hash = mix(key);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    boolean inCurrent = true;
+    boolean inPrevious = true;
+    for (int i = 0; i < numHashes && (inCurrent || inPrevious); i++) {
+      int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % numBits;
+      long mask = 1L << bit;
+      inCurrent &= (current[bit >>> 6] & mask) != 0;
+      inPrevious &= (previous[bit >>> 6] & mask) != 0;
+    }
+    return inCurrent || inPrevious;
+  }
+
+  /**
+   * Forget the keys of the previous generation and start a new, empty current generation.
+   */
+  public void rotate() {
+    long[] recycled = previous;
+    previous = current;
+    Arrays.fill(recycled, 0L);
+    current = recycled;
+  }
+
+  public int getNumBits() {
+    return numBits;
+  }
+
+  public int getNumHashes() {
+    return numHashes;
+  }
+
+  /**
+   * Finalizer of MurmurHash3, spreads sequential ids such as status ids over all bits.
+   */
+  private static long mix(long key) {
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb9fe1a85ec53L;
+    key ^= key >>> 33;
+    return key;
+  }
+}
@@ -65,11 +65,11 @@ import java.util.Map;
  *
  * @param <T> The type of those objects we want to count.
  */
-public final class SlidingWindowCounter<T> implements Serializable {
+public final class SlidingWindowCounter<T> implements RollingCounter<T>, Serializable {
 
   private static final long serialVersionUID = -2645063988768785810L;
 
-  private SlotBasedCounter<T> objCounter;
+  private FlatSlotBasedCounter<T> objCounter;
   private int headSlot;
   private int tailSlot;
   private int windowLengthInSlots;
@@ -80,12 +80,13 @@ public final class SlidingWindowCounter<T> implements Serializable {
           "Window length in slots must be at least two (you requested " + windowLengthInSlots + ")");
     }
     this.windowLengthInSlots = windowLengthInSlots;
-    this.objCounter = new SlotBasedCounter<T>(this.windowLengthInSlots);
+    this.objCounter = new FlatSlotBasedCounter<T>(this.windowLengthInSlots);
 
     this.headSlot = 0;
     this.tailSlot = slotAfter(headSlot);
   }
 
+  @Override
   public void incrementCount(T obj) {
     objCounter.incrementCount(obj, headSlot);
   }
@@ -99,6 +100,7 @@ public final class SlidingWindowCounter<T> implements Serializable {
    *
    * @return The current (total) counts of all tracked objects.
    */
+  @Override
   public Map<T, Long> getCountsThenAdvanceWindow() {
     Map<T, Long> counts = objCounter.getCounts();
     objCounter.wipeZeros();
@@ -107,6 +109,14 @@ public final class SlidingWindowCounter<T> implements Serializable {
     return counts;
   }
 
+  /**
+   * @return zero, the counts are exact
+   */
+  @Override
+  public long getMaxError() {
+    return 0;
+  }
+
   private void advanceHead() {
     headSlot = tailSlot;
     tailSlot = slotAfter(tailSlot);
@@ -0,0 +1,295 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.tools;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Approximate counts of the most frequent objects of a stream in fixed memory, using the Space-Saving algorithm of
+ * Metwally, Agrawal and El Abbadi.
+ * <p/>
+ * The summary monitors at most <code>capacity</code> objects. An object that is not monitored while the summary is full
+ * takes over the counter with the smallest count, inheriting that count as its error. Therefore:
+ * <ul>
+ * <li>the count of a monitored object is never lower than its true count, and at most its error higher</li>
+ * <li>an object that is not monitored occurred at most {@link #getMaxError()} times</li>
+ * <li>{@link #getMaxError()} is at most <code>total / capacity</code>, so every object that makes up more than that
+ * share of the stream is monitored</li>
+ * </ul>
+ * The counters are kept in a min-heap on their counts, so an update costs <code>O(log capacity)</code>. Summaries of
+ * different parts of a stream, e.g. of different tasks or time slots, can be combined with {@link #merge(SpaceSaving)}
+ * and keep the guarantees above for the combined stream.
+ * <p/>
+ * This class is NOT thread-safe.
+ *
+ * @param <T> The type of those objects we want to count.
+ */
+public final class SpaceSaving<T> implements Serializable {
+
+  private static final long serialVersionUID = 6718294035127734560L;
+
+  private final int capacity;
+  private final Map<T, Counter<T>> counters;
+  private final Counter<T>[] heap;
+  private int size;
+  private long total;
+
+  /**
+   * @param capacity maximum number of monitored objects
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public SpaceSaving(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be greater than zero (you requested " + capacity + ")");
+    }
+    this.capacity = capacity;
+    this.counters = new HashMap<T, Counter<T>>(capacity * 2);
+    this.heap = new Counter[capacity];
+  }
+
+  public void offer(T obj) {
+    offer(obj, 1);
+  }
+
+  /**
+   * @param obj       the object to count
+   * @param increment number of occurrences, must not be negative
+   */
+  public void offer(T obj, long increment) {
+    if (increment < 0) {
+      throw new IllegalArgumentException("Increment must not be negative (you requested " + increment + ")");
+    }
+    total += increment;
+    Counter<T> counter = counters.get(obj);
+    if (counter != null) {
+      counter.count += increment;
+      siftDown(counter.heapIndex);
+    }
+    else if (size < capacity) {
+      counter = new Counter<T>(obj, increment, 0);
+      counters.put(obj, counter);
+      heap[size] = counter;
+      counter.heapIndex = size;
+      siftUp(size++);
+    }
+    else {
+      counter = heap[0];
+      counters.remove(counter.obj);
+      counter.obj = obj;
+      counter.error = counter.count;
+      counter.count += increment;
+      counters.put(obj, counter);
+      siftDown(0);
+    }
+  }
+
+  /**
+   * @param obj
+   * @return the estimated count of the object, an upper bound of its true count if it is monitored, or zero if not
+   */
+  public long getCount(T obj) {
+    Counter<T> counter = counters.get(obj);
+    return counter == null ? 0 : counter.count;
+  }
+
+  /**
+   * @param obj
+   * @return by how much the estimated count of the object may exceed its true count, zero if it is not monitored
+   */
+  public long getError(T obj) {
+    Counter<T> counter = counters.get(obj);
+    return counter == null ? 0 : counter.error;
+  }
+
+  /**
+   * @return the maximum overestimation of any monitored count, which is also the maximum true count of any object that
+   * is not monitored; zero as long as the summary is not full, as all counts are exact then
+   */
+  public long getMaxError() {
+    return size < capacity ? 0 : heap[0].count;
+  }
+
+  /**
+   * @return the number of occurrences counted, including merged summaries
+   */
+  public long getTotal() {
+    return total;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   * @return the estimated counts of all monitored objects
+   */
+  public Map<T, Long> getCounts() {
+    Map<T, Long> result = new HashMap<T, Long>(size * 2);
+    for (int i = 0; i < size; i++) {
+      result.put(heap[i].obj, heap[i].count);
+    }
+    return result;
+  }
+
+  /**
+   * @param k number of objects
+   * @return the monitored objects with the k highest estimated counts, by decreasing count
+   */
+  public List<T> getTop(int k) {
+    List<Counter<T>> sorted = sortedCounters();
+    List<T> top = new ArrayList<T>(Math.min(k, size));
+    for (int i = 0; i < k && i < sorted.size(); i++) {
+      top.add(sorted.get(i).obj);
+    }
+    return top;
+  }
+
+  /**
+   * Combine the counts of another summary into this one, so that this summary describes both streams together.
+   * <p/>
+   * An object monitored by only one of the summaries might have occurred up to the other summary's maximum error times
+   * in the other stream, so that is added to its count and error. Of the combined counters the ones with the highest
+   * counts are kept, up to the capacity of this summary.
+   *
+   * @param other a summary of another part of the stream; it is not modified
+   */
+  public void merge(SpaceSaving<T> other) {
+    long thisMaxError = getMaxError();
+    long otherMaxError = other.getMaxError();
+    List<Counter<T>> combined = new ArrayList<Counter<T>>(size + other.size);
+    for (int i = 0; i < size; i++) {
+      Counter<T> counter = heap[i];
+      Counter<T> otherCounter = other.counters.get(counter.obj);
+      if (otherCounter != null) {
+        combined.add(new Counter<T>(counter.obj, counter.count + otherCounter.count,
+            counter.error + otherCounter.error));
+      }
+      else {
+        combined.add(new Counter<T>(counter.obj, counter.count + otherMaxError, counter.error + otherMaxError));
+      }
+    }
+    for (int i = 0; i < other.size; i++) {
+      Counter<T> otherCounter = other.heap[i];
+      if (!counters.containsKey(otherCounter.obj)) {
+        combined.add(new Counter<T>(otherCounter.obj, otherCounter.count + thisMaxError,
+            otherCounter.error + thisMaxError));
+      }
+    }
+    if (combined.size() > capacity) {
+      Collections.sort(combined, BY_DECREASING_COUNT);
+      combined = combined.subList(0, capacity);
+    }
+
+    long mergedTotal = total + other.total;
+    clear();
+    total = mergedTotal;
+    for (Counter<T> counter : combined) {
+      counters.put(counter.obj, counter);
+      heap[size] = counter;
+      counter.heapIndex = size;
+      siftUp(size++);
+    }
+  }
+
+  /**
+   * Forget all counts.
+   */
+  public void clear() {
+    counters.clear();
+    Arrays.fill(heap, 0, size, null);
+    size = 0;
+    total = 0;
+  }
+
+  private List<Counter<T>> sortedCounters() {
+    List<Counter<T>> sorted = new ArrayList<Counter<T>>(Arrays.asList(heap).subList(0, size));
+    Collections.sort(sorted, BY_DECREASING_COUNT);
+    return sorted;
+  }
+
+  private void siftUp(int index) {
+    Counter<T> counter = heap[index];
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (heap[parent].count <= counter.count) {
+        break;
+      }
+      place(heap[parent], index);
+      index = parent;
+    }
+    place(counter, index);
+  }
+
+  private void siftDown(int index) {
+    Counter<T> counter = heap[index];
+    int half = size >>> 1;
+    while (index < half) {
+      int child = 2 * index + 1;
+      if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+        child++;
+      }
+      if (counter.count <= heap[child].count) {
+        break;
+      }
+      place(heap[child], index);
+      index = child;
+    }
+    place(counter, index);
+  }
+
+  private void place(Counter<T> counter, int index) {
+    heap[index] = counter;
+    counter.heapIndex = index;
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static final Comparator<Counter> BY_DECREASING_COUNT = new Comparator<Counter>() {
+    @Override
+    public int compare(Counter counter1, Counter counter2) {
+      return Long.compare(counter2.count, counter1.count);
+    }
+  };
+
+  private static final class Counter<T> implements Serializable {
+
+    private static final long serialVersionUID = -3926140377210528447L;
+
+    private T obj;
+    private long count;
+    private long error;
+    private int heapIndex;
+
+    private Counter(T obj, long count, long error) {
+      this.obj = obj;
+      this.count = count;
+      this.error = error;
+    }
+  }
+
+}
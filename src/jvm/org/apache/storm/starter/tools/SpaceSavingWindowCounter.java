@@ -0,0 +1,88 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.tools;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * Approximate sliding window counts in fixed memory: like {@link SlidingWindowCounter}, but every slot of the window is
+ * a {@link SpaceSaving} summary, which are merged when the window is read.
+ * <p/>
+ * Only the objects with the highest counts of the window are returned, at most <code>capacity</code> of them, and each
+ * returned count exceeds the true count by at most {@link #getMaxError()}. Unlike {@link SlidingWindowCounter} a
+ * window of a single slot is allowed, which makes the window tumble instead of slide.
+ *
+ * @param <T> The type of those objects we want to count.
+ */
+public final class SpaceSavingWindowCounter<T> implements RollingCounter<T>, Serializable {
+
+  private static final long serialVersionUID = 2378195407613852904L;
+
+  private final SpaceSaving<T>[] slots;
+  private final int capacity;
+  private int headSlot;
+  private long maxError;
+
+  /**
+   * @param windowLengthInSlots number of slots of the window
+   * @param capacity            number of objects monitored per slot, and the maximum number of counts returned
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public SpaceSavingWindowCounter(int windowLengthInSlots, int capacity) {
+    if (windowLengthInSlots < 1) {
+      throw new IllegalArgumentException(
+          "Window length in slots must be at least one (you requested " + windowLengthInSlots + ")");
+    }
+    this.capacity = capacity;
+    this.slots = new SpaceSaving[windowLengthInSlots];
+    for (int i = 0; i < windowLengthInSlots; i++) {
+      slots[i] = new SpaceSaving<T>(capacity);
+    }
+    this.headSlot = 0;
+  }
+
+  @Override
+  public void incrementCount(T obj) {
+    slots[headSlot].offer(obj);
+  }
+
+  /**
+   * Return the estimated counts of the objects with the highest counts of the current window, then advance the window.
+   *
+   * @return The estimated (total) counts of the monitored objects.
+   */
+  @Override
+  public Map<T, Long> getCountsThenAdvanceWindow() {
+    SpaceSaving<T> window = new SpaceSaving<T>(capacity);
+    for (SpaceSaving<T> slot : slots) {
+      window.merge(slot);
+    }
+    maxError = window.getMaxError();
+
+    headSlot = (headSlot + 1) % slots.length;
+    slots[headSlot].clear();
+    return window.getCounts();
+  }
+
+  @Override
+  public long getMaxError() {
+    return maxError;
+  }
+
+}
@@ -0,0 +1,179 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.tools;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free ring buffer for exactly one producer thread and one consumer thread.
+ * <p/>
+ * All slots are allocated up front, so enqueuing does not allocate. When the buffer is full the producer can either
+ * reject the new element ({@link #offer(Object)}) or evict the oldest one ({@link #offerEvictingOldest(Object)}). The
+ * latter is the only operation where the producer touches the consumer's index, which is why both sides advance that
+ * index with a compare-and-set.
+ * <p/>
+ * Every element can carry a <code>long</code> stamp (e.g. its enqueue time), which is stored next to it without
+ * boxing and can be read back via {@link #getLastPolledStamp()} after {@link #poll()}.
+ * <p/>
+ * Consumed slots are not cleared, i.e. up to <code>capacity</code> consumed elements stay reachable until they are
+ * overwritten.
+ *
+ * @param <E> The type of the buffered elements.
+ */
+public final class SpscRingBuffer<E> {
+
+  private final AtomicReferenceArray<E> slots;
+  private final AtomicLongArray stamps;
+  private final int mask;
+  private final AtomicLong head = new AtomicLong();
+  private final AtomicLong tail = new AtomicLong();
+  private final AtomicLong highWaterMark = new AtomicLong();
+  private long lastPolledStamp;
+
+  /**
+   * @param requestedCapacity minimum capacity, rounded up to the next power of two
+   */
+  public SpscRingBuffer(int requestedCapacity) {
+    if (requestedCapacity <= 0 || requestedCapacity > (1 << 30)) {
+      throw new IllegalArgumentException(
+          "Capacity must be between 1 and 2^30 (you requested " + requestedCapacity + ")");
+    }
+    int capacity = Integer.highestOneBit(requestedCapacity);
+    if (capacity < requestedCapacity) {
+      capacity <<= 1;
+    }
+    this.slots = new AtomicReferenceArray<E>(capacity);
+    this.stamps = new AtomicLongArray(capacity);
+    this.mask = capacity - 1;
+  }
+
+  /**
+   * Enqueue an element unless the buffer is full. Must only be called by the producer thread.
+   *
+   * @return false if the buffer was full and the element was not enqueued
+   */
+  public boolean offer(E element) {
+    return offer(element, 0L);
+  }
+
+  /**
+   * Like {@link #offer(Object)}, additionally storing a stamp with the element.
+   */
+  public boolean offer(E element, long stamp) {
+    long t = tail.get();
+    if (t - head.get() > mask) {
+      return false;
+    }
+    publish(t, element, stamp);
+    return true;
+  }
+
+  /**
+   * Enqueue an element, evicting the oldest element if the buffer is full. Must only be called by the producer thread.
+   *
+   * @return true if an element had to be evicted
+   */
+  public boolean offerEvictingOldest(E element) {
+    return offerEvictingOldest(element, 0L);
+  }
+
+  /**
+   * Like {@link #offerEvictingOldest(Object)}, additionally storing a stamp with the element.
+   */
+  public boolean offerEvictingOldest(E element, long stamp) {
+    long t = tail.get();
+    boolean evicted = false;
+    long h = head.get();
+    while (t - h > mask) {
+      if (head.compareAndSet(h, h + 1)) {
+        evicted = true;
+        break;
+      }
+      h = head.get();
+    }
+    publish(t, element, stamp);
+    return evicted;
+  }
+
+  private void publish(long t, E element, long stamp) {
+    int index = (int) (t & mask);
+    slots.lazySet(index, element);
+    stamps.lazySet(index, stamp);
+    tail.lazySet(t + 1);
+    long occupancy = t + 1 - head.get();
+    long currentMax = highWaterMark.get();
+    while (occupancy > currentMax && !highWaterMark.compareAndSet(currentMax, occupancy)) {
+      currentMax = highWaterMark.get();
+    }
+  }
+
+  /**
+   * Dequeue the oldest element. Must only be called by the consumer thread.
+   *
+   * @return the oldest element, or null if the buffer is empty
+   */
+  public E poll() {
+    while (true) {
+      long h = head.get();
+      if (h >= tail.get()) {
+        return null;
+      }
+      int index = (int) (h & mask);
+      E element = slots.get(index);
+      long stamp = stamps.get(index);
+      if (head.compareAndSet(h, h + 1)) {
+        lastPolledStamp = stamp;
+        return element;
+      }
+      // The producer evicted this element in the meantime, retry with the next one
+    }
+  }
+
+  /**
+   * @return the stamp of the element returned by the last successful {@link #poll()}
+   */
+  public long getLastPolledStamp() {
+    return lastPolledStamp;
+  }
+
+  /**
+   * @return number of buffered elements (approximate while the other thread is active)
+   */
+  public int size() {
+    long size = tail.get() - head.get();
+    return (int) Math.max(0, Math.min(size, capacity()));
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  public int capacity() {
+    return mask + 1;
+  }
+
+  /**
+   * @return the highest occupancy observed since the last call
+   */
+  public long getHighWaterMarkAndReset() {
+    return highWaterMark.getAndSet(0);
+  }
+
+}
@@ -0,0 +1,86 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.tools;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Stop words that are read from a file (see {@link CharSequenceSet#load(File)}) and read again whenever the
+ * modification time of the file changed, so a list can be swapped without redeploying the topology. The file is
+ * checked at most once per poll interval. Until it has been read, and whenever it can not be read, the last stop
+ * words are kept.
+ * <p/>
+ * Not thread-safe; create one per bolt task in <code>prepare</code>.
+ */
+public final class StopWordsFile {
+
+  private static final Logger LOG = LoggerFactory.getLogger(StopWordsFile.class);
+
+  public static final long DEFAULT_POLL_INTERVAL_MILLIS = 5000L;
+
+  private final File file;
+  private final long pollIntervalMillis;
+  private CharSequenceSet stopWords;
+  private boolean polled = false;
+  private long lastPollMillis;
+  private long lastModified;
+
+  /**
+   * @param fileName           path of the stop words file
+   * @param initialStopWords   stop words until the file has been read
+   * @param pollIntervalMillis minimum time between two checks of the modification time
+   */
+  public StopWordsFile(String fileName, CharSequenceSet initialStopWords, long pollIntervalMillis) {
+    this.file = new File(fileName);
+    this.stopWords = initialStopWords;
+    this.pollIntervalMillis = pollIntervalMillis;
+  }
+
+  /**
+   * Reads the file again if the poll interval has passed and the file was modified since it was last read.
+   *
+   * @param nowMillis the current time
+   * @return the current stop words
+   */
+  public CharSequenceSet poll(long nowMillis) {
+    if (polled && nowMillis - lastPollMillis < pollIntervalMillis) {
+      return stopWords;
+    }
+    polled = true;
+    lastPollMillis = nowMillis;
+
+    long modified = file.lastModified();
+    if (modified == 0L || modified == lastModified) {
+      return stopWords;
+    }
+    try {
+      stopWords = CharSequenceSet.load(file);
+      lastModified = modified;
+      LOG.info("Loaded {} stop words from {}", stopWords.size(), file);
+    }
+    catch (IOException e) {
+      LOG.warn("Keeping the current stop words, failed to read {}", file, e);
+    }
+    return stopWords;
+  }
+
+}
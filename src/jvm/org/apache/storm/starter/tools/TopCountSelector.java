@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.tools;
+
+import java.util.Arrays;
+
+/**
+ * Finds the positions of the largest counts in a primitive count array without sorting all of them.
+ * <p/>
+ * Every count is packed together with its position into a single <code>long</code>, with the count in the upper half,
+ * and a quickselect partitions these keys around the k-th largest in expected linear time. Only the selected keys are
+ * sorted, and only if ordered output is requested. Equal counts are ranked by position, i.e. the count that comes first
+ * in the array wins a tie, so the result does not depend on the partitioning.
+ * <p/>
+ * A selector reuses its key array across calls and is therefore NOT thread-safe.
+ */
+public final class TopCountSelector {
+
+  private long[] keys = new long[0];
+
+  /**
+   * @param counts  the counts to select from
+   * @param size    number of counts to consider, starting at position 0
+   * @param k       number of positions to select; all of them if it is at least <code>size</code>
+   * @param ordered whether to return the positions by decreasing count instead of in arbitrary order
+   * @return the positions of the k largest counts among the first <code>size</code> ones
+   */
+  public int[] selectTop(int[] counts, int size, int k, boolean ordered) {
+    if (size < 0 || size > counts.length) {
+      throw new IllegalArgumentException(
+          "Size must be between 0 and " + counts.length + " (you requested " + size + ")");
+    }
+    if (k < 0) {
+      throw new IllegalArgumentException("k must be >= 0 (you requested " + k + ")");
+    }
+    k = Math.min(k, size);
+    if (keys.length < size) {
+      keys = new long[Math.max(size, keys.length * 2)];
+    }
+    for (int i = 0; i < size; i++) {
+      keys[i] = ((long) counts[i] << 32) | (Integer.MAX_VALUE - i);
+    }
+
+    if (k > 0 && k < size) {
+      selectLargest(keys, size, k);
+    }
+    if (ordered) {
+      Arrays.sort(keys, 0, k);
+    }
+
+    int[] positions = new int[k];
+    for (int i = 0; i < k; i++) {
+      // ascending keys after the sort, so read them backwards for decreasing counts
+      positions[i] = Integer.MAX_VALUE - (int) keys[ordered ? k - 1 - i : i];
+    }
+    return positions;
+  }
+
+  // moves the k largest of the first size keys to the front, 0 < k < size
+  private static void selectLargest(long[] keys, int size, int k) {
+    int left = 0;
+    int right = size - 1;
+    while (left < right) {
+      int pivotIndex = partition(keys, left, right, medianOfThree(keys, left, left + (right - left) / 2, right));
+      if (pivotIndex == k - 1 || pivotIndex == k) {
+        // the pivot is the k-th largest, or the (k+1)-th with everything larger in front of it
+        return;
+      } else if (pivotIndex < k) {
+        left = pivotIndex + 1;
+      } else {
+        right = pivotIndex - 1;
+      }
+    }
+  }
+
+  // Lomuto partition in decreasing order, returns the final position of the pivot
+  private static int partition(long[] keys, int left, int right, int pivotIndex) {
+    long pivot = keys[pivotIndex];
+    swap(keys, pivotIndex, right);
+    int store = left;
+    for (int i = left; i < right; i++) {
+      if (keys[i] > pivot) {
+        swap(keys, i, store++);
+      }
+    }
+    swap(keys, store, right);
+    return store;
+  }
+
+  private static int medianOfThree(long[] keys, int a, int b, int c) {
+    if (keys[a] < keys[b]) {
+      return keys[b] < keys[c] ? b : (keys[a] < keys[c] ? c : a);
+    }
+    return keys[a] < keys[c] ? a : (keys[b] < keys[c] ? c : b);
+  }
+
+  private static void swap(long[] keys, int i, int j) {
+    long tmp = keys[i];
+    keys[i] = keys[j];
+    keys[j] = tmp;
+  }
+
+}
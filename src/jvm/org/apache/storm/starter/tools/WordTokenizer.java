@@ -0,0 +1,150 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.tools;
+
+/**
+ * A single-pass tokenizer that extracts the plain words of a tweet text without allocating per token.
+ * <p/>
+ * The text is split at whitespace. Hash signs are removed from a token, so <code>#storm</code> yields
+ * <code>storm</code>, and a token that then consists of letters and digits (ASCII only) is a word, lowercased. Tokens
+ * with any other character, e.g. mentions, links or punctuation, are skipped entirely, and so is the retweet marker
+ * <code>RT</code> in any case.
+ * <p/>
+ * The text is copied once into an internal buffer, in which the words are compacted and lowercased in place. Each call
+ * to {@link #next()} moves the reusable view returned by {@link #word()} to the next word, so the caller has to call
+ * <code>toString()</code> on the words it wants to keep beyond that.
+ * <p/>
+ * This class is NOT thread-safe.
+ */
+public final class WordTokenizer {
+
+  private static final int DEFAULT_CAPACITY = 256;
+
+  private final Word word = new Word();
+  private char[] buffer = new char[DEFAULT_CAPACITY];
+  private int length;
+  private int position;
+
+  /**
+   * Starts tokenizing the given text, invalidating the current word.
+   *
+   * @param text the text to tokenize
+   * @return this tokenizer
+   */
+  public WordTokenizer reset(String text) {
+    length = text.length();
+    if (buffer.length < length) {
+      buffer = new char[Math.max(length, buffer.length * 2)];
+    }
+    text.getChars(0, length, buffer, 0);
+    position = 0;
+    word.start = 0;
+    word.length = 0;
+    return this;
+  }
+
+  /**
+   * Advances to the next word of the text.
+   *
+   * @return <code>false</code> once the text has no more words
+   */
+  public boolean next() {
+    while (position < length) {
+      while (position < length && isWhitespace(buffer[position])) {
+        position++;
+      }
+      int start = position;
+      int end = start;
+      boolean valid = true;
+      for (; position < length; position++) {
+        char c = buffer[position];
+        if (isWhitespace(c)) {
+          break;
+        }
+        if (!valid || c == '#') {
+          continue;
+        }
+        if (c >= 'A' && c <= 'Z') {
+          buffer[end++] = (char) (c + ('a' - 'A'));
+        } else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+          buffer[end++] = c;
+        } else {
+          valid = false;
+        }
+      }
+      int wordLength = end - start;
+      if (valid && wordLength > 0 && !isRetweetMarker(start, wordLength)) {
+        word.start = start;
+        word.length = wordLength;
+        return true;
+      }
+    }
+    word.length = 0;
+    return false;
+  }
+
+  /**
+   * @return a view of the current word, which changes with the next call to {@link #next()} or {@link #reset(String)}
+   */
+  public CharSequence word() {
+    return word;
+  }
+
+  private boolean isRetweetMarker(int start, int wordLength) {
+    return wordLength == 2 && buffer[start] == 'r' && buffer[start + 1] == 't';
+  }
+
+  // the characters matched by \s in a regular expression
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+  private final class Word implements CharSequence {
+
+    private int start;
+    private int length;
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+      if (index < 0 || index >= length) {
+        throw new IndexOutOfBoundsException("Index " + index + " is outside of a word of length " + length);
+      }
+      return buffer[start + index];
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+      if (from < 0 || to > length || from > to) {
+        throw new IndexOutOfBoundsException(
+            "Range [" + from + ", " + to + ") is outside of a word of length " + length);
+      }
+      return new String(buffer, start + from, to - from);
+    }
+
+    @Override
+    public String toString() {
+      return new String(buffer, start, length);
+    }
+  }
+
+}
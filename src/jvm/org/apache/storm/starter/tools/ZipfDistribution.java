@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.tools;
+
+import java.io.Serializable;
+import java.util.Random;
+
+/**
+ * Samples ranks 0..n-1 where rank k is drawn with a probability proportional to 1 / (k + 1)^exponent.
+ * <p/>
+ * The distribution is turned into an alias table (Vose's method) up front, so drawing a sample takes constant time:
+ * a single random long, no search and no allocation.
+ */
+public final class ZipfDistribution implements Serializable {
+
+  private static final long serialVersionUID = -7064251379213573027L;
+
+  private static final double UNIT_PER_INT = 1.0 / (1L << 32);
+
+  private final double[] probabilities;
+  private final int[] aliases;
+
+  /**
+   * @param numRanks number of distinct ranks, must be >= 1
+   * @param exponent skew of the distribution, 0 for uniform, must be >= 0
+   */
+  public ZipfDistribution(int numRanks, double exponent) {
+    if (numRanks < 1) {
+      throw new IllegalArgumentException("Number of ranks must be >= 1 (you requested " + numRanks + ")");
+    }
+    if (exponent < 0) {
+      throw new IllegalArgumentException("Exponent must be >= 0 (you requested " + exponent + ")");
+    }
+    double[] weights = new double[numRanks];
+    double totalWeight = 0;
+    for (int k = 0; k < numRanks; k++) {
+      weights[k] = 1.0 / Math.pow(k + 1, exponent);
+      totalWeight += weights[k];
+    }
+
+    // Scale so that the average weight is 1, then pair every light rank with a heavy one
+    probabilities = new double[numRanks];
+    aliases = new int[numRanks];
+    int[] small = new int[numRanks];
+    int[] large = new int[numRanks];
+    int numSmall = 0;
+    int numLarge = 0;
+    for (int k = 0; k < numRanks; k++) {
+      weights[k] = weights[k] * numRanks / totalWeight;
+      if (weights[k] < 1.0) {
+        small[numSmall++] = k;
+      }
+      else {
+        large[numLarge++] = k;
+      }
+    }
+    while (numSmall > 0 && numLarge > 0) {
+      int light = small[--numSmall];
+      int heavy = large[--numLarge];
+      probabilities[light] = weights[light];
+      aliases[light] = heavy;
+      weights[heavy] = (weights[heavy] + weights[light]) - 1.0;
+      if (weights[heavy] < 1.0) {
+        small[numSmall++] = heavy;
+      }
+      else {
+        large[numLarge++] = heavy;
+      }
+    }
+    // Whatever is left is 1 up to rounding errors
+    while (numLarge > 0) {
+      probabilities[large[--numLarge]] = 1.0;
+    }
+    while (numSmall > 0) {
+      probabilities[small[--numSmall]] = 1.0;
+    }
+  }
+
+  /**
+   * Draws a single random long: its upper half picks the column of the alias table, its lower half decides between
+   * the column and its alias.
+   *
+   * @return a rank between 0 (most frequent) and {@link #getNumRanks()} - 1 (least frequent)
+   */
+  public int sample(Random random) {
+    long bits = random.nextLong();
+    int column = (int) (((bits >>> 32) * probabilities.length) >>> 32);
+    double fraction = (bits & 0xFFFFFFFFL) * UNIT_PER_INT;
+    return fraction < probabilities[column] ? column : aliases[column];
+  }
+
+  public int getNumRanks() {
+    return probabilities.length;
+  }
+}
@@ -0,0 +1,356 @@
+package org.apache.storm.starter.twitter;
+
+import org.apache.storm.hdfs.bolt.rotation.FileRotationPolicy;
+import org.apache.storm.hdfs.bolt.rotation.TimedRotationPolicy;
+import org.apache.storm.hdfs.bolt.sync.SyncPolicy;
+import org.apache.storm.tuple.Tuple;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Local file sink for the printer bolts that replaces opening, writing and closing a file per tuple.
+ * <p/>
+ * Records are encoded straight into one of two direct buffers. A full buffer is handed to a background thread that
+ * writes it through a {@link FileChannel} while the bolt fills the other one, so the bolt only blocks when the disk
+ * falls behind. The policies of storm-hdfs decide the rest, as they do for the HdfsBolt in cluster mode: whenever the
+ * {@link SyncPolicy} fires, the buffered records are written and forced to disk, and whenever the
+ * {@link FileRotationPolicy} fires, the file is closed and the next one started. A {@link TimedRotationPolicy} rotates
+ * on its interval. Independently, buffered records are written at least once per flush interval.
+ * <p/>
+ * Rotated files get the index appended to the path: output.txt, output.txt.1, output.txt.2 and so on. Write errors of
+ * the background thread surface on the next {@link #write(Tuple, CharSequence)}.
+ */
+public class BufferedFileSink implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BufferedFileSink.class);
+
+    // Constants
+    public final static int DEFAULT_BUFFER_BYTES = 1024 * 1024;
+    public final static long DEFAULT_FLUSH_INTERVAL_MILLISEC = 1000L;
+    private final static int NUM_BUFFERS = 2;
+    private final static long FAILURE_CHECK_INTERVAL_MILLISEC = 100L;
+
+    private final String path;
+    private final SyncPolicy syncPolicy;
+    private final FileRotationPolicy rotationPolicy;
+    private final long flushIntervalMillis;
+    private final long rotationIntervalMillis;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final BlockingQueue<ByteBuffer> freeBuffers = new ArrayBlockingQueue<>(NUM_BUFFERS);
+    private final BlockingQueue<Flush> pendingFlushes = new ArrayBlockingQueue<>(NUM_BUFFERS + 1);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Thread flusher;
+
+    private ByteBuffer activeBuffer;
+    private long fileOffset;
+    private int fileIndex;
+    private FileChannel channel;
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    /**
+     * A filled buffer to write, or null to only sync or rotate
+     */
+    private static final class Flush {
+        final ByteBuffer buffer;
+        final boolean sync;
+        final boolean rotate;
+
+        Flush(ByteBuffer buffer, boolean sync, boolean rotate) {
+            this.buffer = buffer;
+            this.sync = sync;
+            this.rotate = rotate;
+        }
+    }
+
+    /**
+     * Constructor, opens the first file for appending and starts the background thread
+     *
+     * @param path                path of the first file
+     * @param bufferBytes         capacity of each of the two buffers, at least the size of the largest record
+     * @param syncPolicy          e.g. a CountSyncPolicy
+     * @param rotationPolicy      e.g. a FileSizeRotationPolicy or TimedRotationPolicy
+     * @param flushIntervalMillis longest time records stay buffered
+     * @throws IOException
+     */
+    public BufferedFileSink(String path, int bufferBytes, SyncPolicy syncPolicy, FileRotationPolicy rotationPolicy,
+                            long flushIntervalMillis) throws IOException {
+        this.path = path;
+        this.syncPolicy = syncPolicy;
+        this.rotationPolicy = rotationPolicy;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.rotationIntervalMillis = rotationPolicy instanceof TimedRotationPolicy
+                ? ((TimedRotationPolicy) rotationPolicy).getInterval() : 0L;
+        for (int i = 0; i < NUM_BUFFERS; i++) {
+            freeBuffers.add(ByteBuffer.allocateDirect(bufferBytes));
+        }
+        this.activeBuffer = freeBuffers.poll();
+        this.channel = openChannel();
+
+        this.flusher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                flushLoop();
+            }
+        }, "buffered-file-sink-" + path);
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Append a record and apply the policies
+     *
+     * @param tuple  the tuple the record stems from, passed on to the policies
+     * @param record written as UTF-8
+     * @throws IOException if a previous background write failed or the sink was interrupted
+     */
+    public void write(Tuple tuple, CharSequence record) throws IOException {
+        checkFailure();
+        lock.lock();
+        try {
+            CharBuffer chars = CharBuffer.wrap(record);
+            int startPosition = activeBuffer.position();
+            long bytesWritten = 0;
+            encoder.reset();
+            while (true) {
+                CoderResult result = encoder.encode(chars, activeBuffer, true);
+                if (result.isOverflow()) {
+                    bytesWritten += activeBuffer.position() - startPosition;
+                    handOff(false, false);
+                    startPosition = activeBuffer.position();
+                } else {
+                    break;
+                }
+            }
+            bytesWritten += activeBuffer.position() - startPosition;
+            afterRecord(tuple, bytesWritten);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Append a record that is already encoded and apply the policies; an empty record only applies the policies
+     *
+     * @param tuple  the tuple the record stems from, passed on to the policies
+     * @param record
+     * @throws IOException if a previous background write failed or the sink was interrupted
+     */
+    public void write(Tuple tuple, byte[] record) throws IOException {
+        checkFailure();
+        lock.lock();
+        try {
+            int offset = 0;
+            while (offset < record.length) {
+                if (!activeBuffer.hasRemaining()) {
+                    handOff(false, false);
+                }
+                int length = Math.min(activeBuffer.remaining(), record.length - offset);
+                activeBuffer.put(record, offset, length);
+                offset += length;
+            }
+            afterRecord(tuple, record.length);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Apply the policies after a record was appended. The caller holds the lock.
+     */
+    private void afterRecord(Tuple tuple, long bytesWritten) throws IOException {
+        fileOffset += bytesWritten;
+        boolean sync = syncPolicy.mark(tuple, fileOffset);
+        boolean rotate = rotationPolicy.mark(tuple, fileOffset);
+        if (sync || rotate) {
+            handOff(sync, rotate);
+            if (sync) {
+                syncPolicy.reset();
+            }
+            if (rotate) {
+                rotationPolicy.reset();
+                fileOffset = 0;
+            }
+        }
+    }
+
+    /**
+     * Hand the active buffer to the background thread and take a free one, waiting while the disk falls behind. The
+     * caller holds the lock. A failed background thread frees no more buffers, so its failure is checked while waiting.
+     */
+    private void handOff(boolean sync, boolean rotate) throws IOException {
+        try {
+            ByteBuffer filled = activeBuffer;
+            activeBuffer = null;
+            filled.flip();
+            Flush flush = new Flush(filled, sync, rotate);
+            while (!pendingFlushes.offer(flush, FAILURE_CHECK_INTERVAL_MILLISEC, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+            }
+            ByteBuffer free;
+            while ((free = freeBuffers.poll(FAILURE_CHECK_INTERVAL_MILLISEC, TimeUnit.MILLISECONDS)) == null) {
+                checkFailure();
+            }
+            activeBuffer = free;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a free buffer of " + path);
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        IOException e = failure;
+        if (e != null) {
+            throw new IOException("Writing to " + path + " failed", e);
+        }
+    }
+
+    private void flushLoop() {
+        long nextFlushMillis = System.currentTimeMillis() + flushIntervalMillis;
+        long nextRotationMillis = rotationIntervalMillis > 0 ? System.currentTimeMillis() + rotationIntervalMillis
+                : Long.MAX_VALUE;
+        while (true) {
+            try {
+                long now = System.currentTimeMillis();
+                long waitMillis = Math.max(0L, Math.min(nextFlushMillis, nextRotationMillis) - now);
+                Flush flush = pendingFlushes.poll(waitMillis, TimeUnit.MILLISECONDS);
+                if (flush != null) {
+                    writeFlush(flush);
+                    if (flush.buffer == null && closed) {
+                        return;
+                    }
+                    continue;
+                }
+
+                now = System.currentTimeMillis();
+                if (now >= nextRotationMillis) {
+                    // A rotation the bolt kept us from is retried on the next flush interval rather than skipped
+                    nextRotationMillis = now + (requestHandOff(true) ? rotationIntervalMillis : flushIntervalMillis);
+                    nextFlushMillis = now + flushIntervalMillis;
+                } else if (now >= nextFlushMillis) {
+                    nextFlushMillis = now + flushIntervalMillis;
+                    requestHandOff(false);
+                }
+            } catch (InterruptedException e) {
+                failure = new InterruptedIOException("Interrupted while writing to " + path);
+                return;
+            } catch (IOException e) {
+                LOG.error("Writing to {} failed", path, e);
+                failure = e;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Take over the buffered records from the background thread. It must never wait for the lock, as the bolt may hold
+     * it while waiting for a buffer only this thread frees; the bolt is busy writing then anyway, so the next interval
+     * catches up. The buffer is queued behind the flushes the bolt handed off before, rather than written right away,
+     * so records reach the files in the order they were written even when a queued flush rotates the file.
+     *
+     * @return false if the buffer could not be handed off this time
+     */
+    private boolean requestHandOff(boolean rotate) {
+        if (!lock.tryLock()) {
+            return false;
+        }
+        try {
+            if (closed || (activeBuffer.position() == 0 && !rotate)) {
+                return true;
+            }
+            ByteBuffer free = freeBuffers.poll();
+            if (free == null) {
+                return false;
+            }
+            ByteBuffer filled = activeBuffer;
+            filled.flip();
+            if (!pendingFlushes.offer(new Flush(filled, false, rotate))) {
+                filled.compact();
+                freeBuffers.add(free);
+                return false;
+            }
+            activeBuffer = free;
+            if (rotate) {
+                rotationPolicy.reset();
+                fileOffset = 0;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeFlush(Flush flush) throws IOException {
+        if (flush.buffer != null) {
+            while (flush.buffer.hasRemaining()) {
+                channel.write(flush.buffer);
+            }
+            flush.buffer.clear();
+            freeBuffers.add(flush.buffer);
+        }
+        if (flush.sync) {
+            channel.force(false);
+        }
+        if (flush.rotate) {
+            channel.close();
+            fileIndex++;
+            channel = openChannel();
+        }
+    }
+
+    private FileChannel openChannel() throws IOException {
+        String fileName = fileIndex == 0 ? path : path + "." + fileIndex;
+        return FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Write and sync everything buffered, then close the file
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            if (failure == null && activeBuffer.position() > 0) {
+                handOff(true, false);
+            }
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            Flush last = new Flush(null, true, false);
+            while (failure == null && flusher.isAlive()
+                    && !pendingFlushes.offer(last, FAILURE_CHECK_INTERVAL_MILLISEC, TimeUnit.MILLISECONDS)) {
+                // the background thread is still writing
+            }
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            channel.close();
+        }
+        checkFailure();
+    }
+}
@@ -0,0 +1,62 @@
+package org.apache.storm.starter.twitter;
+
+/**
+ * Layout of the columnar tweet files, written for analyses that re-read a few fields of many collected tweets.
+ * <p/>
+ * The rows are grouped into stripes and every stripe stores each {@link Column} as its own raw-deflated chunk, so a
+ * reader only reads and inflates the columns it projects. The footer lists the chunks of every stripe together with
+ * the minimum and maximum of the numeric columns, which lets a reader skip stripes that can not match a range
+ * predicate without reading them:
+ * <pre>
+ * file:   int magic | int version | stripes... | footer | long footerOffset | int magic
+ * footer: int stripeCount | per stripe: int rowCount | per column: long offset | int length | int rawLength
+ *                                      | per numeric column: long min | long max
+ * </pre>
+ * Inside the inflated chunks numbers are varints, signed ones zigzag encoded, and strings are a varint length plus
+ * UTF-8 bytes:
+ * <ul>
+ * <li>id, retweeted status id and creation time: delta to the previous row, as they grow almost monotonically</li>
+ * <li>user id, lang and hashtags: a stripe-local dictionary of the distinct values in order of appearance, followed
+ * by one dictionary code per row, or per hashtag after a per-row hashtag count</li>
+ * <li>friends count: the plain value</li>
+ * <li>text: length plus one, zero marking a missing text, followed by the bytes</li>
+ * </ul>
+ * A missing lang is dictionary code zero.
+ */
+public final class ColumnarTweetFormat {
+
+    // Constants
+    public final static int MAGIC = 0x54574346;
+    public final static int VERSION = 1;
+    public final static int FILE_HEADER_SIZE = 8;
+    public final static int TRAILER_SIZE = 12;
+    public final static int DEFAULT_STRIPE_ROWS = 16384;
+    public final static String FILE_EXTENSION = ".tcol";
+
+    /**
+     * The stored columns; numeric columns carry per-stripe statistics
+     */
+    public enum Column {
+        ID(true),
+        RETWEETED_STATUS_ID(true),
+        CREATED_AT(true),
+        USER_ID(true),
+        FRIENDS_COUNT(true),
+        LANG(false),
+        TEXT(false),
+        HASHTAGS(false);
+
+        private final boolean numeric;
+
+        Column(boolean numeric) {
+            this.numeric = numeric;
+        }
+
+        public boolean isNumeric() {
+            return numeric;
+        }
+    }
+
+    private ColumnarTweetFormat() {
+    }
+}
@@ -0,0 +1,460 @@
+package org.apache.storm.starter.twitter;
+
+import org.apache.storm.starter.twitter.ColumnarTweetFormat.Column;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a columnar tweet file (see {@link ColumnarTweetFormat}) column by column.
+ * <p/>
+ * A {@link #scan(Set, ColumnRange...)} reads only the projected columns and the columns of its predicates, and skips
+ * every stripe whose statistics show that no row can satisfy all range predicates, without reading it. The rows of
+ * the remaining stripes are filtered by the predicates as well.
+ */
+public class ColumnarTweetReader implements Closeable {
+
+    // Constants
+    private final static int NUM_COLUMNS = Column.values().length;
+
+    private final File file;
+    private final FileChannel channel;
+    private final int[] stripeRowCounts;
+    private final long[][] chunkOffsets;
+    private final int[][] chunkLengths;
+    private final int[][] chunkRawLengths;
+    private final long[][] mins;
+    private final long[][] maxs;
+
+    /**
+     * Inclusive range predicate on a numeric column
+     */
+    public static final class ColumnRange {
+        private final Column column;
+        private final long min;
+        private final long max;
+
+        /**
+         * Constructor
+         *
+         * @param column a numeric column
+         * @param min    inclusive
+         * @param max    inclusive
+         */
+        public ColumnRange(Column column, long min, long max) {
+            if (!column.isNumeric()) {
+                throw new IllegalArgumentException("Range predicates need a numeric column, not " + column);
+            }
+            this.column = column;
+            this.min = min;
+            this.max = max;
+        }
+
+        public Column getColumn() {
+            return column;
+        }
+
+        boolean contains(long value) {
+            return value >= min && value <= max;
+        }
+
+        boolean overlaps(long stripeMin, long stripeMax) {
+            return stripeMax >= min && stripeMin <= max;
+        }
+    }
+
+    /**
+     * Constructor, reads the footer
+     *
+     * @param file
+     * @throws IOException if the file can not be read or is not a complete columnar tweet file
+     */
+    public ColumnarTweetReader(File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < ColumnarTweetFormat.FILE_HEADER_SIZE + ColumnarTweetFormat.TRAILER_SIZE) {
+                throw new IOException("Not a columnar tweet file: " + file);
+            }
+            ByteBuffer header = read(0, ColumnarTweetFormat.FILE_HEADER_SIZE);
+            if (header.getInt() != ColumnarTweetFormat.MAGIC) {
+                throw new IOException("Not a columnar tweet file: " + file);
+            }
+            if (header.getInt() != ColumnarTweetFormat.VERSION) {
+                throw new IOException("Unsupported columnar tweet file version in " + file);
+            }
+            ByteBuffer trailer = read(size - ColumnarTweetFormat.TRAILER_SIZE, ColumnarTweetFormat.TRAILER_SIZE);
+            long footerOffset = trailer.getLong();
+            if (trailer.getInt() != ColumnarTweetFormat.MAGIC || footerOffset < ColumnarTweetFormat.FILE_HEADER_SIZE
+                    || footerOffset > size - ColumnarTweetFormat.TRAILER_SIZE) {
+                throw new IOException("Columnar tweet file was not closed properly: " + file);
+            }
+
+            ByteBuffer footer = read(footerOffset, (int) (size - ColumnarTweetFormat.TRAILER_SIZE - footerOffset));
+            int stripeCount = footer.getInt();
+            stripeRowCounts = new int[stripeCount];
+            chunkOffsets = new long[stripeCount][NUM_COLUMNS];
+            chunkLengths = new int[stripeCount][NUM_COLUMNS];
+            chunkRawLengths = new int[stripeCount][NUM_COLUMNS];
+            mins = new long[stripeCount][NUM_COLUMNS];
+            maxs = new long[stripeCount][NUM_COLUMNS];
+            for (int stripe = 0; stripe < stripeCount; stripe++) {
+                stripeRowCounts[stripe] = footer.getInt();
+                for (int column = 0; column < NUM_COLUMNS; column++) {
+                    chunkOffsets[stripe][column] = footer.getLong();
+                    chunkLengths[stripe][column] = footer.getInt();
+                    chunkRawLengths[stripe][column] = footer.getInt();
+                }
+                for (Column column : Column.values()) {
+                    if (column.isNumeric()) {
+                        mins[stripe][column.ordinal()] = footer.getLong();
+                        maxs[stripe][column.ordinal()] = footer.getLong();
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getStripeCount() {
+        return stripeRowCounts.length;
+    }
+
+    /**
+     * @return number of tweets in the file
+     */
+    public long getRowCount() {
+        long rowCount = 0;
+        for (int stripeRowCount : stripeRowCounts) {
+            rowCount += stripeRowCount;
+        }
+        return rowCount;
+    }
+
+    /**
+     * Scan the tweets matching all predicates
+     *
+     * @param projection columns to read, the getters of other columns throw an IllegalStateException
+     * @param predicates ranges the rows must lie within
+     * @return a cursor over the matching tweets in file order
+     */
+    public Cursor scan(Set<Column> projection, ColumnRange... predicates) {
+        return new Cursor(projection, predicates);
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + file);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private ByteBuffer readChunk(int stripe, Column column, Inflater inflater) throws IOException {
+        int columnIndex = column.ordinal();
+        // One spare byte, the inflater may need a dummy byte after raw deflate data
+        byte[] compressed = new byte[chunkLengths[stripe][columnIndex] + 1];
+        ByteBuffer compressedBuffer = ByteBuffer.wrap(compressed, 0, chunkLengths[stripe][columnIndex]);
+        while (compressedBuffer.hasRemaining()) {
+            long position = chunkOffsets[stripe][columnIndex] + compressedBuffer.position();
+            if (channel.read(compressedBuffer, position) < 0) {
+                throw new IOException("Unexpected end of " + file);
+            }
+        }
+        byte[] raw = new byte[chunkRawLengths[stripe][columnIndex]];
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int length = 0;
+            while (length < raw.length) {
+                int inflated = inflater.inflate(raw, length, raw.length - length);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException("Truncated " + column + " chunk in stripe " + stripe + " of " + file);
+                }
+                length += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt " + column + " chunk in stripe " + stripe + " of " + file, e);
+        }
+        return ByteBuffer.wrap(raw);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static long readSignedVarLong(ByteBuffer buffer) {
+        long value = readVarLong(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static String[] readDictionary(ByteBuffer buffer) {
+        String[] dictionary = new String[(int) readVarLong(buffer)];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = readString(buffer, (int) readVarLong(buffer));
+        }
+        return dictionary;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Cursor over the tweets of a scan: {@link #advance()} moves to the next matching tweet, whose projected columns
+     * can then be read through the {@link Tweet} getters, so that e.g. {@link TweetPredicate}s apply unchanged.
+     */
+    public final class Cursor implements Tweet {
+
+        private final EnumSet<Column> projection;
+        private final EnumSet<Column> columnsToRead;
+        private final ColumnRange[] predicates;
+        private final Inflater inflater = new Inflater(true);
+        private int stripe = -1;
+        private int stripeRowCount = 0;
+        private int row = 0;
+        private int skippedStripes = 0;
+
+        // Decoded columns of the current stripe
+        private final long[][] numericColumns = new long[NUM_COLUMNS][];
+        private String[] langs;
+        private String[] texts;
+        private int[] hashtagOffsets;
+        private String[] hashtagValues;
+
+        private Cursor(Set<Column> projection, ColumnRange[] predicates) {
+            this.projection = projection.isEmpty() ? EnumSet.noneOf(Column.class) : EnumSet.copyOf(projection);
+            this.columnsToRead = EnumSet.copyOf(this.projection);
+            for (ColumnRange predicate : predicates) {
+                columnsToRead.add(predicate.column);
+            }
+            this.predicates = predicates;
+        }
+
+        /**
+         * Move to the next tweet matching the predicates
+         *
+         * @return false at the end of the file
+         * @throws IOException if a chunk can not be read
+         */
+        public boolean advance() throws IOException {
+            while (true) {
+                while (++row < stripeRowCount) {
+                    if (matches(row)) {
+                        return true;
+                    }
+                }
+                if (!nextStripe()) {
+                    inflater.end();
+                    return false;
+                }
+                row = -1;
+            }
+        }
+
+        private boolean matches(int row) {
+            for (ColumnRange predicate : predicates) {
+                if (!predicate.contains(numericColumns[predicate.column.ordinal()][row])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean nextStripe() throws IOException {
+            while (++stripe < stripeRowCounts.length) {
+                if (mayMatch(stripe)) {
+                    stripeRowCount = stripeRowCounts[stripe];
+                    for (Column column : columnsToRead) {
+                        decode(column, readChunk(stripe, column, inflater));
+                    }
+                    return true;
+                }
+                skippedStripes++;
+            }
+            stripeRowCount = 0;
+            return false;
+        }
+
+        private boolean mayMatch(int stripe) {
+            for (ColumnRange predicate : predicates) {
+                int column = predicate.column.ordinal();
+                if (!predicate.overlaps(mins[stripe][column], maxs[stripe][column])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void decode(Column column, ByteBuffer chunk) {
+            switch (column) {
+                case ID:
+                case RETWEETED_STATUS_ID:
+                case CREATED_AT:
+                    long[] values = numericColumn(column);
+                    long previous = 0;
+                    for (int i = 0; i < stripeRowCount; i++) {
+                        previous += readSignedVarLong(chunk);
+                        values[i] = previous;
+                    }
+                    break;
+                case USER_ID:
+                    long[] users = new long[(int) readVarLong(chunk)];
+                    for (int i = 0; i < users.length; i++) {
+                        users[i] = readSignedVarLong(chunk);
+                    }
+                    long[] userIds = numericColumn(column);
+                    for (int i = 0; i < stripeRowCount; i++) {
+                        userIds[i] = users[(int) readVarLong(chunk)];
+                    }
+                    break;
+                case FRIENDS_COUNT:
+                    long[] friendsCounts = numericColumn(column);
+                    for (int i = 0; i < stripeRowCount; i++) {
+                        friendsCounts[i] = readSignedVarLong(chunk);
+                    }
+                    break;
+                case LANG:
+                    String[] languages = readDictionary(chunk);
+                    langs = new String[stripeRowCount];
+                    for (int i = 0; i < stripeRowCount; i++) {
+                        int code = (int) readVarLong(chunk);
+                        langs[i] = code == 0 ? null : languages[code - 1];
+                    }
+                    break;
+                case TEXT:
+                    texts = new String[stripeRowCount];
+                    for (int i = 0; i < stripeRowCount; i++) {
+                        int length = (int) readVarLong(chunk);
+                        texts[i] = length == 0 ? null : readString(chunk, length - 1);
+                    }
+                    break;
+                case HASHTAGS:
+                    hashtagOffsets = new int[stripeRowCount + 1];
+                    for (int i = 0; i < stripeRowCount; i++) {
+                        hashtagOffsets[i + 1] = hashtagOffsets[i] + (int) readVarLong(chunk);
+                    }
+                    String[] hashtagDictionary = readDictionary(chunk);
+                    hashtagValues = new String[hashtagOffsets[stripeRowCount]];
+                    for (int i = 0; i < hashtagValues.length; i++) {
+                        hashtagValues[i] = hashtagDictionary[(int) readVarLong(chunk)];
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown column " + column);
+            }
+        }
+
+        private long[] numericColumn(Column column) {
+            long[] values = numericColumns[column.ordinal()];
+            if (values == null || values.length < stripeRowCount) {
+                values = new long[stripeRowCount];
+                numericColumns[column.ordinal()] = values;
+            }
+            return values;
+        }
+
+        private void checkProjected(Column column) {
+            if (!projection.contains(column)) {
+                throw new IllegalStateException("Column " + column + " is not projected");
+            }
+        }
+
+        private long numeric(Column column) {
+            checkProjected(column);
+            return numericColumns[column.ordinal()][row];
+        }
+
+        /**
+         * @return number of stripes skipped so far by their statistics
+         */
+        public int getSkippedStripeCount() {
+            return skippedStripes;
+        }
+
+        @Override
+        public long getId() {
+            return numeric(Column.ID);
+        }
+
+        @Override
+        public long getRetweetedStatusId() {
+            return numeric(Column.RETWEETED_STATUS_ID);
+        }
+
+        @Override
+        public long getCreatedAtMillis() {
+            return numeric(Column.CREATED_AT);
+        }
+
+        @Override
+        public long getUserId() {
+            return numeric(Column.USER_ID);
+        }
+
+        @Override
+        public boolean hasUser() {
+            return getUserId() != TweetRecord.UNKNOWN_USER_ID;
+        }
+
+        @Override
+        public int getFriendsCount() {
+            return (int) numeric(Column.FRIENDS_COUNT);
+        }
+
+        @Override
+        public String getLang() {
+            checkProjected(Column.LANG);
+            return langs[row];
+        }
+
+        @Override
+        public String getText() {
+            checkProjected(Column.TEXT);
+            return texts[row];
+        }
+
+        @Override
+        public List<String> getHashtags() {
+            checkProjected(Column.HASHTAGS);
+            if (hashtagOffsets[row] == hashtagOffsets[row + 1]) {
+                return Collections.emptyList();
+            }
+            return Collections.unmodifiableList(Arrays.asList(
+                    Arrays.copyOfRange(hashtagValues, hashtagOffsets[row], hashtagOffsets[row + 1])));
+        }
+    }
+}
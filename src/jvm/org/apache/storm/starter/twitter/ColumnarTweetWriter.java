@@ -0,0 +1,407 @@
+package org.apache.storm.starter.twitter;
+
+import org.apache.storm.starter.twitter.ColumnarTweetFormat.Column;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Writes tweets into a columnar file (see {@link ColumnarTweetFormat}).
+ * <p/>
+ * The fields of the appended tweets are copied into per-column arrays; once a stripe is full, every column is encoded,
+ * deflated and written as one chunk. The footer with the stripe directory and statistics is rewritten after every
+ * stripe, right behind it, and the next stripe overwrites it; so the file is readable up to its last written stripe
+ * while it is still being written, and stays readable if the writer is never closed. {@link #flush()} writes the rows
+ * of a partial stripe the same way. Not thread-safe.
+ */
+public class ColumnarTweetWriter implements Closeable {
+
+    // Constants
+    private final static int NUM_COLUMNS = Column.values().length;
+    private final static int NULL_CODE = 0;
+
+    private final File file;
+    private final FileChannel channel;
+    private final int stripeRows;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final ChunkBuilder chunk = new ChunkBuilder();
+    private byte[] compressed = new byte[64 * 1024];
+
+    // Rows of the current stripe
+    private int rowCount = 0;
+    private final long[] ids;
+    private final long[] retweetedStatusIds;
+    private final long[] createdAts;
+    private final long[] userIds;
+    private final int[] friendsCounts;
+    private final String[] langs;
+    private final String[] texts;
+    private final int[] hashtagCounts;
+    private final List<String> hashtags = new ArrayList<>();
+
+    // Stripe directory, written as the footer
+    private final List<Integer> stripeRowCounts = new ArrayList<>();
+    private final List<long[]> stripeOffsets = new ArrayList<>();
+    private final List<int[]> stripeLengths = new ArrayList<>();
+    private final List<int[]> stripeRawLengths = new ArrayList<>();
+    private final List<long[]> stripeMins = new ArrayList<>();
+    private final List<long[]> stripeMaxs = new ArrayList<>();
+    private long position;
+    private long writtenRows = 0;
+
+    /**
+     * Constructor, creates the file
+     *
+     * @param file       must not exist yet
+     * @param stripeRows number of rows per stripe
+     * @throws IOException if the file exists or can not be created
+     */
+    public ColumnarTweetWriter(File file, int stripeRows) throws IOException {
+        if (stripeRows <= 0) {
+            throw new IllegalArgumentException("Stripe size must be positive (you requested " + stripeRows + ")");
+        }
+        this.file = file;
+        this.stripeRows = stripeRows;
+        this.ids = new long[stripeRows];
+        this.retweetedStatusIds = new long[stripeRows];
+        this.createdAts = new long[stripeRows];
+        this.userIds = new long[stripeRows];
+        this.friendsCounts = new int[stripeRows];
+        this.langs = new String[stripeRows];
+        this.texts = new String[stripeRows];
+        this.hashtagCounts = new int[stripeRows];
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(ColumnarTweetFormat.FILE_HEADER_SIZE);
+        header.putInt(ColumnarTweetFormat.MAGIC).putInt(ColumnarTweetFormat.VERSION).flip();
+        write(header);
+        writeFooter();
+    }
+
+    /**
+     * Append a tweet, writing the stripe once it is full
+     *
+     * @param tweet
+     * @throws IOException
+     */
+    public void append(Tweet tweet) throws IOException {
+        ids[rowCount] = tweet.getId();
+        retweetedStatusIds[rowCount] = tweet.getRetweetedStatusId();
+        createdAts[rowCount] = tweet.getCreatedAtMillis();
+        userIds[rowCount] = tweet.getUserId();
+        friendsCounts[rowCount] = tweet.getFriendsCount();
+        langs[rowCount] = tweet.getLang();
+        texts[rowCount] = tweet.getText();
+        List<String> tweetHashtags = tweet.getHashtags();
+        hashtagCounts[rowCount] = tweetHashtags.size();
+        hashtags.addAll(tweetHashtags);
+        rowCount++;
+        writtenRows++;
+        if (rowCount == stripeRows) {
+            writeStripe();
+            writeFooter();
+        }
+    }
+
+    /**
+     * @return number of tweets appended so far
+     */
+    public long getRowCount() {
+        return writtenRows;
+    }
+
+    /**
+     * @return number of appended tweets that are not written yet, zero right after a stripe has been written
+     */
+    public int getBufferedRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return number of stripes written so far
+     */
+    public int getStripeCount() {
+        return stripeRowCounts.size();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    private void writeStripe() throws IOException {
+        long[] offsets = new long[NUM_COLUMNS];
+        int[] lengths = new int[NUM_COLUMNS];
+        int[] rawLengths = new int[NUM_COLUMNS];
+        long[] mins = new long[NUM_COLUMNS];
+        long[] maxs = new long[NUM_COLUMNS];
+        for (Column column : Column.values()) {
+            chunk.reset();
+            encode(column);
+            if (column.isNumeric()) {
+                long[] values = numericValues(column);
+                long min = Long.MAX_VALUE;
+                long max = Long.MIN_VALUE;
+                for (int row = 0; row < rowCount; row++) {
+                    min = Math.min(min, values[row]);
+                    max = Math.max(max, values[row]);
+                }
+                mins[column.ordinal()] = min;
+                maxs[column.ordinal()] = max;
+            }
+            offsets[column.ordinal()] = position;
+            rawLengths[column.ordinal()] = chunk.size();
+            lengths[column.ordinal()] = writeDeflated(chunk.buffer(), chunk.size());
+        }
+        stripeRowCounts.add(rowCount);
+        stripeOffsets.add(offsets);
+        stripeLengths.add(lengths);
+        stripeRawLengths.add(rawLengths);
+        stripeMins.add(mins);
+        stripeMaxs.add(maxs);
+
+        rowCount = 0;
+        hashtags.clear();
+        for (int row = 0; row < stripeRows; row++) {
+            langs[row] = null;
+            texts[row] = null;
+        }
+    }
+
+    private long[] numericValues(Column column) {
+        switch (column) {
+            case ID:
+                return ids;
+            case RETWEETED_STATUS_ID:
+                return retweetedStatusIds;
+            case CREATED_AT:
+                return createdAts;
+            case USER_ID:
+                return userIds;
+            default:
+                long[] values = new long[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    values[row] = friendsCounts[row];
+                }
+                return values;
+        }
+    }
+
+    private void encode(Column column) {
+        switch (column) {
+            case ID:
+            case RETWEETED_STATUS_ID:
+            case CREATED_AT:
+                long previous = 0;
+                long[] values = numericValues(column);
+                for (int row = 0; row < rowCount; row++) {
+                    chunk.writeSignedVarLong(values[row] - previous);
+                    previous = values[row];
+                }
+                break;
+            case USER_ID:
+                Map<Long, Integer> userCodes = new HashMap<>();
+                List<Long> users = new ArrayList<>();
+                int[] userRowCodes = new int[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    Integer code = userCodes.get(userIds[row]);
+                    if (code == null) {
+                        code = users.size();
+                        userCodes.put(userIds[row], code);
+                        users.add(userIds[row]);
+                    }
+                    userRowCodes[row] = code;
+                }
+                chunk.writeVarLong(users.size());
+                for (Long user : users) {
+                    chunk.writeSignedVarLong(user);
+                }
+                for (int row = 0; row < rowCount; row++) {
+                    chunk.writeVarLong(userRowCodes[row]);
+                }
+                break;
+            case FRIENDS_COUNT:
+                for (int row = 0; row < rowCount; row++) {
+                    chunk.writeSignedVarLong(friendsCounts[row]);
+                }
+                break;
+            case LANG:
+                encodeDictionary(langs, rowCount, true);
+                break;
+            case TEXT:
+                for (int row = 0; row < rowCount; row++) {
+                    if (texts[row] == null) {
+                        chunk.writeVarLong(0);
+                    } else {
+                        byte[] bytes = texts[row].getBytes(StandardCharsets.UTF_8);
+                        chunk.writeVarLong(bytes.length + 1);
+                        chunk.write(bytes, 0, bytes.length);
+                    }
+                }
+                break;
+            case HASHTAGS:
+                for (int row = 0; row < rowCount; row++) {
+                    chunk.writeVarLong(hashtagCounts[row]);
+                }
+                encodeDictionary(hashtags.toArray(new String[hashtags.size()]), hashtags.size(), false);
+                break;
+            default:
+                throw new IllegalStateException("Unknown column " + column);
+        }
+    }
+
+    /**
+     * Write the distinct values in order of appearance, then one code per value. Code zero stands for null if
+     * nullable, shifting the codes of the dictionary entries by one.
+     */
+    private void encodeDictionary(String[] values, int count, boolean nullable) {
+        Map<String, Integer> codes = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        int firstCode = nullable ? NULL_CODE + 1 : 0;
+        int[] valueCodes = new int[count];
+        for (int i = 0; i < count; i++) {
+            if (values[i] == null) {
+                valueCodes[i] = NULL_CODE;
+                continue;
+            }
+            Integer code = codes.get(values[i]);
+            if (code == null) {
+                code = firstCode + dictionary.size();
+                codes.put(values[i], code);
+                dictionary.add(values[i]);
+            }
+            valueCodes[i] = code;
+        }
+        chunk.writeVarLong(dictionary.size());
+        for (String value : dictionary) {
+            chunk.writeString(value);
+        }
+        for (int i = 0; i < count; i++) {
+            chunk.writeVarLong(valueCodes[i]);
+        }
+    }
+
+    private int writeDeflated(byte[] bytes, int length) throws IOException {
+        deflater.reset();
+        deflater.setInput(bytes, 0, length);
+        deflater.finish();
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+        write(ByteBuffer.wrap(compressed, 0, compressedLength));
+        return compressedLength;
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer);
+        }
+    }
+
+    /**
+     * Write the appended tweets as a possibly partial stripe, followed by the footer, and force them to disk
+     *
+     * @throws IOException
+     */
+    public void flush() throws IOException {
+        if (rowCount > 0) {
+            writeStripe();
+            writeFooter();
+        }
+    }
+
+    /**
+     * Write the footer behind the last stripe and force the file to disk, leaving the position at the start of the
+     * footer for the next stripe
+     */
+    private void writeFooter() throws IOException {
+        long footerOffset = position;
+        int stripeCount = stripeRowCounts.size();
+        int stripeSize = 4 + NUM_COLUMNS * 16;
+        for (Column column : Column.values()) {
+            if (column.isNumeric()) {
+                stripeSize += 16;
+            }
+        }
+        ByteBuffer footer = ByteBuffer.allocate(4 + stripeCount * stripeSize + ColumnarTweetFormat.TRAILER_SIZE);
+        footer.putInt(stripeCount);
+        for (int stripe = 0; stripe < stripeCount; stripe++) {
+            footer.putInt(stripeRowCounts.get(stripe));
+            for (Column column : Column.values()) {
+                footer.putLong(stripeOffsets.get(stripe)[column.ordinal()])
+                        .putInt(stripeLengths.get(stripe)[column.ordinal()])
+                        .putInt(stripeRawLengths.get(stripe)[column.ordinal()]);
+            }
+            for (Column column : Column.values()) {
+                if (column.isNumeric()) {
+                    footer.putLong(stripeMins.get(stripe)[column.ordinal()])
+                            .putLong(stripeMaxs.get(stripe)[column.ordinal()]);
+                }
+            }
+        }
+        footer.putLong(footerOffset).putInt(ColumnarTweetFormat.MAGIC).flip();
+        write(footer);
+        channel.force(true);
+        position = footerOffset;
+        channel.position(footerOffset);
+    }
+
+    /**
+     * Write the last stripe and the footer, then close the file
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+            deflater.end();
+        }
+    }
+
+    /**
+     * Growable chunk buffer with the varint encodings of the format
+     */
+    private static final class ChunkBuilder extends ByteArrayOutputStream {
+
+        ChunkBuilder() {
+            super(64 * 1024);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeSignedVarLong(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+    }
+}
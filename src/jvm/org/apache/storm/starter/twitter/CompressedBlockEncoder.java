@@ -0,0 +1,101 @@
+package org.apache.storm.starter.twitter;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Collects records into blocks and turns every full block into a deflated frame (see {@link CompressedBlockFormat}).
+ * <p/>
+ * The block and output buffers are allocated once and reused, so encoding allocates nothing but the returned frames.
+ * Not thread-safe; {@link #end()} releases the native memory of the deflater.
+ */
+public class CompressedBlockEncoder {
+
+    // Constants
+    public final static byte[] NO_OUTPUT = new byte[0];
+
+    private final int blockBytes;
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private byte[] block;
+    private int blockLength = 0;
+    private byte[] compressed;
+
+    /**
+     * Constructor
+     *
+     * @param blockBytes uncompressed size after which a block is compressed
+     * @param level      deflate level, e.g. {@link Deflater#DEFAULT_COMPRESSION} or {@link Deflater#BEST_SPEED}
+     */
+    public CompressedBlockEncoder(int blockBytes, int level) {
+        if (blockBytes <= 0) {
+            throw new IllegalArgumentException("Block size must be positive (you requested " + blockBytes + ")");
+        }
+        this.blockBytes = blockBytes;
+        this.deflater = new Deflater(level, true);
+        this.block = new byte[blockBytes];
+        this.compressed = new byte[CompressedBlockFormat.HEADER_SIZE + blockBytes + blockBytes / 1000 + 64];
+    }
+
+    /**
+     * Add a record to the current block
+     *
+     * @param record
+     * @param offset
+     * @param length
+     * @return the frame of the block if the record filled it, otherwise {@link #NO_OUTPUT}
+     */
+    public byte[] append(byte[] record, int offset, int length) {
+        if (blockLength + length > block.length) {
+            // A record larger than the block size gets a block of its own
+            block = Arrays.copyOf(block, Math.max(block.length * 2, blockLength + length));
+        }
+        System.arraycopy(record, offset, block, blockLength, length);
+        blockLength += length;
+        return blockLength >= blockBytes ? finishBlock() : NO_OUTPUT;
+    }
+
+    /**
+     * @return the frame of the records not written yet, or {@link #NO_OUTPUT} if there are none
+     */
+    public byte[] finishBlock() {
+        if (blockLength == 0) {
+            return NO_OUTPUT;
+        }
+        crc.reset();
+        crc.update(block, 0, blockLength);
+        deflater.reset();
+        deflater.setInput(block, 0, blockLength);
+        deflater.finish();
+        int compressedLength = CompressedBlockFormat.HEADER_SIZE;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+        ByteBuffer.wrap(compressed).putInt(CompressedBlockFormat.MAGIC).putInt(blockLength)
+                .putInt(compressedLength - CompressedBlockFormat.HEADER_SIZE).putInt((int) crc.getValue());
+        blockLength = 0;
+        if (block.length > blockBytes) {
+            block = new byte[blockBytes];
+        }
+        return Arrays.copyOf(compressed, compressedLength);
+    }
+
+    /**
+     * @return number of uncompressed bytes waiting for the current block to fill up
+     */
+    public int getBufferedBytes() {
+        return blockLength;
+    }
+
+    /**
+     * Release the deflater, the encoder can not be used afterwards
+     */
+    public void end() {
+        deflater.end();
+    }
+}
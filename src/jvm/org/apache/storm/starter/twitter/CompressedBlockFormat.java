@@ -0,0 +1,25 @@
+package org.apache.storm.starter.twitter;
+
+/**
+ * Layout of the block-compressed output files of the collected tweets.
+ * <p/>
+ * The records are concatenated exactly as they would have been written uncompressed, cut into blocks of roughly the
+ * configured size at record boundaries, and each block is deflated on its own and framed:
+ * <pre>
+ * block: int magic | int uncompressedLength | int compressedLength | int crc32 | byte[compressedLength] raw deflate
+ * </pre>
+ * The frames are self-describing, so a file is valid after every complete block and files can be concatenated. A
+ * reader builds the block index by hopping from header to header, without inflating anything, and can then seek to
+ * any block and inflate blocks independently, e.g. in parallel. The checksum covers the uncompressed bytes.
+ */
+public final class CompressedBlockFormat {
+
+    // Constants
+    public final static int MAGIC = 0x54574246;
+    public final static int HEADER_SIZE = 16;
+    public final static int DEFAULT_BLOCK_BYTES = 256 * 1024;
+    public final static String FILE_EXTENSION = ".dfb";
+
+    private CompressedBlockFormat() {
+    }
+}
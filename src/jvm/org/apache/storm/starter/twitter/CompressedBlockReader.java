@@ -0,0 +1,243 @@
+package org.apache.storm.starter.twitter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Random access reader of a block-compressed file (see {@link CompressedBlockFormat}).
+ * <p/>
+ * Opening the file only reads the block headers to build the block index. Blocks are read with positional reads and
+ * inflated independently, so {@link #readBlock(int)} may be called from several threads at once and
+ * {@link #readBlocks(int, int, ExecutorService)} inflates a range of blocks in parallel. A trailing block that is
+ * still being written is ignored.
+ */
+public class CompressedBlockReader implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CompressedBlockReader.class);
+
+    // Constants
+    private final static int INITIAL_CAPACITY = 64;
+
+    private final File file;
+    private final FileChannel channel;
+    private int blockCount = 0;
+    private long[] fileOffsets = new long[INITIAL_CAPACITY];
+    private long[] uncompressedOffsets = new long[INITIAL_CAPACITY + 1];
+    private int[] compressedLengths = new int[INITIAL_CAPACITY];
+    private int[] checksums = new int[INITIAL_CAPACITY];
+
+    /**
+     * Constructor, builds the block index
+     *
+     * @param file
+     * @throws IOException if the file can not be read or is not block-compressed
+     */
+    public CompressedBlockReader(File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            buildIndex();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void buildIndex() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(CompressedBlockFormat.HEADER_SIZE);
+        long size = channel.size();
+        long position = 0;
+        while (position + CompressedBlockFormat.HEADER_SIZE <= size) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+            if (header.getInt() != CompressedBlockFormat.MAGIC) {
+                throw new IOException("Not a block-compressed file, no block at offset " + position + " of " + file);
+            }
+            int uncompressedLength = header.getInt();
+            int compressedLength = header.getInt();
+            int checksum = header.getInt();
+            if (uncompressedLength < 0 || compressedLength < 0) {
+                throw new IOException("Corrupt block header at offset " + position + " of " + file);
+            }
+            if (position + CompressedBlockFormat.HEADER_SIZE + compressedLength > size) {
+                break;
+            }
+            if (blockCount == fileOffsets.length) {
+                int capacity = blockCount * 2;
+                fileOffsets = Arrays.copyOf(fileOffsets, capacity);
+                uncompressedOffsets = Arrays.copyOf(uncompressedOffsets, capacity + 1);
+                compressedLengths = Arrays.copyOf(compressedLengths, capacity);
+                checksums = Arrays.copyOf(checksums, capacity);
+            }
+            fileOffsets[blockCount] = position;
+            compressedLengths[blockCount] = compressedLength;
+            checksums[blockCount] = checksum;
+            uncompressedOffsets[blockCount + 1] = uncompressedOffsets[blockCount] + uncompressedLength;
+            blockCount++;
+            position += CompressedBlockFormat.HEADER_SIZE + compressedLength;
+        }
+        if (position != size) {
+            LOG.info("Ignoring the incomplete last block at offset {} of {}", position, file);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of " + file + " at offset " + position);
+            }
+            position += read;
+        }
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    /**
+     * @return total size of the complete blocks after inflating them
+     */
+    public long getUncompressedLength() {
+        return uncompressedOffsets[blockCount];
+    }
+
+    /**
+     * @param block
+     * @return position of the first byte of the block within the uncompressed data
+     */
+    public long getUncompressedOffset(int block) {
+        return uncompressedOffsets[block];
+    }
+
+    /**
+     * Seek by uncompressed position
+     *
+     * @param uncompressedOffset position within the uncompressed data
+     * @return the block containing that position, or -1 if it is beyond the end
+     */
+    public int findBlock(long uncompressedOffset) {
+        if (uncompressedOffset < 0 || uncompressedOffset >= getUncompressedLength()) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(uncompressedOffsets, 0, blockCount + 1, uncompressedOffset);
+        if (index >= 0) {
+            // Skip empty blocks starting at the same position
+            while (uncompressedOffsets[index + 1] == uncompressedOffset) {
+                index++;
+            }
+            return index;
+        }
+        return -index - 2;
+    }
+
+    /**
+     * Read and inflate a block
+     *
+     * @param block
+     * @return the uncompressed bytes of the block
+     * @throws IOException if the block can not be read or fails its checksum
+     */
+    public byte[] readBlock(int block) throws IOException {
+        if (block < 0 || block >= blockCount) {
+            throw new IndexOutOfBoundsException("Block " + block + " of " + blockCount);
+        }
+        // One spare byte, the inflater may need a dummy byte after raw deflate data
+        byte[] compressed = new byte[compressedLengths[block] + 1];
+        readFully(ByteBuffer.wrap(compressed, 0, compressedLengths[block]),
+                fileOffsets[block] + CompressedBlockFormat.HEADER_SIZE);
+        byte[] uncompressed = new byte[(int) (uncompressedOffsets[block + 1] - uncompressedOffsets[block])];
+
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            int length = 0;
+            while (length < uncompressed.length && !inflater.finished()) {
+                int inflated = inflater.inflate(uncompressed, length, uncompressed.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != uncompressed.length) {
+                throw new IOException("Block " + block + " of " + file + " inflates to " + length + " instead of "
+                        + uncompressed.length + " bytes");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block " + block + " of " + file, e);
+        } finally {
+            inflater.end();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(uncompressed, 0, uncompressed.length);
+        if ((int) crc.getValue() != checksums[block]) {
+            throw new IOException("Checksum mismatch in block " + block + " of " + file);
+        }
+        return uncompressed;
+    }
+
+    /**
+     * Read and inflate a range of blocks in parallel
+     *
+     * @param fromBlock inclusive
+     * @param toBlock   exclusive
+     * @param executor  runs one task per block
+     * @return the uncompressed bytes of the blocks, in block order
+     * @throws IOException if a block can not be read or fails its checksum
+     */
+    public List<byte[]> readBlocks(int fromBlock, int toBlock, ExecutorService executor) throws IOException {
+        List<Future<byte[]>> futures = new ArrayList<>(toBlock - fromBlock);
+        for (int block = fromBlock; block < toBlock; block++) {
+            final int blockToRead = block;
+            futures.add(executor.submit(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws IOException {
+                    return readBlock(blockToRead);
+                }
+            }));
+        }
+        List<byte[]> blocks = new ArrayList<>(futures.size());
+        try {
+            for (Future<byte[]> future : futures) {
+                blocks.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading " + file, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Reading " + file + " failed", e.getCause());
+        } finally {
+            for (Future<byte[]> future : futures) {
+                future.cancel(false);
+            }
+        }
+        return blocks;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
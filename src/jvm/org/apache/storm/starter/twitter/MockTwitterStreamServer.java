@@ -0,0 +1,327 @@
+package org.apache.storm.starter.twitter;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Embeddable HTTP server speaking the Twitter streaming protocol, for load tests of the real twitter4j based path
+ * without credentials or network access.
+ * <p/>
+ * It serves the statuses/sample.json and statuses/filter.json endpoints below {@value #STREAM_PATH} on the loopback
+ * interface. Every connection gets its own pass over a {@link Source} of tweet JSON, written as CRLF delimited lines of
+ * a chunked response at a configurable rate. The filter endpoint honours the "track" parameter by matching the
+ * keywords case insensitively against the tweet text. Authorization headers are accepted without being checked.
+ * <p/>
+ * Point twitter4j at {@link #getStreamBaseUrl()}, e.g. via {@link org.apache.storm.starter.spout.TwitterSampleSpout}
+ * withStreamBaseUrl, and give it any non-empty OAuth credentials.
+ */
+public class MockTwitterStreamServer implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MockTwitterStreamServer.class);
+
+    // Constants
+    public final static String STREAM_PATH = "/1.1/";
+    public final static double UNTHROTTLED = 0.0;
+    private final static String SAMPLE_ENDPOINT = "statuses/sample.json";
+    private final static String FILTER_ENDPOINT = "statuses/filter.json";
+    private final static String TRACK_PARAMETER = "track";
+    private final static byte[] LINE_DELIMITER = {'\r', '\n'};
+    private final static int UNTHROTTLED_FLUSH_INTERVAL = 64;
+    private final static int OUTPUT_BUFFER_BYTES = 64 * 1024;
+    private final static long NANOS_PER_SECOND = 1000000000L;
+    private final static int STOP_DELAY_SECONDS = 1;
+
+    /**
+     * Tweets served to the connections
+     */
+    public interface Source {
+
+        /**
+         * @return a new cursor over the tweets, one per connection
+         * @throws IOException
+         */
+        Cursor open() throws IOException;
+    }
+
+    /**
+     * One pass over the tweets of a {@link Source}
+     */
+    public interface Cursor extends Closeable {
+
+        /**
+         * @return the UTF-8 JSON of the next tweet, or null at the end
+         * @throws IOException
+         */
+        byte[] next() throws IOException;
+    }
+
+    private final Source source;
+    private final double tweetsPerSecond;
+    private final boolean loop;
+    private final HttpServer httpServer;
+    private final ExecutorService executor;
+
+    /**
+     * Constructor, starts serving right away
+     *
+     * @param source
+     * @param tweetsPerSecond rate per connection, or {@link #UNTHROTTLED}
+     * @param loop            whether to start the source over at its end instead of closing the connection
+     * @param port            port on the loopback interface, 0 for any free port
+     * @throws IOException
+     */
+    public MockTwitterStreamServer(Source source, double tweetsPerSecond, boolean loop, int port) throws IOException {
+        if (tweetsPerSecond < 0) {
+            throw new IllegalArgumentException("Rate must not be negative (you requested " + tweetsPerSecond + ")");
+        }
+        this.source = source;
+        this.tweetsPerSecond = tweetsPerSecond;
+        this.loop = loop;
+        this.httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Executors.newCachedThreadPool();
+        httpServer.setExecutor(executor);
+        httpServer.createContext(STREAM_PATH + SAMPLE_ENDPOINT, new StreamHandler(false));
+        httpServer.createContext(STREAM_PATH + FILTER_ENDPOINT, new StreamHandler(true));
+        httpServer.start();
+        LOG.info("Mock Twitter stream serving at {}", getStreamBaseUrl());
+    }
+
+    /**
+     * @return the stream base URL to configure twitter4j with
+     */
+    public String getStreamBaseUrl() {
+        InetSocketAddress address = httpServer.getAddress();
+        return "http://" + address.getAddress().getHostAddress() + ":" + address.getPort() + STREAM_PATH;
+    }
+
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        httpServer.stop(STOP_DELAY_SECONDS);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Source over the records of capture segments, e.g. written by the capture mode of
+     * {@link org.apache.storm.starter.spout.TwitterSampleSpout}
+     *
+     * @param segmentDirectory
+     * @return the source
+     */
+    public static Source segmentSource(final File segmentDirectory) {
+        return new Source() {
+            @Override
+            public Cursor open() {
+                final File[] segments = TweetSegmentFormat.listSegments(segmentDirectory);
+                return new Cursor() {
+
+                    private int nextSegmentIndex;
+                    private TweetSegmentReader reader;
+
+                    @Override
+                    public byte[] next() throws IOException {
+                        while (reader == null || !reader.advance()) {
+                            close();
+                            if (nextSegmentIndex == segments.length) {
+                                return null;
+                            }
+                            reader = new TweetSegmentReader(segments[nextSegmentIndex++]);
+                        }
+                        return reader.copyPayload();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        if (reader != null) {
+                            reader.close();
+                            reader = null;
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Source over tweets held in memory
+     *
+     * @param tweetsJson
+     * @return the source
+     */
+    public static Source listSource(List<String> tweetsJson) {
+        final List<byte[]> tweets = new ArrayList<>(tweetsJson.size());
+        for (String tweetJson : tweetsJson) {
+            tweets.add(tweetJson.getBytes(StandardCharsets.UTF_8));
+        }
+        return new Source() {
+            @Override
+            public Cursor open() {
+                return new Cursor() {
+
+                    private int nextIndex;
+
+                    @Override
+                    public byte[] next() {
+                        return nextIndex < tweets.size() ? tweets.get(nextIndex++) : null;
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+        };
+    }
+
+    private class StreamHandler implements HttpHandler {
+
+        private final boolean filter;
+
+        StreamHandler(boolean filter) {
+            this.filter = filter;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String[] track = filter ? trackedKeywords(exchange) : new String[0];
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, 0);
+            long served = 0;
+            try (OutputStream output = new BufferedOutputStream(exchange.getResponseBody(), OUTPUT_BUFFER_BYTES)) {
+                long startNanos = System.nanoTime();
+                do {
+                    // Stop looping once a whole pass did not yield a single tweet
+                    long servedBeforePass = served;
+                    try (Cursor cursor = source.open()) {
+                        byte[] tweet;
+                        while ((tweet = cursor.next()) != null) {
+                            if (track.length > 0 && !matches(tweet, track)) {
+                                continue;
+                            }
+                            output.write(tweet);
+                            output.write(LINE_DELIMITER);
+                            served++;
+                            pace(output, startNanos, served);
+                        }
+                        if (served == servedBeforePass) {
+                            break;
+                        }
+                    }
+                } while (loop && !Thread.currentThread().isInterrupted());
+            } catch (IOException e) {
+                // The client disconnected
+                LOG.debug("Mock Twitter stream connection closed", e);
+            } finally {
+                LOG.info("Mock Twitter stream served {} tweets on {}", served, exchange.getRequestURI());
+                exchange.close();
+            }
+        }
+
+        /**
+         * Hold the connection back until the next tweet is due, flushing what is buffered before waiting
+         */
+        private void pace(OutputStream output, long startNanos, long served) throws IOException {
+            if (tweetsPerSecond == UNTHROTTLED) {
+                if (served % UNTHROTTLED_FLUSH_INTERVAL == 0) {
+                    output.flush();
+                }
+                return;
+            }
+            long dueNanos = startNanos + (long) (served * NANOS_PER_SECOND / tweetsPerSecond);
+            long waitNanos = dueNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                output.flush();
+                LockSupport.parkNanos(waitNanos);
+            }
+        }
+    }
+
+    private static String[] trackedKeywords(HttpExchange exchange) throws IOException {
+        String parameters = exchange.getRequestURI().getRawQuery();
+        if ("POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+            parameters = readFully(exchange.getRequestBody());
+        }
+        if (parameters == null) {
+            return new String[0];
+        }
+        for (String parameter : parameters.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator > 0 && parameter.substring(0, separator).equals(TRACK_PARAMETER)) {
+                String[] keywords = decode(parameter.substring(separator + 1)).split(",");
+                for (int i = 0; i < keywords.length; i++) {
+                    keywords[i] = keywords[i].trim().toLowerCase(Locale.ROOT);
+                }
+                return keywords;
+            }
+        }
+        return new String[0];
+    }
+
+    private static boolean matches(byte[] tweet, String[] track) {
+        String text = TweetJsonScanner.readString(tweet, TweetJsonScanner.findValue(tweet, TweetJsonScanner.TEXT));
+        if (text == null) {
+            return false;
+        }
+        text = text.toLowerCase(Locale.ROOT);
+        for (String keyword : track) {
+            if (!keyword.isEmpty() && text.contains(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String readFully(InputStream input) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = input.read(buffer)) > 0) {
+            bytes.write(buffer, 0, read);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String decode(String value) throws UnsupportedEncodingException {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+    }
+
+    /**
+     * Serve a capture directory until the process is killed
+     *
+     * @param args segment directory, tweets per second (0 for unthrottled), port
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: MockTwitterStreamServer <segment directory> <tweets per second> <port>");
+            return;
+        }
+        new MockTwitterStreamServer(segmentSource(new File(args[0])), Double.parseDouble(args[1]), true,
+                Integer.parseInt(args[2]));
+    }
+}
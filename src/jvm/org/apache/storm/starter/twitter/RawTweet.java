@@ -0,0 +1,184 @@
+package org.apache.storm.starter.twitter;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tweet carried as its raw UTF-8 JSON, with every field extracted by {@link TweetJsonScanner} only when a bolt first
+ * reads it.
+ * <p/>
+ * This moves the parse cost off the spout thread and skips it entirely for fields nobody reads. Extracted values are
+ * cached; the cache is published through a volatile mask so the instance can be shared by bolts running in the same
+ * worker. It is serialized between workers by {@link RawTweetSerializer}, which has to be registered with the topology
+ * configuration.
+ */
+public final class RawTweet implements Tweet, Serializable {
+
+    private static final long serialVersionUID = 6013914127526633542L;
+
+    // Constants
+    private final static int ID_LOADED = 1;
+    private final static int CREATED_AT_LOADED = 1 << 1;
+    private final static int USER_ID_LOADED = 1 << 2;
+    private final static int FRIENDS_COUNT_LOADED = 1 << 3;
+    private final static int LANG_LOADED = 1 << 4;
+    private final static int TEXT_LOADED = 1 << 5;
+    private final static int HASHTAGS_LOADED = 1 << 6;
+    private final static int RETWEETED_STATUS_ID_LOADED = 1 << 7;
+
+    private final byte[] json;
+
+    private transient volatile int loaded;
+    private transient long id;
+    private transient long retweetedStatusId;
+    private transient long createdAtMillis;
+    private transient long userId;
+    private transient int friendsCount;
+    private transient String lang;
+    private transient String text;
+    private transient List<String> hashtags;
+
+    /**
+     * Constructor
+     *
+     * @param json UTF-8 JSON of the status, not copied
+     */
+    public RawTweet(byte[] json) {
+        this.json = json;
+    }
+
+    /**
+     * Constructor
+     *
+     * @param json JSON of the status
+     */
+    public RawTweet(String json) {
+        this(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Cheap check of a raw stream message, which may also be a delete, limit or other notice
+     *
+     * @param json
+     * @return whether the message is a status
+     */
+    public static boolean isStatus(byte[] json) {
+        return TweetJsonScanner.findValue(json, TweetJsonScanner.TEXT) >= 0;
+    }
+
+    /**
+     * @return the UTF-8 JSON, not copied
+     */
+    public byte[] getJson() {
+        return json;
+    }
+
+    public String getJsonAsString() {
+        return new String(json, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public long getId() {
+        if ((loaded & ID_LOADED) == 0) {
+            id = TweetJsonScanner.readLong(json, TweetJsonScanner.findValue(json, TweetJsonScanner.ID), 0L);
+            loaded |= ID_LOADED;
+        }
+        return id;
+    }
+
+    @Override
+    public long getRetweetedStatusId() {
+        if ((loaded & RETWEETED_STATUS_ID_LOADED) == 0) {
+            retweetedStatusId = TweetJsonScanner.readLong(json,
+                    TweetJsonScanner.findValue(json, TweetJsonScanner.RETWEETED_STATUS, TweetJsonScanner.ID),
+                    TweetRecord.NO_RETWEETED_STATUS);
+            loaded |= RETWEETED_STATUS_ID_LOADED;
+        }
+        return retweetedStatusId;
+    }
+
+    @Override
+    public long getCreatedAtMillis() {
+        if ((loaded & CREATED_AT_LOADED) == 0) {
+            createdAtMillis = TweetJsonScanner.readTwitterDate(json,
+                    TweetJsonScanner.findValue(json, TweetJsonScanner.CREATED_AT));
+            loaded |= CREATED_AT_LOADED;
+        }
+        return createdAtMillis;
+    }
+
+    @Override
+    public long getUserId() {
+        if ((loaded & USER_ID_LOADED) == 0) {
+            userId = TweetJsonScanner.readLong(json,
+                    TweetJsonScanner.findValue(json, TweetJsonScanner.USER, TweetJsonScanner.ID),
+                    TweetRecord.UNKNOWN_USER_ID);
+            loaded |= USER_ID_LOADED;
+        }
+        return userId;
+    }
+
+    @Override
+    public boolean hasUser() {
+        return getUserId() != TweetRecord.UNKNOWN_USER_ID;
+    }
+
+    @Override
+    public int getFriendsCount() {
+        if ((loaded & FRIENDS_COUNT_LOADED) == 0) {
+            friendsCount = (int) TweetJsonScanner.readLong(json,
+                    TweetJsonScanner.findValue(json, TweetJsonScanner.USER, TweetJsonScanner.FRIENDS_COUNT), 0L);
+            loaded |= FRIENDS_COUNT_LOADED;
+        }
+        return friendsCount;
+    }
+
+    @Override
+    public String getLang() {
+        if ((loaded & LANG_LOADED) == 0) {
+            lang = TweetJsonScanner.readString(json, TweetJsonScanner.findValue(json, TweetJsonScanner.LANG));
+            loaded |= LANG_LOADED;
+        }
+        return lang;
+    }
+
+    @Override
+    public String getText() {
+        if ((loaded & TEXT_LOADED) == 0) {
+            text = TweetJsonScanner.readString(json, TweetJsonScanner.findValue(json, TweetJsonScanner.TEXT));
+            loaded |= TEXT_LOADED;
+        }
+        return text;
+    }
+
+    @Override
+    public List<String> getHashtags() {
+        if ((loaded & HASHTAGS_LOADED) == 0) {
+            hashtags = TweetJsonScanner.readObjectArrayTexts(json,
+                    TweetJsonScanner.findValue(json, TweetJsonScanner.ENTITIES, TweetJsonScanner.HASHTAGS),
+                    TweetJsonScanner.TEXT);
+            loaded |= HASHTAGS_LOADED;
+        }
+        return hashtags;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        return other instanceof RawTweet && Arrays.equals(json, ((RawTweet) other).json);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(json);
+    }
+
+    @Override
+    public String toString() {
+        return "RawTweet{" + getJsonAsString() + "}";
+    }
+}
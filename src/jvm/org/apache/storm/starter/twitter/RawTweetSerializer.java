@@ -0,0 +1,39 @@
+package org.apache.storm.starter.twitter;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.apache.storm.Config;
+
+/**
+ * Kryo serializer for {@link RawTweet}, writing only the length-prefixed JSON bytes. Extracted fields are not sent;
+ * the receiving bolt extracts what it reads.
+ */
+public class RawTweetSerializer extends Serializer<RawTweet> {
+
+    public RawTweetSerializer() {
+        setImmutable(true);
+    }
+
+    /**
+     * Register the serializer with a topology configuration
+     *
+     * @param stormConfig
+     */
+    public static void register(Config stormConfig) {
+        stormConfig.registerSerialization(RawTweet.class, RawTweetSerializer.class);
+    }
+
+    @Override
+    public void write(Kryo kryo, Output output, RawTweet tweet) {
+        byte[] json = tweet.getJson();
+        output.writeInt(json.length, true);
+        output.writeBytes(json);
+    }
+
+    @Override
+    public RawTweet read(Kryo kryo, Input input, Class<RawTweet> type) {
+        return new RawTweet(input.readBytes(input.readInt(true)));
+    }
+}
@@ -0,0 +1,98 @@
+package org.apache.storm.starter.twitter;
+
+import org.apache.storm.starter.tools.RotatingBloomFilter;
+
+import java.io.Serializable;
+
+/**
+ * Detects statuses seen before, e.g. redelivered after a reconnect, within a fixed memory budget.
+ * <p/>
+ * Status ids are tracked in a {@link RotatingBloomFilter}, so a status is recognized for at least one and at most two
+ * rotation intervals, and a small fraction of new statuses is wrongly reported as duplicate. With retweet collapsing
+ * all retweets of a status are keyed on the retweeted status id and thus pass only once, together with the original.
+ * <p/>
+ * This class is NOT thread-safe.
+ */
+public class StatusDeduplicator implements Serializable {
+
+    private static final long serialVersionUID = -2680190387526441046L;
+
+    private final RotatingBloomFilter seenIds;
+    private final long rotationIntervalMillis;
+    private final boolean collapseRetweets;
+    private long nextRotationMillis = -1L;
+
+    /**
+     * Constructor
+     *
+     * @param expectedStatusesPerInterval number of statuses expected within one rotation interval
+     * @param falsePositiveRate           target rate of new statuses wrongly reported as duplicate
+     * @param rotationIntervalMillis      how long a status is remembered at least
+     * @param collapseRetweets            whether to key retweets on the retweeted status id
+     */
+    public StatusDeduplicator(int expectedStatusesPerInterval, double falsePositiveRate, long rotationIntervalMillis,
+                              boolean collapseRetweets) {
+        if (rotationIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Rotation interval must be positive (you requested "
+                    + rotationIntervalMillis + ")");
+        }
+        this.seenIds = new RotatingBloomFilter(expectedStatusesPerInterval, falsePositiveRate);
+        this.rotationIntervalMillis = rotationIntervalMillis;
+        this.collapseRetweets = collapseRetweets;
+    }
+
+    /**
+     * Record a status, rotating first if the rotation interval elapsed
+     *
+     * @param statusId
+     * @param retweetedStatusId {@link TweetRecord#NO_RETWEETED_STATUS} if the status is no retweet
+     * @param nowMillis         current time, for the rotation
+     * @return whether the status was seen before
+     */
+    public boolean isDuplicate(long statusId, long retweetedStatusId, long nowMillis) {
+        if (nextRotationMillis < 0) {
+            nextRotationMillis = nowMillis + rotationIntervalMillis;
+        } else if (nowMillis >= nextRotationMillis) {
+            rotate();
+            nextRotationMillis = nowMillis + rotationIntervalMillis;
+        }
+        return isDuplicate(statusId, retweetedStatusId);
+    }
+
+    /**
+     * Record a status without time based rotation, for callers rotating via {@link #rotate()}
+     *
+     * @param statusId
+     * @param retweetedStatusId {@link TweetRecord#NO_RETWEETED_STATUS} if the status is no retweet
+     * @return whether the status was seen before
+     */
+    public boolean isDuplicate(long statusId, long retweetedStatusId) {
+        long key = collapseRetweets && retweetedStatusId != TweetRecord.NO_RETWEETED_STATUS ? retweetedStatusId
+                : statusId;
+        return seenIds.put(key);
+    }
+
+    /**
+     * Record a tweet without time based rotation
+     *
+     * @param tweet
+     * @return whether the tweet was seen before
+     */
+    public boolean isDuplicate(Tweet tweet) {
+        // Only extract the retweeted status id of raw tweets if it is used
+        return isDuplicate(tweet.getId(),
+                collapseRetweets ? tweet.getRetweetedStatusId() : TweetRecord.NO_RETWEETED_STATUS);
+    }
+
+    public void rotate() {
+        seenIds.rotate();
+    }
+
+    public long getRotationIntervalMillis() {
+        return rotationIntervalMillis;
+    }
+
+    public boolean isCollapsingRetweets() {
+        return collapseRetweets;
+    }
+}
@@ -0,0 +1,37 @@
+package org.apache.storm.starter.twitter;
+
+import java.util.List;
+
+/**
+ * The fields of a tweet our bolts read, whether projected eagerly ({@link TweetRecord}) or extracted on demand from
+ * the raw JSON ({@link RawTweet}).
+ */
+public interface Tweet {
+
+    long getId();
+
+    /**
+     * @return id of the retweeted status, {@link TweetRecord#NO_RETWEETED_STATUS} if this is no retweet
+     */
+    long getRetweetedStatusId();
+
+    long getCreatedAtMillis();
+
+    /**
+     * @return author id, {@link TweetRecord#UNKNOWN_USER_ID} if the tweet carried no user
+     */
+    long getUserId();
+
+    boolean hasUser();
+
+    int getFriendsCount();
+
+    String getLang();
+
+    String getText();
+
+    /**
+     * @return hashtags without the leading '#'
+     */
+    List<String> getHashtags();
+}
@@ -0,0 +1,70 @@
+package org.apache.storm.starter.twitter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Local filter file a spout polls for predicate updates at runtime, see {@link TweetPredicates} for the format.
+ * <p/>
+ * Spouts have no input streams, so a filter update is distributed as a file instead: ship it with the topology
+ * blobstore map (topology.blobstore.map='{"key":{"localname":"tweet-filter.properties"}}') and update the blob with
+ * "storm blobstore update", as in {@link org.apache.storm.starter.BlobStoreAPIWordCountTopology}. The file is checked
+ * at most once per poll interval and only re-parsed when its modification time changed.
+ */
+public class TweetFilterFile implements Serializable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TweetFilterFile.class);
+
+    private static final long serialVersionUID = 7429561021746612498L;
+
+    // Constants
+    public final static long DEFAULT_POLL_INTERVAL_MILLISEC = 5000L;
+
+    private final String fileName;
+    private final long pollIntervalMillis;
+    private transient long lastPollMillis;
+    private transient long lastModified;
+
+    /**
+     * Constructor
+     *
+     * @param fileName           path of the filter file, relative to the worker's working directory for blobs
+     * @param pollIntervalMillis
+     */
+    public TweetFilterFile(String fileName, long pollIntervalMillis) {
+        this.fileName = fileName;
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    /**
+     * Re-read the file if it is due and changed
+     *
+     * @param nowMillis
+     * @return the new predicate, or null if it did not change or could not be read
+     */
+    public TweetPredicate pollUpdate(long nowMillis) {
+        if (nowMillis - lastPollMillis < pollIntervalMillis) {
+            return null;
+        }
+        lastPollMillis = nowMillis;
+
+        File file = new File(fileName);
+        long modified = file.lastModified();
+        if (modified == 0L || modified == lastModified) {
+            return null;
+        }
+        try {
+            TweetPredicate predicate = TweetPredicates.parseFile(fileName);
+            lastModified = modified;
+            LOG.info("Updated tweet filter from {} to {}", fileName, predicate);
+            return predicate;
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Keeping the current tweet filter, failed to read {}", fileName, e);
+            return null;
+        }
+    }
+}
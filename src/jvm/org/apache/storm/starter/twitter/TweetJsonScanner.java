@@ -0,0 +1,364 @@
+package org.apache.storm.starter.twitter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Streaming scanner that extracts single fields from the UTF-8 JSON of a tweet without building an object tree.
+ * <p/>
+ * Lookups walk the top-level object key by key and skip every value that is not on the requested path without
+ * decoding it, so nested objects such as a retweeted status never shadow the fields of the tweet itself. Only the
+ * extracted value is materialized.
+ */
+public final class TweetJsonScanner {
+
+    // Constants
+    public final static byte[] ID = key("id");
+    public final static byte[] TEXT = key("text");
+    public final static byte[] CREATED_AT = key("created_at");
+    public final static byte[] LANG = key("lang");
+    public final static byte[] USER = key("user");
+    public final static byte[] FRIENDS_COUNT = key("friends_count");
+    public final static byte[] ENTITIES = key("entities");
+    public final static byte[] HASHTAGS = key("hashtags");
+    public final static byte[] RETWEETED_STATUS = key("retweeted_status");
+    private final static String[] MONTHS = {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct",
+            "Nov", "Dec"};
+    private final static int TWITTER_DATE_LENGTH = 30;
+    private final static long MILLIS_PER_SECOND = 1000L;
+    private final static long SECONDS_PER_DAY = 86400L;
+
+    private TweetJsonScanner() {
+    }
+
+    private static byte[] key(String name) {
+        return name.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Find the value at a path of object keys, e.g. {@link #USER}, {@link #FRIENDS_COUNT}
+     *
+     * @param json
+     * @param path keys of the nested objects, starting at the top-level object
+     * @return offset of the first byte of the value, or -1 if there is no such value
+     */
+    public static int findValue(byte[] json, byte[]... path) {
+        int position = skipWhitespace(json, 0);
+        for (byte[] key : path) {
+            if (position >= json.length || json[position] != '{') {
+                return -1;
+            }
+            position = findValueInObject(json, position, key);
+            if (position < 0) {
+                return -1;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Find the value of a key in the object starting at the given offset
+     *
+     * @param json
+     * @param objectStart offset of the opening brace
+     * @param key
+     * @return offset of the first byte of the value, or -1 if the object has no such key
+     */
+    public static int findValueInObject(byte[] json, int objectStart, byte[] key) {
+        int position = skipWhitespace(json, objectStart + 1);
+        while (position < json.length && json[position] == '"') {
+            int keyStart = position + 1;
+            int keyEnd = skipString(json, position) - 1;
+            position = skipWhitespace(json, keyEnd + 1);
+            if (position >= json.length || json[position] != ':') {
+                return -1;
+            }
+            position = skipWhitespace(json, position + 1);
+            if (regionEquals(json, keyStart, keyEnd, key)) {
+                return position;
+            }
+            position = skipWhitespace(json, skipValue(json, position));
+            if (position < json.length && json[position] == ',') {
+                position = skipWhitespace(json, position + 1);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param json
+     * @param position offset of the first byte of a value
+     * @return offset just behind the value
+     */
+    public static int skipValue(byte[] json, int position) {
+        if (position >= json.length) {
+            return json.length;
+        }
+        byte first = json[position];
+        if (first == '"') {
+            return skipString(json, position);
+        }
+        if (first == '{' || first == '[') {
+            int depth = 0;
+            while (position < json.length) {
+                byte b = json[position];
+                if (b == '"') {
+                    position = skipString(json, position);
+                    continue;
+                }
+                if (b == '{' || b == '[') {
+                    depth++;
+                } else if (b == '}' || b == ']') {
+                    depth--;
+                    if (depth == 0) {
+                        return position + 1;
+                    }
+                }
+                position++;
+            }
+            return position;
+        }
+        while (position < json.length) {
+            byte b = json[position];
+            if (b == ',' || b == '}' || b == ']' || b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                break;
+            }
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * @param json
+     * @param position offset of the opening quote
+     * @return offset just behind the closing quote
+     */
+    private static int skipString(byte[] json, int position) {
+        position++;
+        while (position < json.length) {
+            byte b = json[position];
+            if (b == '\\') {
+                position += 2;
+            } else if (b == '"') {
+                return position + 1;
+            } else {
+                position++;
+            }
+        }
+        return json.length;
+    }
+
+    private static int skipWhitespace(byte[] json, int position) {
+        while (position < json.length) {
+            byte b = json[position];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                break;
+            }
+            position++;
+        }
+        return position;
+    }
+
+    private static boolean regionEquals(byte[] json, int start, int end, byte[] key) {
+        if (end - start != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (json[start + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param json
+     * @param position offset of a value, may be -1
+     * @return whether the value is missing or JSON null
+     */
+    public static boolean isNull(byte[] json, int position) {
+        return position < 0 || position >= json.length || json[position] == 'n';
+    }
+
+    /**
+     * @param json
+     * @param position   offset of a number value, may be -1
+     * @param defaultValue returned for missing or non-numeric values
+     * @return the number
+     */
+    public static long readLong(byte[] json, int position, long defaultValue) {
+        if (position < 0 || position >= json.length) {
+            return defaultValue;
+        }
+        boolean negative = json[position] == '-';
+        if (negative) {
+            position++;
+        }
+        if (position >= json.length || json[position] < '0' || json[position] > '9') {
+            return defaultValue;
+        }
+        long value = 0;
+        while (position < json.length && json[position] >= '0' && json[position] <= '9') {
+            value = value * 10 + (json[position] - '0');
+            position++;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * @param json
+     * @param position offset of a string value, may be -1
+     * @return the decoded string, or null for missing or non-string values
+     */
+    public static String readString(byte[] json, int position) {
+        if (position < 0 || position >= json.length || json[position] != '"') {
+            return null;
+        }
+        int start = position + 1;
+        int end = start;
+        while (end < json.length && json[end] != '"' && json[end] != '\\') {
+            end++;
+        }
+        if (end < json.length && json[end] == '"') {
+            return new String(json, start, end - start, StandardCharsets.UTF_8);
+        }
+
+        // Slow path for strings with escape sequences
+        StringBuilder decoded = new StringBuilder(end - start + 16);
+        int segmentStart = start;
+        position = end;
+        while (position < json.length && json[position] != '"') {
+            if (json[position] != '\\') {
+                position++;
+                continue;
+            }
+            decoded.append(new String(json, segmentStart, position - segmentStart, StandardCharsets.UTF_8));
+            if (position + 1 >= json.length) {
+                break;
+            }
+            byte escaped = json[position + 1];
+            position += 2;
+            switch (escaped) {
+                case 'n':
+                    decoded.append('\n');
+                    break;
+                case 't':
+                    decoded.append('\t');
+                    break;
+                case 'r':
+                    decoded.append('\r');
+                    break;
+                case 'b':
+                    decoded.append('\b');
+                    break;
+                case 'f':
+                    decoded.append('\f');
+                    break;
+                case 'u':
+                    if (position + 4 <= json.length) {
+                        decoded.append((char) Integer.parseInt(new String(json, position, 4,
+                                StandardCharsets.US_ASCII), 16));
+                        position += 4;
+                    }
+                    break;
+                default:
+                    decoded.append((char) escaped);
+            }
+            segmentStart = position;
+        }
+        decoded.append(new String(json, segmentStart, Math.min(position, json.length) - segmentStart,
+                StandardCharsets.UTF_8));
+        return decoded.toString();
+    }
+
+    /**
+     * Read the texts of the objects in an array of objects, such as the hashtag entities
+     *
+     * @param json
+     * @param position offset of the array value, may be -1
+     * @param key      key of the text inside each object
+     * @return the texts, empty for missing values
+     */
+    public static List<String> readObjectArrayTexts(byte[] json, int position, byte[] key) {
+        if (position < 0 || position >= json.length || json[position] != '[') {
+            return Collections.emptyList();
+        }
+        List<String> texts = new ArrayList<>();
+        position = skipWhitespace(json, position + 1);
+        while (position < json.length && json[position] == '{') {
+            String text = readString(json, findValueInObject(json, position, key));
+            if (text != null) {
+                texts.add(text);
+            }
+            position = skipWhitespace(json, skipValue(json, position));
+            if (position < json.length && json[position] == ',') {
+                position = skipWhitespace(json, position + 1);
+            }
+        }
+        return texts;
+    }
+
+    /**
+     * Parse a Twitter timestamp such as "Mon Oct 30 12:00:00 +0000 2017"
+     *
+     * @param json
+     * @param position offset of the string value, may be -1
+     * @return epoch milliseconds, or 0 if the value is missing or malformed
+     */
+    public static long readTwitterDate(byte[] json, int position) {
+        if (position < 0 || position + 1 + TWITTER_DATE_LENGTH > json.length || json[position] != '"') {
+            return 0L;
+        }
+        int start = position + 1;
+        int month = -1;
+        for (int i = 0; i < MONTHS.length; i++) {
+            String name = MONTHS[i];
+            if (json[start + 4] == name.charAt(0) && json[start + 5] == name.charAt(1)
+                    && json[start + 6] == name.charAt(2)) {
+                month = i + 1;
+                break;
+            }
+        }
+        int day = digits(json, start + 8, 2);
+        int hour = digits(json, start + 11, 2);
+        int minute = digits(json, start + 14, 2);
+        int second = digits(json, start + 17, 2);
+        int offset = digits(json, start + 21, 4);
+        int year = digits(json, start + 26, 4);
+        if (month < 0 || day < 0 || hour < 0 || minute < 0 || second < 0 || offset < 0 || year < 0) {
+            return 0L;
+        }
+        long offsetSeconds = (offset / 100) * 3600L + (offset % 100) * 60L;
+        if (json[start + 20] == '-') {
+            offsetSeconds = -offsetSeconds;
+        }
+        long epochSeconds = daysSinceEpoch(year, month, day) * SECONDS_PER_DAY + hour * 3600L + minute * 60L + second
+                - offsetSeconds;
+        return epochSeconds * MILLIS_PER_SECOND;
+    }
+
+    private static int digits(byte[] json, int position, int count) {
+        int value = 0;
+        for (int i = position; i < position + count; i++) {
+            if (json[i] < '0' || json[i] > '9') {
+                return -1;
+            }
+            value = value * 10 + (json[i] - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Days since 1970-01-01 of a proleptic Gregorian date
+     */
+    private static long daysSinceEpoch(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468L;
+    }
+}
@@ -0,0 +1,71 @@
+package org.apache.storm.starter.twitter;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.Arrays;
+
+/**
+ * Layout of the tweet log, an append-only store of collected tweets that supports lookups by status id and scans by
+ * time without reading whole files.
+ * <p/>
+ * The log is a directory of fixed-size, memory-mapped segment files, each with a sparse index file next to it:
+ * <pre>
+ * segment: int magic | int version | long dataEnd | long recordCount | records...
+ * record:  int payloadLength | long statusId | long timestampMillis | byte[payloadLength] payload (tweet text, UTF-8)
+ * index:   int magic | int version | int entryCount | entries...
+ * entry:   int blockOffset | int blockEnd | long minStatusId | long maxStatusId | long minTimestamp | long maxTimestamp
+ * </pre>
+ * Every index entry covers a block of consecutive records of roughly the index interval in size. Tweets arrive almost,
+ * but not exactly, in id and time order, so the entries store the range of their block instead of its first key and
+ * a lookup checks every block whose range covers the key. A payload length of zero marks the end of the written data:
+ * a segment that was not sealed (e.g. because the writing process died) has a data end of zero and no index file, and
+ * is recovered by scanning it up to its last complete record.
+ */
+public final class TweetLogFormat {
+
+    // Constants
+    public final static int SEGMENT_MAGIC = 0x54574C47;
+    public final static int INDEX_MAGIC = 0x54574C49;
+    public final static int VERSION = 1;
+    public final static int SEGMENT_HEADER_SIZE = 24;
+    public final static int DATA_END_OFFSET = 8;
+    public final static int RECORD_COUNT_OFFSET = 16;
+    public final static int RECORD_OVERHEAD = 20;
+    public final static int INDEX_HEADER_SIZE = 12;
+    public final static int INDEX_ENTRY_SIZE = 40;
+    public final static String SEGMENT_FILE_SUFFIX = ".log";
+    public final static String INDEX_FILE_SUFFIX = ".idx";
+
+    private TweetLogFormat() {
+    }
+
+    /**
+     * List the segment files of a log directory in the order they were written
+     *
+     * @param directory
+     * @return segment files sorted by name, or an empty array if the directory does not exist
+     */
+    public static File[] listSegments(File directory) {
+        File[] segments = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(SEGMENT_FILE_SUFFIX);
+            }
+        });
+        if (segments == null) {
+            return new File[0];
+        }
+        Arrays.sort(segments);
+        return segments;
+    }
+
+    /**
+     * @param segmentFile
+     * @return the index file belonging to a segment
+     */
+    public static File indexFileOf(File segmentFile) {
+        String name = segmentFile.getName();
+        return new File(segmentFile.getParentFile(),
+                name.substring(0, name.length() - SEGMENT_FILE_SUFFIX.length()) + INDEX_FILE_SUFFIX);
+    }
+}
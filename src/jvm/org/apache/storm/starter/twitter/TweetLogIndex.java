@@ -0,0 +1,169 @@
+package org.apache.storm.starter.twitter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Sparse index of a tweet log segment (see {@link TweetLogFormat}): the status id and timestamp range of every block
+ * of records, kept in parallel primitive arrays.
+ */
+final class TweetLogIndex {
+
+    // Constants
+    private final static int INITIAL_CAPACITY = 64;
+
+    private int size;
+    private int[] blockOffsets = new int[INITIAL_CAPACITY];
+    private int[] blockEnds = new int[INITIAL_CAPACITY];
+    private long[] minStatusIds = new long[INITIAL_CAPACITY];
+    private long[] maxStatusIds = new long[INITIAL_CAPACITY];
+    private long[] minTimestamps = new long[INITIAL_CAPACITY];
+    private long[] maxTimestamps = new long[INITIAL_CAPACITY];
+    private long minStatusId = Long.MAX_VALUE;
+    private long maxStatusId = Long.MIN_VALUE;
+
+    /**
+     * Add a record to the last block, or start a new block with it once the last one spans the index interval
+     *
+     * @param offset          position of the record in the segment
+     * @param end             position right after the record
+     * @param statusId
+     * @param timestampMillis
+     * @param intervalBytes   block size after which a new block is started
+     */
+    void add(int offset, int end, long statusId, long timestampMillis, int intervalBytes) {
+        minStatusId = Math.min(minStatusId, statusId);
+        maxStatusId = Math.max(maxStatusId, statusId);
+        int last = size - 1;
+        if (size == 0 || blockEnds[last] - blockOffsets[last] >= intervalBytes) {
+            if (size == blockOffsets.length) {
+                grow();
+            }
+            blockOffsets[size] = offset;
+            blockEnds[size] = end;
+            minStatusIds[size] = statusId;
+            maxStatusIds[size] = statusId;
+            minTimestamps[size] = timestampMillis;
+            maxTimestamps[size] = timestampMillis;
+            size++;
+            return;
+        }
+        blockEnds[last] = end;
+        minStatusIds[last] = Math.min(minStatusIds[last], statusId);
+        maxStatusIds[last] = Math.max(maxStatusIds[last], statusId);
+        minTimestamps[last] = Math.min(minTimestamps[last], timestampMillis);
+        maxTimestamps[last] = Math.max(maxTimestamps[last], timestampMillis);
+    }
+
+    private void grow() {
+        int capacity = blockOffsets.length * 2;
+        blockOffsets = Arrays.copyOf(blockOffsets, capacity);
+        blockEnds = Arrays.copyOf(blockEnds, capacity);
+        minStatusIds = Arrays.copyOf(minStatusIds, capacity);
+        maxStatusIds = Arrays.copyOf(maxStatusIds, capacity);
+        minTimestamps = Arrays.copyOf(minTimestamps, capacity);
+        maxTimestamps = Arrays.copyOf(maxTimestamps, capacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int blockOffset(int block) {
+        return blockOffsets[block];
+    }
+
+    int blockEnd(int block) {
+        return blockEnds[block];
+    }
+
+    boolean blockMayContainStatusId(int block, long statusId) {
+        return statusId >= minStatusIds[block] && statusId <= maxStatusIds[block];
+    }
+
+    /**
+     * @return whether any block may contain the status id
+     */
+    boolean mayContainStatusId(long statusId) {
+        return size > 0 && statusId >= minStatusId && statusId <= maxStatusId;
+    }
+
+    boolean blockOverlapsTime(int block, long fromMillis, long toMillis) {
+        return maxTimestamps[block] >= fromMillis && minTimestamps[block] < toMillis;
+    }
+
+    /**
+     * Write the index to a file, replacing its contents
+     *
+     * @param indexFile
+     * @throws IOException
+     */
+    void write(File indexFile) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(TweetLogFormat.INDEX_HEADER_SIZE
+                + size * TweetLogFormat.INDEX_ENTRY_SIZE);
+        buffer.putInt(TweetLogFormat.INDEX_MAGIC).putInt(TweetLogFormat.VERSION).putInt(size);
+        for (int block = 0; block < size; block++) {
+            buffer.putInt(blockOffsets[block]).putInt(blockEnds[block])
+                    .putLong(minStatusIds[block]).putLong(maxStatusIds[block])
+                    .putLong(minTimestamps[block]).putLong(maxTimestamps[block]);
+        }
+        buffer.flip();
+        try (RandomAccessFile file = new RandomAccessFile(indexFile, "rw")) {
+            file.setLength(0);
+            FileChannel channel = file.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Read an index written by {@link #write(File)}
+     *
+     * @param indexFile
+     * @return the index
+     * @throws IOException if the file can not be read or is not a complete tweet log index
+     */
+    static TweetLogIndex read(File indexFile) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(indexFile, "r")) {
+            if (file.length() < TweetLogFormat.INDEX_HEADER_SIZE) {
+                throw new IOException("Not a tweet log index file: " + indexFile);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) file.length());
+            FileChannel channel = file.getChannel();
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Read until the buffer is full
+            }
+            buffer.flip();
+            if (buffer.getInt() != TweetLogFormat.INDEX_MAGIC || buffer.getInt() != TweetLogFormat.VERSION) {
+                throw new IOException("Not a tweet log index file of version " + TweetLogFormat.VERSION + ": "
+                        + indexFile);
+            }
+            int entryCount = buffer.getInt();
+            if (buffer.remaining() != (long) entryCount * TweetLogFormat.INDEX_ENTRY_SIZE) {
+                throw new IOException("Truncated tweet log index file: " + indexFile);
+            }
+            TweetLogIndex index = new TweetLogIndex();
+            for (int block = 0; block < entryCount; block++) {
+                if (index.size == index.blockOffsets.length) {
+                    index.grow();
+                }
+                index.blockOffsets[block] = buffer.getInt();
+                index.blockEnds[block] = buffer.getInt();
+                index.minStatusIds[block] = buffer.getLong();
+                index.maxStatusIds[block] = buffer.getLong();
+                index.minTimestamps[block] = buffer.getLong();
+                index.maxTimestamps[block] = buffer.getLong();
+                index.minStatusId = Math.min(index.minStatusId, index.minStatusIds[block]);
+                index.maxStatusId = Math.max(index.maxStatusId, index.maxStatusIds[block]);
+                index.size++;
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package org.apache.storm.starter.twitter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a tweet log (see {@link TweetLogFormat}) through its sparse indexes.
+ * <p/>
+ * All segments are memory-mapped when the reader is opened, but only the blocks whose index entry covers the key are
+ * touched: a point lookup reads the few blocks whose status id range contains the id, and a time-range scan the blocks
+ * whose time range overlaps the requested one. Segments that were not sealed are scanned once to rebuild their index.
+ */
+public class TweetLogReader implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TweetLogReader.class);
+
+    private final List<Segment> segments = new ArrayList<>();
+
+    private static final class Segment {
+        private final File file;
+        private final MappedByteBuffer buffer;
+        private final TweetLogIndex index;
+
+        private Segment(File file, MappedByteBuffer buffer, TweetLogIndex index) {
+            this.file = file;
+            this.buffer = buffer;
+            this.index = index;
+        }
+    }
+
+    /**
+     * Constructor, maps the segments of the log and loads their indexes
+     *
+     * @param directory directory of the log
+     * @throws IOException if a segment can not be mapped or is not a tweet log segment
+     */
+    public TweetLogReader(File directory) throws IOException {
+        for (File segmentFile : TweetLogFormat.listSegments(directory)) {
+            segments.add(openSegment(segmentFile));
+        }
+    }
+
+    private static Segment openSegment(File segmentFile) throws IOException {
+        MappedByteBuffer buffer;
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile, "r")) {
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+        }
+        if (buffer.limit() < TweetLogFormat.SEGMENT_HEADER_SIZE || buffer.getInt(0) != TweetLogFormat.SEGMENT_MAGIC) {
+            throw new IOException("Not a tweet log segment file: " + segmentFile);
+        }
+        if (buffer.getInt(4) != TweetLogFormat.VERSION) {
+            throw new IOException("Unsupported tweet log version " + buffer.getInt(4) + " in " + segmentFile);
+        }
+
+        long dataEnd = buffer.getLong(TweetLogFormat.DATA_END_OFFSET);
+        File indexFile = TweetLogFormat.indexFileOf(segmentFile);
+        if (dataEnd > 0 && indexFile.isFile()) {
+            buffer.limit((int) Math.min(dataEnd, buffer.limit()));
+            return new Segment(segmentFile, buffer, TweetLogIndex.read(indexFile));
+        }
+        LOG.info("Rebuilding the index of unsealed tweet log segment {}", segmentFile);
+        return new Segment(segmentFile, buffer, rebuildIndex(buffer));
+    }
+
+    private static TweetLogIndex rebuildIndex(ByteBuffer buffer) {
+        TweetLogIndex index = new TweetLogIndex();
+        int position = TweetLogFormat.SEGMENT_HEADER_SIZE;
+        int end;
+        while ((end = recordEnd(buffer, position)) > 0) {
+            index.add(position, end, buffer.getLong(position + 4), buffer.getLong(position + 12),
+                    TweetLogWriter.DEFAULT_INDEX_INTERVAL_BYTES);
+            position = end;
+        }
+        return index;
+    }
+
+    /**
+     * @return the position after the record at the given position, or 0 at the end of the written data
+     */
+    private static int recordEnd(ByteBuffer buffer, int position) {
+        if (position + TweetLogFormat.RECORD_OVERHEAD > buffer.limit()) {
+            return 0;
+        }
+        int length = buffer.getInt(position);
+        if (length <= 0 || length > buffer.limit() - position - TweetLogFormat.RECORD_OVERHEAD) {
+            return 0;
+        }
+        return position + TweetLogFormat.RECORD_OVERHEAD + length;
+    }
+
+    /**
+     * Look up the text of a tweet
+     *
+     * @param statusId
+     * @return the text of the first record with the status id, or null if the log does not contain it
+     */
+    public String lookup(long statusId) {
+        for (Segment segment : segments) {
+            TweetLogIndex index = segment.index;
+            if (!index.mayContainStatusId(statusId)) {
+                continue;
+            }
+            for (int block = 0; block < index.size(); block++) {
+                if (!index.blockMayContainStatusId(block, statusId)) {
+                    continue;
+                }
+                ByteBuffer buffer = segment.buffer;
+                int position = index.blockOffset(block);
+                int blockEnd = index.blockEnd(block);
+                while (position < blockEnd) {
+                    int end = recordEnd(buffer, position);
+                    if (end == 0) {
+                        break;
+                    }
+                    if (buffer.getLong(position + 4) == statusId) {
+                        return decode(buffer, position + TweetLogFormat.RECORD_OVERHEAD, end);
+                    }
+                    position = end;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Scan the tweets within a time range
+     *
+     * @param fromMillis inclusive
+     * @param toMillis   exclusive
+     * @return a cursor over the matching records in log order, which is only roughly time order
+     */
+    public Cursor scan(long fromMillis, long toMillis) {
+        return new Cursor(fromMillis, toMillis);
+    }
+
+    /**
+     * @return number of segments in the log
+     */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    private static String decode(ByteBuffer buffer, int from, int to) {
+        ByteBuffer payload = buffer.duplicate();
+        payload.limit(to).position(from);
+        return StandardCharsets.UTF_8.decode(payload).toString();
+    }
+
+    /**
+     * Releases the segments; the mapped memory is freed once the buffers are garbage collected
+     */
+    @Override
+    public void close() {
+        segments.clear();
+    }
+
+    /**
+     * Cursor over the records of a time-range scan: {@link #advance()} moves to the next matching record, after which
+     * its fields can be read without copying the payload onto the heap.
+     */
+    public final class Cursor {
+
+        private final long fromMillis;
+        private final long toMillis;
+        private int segmentIndex = 0;
+        private int block = -1;
+        private int blockEnd = 0;
+        private int position = 0;
+        private Segment segment;
+        private int recordOffset;
+        private int recordEnd;
+
+        private Cursor(long fromMillis, long toMillis) {
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+        }
+
+        /**
+         * Move to the next record within the time range
+         *
+         * @return false once all overlapping blocks have been read
+         */
+        public boolean advance() {
+            while (true) {
+                while (position < blockEnd) {
+                    int end = recordEnd(segment.buffer, position);
+                    if (end == 0) {
+                        break;
+                    }
+                    int offset = position;
+                    position = end;
+                    long timestampMillis = segment.buffer.getLong(offset + 12);
+                    if (timestampMillis >= fromMillis && timestampMillis < toMillis) {
+                        recordOffset = offset;
+                        recordEnd = end;
+                        return true;
+                    }
+                }
+                if (!nextBlock()) {
+                    return false;
+                }
+            }
+        }
+
+        private boolean nextBlock() {
+            while (segmentIndex < segments.size()) {
+                segment = segments.get(segmentIndex);
+                TweetLogIndex index = segment.index;
+                while (++block < index.size()) {
+                    if (index.blockOverlapsTime(block, fromMillis, toMillis)) {
+                        position = index.blockOffset(block);
+                        blockEnd = index.blockEnd(block);
+                        return true;
+                    }
+                }
+                segmentIndex++;
+                block = -1;
+            }
+            position = 0;
+            blockEnd = 0;
+            return false;
+        }
+
+        public long statusId() {
+            return segment.buffer.getLong(recordOffset + 4);
+        }
+
+        public long timestampMillis() {
+            return segment.buffer.getLong(recordOffset + 12);
+        }
+
+        /**
+         * @return a read-only view of the current record's UTF-8 text that shares the mapped memory
+         */
+        public ByteBuffer payload() {
+            ByteBuffer view = segment.buffer.duplicate();
+            view.limit(recordEnd).position(recordOffset + TweetLogFormat.RECORD_OVERHEAD);
+            return view.slice().asReadOnlyBuffer();
+        }
+
+        /**
+         * @return the current record's text
+         */
+        public String text() {
+            return decode(segment.buffer, recordOffset + TweetLogFormat.RECORD_OVERHEAD, recordEnd);
+        }
+
+        /**
+         * @return the segment file of the current record
+         */
+        public File getSegmentFile() {
+            return segment.file;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package org.apache.storm.starter.twitter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Appends tweets to a tweet log (see {@link TweetLogFormat}).
+ * <p/>
+ * Each segment is created at its full size and memory-mapped, and the tweet text is encoded straight into the mapping,
+ * so an append neither copies the tweet onto the heap nor makes a system call. The writer rotates to a new segment
+ * once the next record does not fit or the segment has been open longer than the configured time; sealing a segment
+ * stores its data end in the header, truncates the unused tail and writes the sparse index next to it.
+ * <p/>
+ * Not thread-safe, meant to be owned by a single bolt task.
+ */
+public class TweetLogWriter implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TweetLogWriter.class);
+
+    // Constants
+    public final static int DEFAULT_SEGMENT_BYTES = 64 * 1024 * 1024;
+    public final static int DEFAULT_INDEX_INTERVAL_BYTES = 4096;
+    public final static long NO_TIME_ROTATION = 0L;
+    private final static String SEGMENT_FILE_NAME_FORMAT = "tweets-%013d-%06d" + TweetLogFormat.SEGMENT_FILE_SUFFIX;
+
+    private final File directory;
+    private final int segmentBytes;
+    private final long maxSegmentMillis;
+    private final int indexIntervalBytes;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private File segmentPath;
+    private MappedByteBuffer segment;
+    private TweetLogIndex index;
+    private long segmentStartMillis;
+    private long segmentRecordCount;
+    private int segmentSequence = 0;
+    private long writtenCount = 0;
+
+    /**
+     * Constructor
+     *
+     * @param directory          directory of the log, created if needed
+     * @param segmentBytes       size of each segment
+     * @param maxSegmentMillis   time after which a segment is sealed even if it is not full, or
+     *                           {@link #NO_TIME_ROTATION}
+     * @param indexIntervalBytes size of the blocks of records covered by one index entry
+     * @throws IOException if the directory can not be created
+     */
+    public TweetLogWriter(File directory, int segmentBytes, long maxSegmentMillis, int indexIntervalBytes)
+            throws IOException {
+        if (segmentBytes <= TweetLogFormat.SEGMENT_HEADER_SIZE + TweetLogFormat.RECORD_OVERHEAD) {
+            throw new IllegalArgumentException("Segment size must be larger than the segment header (you requested "
+                    + segmentBytes + ")");
+        }
+        if (indexIntervalBytes <= 0) {
+            throw new IllegalArgumentException("Index interval must be positive (you requested "
+                    + indexIntervalBytes + ")");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create tweet log directory " + directory);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegmentMillis = maxSegmentMillis;
+        this.indexIntervalBytes = indexIntervalBytes;
+    }
+
+    /**
+     * Append a tweet, rotating first if the current segment is due
+     *
+     * @param statusId
+     * @param timestampMillis e.g. the creation time of the tweet
+     * @param text
+     * @throws IOException if a segment can not be created or sealed, or the tweet does not even fit into an empty one
+     */
+    public void append(long statusId, long timestampMillis, CharSequence text) throws IOException {
+        rotateIfDue(System.currentTimeMillis());
+        if (segment == null) {
+            startSegment();
+        }
+        if (!tryAppend(statusId, timestampMillis, text)) {
+            if (segmentRecordCount == 0) {
+                throw new IOException("Tweet " + statusId + " does not fit into a segment of "
+                        + segmentBytes + " bytes");
+            }
+            sealSegment();
+            startSegment();
+            if (!tryAppend(statusId, timestampMillis, text)) {
+                throw new IOException("Tweet " + statusId + " does not fit into a segment of "
+                        + segmentBytes + " bytes");
+            }
+        }
+        writtenCount++;
+    }
+
+    /**
+     * Encode the record behind the last one, leaving the segment untouched if it does not fit
+     */
+    private boolean tryAppend(long statusId, long timestampMillis, CharSequence text) {
+        int offset = segment.position();
+        if (segment.remaining() < TweetLogFormat.RECORD_OVERHEAD) {
+            return false;
+        }
+        segment.position(offset + TweetLogFormat.RECORD_OVERHEAD);
+        encoder.reset();
+        CharBuffer chars = CharBuffer.wrap(text == null ? "" : text);
+        CoderResult result = encoder.encode(chars, segment, true);
+        if (!result.isOverflow()) {
+            result = encoder.flush(segment);
+        }
+        int payloadLength = segment.position() - offset - TweetLogFormat.RECORD_OVERHEAD;
+        if (result.isOverflow()) {
+            // Zero the partial payload again, a zero length must keep marking the end of the data
+            for (int i = offset; i < segment.position(); i++) {
+                segment.put(i, (byte) 0);
+            }
+            segment.position(offset);
+            return false;
+        }
+        if (payloadLength == 0) {
+            // An empty payload would read as the end of the data, store a single space instead
+            segment.put((byte) ' ');
+            payloadLength = 1;
+        }
+        segment.putInt(offset, payloadLength);
+        segment.putLong(offset + 4, statusId);
+        segment.putLong(offset + 12, timestampMillis);
+        index.add(offset, segment.position(), statusId, timestampMillis, indexIntervalBytes);
+        segmentRecordCount++;
+        return true;
+    }
+
+    /**
+     * Seal the current segment if it has been open longer than the configured time, e.g. called on tick tuples so
+     * that idle segments are sealed too
+     *
+     * @param nowMillis
+     * @throws IOException
+     */
+    public void rotateIfDue(long nowMillis) throws IOException {
+        if (segment != null && maxSegmentMillis != NO_TIME_ROTATION && segmentRecordCount > 0 &&
+                nowMillis - segmentStartMillis >= maxSegmentMillis) {
+            sealSegment();
+        }
+    }
+
+    /**
+     * Force the records written so far to disk
+     */
+    public void flush() {
+        if (segment != null) {
+            segment.force();
+        }
+    }
+
+    /**
+     * @return number of tweets appended so far
+     */
+    public long getWrittenCount() {
+        return writtenCount;
+    }
+
+    private void startSegment() throws IOException {
+        segmentStartMillis = System.currentTimeMillis();
+        segmentPath = new File(directory, String.format(SEGMENT_FILE_NAME_FORMAT, segmentStartMillis,
+                segmentSequence++));
+        try (RandomAccessFile file = new RandomAccessFile(segmentPath, "rw")) {
+            if (file.length() != 0) {
+                throw new IOException("Tweet log segment already exists: " + segmentPath);
+            }
+            file.setLength(segmentBytes);
+            // The mapping stays valid after the file is closed
+            segment = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        segment.putInt(TweetLogFormat.SEGMENT_MAGIC).putInt(TweetLogFormat.VERSION).putLong(0L).putLong(0L);
+        index = new TweetLogIndex();
+        segmentRecordCount = 0;
+    }
+
+    private void sealSegment() throws IOException {
+        int dataEnd = segment.position();
+        segment.putLong(TweetLogFormat.DATA_END_OFFSET, dataEnd);
+        segment.putLong(TweetLogFormat.RECORD_COUNT_OFFSET, segmentRecordCount);
+        segment.force();
+        segment = null;
+        try (RandomAccessFile file = new RandomAccessFile(segmentPath, "rw")) {
+            file.setLength(dataEnd);
+        }
+        index.write(TweetLogFormat.indexFileOf(segmentPath));
+        LOG.info("Sealed tweet log segment {} with {} tweets", segmentPath, segmentRecordCount);
+        index = null;
+    }
+
+    /**
+     * Seal the current segment
+     */
+    @Override
+    public void close() throws IOException {
+        if (segment != null) {
+            if (segmentRecordCount > 0) {
+                sealSegment();
+            } else {
+                segment = null;
+                index = null;
+                if (!segmentPath.delete()) {
+                    LOG.warn("Could not delete empty tweet log segment {}", segmentPath);
+                }
+            }
+        }
+    }
+}
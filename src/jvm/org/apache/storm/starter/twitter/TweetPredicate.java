@@ -0,0 +1,13 @@
+package org.apache.storm.starter.twitter;
+
+import java.io.Serializable;
+
+/**
+ * Condition a tweet has to meet to be emitted, evaluated by the ingestion spouts before a tweet is queued so that
+ * rejected tweets are never serialized or transferred. Implementations must be cheap and side effect free; see
+ * {@link TweetPredicates} for the common ones.
+ */
+public interface TweetPredicate extends Serializable {
+
+    boolean accept(Tweet tweet);
+}
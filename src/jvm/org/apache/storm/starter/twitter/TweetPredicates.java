@@ -0,0 +1,180 @@
+package org.apache.storm.starter.twitter;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Factory of the {@link TweetPredicate}s the spouts can evaluate, and the parser of filter files.
+ * <p/>
+ * A filter file is a properties file with any of the keys {@value #FRIENDS_COUNT_BELOW_KEY} (an integer) and
+ * {@value #TEXT_CONTAINS_ANY_KEY} (a comma separated list). All given conditions have to hold; the cheap friends
+ * count check is evaluated first, so raw tweets failing it never have their text extracted.
+ */
+public final class TweetPredicates {
+
+    // Constants
+    public final static String FRIENDS_COUNT_BELOW_KEY = "friendsCountBelow";
+    public final static String TEXT_CONTAINS_ANY_KEY = "textContainsAny";
+    private final static String LIST_SEPARATOR = ",";
+
+    private TweetPredicates() {
+    }
+
+    /**
+     * @return predicate accepting every tweet
+     */
+    public static TweetPredicate acceptAll() {
+        return new AllOf(new TweetPredicate[0]);
+    }
+
+    /**
+     * @param maxFriendsCount exclusive bound
+     * @return predicate accepting tweets with a user having fewer friends than the bound
+     */
+    public static TweetPredicate friendsCountBelow(int maxFriendsCount) {
+        return new FriendsCountBelow(maxFriendsCount);
+    }
+
+    /**
+     * @param substrings
+     * @return predicate accepting tweets whose text contains any of the substrings, ignoring case
+     */
+    public static TweetPredicate textContainsAny(Collection<String> substrings) {
+        return new TextContainsAny(substrings);
+    }
+
+    /**
+     * @param predicates evaluated in the given order
+     * @return predicate accepting tweets accepted by all predicates
+     */
+    public static TweetPredicate allOf(TweetPredicate... predicates) {
+        return new AllOf(predicates.clone());
+    }
+
+    /**
+     * Parse a filter file
+     *
+     * @param fileName
+     * @return the conjunction of the conditions in the file
+     * @throws IOException
+     */
+    public static TweetPredicate parseFile(String fileName) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream inputStream = new FileInputStream(fileName)) {
+            properties.load(inputStream);
+        }
+        return parse(properties);
+    }
+
+    /**
+     * @param properties
+     * @return the conjunction of the conditions in the properties
+     */
+    public static TweetPredicate parse(Properties properties) {
+        List<TweetPredicate> predicates = new ArrayList<>();
+        String friendsCountBelow = properties.getProperty(FRIENDS_COUNT_BELOW_KEY);
+        if (friendsCountBelow != null) {
+            predicates.add(friendsCountBelow(Integer.parseInt(friendsCountBelow.trim())));
+        }
+        String textContainsAny = properties.getProperty(TEXT_CONTAINS_ANY_KEY);
+        if (textContainsAny != null) {
+            List<String> substrings = new ArrayList<>();
+            for (String substring : textContainsAny.split(LIST_SEPARATOR)) {
+                if (!substring.trim().isEmpty()) {
+                    substrings.add(substring.trim());
+                }
+            }
+            predicates.add(textContainsAny(substrings));
+        }
+        return new AllOf(predicates.toArray(new TweetPredicate[predicates.size()]));
+    }
+
+    private static final class FriendsCountBelow implements TweetPredicate {
+
+        private static final long serialVersionUID = 2280718744146208934L;
+
+        private final int maxFriendsCount;
+
+        FriendsCountBelow(int maxFriendsCount) {
+            this.maxFriendsCount = maxFriendsCount;
+        }
+
+        @Override
+        public boolean accept(Tweet tweet) {
+            return tweet.hasUser() && tweet.getFriendsCount() < maxFriendsCount;
+        }
+
+        @Override
+        public String toString() {
+            return FRIENDS_COUNT_BELOW_KEY + "=" + maxFriendsCount;
+        }
+    }
+
+    private static final class TextContainsAny implements TweetPredicate {
+
+        private static final long serialVersionUID = -6154386120962716052L;
+
+        private final String[] substrings;
+
+        TextContainsAny(Collection<String> substrings) {
+            this.substrings = new String[substrings.size()];
+            int i = 0;
+            for (String substring : substrings) {
+                this.substrings[i++] = substring.toLowerCase(Locale.ROOT);
+            }
+        }
+
+        @Override
+        public boolean accept(Tweet tweet) {
+            String text = tweet.getText();
+            if (text == null) {
+                return false;
+            }
+            text = text.toLowerCase(Locale.ROOT);
+            for (String substring : substrings) {
+                if (text.contains(substring)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return TEXT_CONTAINS_ANY_KEY + "=" + Arrays.toString(substrings);
+        }
+    }
+
+    private static final class AllOf implements TweetPredicate {
+
+        private static final long serialVersionUID = 3805457104628339180L;
+
+        private final TweetPredicate[] predicates;
+
+        AllOf(TweetPredicate[] predicates) {
+            this.predicates = predicates;
+        }
+
+        @Override
+        public boolean accept(Tweet tweet) {
+            for (TweetPredicate predicate : predicates) {
+                if (!predicate.accept(tweet)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(predicates);
+        }
+    }
+}
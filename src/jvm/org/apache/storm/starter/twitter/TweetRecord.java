@@ -0,0 +1,155 @@
+package org.apache.storm.starter.twitter;
+
+import twitter4j.HashtagEntity;
+import twitter4j.Status;
+import twitter4j.User;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compact, immutable projection of a tweet holding only the fields our bolts read.
+ * <p/>
+ * Emitting this instead of a full {@link Status} keeps the user object, entities and raw JSON off the wire. It is
+ * serialized between workers by {@link TweetRecordSerializer}, which has to be registered with the topology
+ * configuration.
+ */
+public final class TweetRecord implements Tweet, Serializable {
+
+    private static final long serialVersionUID = -4317262183092756311L;
+
+    // Constants
+    public final static long UNKNOWN_USER_ID = -1L;
+    public final static long NO_RETWEETED_STATUS = -1L;
+
+    private final long id;
+    private final long retweetedStatusId;
+    private final long createdAtMillis;
+    private final long userId;
+    private final int friendsCount;
+    private final String lang;
+    private final String text;
+    private final List<String> hashtags;
+
+    /**
+     * Constructor
+     *
+     * @param id                status id
+     * @param retweetedStatusId id of the retweeted status, {@link #NO_RETWEETED_STATUS} if this is no retweet
+     * @param createdAtMillis   creation time of the status
+     * @param userId            author id, {@link #UNKNOWN_USER_ID} if the status carried no user
+     * @param friendsCount      friends count of the author
+     * @param lang              language code, may be null
+     * @param text              status text
+     * @param hashtags          hashtags without the leading '#'
+     */
+    public TweetRecord(long id, long retweetedStatusId, long createdAtMillis, long userId, int friendsCount,
+                       String lang, String text, List<String> hashtags) {
+        this.id = id;
+        this.retweetedStatusId = retweetedStatusId;
+        this.createdAtMillis = createdAtMillis;
+        this.userId = userId;
+        this.friendsCount = friendsCount;
+        this.lang = lang;
+        this.text = text;
+        this.hashtags = Collections.unmodifiableList(new ArrayList<>(hashtags));
+    }
+
+    /**
+     * Project a twitter4j status onto a record
+     *
+     * @param status
+     * @return the record
+     */
+    public static TweetRecord fromStatus(Status status) {
+        User user = status.getUser();
+        HashtagEntity[] hashtagEntities = status.getHashtagEntities();
+        String[] hashtags = new String[hashtagEntities == null ? 0 : hashtagEntities.length];
+        for (int i = 0; i < hashtags.length; i++) {
+            hashtags[i] = hashtagEntities[i].getText();
+        }
+        return new TweetRecord(status.getId(),
+                status.getRetweetedStatus() == null ? NO_RETWEETED_STATUS : status.getRetweetedStatus().getId(),
+                status.getCreatedAt() == null ? 0L : status.getCreatedAt().getTime(),
+                user == null ? UNKNOWN_USER_ID : user.getId(),
+                user == null ? 0 : user.getFriendsCount(),
+                status.getLang(),
+                status.getText(),
+                Arrays.asList(hashtags));
+    }
+
+    @Override
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public long getRetweetedStatusId() {
+        return retweetedStatusId;
+    }
+
+    @Override
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    @Override
+    public long getUserId() {
+        return userId;
+    }
+
+    @Override
+    public boolean hasUser() {
+        return userId != UNKNOWN_USER_ID;
+    }
+
+    @Override
+    public int getFriendsCount() {
+        return friendsCount;
+    }
+
+    @Override
+    public String getLang() {
+        return lang;
+    }
+
+    @Override
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public List<String> getHashtags() {
+        return hashtags;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof TweetRecord)) {
+            return false;
+        }
+        TweetRecord record = (TweetRecord) other;
+        return id == record.id && retweetedStatusId == record.retweetedStatusId
+                && createdAtMillis == record.createdAtMillis && userId == record.userId
+                && friendsCount == record.friendsCount
+                && (lang == null ? record.lang == null : lang.equals(record.lang))
+                && (text == null ? record.text == null : text.equals(record.text)) && hashtags.equals(record.hashtags);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (id ^ (id >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "TweetRecord{id=" + id + ", userId=" + userId + ", friendsCount=" + friendsCount + ", text=" + text
+                + ", hashtags=" + hashtags + "}";
+    }
+}
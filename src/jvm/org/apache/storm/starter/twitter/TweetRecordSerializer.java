@@ -0,0 +1,62 @@
+package org.apache.storm.starter.twitter;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.apache.storm.Config;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Kryo serializer for {@link TweetRecord}, writing the fields back to back without any class or field metadata.
+ */
+public class TweetRecordSerializer extends Serializer<TweetRecord> {
+
+    public TweetRecordSerializer() {
+        setImmutable(true);
+    }
+
+    /**
+     * Register the serializer with a topology configuration
+     *
+     * @param stormConfig
+     */
+    public static void register(Config stormConfig) {
+        stormConfig.registerSerialization(TweetRecord.class, TweetRecordSerializer.class);
+    }
+
+    @Override
+    public void write(Kryo kryo, Output output, TweetRecord record) {
+        output.writeLong(record.getId());
+        output.writeLong(record.getRetweetedStatusId());
+        output.writeLong(record.getCreatedAtMillis());
+        output.writeLong(record.getUserId());
+        output.writeInt(record.getFriendsCount(), true);
+        output.writeString(record.getLang());
+        output.writeString(record.getText());
+        List<String> hashtags = record.getHashtags();
+        output.writeInt(hashtags.size(), true);
+        for (String hashtag : hashtags) {
+            output.writeString(hashtag);
+        }
+    }
+
+    @Override
+    public TweetRecord read(Kryo kryo, Input input, Class<TweetRecord> type) {
+        long id = input.readLong();
+        long retweetedStatusId = input.readLong();
+        long createdAtMillis = input.readLong();
+        long userId = input.readLong();
+        int friendsCount = input.readInt(true);
+        String lang = input.readString();
+        String text = input.readString();
+        String[] hashtags = new String[input.readInt(true)];
+        for (int i = 0; i < hashtags.length; i++) {
+            hashtags[i] = input.readString();
+        }
+        return new TweetRecord(id, retweetedStatusId, createdAtMillis, userId, friendsCount, lang, text,
+                Arrays.asList(hashtags));
+    }
+}
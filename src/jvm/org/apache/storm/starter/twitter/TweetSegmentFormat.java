@@ -0,0 +1,55 @@
+package org.apache.storm.starter.twitter;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.Arrays;
+
+/**
+ * Layout of the tweet capture segment files.
+ * <p/>
+ * A segment starts with a fixed size header followed by length-prefixed records:
+ * <pre>
+ * header:  int magic | int version | long recordCount | long firstTimestampMillis | long lastTimestampMillis
+ * record:  int payloadLength | long captureTimestampMillis | byte[payloadLength] payload (raw tweet JSON, UTF-8)
+ * </pre>
+ * There is no end marker: the written data ends at the end of the file, or at the last complete record if the writing
+ * process died in the middle of one. Readers stop at the first record whose length prefix or payload runs past the end
+ * of the file, so a segment whose header was never finalized can still be read up to its last complete record.
+ */
+public final class TweetSegmentFormat {
+
+    // Constants
+    public final static int MAGIC = 0x54575347;
+    public final static int VERSION = 1;
+    public final static int HEADER_SIZE = 32;
+    public final static int RECORD_OVERHEAD = 12;
+    public final static int RECORD_COUNT_OFFSET = 8;
+    public final static int FIRST_TIMESTAMP_OFFSET = 16;
+    public final static int LAST_TIMESTAMP_OFFSET = 24;
+    public final static String SEGMENT_FILE_SUFFIX = ".seg";
+    // Readers map a segment as a whole, and a mapping can not exceed 2 GB
+    public final static long MAX_SEGMENT_BYTES = Integer.MAX_VALUE;
+
+    private TweetSegmentFormat() {
+    }
+
+    /**
+     * List the segment files of a directory in the order they were written
+     *
+     * @param directory
+     * @return segment files sorted by name, or an empty array if the directory does not exist
+     */
+    public static File[] listSegments(File directory) {
+        File[] segments = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(SEGMENT_FILE_SUFFIX);
+            }
+        });
+        if (segments == null) {
+            return new File[0];
+        }
+        Arrays.sort(segments);
+        return segments;
+    }
+}
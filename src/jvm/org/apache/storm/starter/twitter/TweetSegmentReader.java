@@ -0,0 +1,146 @@
+package org.apache.storm.starter.twitter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sequential reader over a memory-mapped tweet capture segment (see {@link TweetSegmentFormat}).
+ * <p/>
+ * The reader is a cursor: {@link #advance()} moves to the next record, after which the record's timestamp and payload
+ * can be read without copying the rest of the file onto the heap.
+ */
+public class TweetSegmentReader implements Closeable {
+
+    private final File segmentFile;
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final long headerRecordCount;
+    private final long firstTimestampMillis;
+    private final long lastTimestampMillis;
+    private int payloadOffset = -1;
+    private int payloadLength = 0;
+    private long timestampMillis = 0L;
+
+    /**
+     * Constructor
+     *
+     * @param segmentFile
+     * @throws IOException if the file can not be mapped, e.g. as it is larger than
+     *                     {@link TweetSegmentFormat#MAX_SEGMENT_BYTES}, or is not a tweet segment
+     */
+    public TweetSegmentReader(File segmentFile) throws IOException {
+        this.segmentFile = segmentFile;
+        this.file = new RandomAccessFile(segmentFile, "r");
+        try {
+            long length = file.length();
+            if (length > TweetSegmentFormat.MAX_SEGMENT_BYTES) {
+                throw new IOException("Tweet segment of " + length + " bytes is too large to be mapped: "
+                        + segmentFile);
+            }
+            this.buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (buffer.limit() < TweetSegmentFormat.HEADER_SIZE ||
+                    buffer.getInt(0) != TweetSegmentFormat.MAGIC) {
+                throw new IOException("Not a tweet segment file: " + segmentFile);
+            }
+            if (buffer.getInt(4) != TweetSegmentFormat.VERSION) {
+                throw new IOException("Unsupported tweet segment version " + buffer.getInt(4) + " in " + segmentFile);
+            }
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+        this.headerRecordCount = buffer.getLong(TweetSegmentFormat.RECORD_COUNT_OFFSET);
+        this.firstTimestampMillis = buffer.getLong(TweetSegmentFormat.FIRST_TIMESTAMP_OFFSET);
+        this.lastTimestampMillis = buffer.getLong(TweetSegmentFormat.LAST_TIMESTAMP_OFFSET);
+        buffer.position(TweetSegmentFormat.HEADER_SIZE);
+    }
+
+    /**
+     * Move to the next record
+     *
+     * @return false once the end of the written data has been reached
+     */
+    public boolean advance() {
+        int position = payloadOffset < 0 ? TweetSegmentFormat.HEADER_SIZE : payloadOffset + payloadLength;
+        if (position + TweetSegmentFormat.RECORD_OVERHEAD > buffer.limit()) {
+            return false;
+        }
+        int length = buffer.getInt(position);
+        if (length <= 0 || position + TweetSegmentFormat.RECORD_OVERHEAD + length > buffer.limit()) {
+            return false;
+        }
+        timestampMillis = buffer.getLong(position + 4);
+        payloadOffset = position + TweetSegmentFormat.RECORD_OVERHEAD;
+        payloadLength = length;
+        return true;
+    }
+
+    /**
+     * @return capture time of the current record
+     */
+    public long timestampMillis() {
+        return timestampMillis;
+    }
+
+    /**
+     * @return payload size of the current record in bytes
+     */
+    public int payloadLength() {
+        return payloadLength;
+    }
+
+    /**
+     * @return a read-only view of the current record's payload that shares the mapped memory
+     */
+    public ByteBuffer payload() {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(payloadOffset + payloadLength).position(payloadOffset);
+        return view.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * @return a heap copy of the current record's payload
+     */
+    public byte[] copyPayload() {
+        byte[] bytes = new byte[payloadLength];
+        payload().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * @return the current record's payload decoded as UTF-8
+     */
+    public String payloadAsString() {
+        return new String(copyPayload(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return record count stored in the header, zero if the writer did not finalize the segment
+     */
+    public long headerRecordCount() {
+        return headerRecordCount;
+    }
+
+    public long firstTimestampMillis() {
+        return firstTimestampMillis;
+    }
+
+    public long lastTimestampMillis() {
+        return lastTimestampMillis;
+    }
+
+    public File getSegmentFile() {
+        return segmentFile;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
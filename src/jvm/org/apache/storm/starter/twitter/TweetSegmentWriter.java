@@ -0,0 +1,255 @@
+package org.apache.storm.starter.twitter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records raw tweets into size-rotated capture segments (see {@link TweetSegmentFormat}).
+ * <p/>
+ * {@link #append(long, String)} only hands the tweet over to a bounded queue, so it never blocks the caller (e.g. the
+ * twitter4j stream thread). A background thread encodes the queued tweets, writes them to the current segment and
+ * rotates to a new segment once the configured size would be exceeded. Tweets that arrive while the queue is full are
+ * dropped and counted.
+ */
+public class TweetSegmentWriter implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TweetSegmentWriter.class);
+
+    // Constants
+    private final static String SEGMENT_FILE_NAME_FORMAT = "tweets-%013d-%06d" + TweetSegmentFormat.SEGMENT_FILE_SUFFIX;
+    private final static int WRITE_BUFFER_SIZE = 256 * 1024;
+    private final static long IDLE_POLL_MILLISEC = 200;
+
+    private final File directory;
+    private final long maxSegmentBytes;
+    private final BlockingQueue<Record> queue;
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final ConcurrentLinkedQueue<File> completedSegments = new ConcurrentLinkedQueue<>();
+    private final Thread writerThread;
+    private volatile boolean running = true;
+    private volatile boolean rotationRequested = false;
+
+    // Only accessed by the writer thread
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    private File segmentPath;
+    private RandomAccessFile segmentFile;
+    private FileChannel segmentChannel;
+    private long segmentBytes;
+    private long segmentRecordCount;
+    private long segmentFirstTimestamp;
+    private long segmentLastTimestamp;
+    private int segmentSequence = 0;
+
+    /**
+     * Constructor, starts the background writer thread
+     *
+     * @param directory       directory the segments are written to, created if needed
+     * @param maxSegmentBytes size after which a new segment is started, at most
+     *                        {@link TweetSegmentFormat#MAX_SEGMENT_BYTES}
+     * @param queueCapacity   number of tweets that may wait for the writer thread
+     * @throws IOException if the directory can not be created
+     */
+    public TweetSegmentWriter(File directory, long maxSegmentBytes, int queueCapacity) throws IOException {
+        if (maxSegmentBytes <= TweetSegmentFormat.HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size must be larger than the segment header (you requested "
+                    + maxSegmentBytes + ")");
+        }
+        if (maxSegmentBytes > TweetSegmentFormat.MAX_SEGMENT_BYTES) {
+            throw new IllegalArgumentException("Segment size must not exceed " + TweetSegmentFormat.MAX_SEGMENT_BYTES
+                    + " bytes, as segments are mapped as a whole when read (you requested " + maxSegmentBytes + ")");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create segment directory " + directory);
+        }
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "tweet-segment-writer-" + directory.getName());
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Queue a raw tweet for writing without blocking
+     *
+     * @param timestampMillis capture time
+     * @param rawJson         raw tweet JSON
+     * @return false if the tweet was dropped because the writer is behind or closed
+     */
+    public boolean append(long timestampMillis, String rawJson) {
+        if (!running || rawJson == null || !queue.offer(new Record(timestampMillis, rawJson))) {
+            droppedCount.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return number of tweets dropped so far
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return number of tweets written so far
+     */
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    /**
+     * Ask the writer thread to finalize the current segment soon, even if it is not full yet
+     */
+    public void requestRotation() {
+        rotationRequested = true;
+    }
+
+    /**
+     * @return the next segment that has been finalized since the last call, or null if there is none
+     */
+    public File pollCompletedSegment() {
+        return completedSegments.poll();
+    }
+
+    /**
+     * Write out the queued tweets, finalize the current segment and stop the writer thread
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (running || !queue.isEmpty()) {
+                Record record = queue.poll(IDLE_POLL_MILLISEC, TimeUnit.MILLISECONDS);
+                if (record != null) {
+                    write(record);
+                }
+                if (rotationRequested) {
+                    rotationRequested = false;
+                    finishSegment();
+                } else if (record == null) {
+                    flush();
+                }
+            }
+            finishSegment();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            running = false;
+            LOG.error("Tweet capture to {} failed, no further tweets will be recorded", directory, e);
+        }
+    }
+
+    private void write(Record record) throws IOException {
+        byte[] payload = record.rawJson.getBytes(StandardCharsets.UTF_8);
+        int recordSize = TweetSegmentFormat.RECORD_OVERHEAD + payload.length;
+        if (segmentChannel != null && segmentBytes + recordSize > maxSegmentBytes && segmentRecordCount > 0) {
+            finishSegment();
+        }
+        if (segmentChannel == null) {
+            startSegment(record.timestampMillis);
+        }
+
+        if (writeBuffer.remaining() < recordSize) {
+            flush();
+        }
+        if (writeBuffer.remaining() < recordSize) {
+            // Oversized tweet, bypass the write buffer
+            ByteBuffer large = ByteBuffer.allocate(recordSize);
+            large.putInt(payload.length).putLong(record.timestampMillis).put(payload).flip();
+            writeFully(large);
+        } else {
+            writeBuffer.putInt(payload.length).putLong(record.timestampMillis).put(payload);
+        }
+
+        segmentBytes += recordSize;
+        if (segmentRecordCount == 0) {
+            segmentFirstTimestamp = record.timestampMillis;
+        }
+        segmentLastTimestamp = record.timestampMillis;
+        segmentRecordCount++;
+        writtenCount.incrementAndGet();
+    }
+
+    private void startSegment(long timestampMillis) throws IOException {
+        segmentPath = new File(directory, String.format(SEGMENT_FILE_NAME_FORMAT, timestampMillis, segmentSequence++));
+        segmentFile = new RandomAccessFile(segmentPath, "rw");
+        segmentFile.setLength(0);
+        segmentChannel = segmentFile.getChannel();
+        segmentBytes = TweetSegmentFormat.HEADER_SIZE;
+        segmentRecordCount = 0;
+        writeFully(header(0, 0L, 0L));
+    }
+
+    private void finishSegment() throws IOException {
+        if (segmentChannel == null) {
+            return;
+        }
+        flush();
+        segmentChannel.write(header(segmentRecordCount, segmentFirstTimestamp, segmentLastTimestamp), 0);
+        segmentChannel.force(true);
+        segmentFile.close();
+        segmentChannel = null;
+        segmentFile = null;
+        completedSegments.add(segmentPath);
+    }
+
+    private void flush() throws IOException {
+        if (segmentChannel == null || writeBuffer.position() == 0) {
+            return;
+        }
+        writeBuffer.flip();
+        writeFully(writeBuffer);
+        writeBuffer.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            segmentChannel.write(buffer);
+        }
+    }
+
+    private static ByteBuffer header(long recordCount, long firstTimestampMillis, long lastTimestampMillis) {
+        ByteBuffer header = ByteBuffer.allocate(TweetSegmentFormat.HEADER_SIZE);
+        header.putInt(TweetSegmentFormat.MAGIC).putInt(TweetSegmentFormat.VERSION).putLong(recordCount)
+                .putLong(firstTimestampMillis).putLong(lastTimestampMillis).flip();
+        return header;
+    }
+
+    private static final class Record {
+        private final long timestampMillis;
+        private final String rawJson;
+
+        private Record(long timestampMillis, String rawJson) {
+            this.timestampMillis = timestampMillis;
+            this.rawJson = rawJson;
+        }
+    }
+}
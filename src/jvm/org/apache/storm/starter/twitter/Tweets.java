@@ -0,0 +1,37 @@
+package org.apache.storm.starter.twitter;
+
+import org.apache.storm.Config;
+import twitter4j.Status;
+
+/**
+ * Helpers for the "tweet" tuple values, which depending on the spout mode are twitter4j statuses,
+ * {@link TweetRecord}s or {@link RawTweet}s.
+ */
+public final class Tweets {
+
+    private Tweets() {
+    }
+
+    /**
+     * Read a "tweet" tuple value
+     *
+     * @param tweet
+     * @return the tweet
+     */
+    public static Tweet from(Object tweet) {
+        if (tweet instanceof Tweet) {
+            return (Tweet) tweet;
+        }
+        return TweetRecord.fromStatus((Status) tweet);
+    }
+
+    /**
+     * Register the serializers of the compact tweet representations with a topology configuration
+     *
+     * @param stormConfig
+     */
+    public static void registerSerializers(Config stormConfig) {
+        TweetRecordSerializer.register(stormConfig);
+        RawTweetSerializer.register(stormConfig);
+    }
+}
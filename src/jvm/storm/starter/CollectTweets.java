@@ -9,13 +9,27 @@ import org.apache.storm.generated.InvalidTopologyException;
 import org.apache.storm.hdfs.bolt.HdfsBolt;
 import org.apache.storm.hdfs.bolt.format.DefaultFileNameFormat;
 import org.apache.storm.hdfs.bolt.format.DelimitedRecordFormat;
+import org.apache.storm.hdfs.bolt.format.RecordFormat;
 import org.apache.storm.hdfs.bolt.rotation.FileSizeRotationPolicy;
 import org.apache.storm.hdfs.bolt.sync.CountSyncPolicy;
+import org.apache.storm.starter.bolt.ColumnarTweetBolt;
+import org.apache.storm.starter.bolt.CompressedHdfsBolt;
+import org.apache.storm.starter.bolt.QuotaCoordinatorBolt;
+import org.apache.storm.starter.bolt.TweetLogBolt;
 import org.apache.storm.starter.bolt.TweetsCounterPrinterBolt;
+import org.apache.storm.starter.spout.TweetReplaySpout;
 import org.apache.storm.starter.spout.TwitterSampleSpout;
+import org.apache.storm.starter.twitter.CompressedBlockFormat;
+import org.apache.storm.starter.twitter.MockTwitterStreamServer;
+import org.apache.storm.starter.twitter.TweetLogWriter;
+import org.apache.storm.starter.twitter.Tweets;
+import org.apache.storm.topology.IRichBolt;
 import org.apache.storm.topology.TopologyBuilder;
 import org.apache.storm.utils.Utils;
 
+import java.io.File;
+import java.io.IOException;
+
 /**
  * Collect tweets which match the keywords and store them either in your local file system or HDFS.
  */
@@ -28,29 +42,62 @@ public class CollectTweets {
     private final static String HDFS_URL = "hdfs://10.254.0.141:8020";
     private final static String PRINT_TO_HDFS_BOLD_ID = "printToHdfs";
     private final static String TWEET_COUNTER_BOLD_ID = "tweetsCounterPrinter";
+    private final static String TWEET_LOG_BOLT_ID = "tweetLog";
+    private final static String QUOTA_COORDINATOR_BOLT_ID = "quotaCoordinator";
+    private final static String COLUMNAR_TWEET_BOLT_ID = "columnarTweets";
     private final static String TWITTER_INPUT_STREAM_SPOUT_ID = "twitterInputStream";
     private final static String COLLECT_TWEETS_TOPOLOGY = "CollectTweets";
     private final static String TXT_FILE_EXTENSION = ".txt";
+    // Opt-in, compressed output goes to .txt.dfb files that need a CompressedBlockReader to be read
+    private final static boolean COMPRESS_OUTPUT = false;
     private final static int FILESYSTEM_SYNC_TUPLE_COUNT = 1000;
     private final static float FILE_ROTATION_COUNT = 5.0f;
     private final static int BOLT_TASK_PARALLELISM = 4;
+    private final static int MAX_TWEET_COLLECTION_LIMIT = 3000000;
+    private final static int QUOTA_LEASE_SIZE = 1000;
     private final static int WORKER_COUNT = 20;
     private final static int MAX_SPOUT_PENDING = 5000;
     private final static int LOCAL_CLUSTER_SLEEP_TIME_MILLISEC = 1000000;
     private final static String LOCAL_MODE = "local";
     private final static String HDFS_RECORD_FIELD_DELIMITER = "|";
     private final static String OUTPUT_FILE_PATH = "PartBQuestion1_output";
+    private final static int SEGMENT_MODE_ARG_INDEX = 5;
+    private final static int SEGMENT_DIRECTORY_ARG_INDEX = 6;
+    private final static String REPLAY_MODE = "replay";
+    private final static String CAPTURE_MODE = "capture";
+    private final static String MOCK_MODE = "mock";
+    private final static String LOG_MODE = "log";
+    private final static int TWEET_LOG_ROTATION_INTERVAL_SECS = 3600;
+    private final static String COLUMNAR_MODE = "columnar";
+    // Below the max spout pending, so that stripes fill up before the flush interval forces partial ones
+    private final static int COLUMNAR_STRIPE_ROWS = 4096;
+    private final static int COLUMNAR_STRIPES_PER_FILE = 64;
+    private final static int COLUMNAR_FLUSH_INTERVAL_SECS = 5;
+    private final static double MOCK_STREAM_TWEETS_PER_SECOND = 2000.0;
+    private final static int DEDUP_EXPECTED_TWEETS = 1000000;
+    private final static double DEDUP_FALSE_POSITIVE_RATE = 0.001;
+    private final static long DEDUP_INTERVAL_MILLISEC = 600000L;
 
     /**
      * Main method that builds and submits the topology
+     * <p/>
+     * Arguments: consumerKey consumerSecret accessToken accessTokenSecret local|cluster
+     * [replay|capture|mock|log|columnar directory]. In replay mode the tweets are replayed as fast as possible from a directory
+     * of captured tweet segments instead of being read from the live stream; in capture mode the live stream is
+     * additionally recorded into that directory. In mock mode, which requires local mode and accepts any credentials,
+     * the captured tweets are served in a loop by an in-process {@link MockTwitterStreamServer} and read through
+     * twitter4j as if they came from the live stream. In log mode the collected tweets are additionally appended to an
+     * indexed tweet log in that directory, for backfills by status id or time range. In columnar mode they are
+     * additionally stored column by column in that directory, for analyses that only read a few fields.
      *
      * @param args
      * @throws InvalidTopologyException
      * @throws AuthorizationException
      * @throws AlreadyAliveException
+     * @throws IOException
      */
     public static void main(String[] args) throws InvalidTopologyException, AuthorizationException,
-            AlreadyAliveException {
+            AlreadyAliveException, IOException {
         String consumerKey = args[0];
         String consumerSecret = args[1];
         String accessToken = args[2];
@@ -61,16 +108,56 @@ public class CollectTweets {
         
         if (isLocalMode) {
             tweetsFilePath += TXT_FILE_EXTENSION;
+            if (COMPRESS_OUTPUT) {
+                tweetsFilePath += CompressedBlockFormat.FILE_EXTENSION;
+            }
         }
 
         Config stormConfig = new Config();
+        Tweets.registerSerializers(stormConfig);
         TopologyBuilder topologyBuilder = new TopologyBuilder();
 
-        TwitterSampleSpout twitterSampleSpout = new TwitterSampleSpout(consumerKey, consumerSecret, accessToken,
-                accessTokenSecret, KEYWORDS);
-        topologyBuilder.setSpout(TWITTER_INPUT_STREAM_SPOUT_ID, twitterSampleSpout);
-        topologyBuilder.setBolt(TWEET_COUNTER_BOLD_ID, new TweetsCounterPrinterBolt(tweetsFilePath, isLocalMode))
-                .globalGrouping(TWITTER_INPUT_STREAM_SPOUT_ID);
+        MockTwitterStreamServer mockStreamServer = null;
+        String segmentMode = args.length > SEGMENT_DIRECTORY_ARG_INDEX ? args[SEGMENT_MODE_ARG_INDEX] : "";
+        if (segmentMode.equalsIgnoreCase(REPLAY_MODE)) {
+            TweetReplaySpout tweetReplaySpout = new TweetReplaySpout(args[SEGMENT_DIRECTORY_ARG_INDEX])
+                    .withSpeedFactor(TweetReplaySpout.UNTHROTTLED).withRawJson(true);
+            topologyBuilder.setSpout(TWITTER_INPUT_STREAM_SPOUT_ID, tweetReplaySpout);
+        } else {
+            TwitterSampleSpout twitterSampleSpout = new TwitterSampleSpout(consumerKey, consumerSecret, accessToken,
+                    accessTokenSecret, KEYWORDS).withReliableMode(MAX_SPOUT_PENDING).withRawJson(true)
+                    .withDedup(DEDUP_EXPECTED_TWEETS, DEDUP_FALSE_POSITIVE_RATE, DEDUP_INTERVAL_MILLISEC, false);
+            if (segmentMode.equalsIgnoreCase(MOCK_MODE)) {
+                if (!isLocalMode) {
+                    throw new IllegalArgumentException("Mock mode requires local mode");
+                }
+                mockStreamServer = new MockTwitterStreamServer(MockTwitterStreamServer.segmentSource(
+                        new File(args[SEGMENT_DIRECTORY_ARG_INDEX])), MOCK_STREAM_TWEETS_PER_SECOND, true, 0);
+                twitterSampleSpout.withStreamBaseUrl(mockStreamServer.getStreamBaseUrl());
+            } else if (segmentMode.equalsIgnoreCase(CAPTURE_MODE)) {
+                twitterSampleSpout.withCapture(args[SEGMENT_DIRECTORY_ARG_INDEX],
+                        TwitterSampleSpout.DEFAULT_CAPTURE_SEGMENT_BYTES);
+            }
+            topologyBuilder.setSpout(TWITTER_INPUT_STREAM_SPOUT_ID, twitterSampleSpout);
+        }
+        // Counting scales out, the coordinator stops the collection after exactly the quota of tweets
+        int counterParallelism = isLocalMode ? 1 : BOLT_TASK_PARALLELISM;
+        topologyBuilder.setBolt(TWEET_COUNTER_BOLD_ID, new TweetsCounterPrinterBolt(tweetsFilePath, isLocalMode,
+                COMPRESS_OUTPUT).withQuota(QUOTA_LEASE_SIZE), counterParallelism)
+                .shuffleGrouping(TWITTER_INPUT_STREAM_SPOUT_ID)
+                .directGrouping(QUOTA_COORDINATOR_BOLT_ID, QuotaCoordinatorBolt.GRANT_STREAM);
+        topologyBuilder.setBolt(QUOTA_COORDINATOR_BOLT_ID, new QuotaCoordinatorBolt(MAX_TWEET_COLLECTION_LIMIT,
+                QUOTA_LEASE_SIZE, COLLECT_TWEETS_TOPOLOGY))
+                .globalGrouping(TWEET_COUNTER_BOLD_ID, QuotaCoordinatorBolt.REQUEST_STREAM);
+        if (segmentMode.equalsIgnoreCase(LOG_MODE)) {
+            topologyBuilder.setBolt(TWEET_LOG_BOLT_ID, new TweetLogBolt(args[SEGMENT_DIRECTORY_ARG_INDEX],
+                    TweetLogWriter.DEFAULT_SEGMENT_BYTES, TWEET_LOG_ROTATION_INTERVAL_SECS))
+                    .globalGrouping(TWITTER_INPUT_STREAM_SPOUT_ID);
+        } else if (segmentMode.equalsIgnoreCase(COLUMNAR_MODE)) {
+            topologyBuilder.setBolt(COLUMNAR_TWEET_BOLT_ID, new ColumnarTweetBolt(args[SEGMENT_DIRECTORY_ARG_INDEX],
+                    COLUMNAR_STRIPE_ROWS, COLUMNAR_STRIPES_PER_FILE, COLUMNAR_FLUSH_INTERVAL_SECS))
+                    .shuffleGrouping(TWITTER_INPUT_STREAM_SPOUT_ID);
+        }
 
 
         if (isLocalMode) {
@@ -79,14 +166,35 @@ public class CollectTweets {
             localCluster.submitTopology(COLLECT_TWEETS_TOPOLOGY, stormConfig, topologyBuilder.createTopology());
             Utils.sleep(LOCAL_CLUSTER_SLEEP_TIME_MILLISEC);
             localCluster.shutdown();
+            if (mockStreamServer != null) {
+                mockStreamServer.close();
+            }
         } else {
             // Hdfs bolt used for printing the tweets on hdfs
-            HdfsBolt printHdfsBolt = new HdfsBolt()
-                    .withFsUrl(HDFS_URL)
-                    .withFileNameFormat(new DefaultFileNameFormat().withPath(tweetsFilePath))
-                    .withRecordFormat(new DelimitedRecordFormat().withFieldDelimiter(HDFS_RECORD_FIELD_DELIMITER))
-                    .withRotationPolicy(new FileSizeRotationPolicy(FILE_ROTATION_COUNT, FileSizeRotationPolicy.Units.MB))
-                    .withSyncPolicy(new CountSyncPolicy(FILESYSTEM_SYNC_TUPLE_COUNT));
+            RecordFormat recordFormat = new DelimitedRecordFormat().withFieldDelimiter(HDFS_RECORD_FIELD_DELIMITER);
+            DefaultFileNameFormat fileNameFormat = new DefaultFileNameFormat().withPath(tweetsFilePath);
+            FileSizeRotationPolicy rotationPolicy = new FileSizeRotationPolicy(FILE_ROTATION_COUNT,
+                    FileSizeRotationPolicy.Units.MB);
+            CountSyncPolicy syncPolicy = new CountSyncPolicy(FILESYSTEM_SYNC_TUPLE_COUNT);
+            IRichBolt printHdfsBolt;
+            if (COMPRESS_OUTPUT) {
+                // Finishes its current block on every sync; tweets of an unsynced block time out and are replayed, as
+                // the counter bolt emits them anchored
+                printHdfsBolt = new CompressedHdfsBolt()
+                        .withFsUrl(HDFS_URL)
+                        .withFileNameFormat(fileNameFormat.withExtension(TXT_FILE_EXTENSION
+                                + CompressedBlockFormat.FILE_EXTENSION))
+                        .withRecordFormat(recordFormat)
+                        .withRotationPolicy(rotationPolicy)
+                        .withSyncPolicy(syncPolicy);
+            } else {
+                printHdfsBolt = new HdfsBolt()
+                        .withFsUrl(HDFS_URL)
+                        .withFileNameFormat(fileNameFormat)
+                        .withRecordFormat(recordFormat)
+                        .withRotationPolicy(rotationPolicy)
+                        .withSyncPolicy(syncPolicy);
+            }
 
             topologyBuilder.setBolt(PRINT_TO_HDFS_BOLD_ID, printHdfsBolt, BOLT_TASK_PARALLELISM)
                     .shuffleGrouping(TWEET_COUNTER_BOLD_ID);
@@ -14,12 +14,18 @@ import org.apache.storm.hdfs.bolt.rotation.FileRotationPolicy;
 import org.apache.storm.hdfs.bolt.rotation.FileSizeRotationPolicy;
 import org.apache.storm.hdfs.bolt.sync.CountSyncPolicy;
 import org.apache.storm.hdfs.bolt.sync.SyncPolicy;
+import org.apache.storm.starter.bolt.CommonWordsMergeBolt;
+import org.apache.storm.starter.bolt.CommonWordsSplitterBolt;
 import org.apache.storm.starter.bolt.TwitterCommonWordsFilterPrinterBolt;
 import org.apache.storm.starter.bolt.TwitterFriendsHashTagFilterPrinterBolt;
+import org.apache.storm.starter.bolt.WindowedWordCountBolt;
 import org.apache.storm.starter.spout.TwitterFriendsCountSpout;
 import org.apache.storm.starter.spout.TwitterHashTagSpout;
 import org.apache.storm.starter.spout.TwitterSampleSpout;
+import org.apache.storm.starter.twitter.TweetPredicates;
+import org.apache.storm.starter.twitter.Tweets;
 import org.apache.storm.topology.TopologyBuilder;
+import org.apache.storm.tuple.Fields;
 import org.apache.storm.utils.Utils;
 
 
@@ -41,6 +47,8 @@ public class FindCommonWords {
     private final static String COMMON_WORDS_IN_TWEETS_TOPOLOGY = "FindCommonWords";
     private final static String TWEETS_FILTER_BOLT_ID = "twitterFriendsHashTagFilterPrinter";
     private final static String TWEETS_COMMON_WORDS_BOLT_ID = "twitterCommonWordsFilterPrinter";
+    private final static String COMMON_WORDS_SPLITTER_BOLT_ID = "commonWordsSplitter";
+    private final static String COMMON_WORDS_COUNTER_BOLT_ID = "commonWordsCounter";
     private final static String FILTERED_TWEETS_FILE_PATH = "PartBQuestion2_filteredTweets_output";
     private final static String COMMON_WORDS_FILE_PATH = "PartBQuestion2_commonWords_output";
     private final static String TXT_FILE_EXTENSION = ".txt";
@@ -52,6 +60,15 @@ public class FindCommonWords {
     private final static int MAX_SPOUT_PENDING = 4000;
     private final static int LOCAL_CLUSTER_SLEEP_TIME_MILLISEC = 1000000;
     private final static String HDFS_RECORD_FIELD_DELIMITER = "|";
+    private final static int DEDUP_EXPECTED_TWEETS = 1000000;
+    private final static double DEDUP_FALSE_POSITIVE_RATE = 0.001;
+    private final static long DEDUP_INTERVAL_MILLISEC = 600000L;
+    // Opt-in, the parallel pipeline emits the common words once per window instead of once per filtered blob
+    private final static boolean PARALLEL_COMMON_WORDS = false;
+    private final static int COMMON_WORDS_WINDOW_IN_SECONDS = 30;
+    // Read on the workers whenever it changes; the built-in English stop words are used as long as it is missing
+    private final static String STOP_WORDS_FILE_PATH = "stopwords.txt";
+    private final static boolean ORDERED_COMMON_WORDS = true;
 
 
     /**
@@ -71,6 +88,7 @@ String accessTokenSecret = "yzdH7Ieo29RXuHcyvVltbJO08sg17j8H7CA58IDzOKK37";//arg
         boolean isLocalMode = true;//args[4].equalsIgnoreCase(LOCAL_MODE);
 
         Config stormConfig = new Config();
+        Tweets.registerSerializers(stormConfig);
         TopologyBuilder topologyBuilder = new TopologyBuilder();
 
         String filteredTweetsFilePath = FILTERED_TWEETS_FILE_PATH;
@@ -83,7 +101,12 @@ String accessTokenSecret = "yzdH7Ieo29RXuHcyvVltbJO08sg17j8H7CA58IDzOKK37";//arg
 
         // Setup spouts
         TwitterSampleSpout twitterSampleSpout = new TwitterSampleSpout(consumerKey, consumerSecret, accessToken,
-                accessTokenSecret, KEYWORDS);
+                accessTokenSecret, KEYWORDS).withReliableMode(MAX_SPOUT_PENDING).withRawJson(true)
+                .withDedup(DEDUP_EXPECTED_TWEETS, DEDUP_FALSE_POSITIVE_RATE, DEDUP_INTERVAL_MILLISEC, true)
+                // Push down what the filter bolt rejects under any friends count and hash tag sample
+                .withFilter(TweetPredicates.allOf(
+                        TweetPredicates.friendsCountBelow(TwitterFriendsCountSpout.getMaxFriendsCount()),
+                        TweetPredicates.textContainsAny(TwitterHashTagSpout.getHashTags())));
         TwitterFriendsCountSpout twitterFriendsCountSpout = new TwitterFriendsCountSpout();
         TwitterHashTagSpout twitterHashTagSpout = new TwitterHashTagSpout();
 
@@ -99,10 +122,24 @@ String accessTokenSecret = "yzdH7Ieo29RXuHcyvVltbJO08sg17j8H7CA58IDzOKK37";//arg
                 .shuffleGrouping(TWITTER_FRIENDS_COUNT_SPOUT_ID).shuffleGrouping(TWITTER_INPUT_STREAM_SPOUT_ID)
                 .shuffleGrouping(TWITTER_HASHTAGS_SPOUT_ID);
 
-        TwitterCommonWordsFilterPrinterBolt twitterCommonWordsFilterPrinterBolt =
-                new TwitterCommonWordsFilterPrinterBolt(commonWordsFilePath, isLocalMode);
-        topologyBuilder.setBolt(TWEETS_COMMON_WORDS_BOLT_ID, twitterCommonWordsFilterPrinterBolt).globalGrouping
-                (TWEETS_FILTER_BOLT_ID);
+        if (PARALLEL_COMMON_WORDS) {
+            // Split and count the words in parallel, partitioned by word, and only merge the window counts globally
+            topologyBuilder.setBolt(COMMON_WORDS_SPLITTER_BOLT_ID,
+                    new CommonWordsSplitterBolt().withStopWordsFile(STOP_WORDS_FILE_PATH), BOLT_TASK_PARALLELISM)
+                    .shuffleGrouping(TWEETS_FILTER_BOLT_ID);
+            topologyBuilder.setBolt(COMMON_WORDS_COUNTER_BOLT_ID,
+                    new WindowedWordCountBolt(COMMON_WORDS_WINDOW_IN_SECONDS), BOLT_TASK_PARALLELISM)
+                    .fieldsGrouping(COMMON_WORDS_SPLITTER_BOLT_ID, new Fields(CommonWordsSplitterBolt.WORD_FIELD));
+            topologyBuilder.setBolt(TWEETS_COMMON_WORDS_BOLT_ID,
+                    new CommonWordsMergeBolt(commonWordsFilePath, isLocalMode).withOrderedOutput(ORDERED_COMMON_WORDS))
+                    .globalGrouping(COMMON_WORDS_COUNTER_BOLT_ID);
+        } else {
+            TwitterCommonWordsFilterPrinterBolt twitterCommonWordsFilterPrinterBolt =
+                    new TwitterCommonWordsFilterPrinterBolt(commonWordsFilePath, isLocalMode)
+                            .withStopWordsFile(STOP_WORDS_FILE_PATH).withOrderedOutput(ORDERED_COMMON_WORDS);
+            topologyBuilder.setBolt(TWEETS_COMMON_WORDS_BOLT_ID, twitterCommonWordsFilterPrinterBolt).globalGrouping
+                    (TWEETS_FILTER_BOLT_ID);
+        }
 
         if (isLocalMode) {
             // Local cluster for outputs to local file systems
@@ -0,0 +1,161 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.bolt;
+
+import org.apache.storm.Config;
+import org.apache.storm.starter.twitter.ColumnarTweetReader;
+import org.apache.storm.starter.twitter.TweetRecord;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.utils.MockTupleHelpers;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class ColumnarTweetBoltTest {
+
+  private static final String ANY_NON_SYSTEM_COMPONENT_ID = "irrelevant_component_id";
+  private static final String ANY_NON_SYSTEM_STREAM_ID = "irrelevant_stream_id";
+  private static final int SMALL_STRIPE_ROWS = 3;
+  private static final int FLUSH_INTERVAL_SECONDS = 5;
+
+  private Tuple mockTweetTuple(long id) {
+    Tuple tuple = MockTupleHelpers.mockTuple(ANY_NON_SYSTEM_COMPONENT_ID, ANY_NON_SYSTEM_STREAM_ID);
+    when(tuple.getValue(0)).thenReturn(new TweetRecord(id, TweetRecord.NO_RETWEETED_STATUS, 1000L * id, 42L, 10,
+        "en", "tweet " + id, Collections.<String>emptyList()));
+    return tuple;
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static ColumnarTweetBolt prepareBolt(File directory, int stripesPerFile, OutputCollector collector) {
+    ColumnarTweetBolt bolt = new ColumnarTweetBolt(directory.getPath(), SMALL_STRIPE_ROWS, stripesPerFile,
+        FLUSH_INTERVAL_SECONDS);
+    bolt.prepare(mock(Map.class), mock(TopologyContext.class), collector);
+    return bolt;
+  }
+
+  private static long readRowCount(File directory) throws IOException {
+    long rowCount = 0;
+    for (File file : directory.listFiles()) {
+      try (ColumnarTweetReader reader = new ColumnarTweetReader(file)) {
+        rowCount += reader.getRowCount();
+      }
+    }
+    return rowCount;
+  }
+
+  @Test
+  public void tuplesShouldOnlyBeAckedOnceTheirStripeIsWritten() throws IOException {
+    // given
+    File directory = Files.createTempDirectory("columnar").toFile();
+    OutputCollector collector = mock(OutputCollector.class);
+    ColumnarTweetBolt bolt = prepareBolt(directory, 100, collector);
+    Tuple[] tuples = new Tuple[4];
+    for (int i = 0; i < tuples.length; i++) {
+      tuples[i] = mockTweetTuple(i);
+    }
+
+    // when
+    for (Tuple tuple : tuples) {
+      bolt.execute(tuple);
+    }
+
+    // then the first stripe is acked and readable without closing the file
+    verify(collector).ack(tuples[0]);
+    verify(collector).ack(tuples[1]);
+    verify(collector).ack(tuples[2]);
+    verify(collector, never()).ack(tuples[3]);
+    assertThat(readRowCount(directory)).isEqualTo(3);
+  }
+
+  @Test
+  public void tickTupleShouldWriteAndAckThePartialStripe() throws IOException {
+    // given
+    File directory = Files.createTempDirectory("columnar").toFile();
+    OutputCollector collector = mock(OutputCollector.class);
+    ColumnarTweetBolt bolt = prepareBolt(directory, 100, collector);
+    Tuple tuple = mockTweetTuple(1);
+    bolt.execute(tuple);
+
+    // when
+    bolt.execute(MockTupleHelpers.mockTickTuple());
+
+    // then
+    verify(collector).ack(tuple);
+    assertThat(readRowCount(directory)).isEqualTo(1);
+  }
+
+  @Test
+  public void fullFileShouldBeClosedAndANewOneStarted() throws IOException {
+    // given
+    File directory = Files.createTempDirectory("columnar").toFile();
+    OutputCollector collector = mock(OutputCollector.class);
+    ColumnarTweetBolt bolt = prepareBolt(directory, 2, collector);
+
+    // when
+    for (int i = 0; i < 7; i++) {
+      bolt.execute(mockTweetTuple(i));
+    }
+
+    // then
+    assertThat(directory.listFiles()).hasSize(2);
+    assertThat(readRowCount(directory)).isEqualTo(6);
+    verify(collector, times(6)).ack(any(Tuple.class));
+  }
+
+  @Test
+  public void tweetThatCanNotBeWrittenShouldFailItsTuple() throws IOException {
+    // given a directory that disappears after the bolt was prepared
+    File directory = Files.createTempDirectory("columnar").toFile();
+    OutputCollector collector = mock(OutputCollector.class);
+    ColumnarTweetBolt bolt = prepareBolt(directory, 100, collector);
+    assertThat(directory.delete()).isTrue();
+    Tuple tuple = mockTweetTuple(1);
+
+    // when
+    bolt.execute(tuple);
+
+    // then
+    verify(collector).reportError(any(IOException.class));
+    verify(collector).fail(tuple);
+    verify(collector, never()).ack(any(Tuple.class));
+  }
+
+  @Test
+  public void shouldTickAtTheFlushInterval() {
+    // given
+    ColumnarTweetBolt bolt = new ColumnarTweetBolt("irrelevant_directory", SMALL_STRIPE_ROWS, 1,
+        FLUSH_INTERVAL_SECONDS);
+
+    // when
+    Map<String, Object> componentConfig = bolt.getComponentConfiguration();
+
+    // then
+    assertThat(componentConfig.get(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS)).isEqualTo(FLUSH_INTERVAL_SECONDS);
+  }
+
+}
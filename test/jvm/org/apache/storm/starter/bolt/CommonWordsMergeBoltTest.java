@@ -0,0 +1,143 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.bolt;
+
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.tuple.Values;
+import org.apache.storm.utils.MockTupleHelpers;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class CommonWordsMergeBoltTest {
+
+  private static final String COUNTER_COMPONENT_ID = "commonWordsCounter";
+  private static final String ANY_NON_SYSTEM_STREAM_ID = "irrelevant_stream_id";
+  private static final int TASK_COUNT = 2;
+  private static final int TASK_A = 5;
+  private static final int TASK_B = 6;
+
+  private static Tuple mockPartialWindow(int sourceTask, long windowId, List<String> words, int... counts) {
+    Tuple tuple = MockTupleHelpers.mockTuple(COUNTER_COMPONENT_ID, ANY_NON_SYSTEM_STREAM_ID);
+    when(tuple.getSourceTask()).thenReturn(sourceTask);
+    when(tuple.getLongByField(WindowedWordCountBolt.WINDOW_ID_FIELD)).thenReturn(windowId);
+    when(tuple.getIntegerByField(WindowedWordCountBolt.TASK_COUNT_FIELD)).thenReturn(TASK_COUNT);
+    when(tuple.getValueByField(WindowedWordCountBolt.WORDS_FIELD)).thenReturn(words);
+    when(tuple.getValueByField(WindowedWordCountBolt.COUNTS_FIELD)).thenReturn(counts);
+    return tuple;
+  }
+
+  private static Tuple mockEmptyWindow(int sourceTask, long windowId) {
+    return mockPartialWindow(sourceTask, windowId, Collections.<String>emptyList());
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static CommonWordsMergeBolt prepareBolt(CommonWordsMergeBolt bolt, OutputCollector collector) {
+    bolt.prepare(mock(Map.class), mock(TopologyContext.class), collector);
+    return bolt;
+  }
+
+  private static CommonWordsMergeBolt prepareBolt(OutputCollector collector) {
+    return prepareBolt(new CommonWordsMergeBolt("irrelevant_path", false), collector);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void windowShouldOnlyBeEmittedOnceEveryTaskReportedIt() {
+    // given
+    OutputCollector collector = mock(OutputCollector.class);
+    CommonWordsMergeBolt bolt = prepareBolt(collector);
+    Tuple partialA = mockPartialWindow(TASK_A, 0, Arrays.asList("storm", "rain"), 5, 1);
+
+    // when
+    bolt.execute(partialA);
+    verify(collector, never()).emit(any(List.class));
+    bolt.execute(mockPartialWindow(TASK_B, 0, Arrays.asList("tweets", "sun"), 3, 2));
+
+    // then the upper half of the merged counts, by decreasing count
+    verify(collector).emit(new Values(" storm tweets\n\n"));
+    verify(collector).ack(partialA);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void windowsShouldBeEmittedInOrderAsTheSlowestTaskCatchesUp() {
+    // given task A runs a window ahead of task B
+    OutputCollector collector = mock(OutputCollector.class);
+    CommonWordsMergeBolt bolt = prepareBolt(collector);
+    bolt.execute(mockPartialWindow(TASK_A, 7, Arrays.asList("a1", "a2"), 2, 1));
+    bolt.execute(mockPartialWindow(TASK_A, 8, Arrays.asList("b1", "b2"), 2, 1));
+
+    // when
+    bolt.execute(mockPartialWindow(TASK_B, 7, Arrays.asList("a3", "a4"), 4, 3));
+    verify(collector, times(1)).emit(any(List.class));
+    bolt.execute(mockPartialWindow(TASK_B, 8, Arrays.asList("b3", "b4"), 1, 9));
+
+    // then
+    verify(collector).emit(new Values(" a3 a4\n\n"));
+    verify(collector).emit(new Values(" b4 b1\n\n"));
+    verify(collector, times(2)).emit(any(List.class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void emptyWindowsShouldGiveEmptyOutput() {
+    // given
+    OutputCollector collector = mock(OutputCollector.class);
+    CommonWordsMergeBolt bolt = prepareBolt(collector);
+
+    // when
+    bolt.execute(mockEmptyWindow(TASK_A, 3));
+    bolt.execute(mockEmptyWindow(TASK_B, 3));
+
+    // then
+    verify(collector).emit(new Values("\n\n"));
+  }
+
+  @Test
+  public void commonWordsShouldBeAppendedToTheLocalFile() throws IOException {
+    // given
+    File output = new File(Files.createTempDirectory("commonWords").toFile(), "output.txt");
+    CommonWordsMergeBolt bolt = prepareBolt(new CommonWordsMergeBolt(output.getPath(), true),
+        mock(OutputCollector.class));
+
+    // when
+    bolt.execute(mockPartialWindow(TASK_A, 0, Arrays.asList("storm", "rain"), 5, 1));
+    bolt.execute(mockPartialWindow(TASK_B, 0, Collections.<String>emptyList()));
+    bolt.execute(mockPartialWindow(TASK_A, 1, Arrays.asList("sun", "tweets"), 1, 3));
+    bolt.execute(mockEmptyWindow(TASK_B, 1));
+
+    // then
+    assertThat(new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8))
+        .isEqualTo(" storm\n\n tweets\n\n");
+  }
+
+}
@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.bolt;
+
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.tuple.Values;
+import org.apache.storm.utils.MockTupleHelpers;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class CommonWordsSplitterBoltTest {
+
+  private static final String ANY_NON_SYSTEM_COMPONENT_ID = "irrelevant_component_id";
+  private static final String ANY_NON_SYSTEM_STREAM_ID = "irrelevant_stream_id";
+
+  private static Tuple mockTextTuple(String text) {
+    Tuple tuple = MockTupleHelpers.mockTuple(ANY_NON_SYSTEM_COMPONENT_ID, ANY_NON_SYSTEM_STREAM_ID);
+    when(tuple.getValue(0)).thenReturn(text);
+    return tuple;
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static CommonWordsSplitterBolt prepareBolt(CommonWordsSplitterBolt bolt, OutputCollector collector) {
+    bolt.prepare(mock(Map.class), mock(TopologyContext.class), collector);
+    return bolt;
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void everyDistinctWordShouldBeEmittedOnceWithItsCount() {
+    // given
+    OutputCollector collector = mock(OutputCollector.class);
+    CommonWordsSplitterBolt bolt = prepareBolt(new CommonWordsSplitterBolt(), collector);
+    Tuple tuple = mockTextTuple("Storm storm the tweets #storm");
+
+    // when
+    bolt.execute(tuple);
+
+    // then the stop word is dropped and the emits are anchored
+    verify(collector).emit(tuple, new Values("storm", 3));
+    verify(collector).emit(tuple, new Values("tweets", 1));
+    verify(collector, times(2)).emit(eq(tuple), any(List.class));
+    verify(collector).ack(tuple);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void textWithoutWordsShouldOnlyBeAcked() {
+    // given
+    OutputCollector collector = mock(OutputCollector.class);
+    CommonWordsSplitterBolt bolt = prepareBolt(new CommonWordsSplitterBolt(), collector);
+    Tuple tuple = mockTextTuple("the a an RT");
+
+    // when
+    bolt.execute(tuple);
+
+    // then
+    verify(collector, never()).emit(any(Tuple.class), any(List.class));
+    verify(collector).ack(tuple);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void stopWordsFileShouldReplaceTheBuiltInStopWords() throws IOException {
+    // given
+    File file = File.createTempFile("stopwords", ".txt");
+    file.deleteOnExit();
+    Files.write(file.toPath(), "storm\n".getBytes(StandardCharsets.UTF_8));
+    OutputCollector collector = mock(OutputCollector.class);
+    CommonWordsSplitterBolt bolt = prepareBolt(new CommonWordsSplitterBolt().withStopWordsFile(file.getPath()),
+        collector);
+    Tuple tuple = mockTextTuple("storm the tweets");
+
+    // when
+    bolt.execute(tuple);
+
+    // then
+    verify(collector).emit(tuple, new Values("the", 1));
+    verify(collector).emit(tuple, new Values("tweets", 1));
+    verify(collector, times(2)).emit(eq(tuple), any(List.class));
+  }
+
+}
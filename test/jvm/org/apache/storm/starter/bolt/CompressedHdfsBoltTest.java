@@ -0,0 +1,145 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.bolt;
+
+import org.apache.storm.hdfs.bolt.format.DefaultFileNameFormat;
+import org.apache.storm.hdfs.bolt.format.RecordFormat;
+import org.apache.storm.hdfs.bolt.rotation.FileSizeRotationPolicy;
+import org.apache.storm.hdfs.bolt.sync.CountSyncPolicy;
+import org.apache.storm.starter.twitter.CompressedBlockReader;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.utils.MockTupleHelpers;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class CompressedHdfsBoltTest {
+
+  private static final String ANY_NON_SYSTEM_COMPONENT_ID = "irrelevant_component_id";
+  private static final String ANY_NON_SYSTEM_STREAM_ID = "irrelevant_stream_id";
+  private static final String HDFS_CONFIG_KEY = "test.hdfs.config";
+  private static final int SYNC_TUPLE_COUNT = 2;
+
+  private static final RecordFormat LINE_FORMAT = new RecordFormat() {
+    @Override
+    public byte[] format(Tuple tuple) {
+      return (tuple.getString(0) + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+  };
+
+  private Tuple mockLineTuple(String line) {
+    Tuple tuple = MockTupleHelpers.mockTuple(ANY_NON_SYSTEM_COMPONENT_ID, ANY_NON_SYSTEM_STREAM_ID);
+    when(tuple.getString(0)).thenReturn(line);
+    return tuple;
+  }
+
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  private static CompressedHdfsBolt prepareBolt(File directory, FileSizeRotationPolicy rotationPolicy,
+      OutputCollector collector) {
+    CompressedHdfsBolt bolt = new CompressedHdfsBolt()
+        .withFsUrl("file:///")
+        .withConfigKey(HDFS_CONFIG_KEY)
+        .withFileNameFormat(new DefaultFileNameFormat().withPath(directory.getPath()))
+        .withRecordFormat(LINE_FORMAT)
+        .withRotationPolicy(rotationPolicy)
+        .withSyncPolicy(new CountSyncPolicy(SYNC_TUPLE_COUNT));
+    // The checksummed local file system only writes in whole checksum chunks, the raw one writes on every sync
+    Map<String, Object> hdfsConfig = new HashMap<String, Object>();
+    hdfsConfig.put("fs.file.impl", "org.apache.hadoop.fs.RawLocalFileSystem");
+    hdfsConfig.put("fs.file.impl.disable.cache", "true");
+    Map conf = new HashMap();
+    conf.put(HDFS_CONFIG_KEY, hdfsConfig);
+    TopologyContext context = mock(TopologyContext.class);
+    when(context.getThisComponentId()).thenReturn("compressedHdfs");
+    bolt.prepare(conf, context, collector);
+    return bolt;
+  }
+
+  private static String readAll(File file) throws IOException {
+    try (CompressedBlockReader reader = new CompressedBlockReader(file)) {
+      StringBuilder text = new StringBuilder();
+      for (int block = 0; block < reader.getBlockCount(); block++) {
+        text.append(new String(reader.readBlock(block), StandardCharsets.UTF_8));
+      }
+      return text.toString();
+    }
+  }
+
+  @Test
+  public void syncShouldWriteTheUnfinishedBlockBeforeTheTuplesAreAcked() throws IOException {
+    // given
+    File directory = Files.createTempDirectory("hdfs").toFile();
+    OutputCollector collector = mock(OutputCollector.class);
+    CompressedHdfsBolt bolt = prepareBolt(directory,
+        new FileSizeRotationPolicy(1.0f, FileSizeRotationPolicy.Units.MB), collector);
+    Tuple first = mockLineTuple("first");
+    Tuple second = mockLineTuple("second");
+    Tuple third = mockLineTuple("third");
+
+    // when
+    bolt.execute(first);
+    bolt.execute(second);
+    bolt.execute(third);
+
+    // then
+    File[] files = directory.listFiles();
+    assertThat(files).hasSize(1);
+    assertThat(readAll(files[0])).isEqualTo("first\nsecond\n");
+    verify(collector).ack(first);
+    verify(collector).ack(second);
+    verify(collector, never()).ack(third);
+    bolt.cleanup();
+  }
+
+  @Test
+  public void rotationShouldWriteTheUnfinishedBlockIntoTheClosedFile() throws IOException {
+    // given a rotation after every synced block
+    File directory = Files.createTempDirectory("hdfs").toFile();
+    OutputCollector collector = mock(OutputCollector.class);
+    CompressedHdfsBolt bolt = prepareBolt(directory,
+        new FileSizeRotationPolicy(1.0f / (1024 * 1024), FileSizeRotationPolicy.Units.MB), collector);
+
+    // when
+    for (int i = 0; i < 4; i++) {
+      bolt.execute(mockLineTuple("line " + i));
+    }
+
+    // then every closed file holds complete blocks only
+    StringBuilder allLines = new StringBuilder();
+    File[] files = directory.listFiles();
+    Arrays.sort(files);
+    for (File file : files) {
+      allLines.append(readAll(file));
+    }
+    assertThat(allLines.toString()).isEqualTo("line 0\nline 1\nline 2\nline 3\n");
+    verify(collector, times(4)).ack(any(Tuple.class));
+    bolt.cleanup();
+  }
+
+}
@@ -0,0 +1,206 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.bolt;
+
+import org.apache.storm.Config;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.tuple.Values;
+import org.apache.storm.utils.MockTupleHelpers;
+import org.apache.storm.utils.Time;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class QuotaCoordinatorBoltTest {
+
+  private static final String COUNTER_COMPONENT_ID = "tweetsCounterPrinter";
+  private static final String ANY_TOPOLOGY_NAME = "irrelevant_topology";
+  private static final int LEASE_SIZE = 10;
+  private static final int LEASE_TIMEOUT_SECS = 60;
+  private static final int TASK_A = 3;
+  private static final int TASK_B = 4;
+
+  private static class CountingKillsCoordinator extends QuotaCoordinatorBolt {
+
+    private int kills = 0;
+
+    CountingKillsCoordinator(long quota) {
+      super(quota, LEASE_SIZE, ANY_TOPOLOGY_NAME);
+    }
+
+    @Override
+    protected void killTopology() {
+      kills++;
+    }
+  }
+
+  private static Tuple mockQuotaMessage(int taskId, long leaseId, long consumed, long returned, boolean request) {
+    Tuple tuple = MockTupleHelpers.mockTuple(COUNTER_COMPONENT_ID, QuotaCoordinatorBolt.REQUEST_STREAM);
+    when(tuple.getIntegerByField(QuotaCoordinatorBolt.TASK_ID_FIELD)).thenReturn(taskId);
+    when(tuple.getLongByField(QuotaCoordinatorBolt.LEASE_ID_FIELD)).thenReturn(leaseId);
+    when(tuple.getLongByField(QuotaCoordinatorBolt.CONSUMED_FIELD)).thenReturn(consumed);
+    when(tuple.getLongByField(QuotaCoordinatorBolt.RETURNED_FIELD)).thenReturn(returned);
+    when(tuple.getBooleanByField(QuotaCoordinatorBolt.REQUEST_FIELD)).thenReturn(request);
+    return tuple;
+  }
+
+  private static Tuple mockRequest(int taskId) {
+    return mockQuotaMessage(taskId, QuotaCoordinatorBolt.NO_LEASE, 0, 0, true);
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static CountingKillsCoordinator prepareCoordinator(long quota, OutputCollector collector) {
+    CountingKillsCoordinator coordinator = new CountingKillsCoordinator(quota);
+    coordinator.withLeaseTimeout(LEASE_TIMEOUT_SECS);
+    coordinator.prepare(mock(Map.class), mock(TopologyContext.class), collector);
+    return coordinator;
+  }
+
+  private static void verifyGrant(OutputCollector collector, int taskId, long leaseId, long amount) {
+    verify(collector).emitDirect(taskId, QuotaCoordinatorBolt.GRANT_STREAM, new Values(leaseId, amount));
+  }
+
+  @Test
+  public void requestsShouldBeGrantedUntilTheQuotaRunsOut() {
+    // given
+    OutputCollector collector = mock(OutputCollector.class);
+    QuotaCoordinatorBolt coordinator = prepareCoordinator(25, collector);
+
+    // when
+    coordinator.execute(mockRequest(TASK_A));
+    coordinator.execute(mockRequest(TASK_B));
+    coordinator.execute(mockRequest(TASK_A));
+    coordinator.execute(mockRequest(TASK_B));
+
+    // then
+    verifyGrant(collector, TASK_A, 0, 10);
+    verifyGrant(collector, TASK_B, 1, 10);
+    verifyGrant(collector, TASK_A, 2, 5);
+    verifyGrant(collector, TASK_B, QuotaCoordinatorBolt.NO_LEASE, 0);
+  }
+
+  @Test
+  public void topologyShouldBeKilledOnceEveryLeaseIsUsedUp() {
+    // given
+    CountingKillsCoordinator coordinator = prepareCoordinator(20, mock(OutputCollector.class));
+    coordinator.execute(mockRequest(TASK_A));
+    coordinator.execute(mockRequest(TASK_B));
+
+    // when
+    coordinator.execute(mockQuotaMessage(TASK_A, 0, 10, 0, false));
+    int killsAfterFirstLease = coordinator.kills;
+    coordinator.execute(mockQuotaMessage(TASK_B, 1, 10, 0, true));
+    coordinator.execute(mockQuotaMessage(TASK_A, QuotaCoordinatorBolt.NO_LEASE, 0, 0, true));
+
+    // then
+    assertThat(killsAfterFirstLease).isZero();
+    assertThat(coordinator.kills).isEqualTo(1);
+  }
+
+  @Test
+  public void returnedRemainderShouldBeGrantedAgain() {
+    // given
+    OutputCollector collector = mock(OutputCollector.class);
+    CountingKillsCoordinator coordinator = prepareCoordinator(10, collector);
+    coordinator.execute(mockRequest(TASK_A));
+
+    // when
+    coordinator.execute(mockQuotaMessage(TASK_A, 0, 4, 6, false));
+    coordinator.execute(mockRequest(TASK_B));
+    coordinator.execute(mockQuotaMessage(TASK_B, 1, 6, 0, false));
+
+    // then
+    verifyGrant(collector, TASK_B, 1, 6);
+    assertThat(coordinator.kills).isEqualTo(1);
+  }
+
+  @Test
+  public void leaseNotUsedUpWithinTheTimeoutShouldBeReclaimed() {
+    // given task A crashes with a lease, or its grant got lost
+    Time.startSimulating();
+    OutputCollector collector = mock(OutputCollector.class);
+    CountingKillsCoordinator coordinator = prepareCoordinator(10, collector);
+    coordinator.execute(mockRequest(TASK_A));
+    coordinator.execute(mockRequest(TASK_B));
+
+    // when
+    Time.advanceTime(LEASE_TIMEOUT_SECS * 1000L - 1);
+    coordinator.execute(MockTupleHelpers.mockTickTuple());
+    coordinator.execute(mockRequest(TASK_B));
+    Time.advanceTime(1);
+    coordinator.execute(MockTupleHelpers.mockTickTuple());
+    coordinator.execute(mockRequest(TASK_B));
+    coordinator.execute(mockQuotaMessage(TASK_B, 1, 10, 0, false));
+
+    // then
+    verifyGrant(collector, TASK_A, 0, 10);
+    verify(collector, times(2)).emitDirect(TASK_B, QuotaCoordinatorBolt.GRANT_STREAM,
+        new Values(QuotaCoordinatorBolt.NO_LEASE, 0L));
+    verifyGrant(collector, TASK_B, 1, 10);
+    assertThat(coordinator.kills).isEqualTo(1);
+
+    // cleanup
+    Time.stopSimulating();
+  }
+
+  @Test
+  public void lateConsumptionOfAReclaimedLeaseShouldStillCount() {
+    // given
+    Time.startSimulating();
+    OutputCollector collector = mock(OutputCollector.class);
+    CountingKillsCoordinator coordinator = prepareCoordinator(10, collector);
+    coordinator.execute(mockRequest(TASK_A));
+    Time.advanceTime(LEASE_TIMEOUT_SECS * 1000L);
+    coordinator.execute(MockTupleHelpers.mockTickTuple());
+
+    // when
+    coordinator.execute(mockQuotaMessage(TASK_A, 0, 10, 0, false));
+    coordinator.execute(mockRequest(TASK_B));
+
+    // then
+    assertThat(coordinator.kills).isEqualTo(1);
+    verifyGrant(collector, TASK_B, QuotaCoordinatorBolt.NO_LEASE, 0);
+
+    // cleanup
+    Time.stopSimulating();
+  }
+
+  @Test
+  public void shouldTickFourTimesPerLeaseTimeout() {
+    // given
+    QuotaCoordinatorBolt coordinator = new QuotaCoordinatorBolt(10, LEASE_SIZE, ANY_TOPOLOGY_NAME)
+        .withLeaseTimeout(LEASE_TIMEOUT_SECS);
+
+    // when
+    Map<String, Object> componentConfig = coordinator.getComponentConfiguration();
+
+    // then
+    assertThat(componentConfig.get(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS)).isEqualTo(15);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void shouldRejectANonPositiveLeaseSize() {
+    new QuotaCoordinatorBolt(10, 0, ANY_TOPOLOGY_NAME);
+  }
+
+}
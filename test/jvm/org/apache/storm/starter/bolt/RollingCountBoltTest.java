@@ -25,6 +25,7 @@ import org.apache.storm.tuple.Fields;
 import org.apache.storm.tuple.Tuple;
 import org.apache.storm.tuple.Values;
 import org.apache.storm.utils.MockTupleHelpers;
+import org.mockito.ArgumentCaptor;
 import org.testng.annotations.Test;
 
 import java.util.Map;
@@ -83,6 +84,32 @@ public class RollingCountBoltTest {
     verify(collector).emit(any(Values.class));
   }
 
+  @SuppressWarnings("rawtypes")
+  @Test
+  public void approximateCountsShouldBeEmittedWithTheirMaxError() {
+    // given
+    Tuple normalTuple = mockNormalTuple("a");
+    Tuple tickTuple = MockTupleHelpers.mockTickTuple();
+
+    RollingCountBolt bolt = new RollingCountBolt(9, 3, 10);
+    Map conf = mock(Map.class);
+    TopologyContext context = mock(TopologyContext.class);
+    OutputCollector collector = mock(OutputCollector.class);
+    bolt.prepare(conf, context, collector);
+    OutputFieldsDeclarer declarer = mock(OutputFieldsDeclarer.class);
+
+    // when
+    bolt.execute(normalTuple);
+    bolt.execute(tickTuple);
+    bolt.declareOutputFields(declarer);
+
+    // then
+    verify(collector).emit(new Values("a", 1L, 0, 0L));
+    ArgumentCaptor<Fields> fields = ArgumentCaptor.forClass(Fields.class);
+    verify(declarer).declare(fields.capture());
+    assertThat(fields.getValue().toList()).containsExactly("obj", "count", "actualWindowLengthInSeconds", "maxError");
+  }
+
   @Test
   public void shouldDeclareOutputFields() {
     // given
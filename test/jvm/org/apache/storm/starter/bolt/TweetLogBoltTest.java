@@ -0,0 +1,92 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.bolt;
+
+import org.apache.storm.Config;
+import org.apache.storm.starter.twitter.RawTweet;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.utils.MockTupleHelpers;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class TweetLogBoltTest {
+
+  private static final String ANY_NON_SYSTEM_COMPONENT_ID = "irrelevant_component_id";
+  private static final String ANY_NON_SYSTEM_STREAM_ID = "irrelevant_stream_id";
+  private static final int SMALL_SEGMENT_BYTES = 256;
+
+  private Tuple mockTweetTuple(String text) {
+    Tuple tuple = MockTupleHelpers.mockTuple(ANY_NON_SYSTEM_COMPONENT_ID, ANY_NON_SYSTEM_STREAM_ID);
+    when(tuple.getValue(0)).thenReturn(new RawTweet("{\"created_at\":\"Mon Oct 17 10:00:00 +0000 2016\","
+        + "\"id\":1001,\"text\":\"" + text + "\"}"));
+    return tuple;
+  }
+
+  @DataProvider
+  public Object[][] rotationIntervalsAndTickFrequencies() {
+    return new Object[][]{ { 1, 1 }, { 20, 5 }, { 600, 60 }, { 3600, 60 }, { 0, 60 } };
+  }
+
+  @Test(dataProvider = "rotationIntervalsAndTickFrequencies")
+  public void shouldTickAtAFractionOfTheRotationInterval(int rotationIntervalSeconds, int tickFrequencySeconds) {
+    // given
+    TweetLogBolt bolt = new TweetLogBolt("irrelevant_directory", SMALL_SEGMENT_BYTES, rotationIntervalSeconds);
+
+    // when
+    Map<String, Object> componentConfig = bolt.getComponentConfiguration();
+
+    // then
+    assertThat(componentConfig.get(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS)).isEqualTo(tickFrequencySeconds);
+  }
+
+  @SuppressWarnings("rawtypes")
+  @Test
+  public void shouldFailATweetThatDoesNotFitIntoASegment() throws IOException {
+    // given
+    TweetLogBolt bolt = new TweetLogBolt(Files.createTempDirectory("tweetlog").toString(), SMALL_SEGMENT_BYTES, 60);
+    OutputCollector collector = mock(OutputCollector.class);
+    bolt.prepare(mock(Map.class), mock(TopologyContext.class), collector);
+    StringBuilder oversized = new StringBuilder();
+    while (oversized.length() < SMALL_SEGMENT_BYTES) {
+      oversized.append("too long ");
+    }
+    Tuple oversizedTuple = mockTweetTuple(oversized.toString());
+    Tuple normalTuple = mockTweetTuple("fits");
+
+    // when
+    bolt.execute(oversizedTuple);
+    bolt.execute(normalTuple);
+    bolt.cleanup();
+
+    // then
+    verify(collector).reportError(any(IOException.class));
+    verify(collector).fail(oversizedTuple);
+    verify(collector).ack(normalTuple);
+  }
+
+}
@@ -0,0 +1,300 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.bolt;
+
+import org.apache.storm.Config;
+import org.apache.storm.starter.twitter.CompressedBlockFormat;
+import org.apache.storm.starter.twitter.CompressedBlockReader;
+import org.apache.storm.starter.twitter.TweetRecord;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.tuple.Values;
+import org.apache.storm.utils.MockTupleHelpers;
+import org.apache.storm.utils.Time;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class TweetsCounterPrinterBoltTest {
+
+  private static final String ANY_NON_SYSTEM_COMPONENT_ID = "irrelevant_component_id";
+  private static final String ANY_NON_SYSTEM_STREAM_ID = "irrelevant_stream_id";
+  private static final String COUNTER_COMPONENT_ID = "tweetsCounterPrinter";
+  private static final int TASK_ID = 7;
+  private static final int SYNC_POLICY_COUNT = 1000;
+  private static final long FILE_WAIT_MILLIS = 10000;
+  private static final int LEASE_SIZE = 4;
+  private static final int LEASE_TIMEOUT_SECS = 60;
+
+  private static Tuple mockTweetTuple(long id) {
+    Tuple tuple = MockTupleHelpers.mockTuple(ANY_NON_SYSTEM_COMPONENT_ID, ANY_NON_SYSTEM_STREAM_ID);
+    when(tuple.getValue(0)).thenReturn(new TweetRecord(id, TweetRecord.NO_RETWEETED_STATUS, 1000L * id, 42L, 10,
+        "en", "tweet " + id, Collections.<String>emptyList()));
+    return tuple;
+  }
+
+  private static Tuple mockGrant(long leaseId, long amount) {
+    Tuple tuple = MockTupleHelpers.mockTuple("quotaCoordinator", QuotaCoordinatorBolt.GRANT_STREAM);
+    when(tuple.getLongByField(QuotaCoordinatorBolt.LEASE_ID_FIELD)).thenReturn(leaseId);
+    when(tuple.getLongByField(QuotaCoordinatorBolt.GRANTED_FIELD)).thenReturn(amount);
+    return tuple;
+  }
+
+  private static void verifyQuotaMessage(OutputCollector collector, int times, long leaseId, long consumed,
+      long returned, boolean request) {
+    verify(collector, times(times)).emit(QuotaCoordinatorBolt.REQUEST_STREAM,
+        new Values(TASK_ID, leaseId, consumed, returned, request));
+  }
+
+  private static TweetsCounterPrinterBolt prepareQuotaBolt(OutputCollector collector) {
+    return prepareBolt(new TweetsCounterPrinterBolt("irrelevant_path", false).withQuota(LEASE_SIZE,
+        LEASE_TIMEOUT_SECS), collector);
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static TweetsCounterPrinterBolt prepareBolt(TweetsCounterPrinterBolt bolt, OutputCollector collector) {
+    TopologyContext context = mock(TopologyContext.class);
+    when(context.getThisTaskId()).thenReturn(TASK_ID);
+    when(context.getThisComponentId()).thenReturn(COUNTER_COMPONENT_ID);
+    when(context.getComponentTasks(COUNTER_COMPONENT_ID)).thenReturn(Collections.singletonList(TASK_ID));
+    bolt.prepare(mock(Map.class), context, collector);
+    return bolt;
+  }
+
+  /**
+   * Waits for the file sink to write out what it buffered, then inflates every complete block of the file
+   */
+  private static String readBlocks(File file, int expectedLength) throws Exception {
+    long deadline = System.currentTimeMillis() + FILE_WAIT_MILLIS;
+    while (true) {
+      if (file.length() > CompressedBlockFormat.HEADER_SIZE) {
+        ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+        try (CompressedBlockReader reader = new CompressedBlockReader(file)) {
+          for (int block = 0; block < reader.getBlockCount(); block++) {
+            uncompressed.write(reader.readBlock(block));
+          }
+        }
+        if (uncompressed.size() >= expectedLength || System.currentTimeMillis() > deadline) {
+          return new String(uncompressed.toByteArray(), StandardCharsets.UTF_8);
+        }
+      }
+      else if (System.currentTimeMillis() > deadline) {
+        return "";
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  @Test
+  public void tweetShouldBeEmittedAnchoredAndAcked() {
+    // given
+    OutputCollector collector = mock(OutputCollector.class);
+    TweetsCounterPrinterBolt bolt = prepareBolt(new TweetsCounterPrinterBolt("irrelevant_path", false), collector);
+    Tuple tuple = mockTweetTuple(1);
+
+    // when
+    bolt.execute(tuple);
+
+    // then
+    verify(collector).emit(tuple, new Values("tweet 1"));
+    verify(collector).ack(tuple);
+  }
+
+  @Test
+  public void tickTupleShouldWriteTheUnfinishedBlock() throws Exception {
+    // given
+    File output = new File(Files.createTempDirectory("counter").toFile(), "output.txt.dfb");
+    TweetsCounterPrinterBolt bolt = prepareBolt(new TweetsCounterPrinterBolt(output.getPath(), true, true),
+        mock(OutputCollector.class));
+    bolt.execute(mockTweetTuple(1));
+    bolt.execute(mockTweetTuple(2));
+
+    // when
+    bolt.execute(MockTupleHelpers.mockTickTuple());
+
+    // then
+    String expected = "tweet 1\n\ntweet 2\n\n";
+    try {
+      assertThat(readBlocks(output, expected.length())).isEqualTo(expected);
+    }
+    finally {
+      bolt.cleanup();
+    }
+  }
+
+  @Test
+  public void syncShouldWriteTheUnfinishedBlock() throws Exception {
+    // given
+    File output = new File(Files.createTempDirectory("counter").toFile(), "output.txt.dfb");
+    TweetsCounterPrinterBolt bolt = prepareBolt(new TweetsCounterPrinterBolt(output.getPath(), true, true),
+        mock(OutputCollector.class));
+    StringBuilder expected = new StringBuilder();
+
+    // when a sync policy's worth of tweets, far less than a block, is written
+    for (int i = 0; i < SYNC_POLICY_COUNT; i++) {
+      bolt.execute(mockTweetTuple(i));
+      expected.append("tweet ").append(i).append("\n\n");
+    }
+
+    // then
+    try {
+      assertThat(readBlocks(output, expected.length())).isEqualTo(expected.toString());
+    }
+    finally {
+      bolt.cleanup();
+    }
+  }
+
+  @Test
+  public void shouldOnlyTickWithCompressedLocalOutput() {
+    // given
+    TweetsCounterPrinterBolt compressed = new TweetsCounterPrinterBolt("irrelevant_path", true, true);
+    TweetsCounterPrinterBolt plain = new TweetsCounterPrinterBolt("irrelevant_path", true, false);
+
+    // when
+    Map<String, Object> compressedConfig = compressed.getComponentConfiguration();
+    Map<String, Object> plainConfig = plain.getComponentConfiguration();
+
+    // then
+    assertThat(compressedConfig.get(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS)).isEqualTo(1);
+    assertThat(plainConfig).isNull();
+  }
+
+  @Test
+  public void tweetsShouldWaitForTheLeaseAndAskForTheNextOneEarly() {
+    // given
+    OutputCollector collector = mock(OutputCollector.class);
+    TweetsCounterPrinterBolt bolt = prepareQuotaBolt(collector);
+    Tuple first = mockTweetTuple(1);
+
+    // when
+    bolt.execute(first);
+    verify(collector, never()).ack(first);
+    bolt.execute(mockGrant(0, LEASE_SIZE));
+    bolt.execute(mockTweetTuple(2));
+    bolt.execute(mockTweetTuple(3));
+
+    // then the request for the next lease goes out while a quarter of the current one is left
+    verifyQuotaMessage(collector, 1, QuotaCoordinatorBolt.NO_LEASE, 0, 0, true);
+    verify(collector).emit(first, new Values("tweet 1"));
+    verify(collector).ack(first);
+    verifyQuotaMessage(collector, 1, 0, 3, 0, true);
+    verify(collector, times(3)).emit(any(Tuple.class), any(Values.class));
+  }
+
+  @Test
+  public void unansweredRequestShouldBeSentAgain() {
+    // given the request or its grant is lost
+    Time.startSimulating();
+    OutputCollector collector = mock(OutputCollector.class);
+    TweetsCounterPrinterBolt bolt = prepareQuotaBolt(collector);
+    bolt.execute(mockTweetTuple(1));
+
+    // when
+    Time.advanceTime(LEASE_TIMEOUT_SECS * 1000L / 2 - 1);
+    bolt.execute(MockTupleHelpers.mockTickTuple());
+    Time.advanceTime(1);
+    bolt.execute(MockTupleHelpers.mockTickTuple());
+
+    // then
+    verifyQuotaMessage(collector, 2, QuotaCoordinatorBolt.NO_LEASE, 0, 0, true);
+
+    // cleanup
+    Time.stopSimulating();
+  }
+
+  @Test
+  public void leaseShouldBeGivenBackAfterHalfTheTimeout() {
+    // given
+    Time.startSimulating();
+    OutputCollector collector = mock(OutputCollector.class);
+    TweetsCounterPrinterBolt bolt = prepareQuotaBolt(collector);
+    bolt.execute(mockTweetTuple(1));
+    bolt.execute(mockGrant(5, LEASE_SIZE));
+
+    // when
+    Time.advanceTime(LEASE_TIMEOUT_SECS * 1000L / 2);
+    bolt.execute(MockTupleHelpers.mockTickTuple());
+    Tuple late = mockTweetTuple(2);
+    bolt.execute(late);
+
+    // then the rest of the lease is returned and the next tweet waits for a new one
+    verifyQuotaMessage(collector, 1, 5, 1, 3, false);
+    verifyQuotaMessage(collector, 2, QuotaCoordinatorBolt.NO_LEASE, 0, 0, true);
+    verify(collector, never()).ack(late);
+
+    // cleanup
+    Time.stopSimulating();
+  }
+
+  @Test
+  public void exhaustedQuotaShouldDropTweetsAndBeAskedForAgain() {
+    // given
+    Time.startSimulating();
+    OutputCollector collector = mock(OutputCollector.class);
+    TweetsCounterPrinterBolt bolt = prepareQuotaBolt(collector);
+    Tuple waiting = mockTweetTuple(1);
+    bolt.execute(waiting);
+
+    // when
+    bolt.execute(mockGrant(QuotaCoordinatorBolt.NO_LEASE, 0));
+    Tuple dropped = mockTweetTuple(2);
+    bolt.execute(dropped);
+    Time.advanceTime(LEASE_TIMEOUT_SECS * 1000L / 2);
+    bolt.execute(MockTupleHelpers.mockTickTuple());
+    bolt.execute(mockGrant(8, LEASE_SIZE));
+    Tuple counted = mockTweetTuple(3);
+    bolt.execute(counted);
+
+    // then leases reclaimed from other tasks are used again
+    verify(collector).ack(waiting);
+    verify(collector).ack(dropped);
+    verify(collector, never()).emit(eq(dropped), any(Values.class));
+    verifyQuotaMessage(collector, 2, QuotaCoordinatorBolt.NO_LEASE, 0, 0, true);
+    verify(collector).emit(counted, new Values("tweet 3"));
+
+    // cleanup
+    Time.stopSimulating();
+  }
+
+  @Test
+  public void shouldTickToCheckTheLeases() {
+    // given
+    TweetsCounterPrinterBolt bolt = new TweetsCounterPrinterBolt("irrelevant_path", false).withQuota(LEASE_SIZE,
+        LEASE_TIMEOUT_SECS);
+
+    // when
+    Map<String, Object> componentConfig = bolt.getComponentConfiguration();
+
+    // then
+    assertThat(componentConfig.get(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS)).isEqualTo(15);
+  }
+
+}
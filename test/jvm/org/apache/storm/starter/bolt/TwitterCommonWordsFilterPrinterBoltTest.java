@@ -0,0 +1,179 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.bolt;
+
+import org.apache.storm.Config;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.tuple.Values;
+import org.apache.storm.utils.MockTupleHelpers;
+import org.mockito.InOrder;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class TwitterCommonWordsFilterPrinterBoltTest {
+
+  private static final String ANY_NON_SYSTEM_COMPONENT_ID = "irrelevant_component_id";
+  private static final String ANY_NON_SYSTEM_STREAM_ID = "irrelevant_stream_id";
+
+  private Tuple mockNormalTuple(String text) {
+    Tuple tuple = MockTupleHelpers.mockTuple(ANY_NON_SYSTEM_COMPONENT_ID, ANY_NON_SYSTEM_STREAM_ID);
+    when(tuple.getValue(0)).thenReturn(text);
+    return tuple;
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static OutputCollector prepare(TwitterCommonWordsFilterPrinterBolt bolt) {
+    Map conf = mock(Map.class);
+    TopologyContext context = mock(TopologyContext.class);
+    OutputCollector collector = mock(OutputCollector.class);
+    bolt.prepare(conf, context, collector);
+    return collector;
+  }
+
+  @Test
+  public void shouldEmitTheCommonWordsOfEveryInputRightAwayWithoutAWindow() {
+    // given
+    TwitterCommonWordsFilterPrinterBolt bolt = new TwitterCommonWordsFilterPrinterBolt(null, false);
+    OutputCollector collector = prepare(bolt);
+    Tuple tuple = mockNormalTuple("storm storm kafka");
+
+    // when
+    bolt.execute(tuple);
+
+    // then
+    verify(collector).emit(new Values(" storm\n\n"));
+    verify(collector).ack(tuple);
+    assertThat(bolt.getComponentConfiguration()).isNull();
+  }
+
+  @Test
+  public void shouldEmitNothingBeforeTheFirstTickOfAWindow() {
+    // given
+    TwitterCommonWordsFilterPrinterBolt bolt = new TwitterCommonWordsFilterPrinterBolt(null, false).withWindow(4, 2);
+    OutputCollector collector = prepare(bolt);
+    Tuple tuple = mockNormalTuple("storm storm kafka");
+
+    // when
+    bolt.execute(tuple);
+
+    // then
+    verify(collector).ack(tuple);
+    verify(collector, never()).emit(any(Values.class));
+  }
+
+  @Test
+  public void tumblingWindowShouldStartEmptyAfterEveryTick() {
+    // given
+    TwitterCommonWordsFilterPrinterBolt bolt = new TwitterCommonWordsFilterPrinterBolt(null, false).withWindow(2, 2);
+    OutputCollector collector = prepare(bolt);
+    Tuple tickTuple = MockTupleHelpers.mockTickTuple();
+
+    // when
+    bolt.execute(mockNormalTuple("storm storm kafka"));
+    bolt.execute(tickTuple);
+    bolt.execute(tickTuple);
+    bolt.execute(mockNormalTuple("kafka kafka hdfs"));
+    bolt.execute(tickTuple);
+
+    // then the second window is empty, as the words of the first one count zero in it
+    InOrder inOrder = inOrder(collector);
+    inOrder.verify(collector).emit(new Values(" storm\n\n"));
+    inOrder.verify(collector).emit(new Values("\n\n"));
+    inOrder.verify(collector).emit(new Values(" kafka\n\n"));
+  }
+
+  @Test
+  public void slidingWindowShouldDropTheOldestSlotOnEveryTick() {
+    // given a window of two slots
+    TwitterCommonWordsFilterPrinterBolt bolt = new TwitterCommonWordsFilterPrinterBolt(null, false).withWindow(4, 2);
+    OutputCollector collector = prepare(bolt);
+    Tuple tickTuple = MockTupleHelpers.mockTickTuple();
+
+    // when
+    bolt.execute(mockNormalTuple("storm storm storm storm storm kafka"));
+    bolt.execute(tickTuple);
+    bolt.execute(mockNormalTuple("kafka kafka kafka hdfs hdfs spark"));
+    bolt.execute(tickTuple);
+    bolt.execute(tickTuple);
+
+    // then the third window only holds the second slot, and storm, whose total dropped to zero when the first slot
+    // was recycled, is not one of its words
+    InOrder inOrder = inOrder(collector);
+    inOrder.verify(collector).emit(new Values(" storm\n\n"));
+    inOrder.verify(collector).emit(new Values(" storm kafka\n\n"));
+    inOrder.verify(collector).emit(new Values(" kafka\n\n"));
+  }
+
+  @Test
+  public void stopWordsShouldNotBeCountedInAWindow() {
+    // given
+    TwitterCommonWordsFilterPrinterBolt bolt = new TwitterCommonWordsFilterPrinterBolt(null, false).withWindow(2, 2);
+    OutputCollector collector = prepare(bolt);
+
+    // when
+    bolt.execute(mockNormalTuple("the the the storm storm kafka"));
+    bolt.execute(MockTupleHelpers.mockTickTuple());
+
+    // then
+    verify(collector).emit(new Values(" storm\n\n"));
+  }
+
+  @Test
+  public void heavyHittersShouldBeEmittedWithTheirMaxErrorOnEveryTick() {
+    // given
+    TwitterCommonWordsFilterPrinterBolt bolt = new TwitterCommonWordsFilterPrinterBolt(null, false)
+        .withWindow(2, 2).withHeavyHitters(10);
+    OutputCollector collector = prepare(bolt);
+    Tuple tickTuple = MockTupleHelpers.mockTickTuple();
+
+    // when
+    bolt.execute(mockNormalTuple("storm storm kafka"));
+    bolt.execute(tickTuple);
+    bolt.execute(tickTuple);
+
+    // then
+    InOrder inOrder = inOrder(collector);
+    inOrder.verify(collector).emit(new Values(" storm\n\n", 0L));
+    inOrder.verify(collector).emit(new Values("\n\n", 0L));
+  }
+
+  @Test
+  public void shouldSetTheTickTupleFrequencyToTheEmitFrequency() {
+    // given
+    TwitterCommonWordsFilterPrinterBolt bolt = new TwitterCommonWordsFilterPrinterBolt(null, false).withWindow(6, 2);
+
+    // when
+    Map<String, Object> componentConfig = bolt.getComponentConfiguration();
+
+    // then
+    assertThat(componentConfig.get(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS)).isEqualTo(2);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void windowLengthShouldBeAMultipleOfTheEmitFrequency() {
+    new TwitterCommonWordsFilterPrinterBolt(null, false).withWindow(5, 2);
+  }
+
+}
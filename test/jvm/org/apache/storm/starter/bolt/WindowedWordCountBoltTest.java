@@ -0,0 +1,167 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.bolt;
+
+import org.apache.storm.Config;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.utils.MockTupleHelpers;
+import org.apache.storm.utils.Time;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class WindowedWordCountBoltTest {
+
+  private static final String SPLITTER_COMPONENT_ID = "commonWordsSplitter";
+  private static final String COUNTER_COMPONENT_ID = "commonWordsCounter";
+  private static final String ANY_NON_SYSTEM_STREAM_ID = "irrelevant_stream_id";
+  private static final int WINDOW_LENGTH_IN_SECONDS = 30;
+  private static final long WINDOW_LENGTH_MILLIS = WINDOW_LENGTH_IN_SECONDS * 1000L;
+  private static final int TASK_COUNT = 3;
+
+  private static Tuple mockWordTuple(String word, int count) {
+    Tuple tuple = MockTupleHelpers.mockTuple(SPLITTER_COMPONENT_ID, ANY_NON_SYSTEM_STREAM_ID);
+    when(tuple.getStringByField(CommonWordsSplitterBolt.WORD_FIELD)).thenReturn(word);
+    when(tuple.getIntegerByField(CommonWordsSplitterBolt.COUNT_FIELD)).thenReturn(count);
+    return tuple;
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static WindowedWordCountBolt prepareBolt(OutputCollector collector) {
+    TopologyContext context = mock(TopologyContext.class);
+    when(context.getThisComponentId()).thenReturn(COUNTER_COMPONENT_ID);
+    when(context.getComponentTasks(COUNTER_COMPONENT_ID)).thenReturn(Arrays.asList(1, 2, 3));
+    WindowedWordCountBolt bolt = new WindowedWordCountBolt(WINDOW_LENGTH_IN_SECONDS);
+    bolt.prepare(mock(Map.class), context, collector);
+    return bolt;
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static List<List> emittedWindows(OutputCollector collector, int times) {
+    ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+    verify(collector, times(times)).emit(captor.capture());
+    return captor.getAllValues();
+  }
+
+  @Test
+  @SuppressWarnings("rawtypes")
+  public void wordCountsShouldBeEmittedWhenTheWindowCloses() {
+    // given
+    Time.startSimulating();
+    OutputCollector collector = mock(OutputCollector.class);
+    WindowedWordCountBolt bolt = prepareBolt(collector);
+    Tuple storm = mockWordTuple("storm", 2);
+    bolt.execute(storm);
+    bolt.execute(mockWordTuple("tweets", 1));
+    bolt.execute(mockWordTuple("storm", 3));
+
+    // when
+    Time.advanceTime(WINDOW_LENGTH_MILLIS - 1);
+    bolt.execute(MockTupleHelpers.mockTickTuple());
+    verify(collector, never()).emit(any(List.class));
+    Time.advanceTime(1);
+    bolt.execute(MockTupleHelpers.mockTickTuple());
+
+    // then
+    List window = emittedWindows(collector, 1).get(0);
+    assertThat(window.get(0)).isEqualTo(0L);
+    assertThat(window.get(1)).isEqualTo(TASK_COUNT);
+    assertThat(window.get(2)).isEqualTo(Arrays.asList("storm", "tweets"));
+    assertThat((int[]) window.get(3)).isEqualTo(new int[]{ 5, 1 });
+    verify(collector).ack(storm);
+
+    // cleanup
+    Time.stopSimulating();
+  }
+
+  @Test
+  @SuppressWarnings("rawtypes")
+  public void windowsShouldBeAlignedToTheClock() {
+    // given a task that starts in the middle of window 1
+    Time.startSimulating();
+    Time.advanceTime(WINDOW_LENGTH_MILLIS + WINDOW_LENGTH_MILLIS / 2);
+    OutputCollector collector = mock(OutputCollector.class);
+    WindowedWordCountBolt bolt = prepareBolt(collector);
+    bolt.execute(mockWordTuple("storm", 1));
+
+    // when
+    Time.advanceTime(WINDOW_LENGTH_MILLIS / 2);
+    bolt.execute(mockWordTuple("tweets", 1));
+
+    // then window 1 closes at the end of its length, before the tuple of window 2 is counted
+    List window = emittedWindows(collector, 1).get(0);
+    assertThat(window.get(0)).isEqualTo(1L);
+    assertThat(window.get(2)).isEqualTo(Arrays.asList("storm"));
+
+    // cleanup
+    Time.stopSimulating();
+  }
+
+  @Test
+  @SuppressWarnings("rawtypes")
+  public void everyWindowShouldBeEmittedEvenWithoutWords() {
+    // given
+    Time.startSimulating();
+    OutputCollector collector = mock(OutputCollector.class);
+    WindowedWordCountBolt bolt = prepareBolt(collector);
+    bolt.execute(mockWordTuple("storm", 1));
+
+    // when no tick arrives for three windows
+    Time.advanceTime(3 * WINDOW_LENGTH_MILLIS);
+    bolt.execute(MockTupleHelpers.mockTickTuple());
+
+    // then the empty windows still mark their end
+    List<List> windows = emittedWindows(collector, 3);
+    for (int i = 0; i < 3; i++) {
+      assertThat(windows.get(i).get(0)).isEqualTo((long) i);
+    }
+    assertThat(windows.get(0).get(2)).isEqualTo(Arrays.asList("storm"));
+    assertThat((List) windows.get(1).get(2)).isEmpty();
+    assertThat((int[]) windows.get(2).get(3)).isEmpty();
+
+    // cleanup
+    Time.stopSimulating();
+  }
+
+  @Test
+  public void shouldTickEverySecond() {
+    // given
+    WindowedWordCountBolt bolt = new WindowedWordCountBolt(WINDOW_LENGTH_IN_SECONDS);
+
+    // when
+    Map<String, Object> componentConfig = bolt.getComponentConfiguration();
+
+    // then
+    assertThat(componentConfig.get(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS)).isEqualTo(1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void shouldRejectANonPositiveWindowLength() {
+    new WindowedWordCountBolt(0);
+  }
+
+}
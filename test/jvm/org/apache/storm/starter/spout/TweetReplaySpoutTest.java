@@ -0,0 +1,262 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.spout;
+
+import org.apache.storm.spout.SpoutOutputCollector;
+import org.apache.storm.starter.twitter.RawTweet;
+import org.apache.storm.starter.twitter.TweetRecord;
+import org.apache.storm.starter.twitter.TweetSegmentFormat;
+import org.apache.storm.starter.twitter.TweetSegmentWriter;
+import org.apache.storm.task.TopologyContext;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.Test;
+import twitter4j.Status;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.*;
+
+public class TweetReplaySpoutTest {
+
+  private static final String REPLAY_COMPONENT_ID = "replay";
+  private static final long CAPTURE_START_MILLIS = 1476698400000L;
+
+  private static String tweetJson(long id, String text) {
+    return "{\"created_at\":\"Mon Oct 17 10:00:00 +0000 2016\",\"id\":" + id + ",\"id_str\":\"" + id
+        + "\",\"text\":\"" + text + "\",\"lang\":\"en\",\"user\":{\"id\":42,\"id_str\":\"42\","
+        + "\"screen_name\":\"mock\",\"friends_count\":7,\"created_at\":\"Mon Oct 17 10:00:00 +0000 2016\"},"
+        + "\"entities\":{\"hashtags\":[]}}";
+  }
+
+  /**
+   * Captures the tweets with ids 1 to count, one second apart, into one segment per tweet
+   */
+  private static File captureOneTweetPerSegment(int count) throws IOException {
+    File directory = Files.createTempDirectory("segments").toFile();
+    // a segment takes at least one record, however small its size limit
+    TweetSegmentWriter writer = new TweetSegmentWriter(directory, TweetSegmentFormat.HEADER_SIZE + 1, count);
+    for (int id = 1; id <= count; id++) {
+      assertThat(writer.append(CAPTURE_START_MILLIS + id * 1000L, tweetJson(id, "tweet " + id))).isTrue();
+    }
+    writer.close();
+    assertThat(TweetSegmentFormat.listSegments(directory)).hasSize(count);
+    return directory;
+  }
+
+  private static TopologyContext taskContext(int taskIndex, Integer... taskIds) {
+    TopologyContext context = mock(TopologyContext.class);
+    when(context.getThisTaskIndex()).thenReturn(taskIndex);
+    when(context.getThisComponentId()).thenReturn(REPLAY_COMPONENT_ID);
+    when(context.getComponentTasks(REPLAY_COMPONENT_ID)).thenReturn(Arrays.asList(taskIds));
+    return context;
+  }
+
+  /**
+   * Records the first value of every tuple the collector is asked to emit
+   */
+  private static SpoutOutputCollector recordingCollector(final List<Object> emitted) {
+    SpoutOutputCollector collector = mock(SpoutOutputCollector.class);
+    when(collector.emit(anyListOf(Object.class))).thenAnswer(new Answer<List<Integer>>() {
+      @Override
+      public List<Integer> answer(InvocationOnMock invocation) {
+        emitted.add(((List<?>) invocation.getArguments()[0]).get(0));
+        return null;
+      }
+    });
+    return collector;
+  }
+
+  /**
+   * Opens the spout as the given task and replays everything it has, returning the ids of the emitted tweets
+   */
+  @SuppressWarnings("rawtypes")
+  private static List<Long> replayIds(TweetReplaySpout spout, TopologyContext context, int maxCalls) {
+    List<Object> emitted = new ArrayList<Object>();
+    spout.open(new HashMap(), context, recordingCollector(emitted));
+    try {
+      for (int call = 0; call < maxCalls; call++) {
+        spout.nextTuple();
+      }
+    }
+    finally {
+      spout.close();
+    }
+    List<Long> ids = new ArrayList<Long>();
+    for (Object tweet : emitted) {
+      ids.add(((RawTweet) tweet).getId());
+    }
+    return ids;
+  }
+
+  @Test
+  public void shardedTasksShouldReplayDisjointSegmentsRoundRobin() throws IOException {
+    // given
+    File directory = captureOneTweetPerSegment(5);
+
+    // when
+    List<Long> first = replayIds(new TweetReplaySpout(directory.getPath()).withRawJson(true).withSharding(true),
+        taskContext(0, 7, 8), 20);
+    List<Long> second = replayIds(new TweetReplaySpout(directory.getPath()).withRawJson(true).withSharding(true),
+        taskContext(1, 7, 8), 20);
+
+    // then
+    assertThat(first).isEqualTo(Arrays.asList(1L, 3L, 5L));
+    assertThat(second).isEqualTo(Arrays.asList(2L, 4L));
+  }
+
+  @Test
+  public void unshardedTasksShouldEachReplayAllSegments() throws IOException {
+    // given
+    File directory = captureOneTweetPerSegment(3);
+
+    // when
+    List<Long> second = replayIds(new TweetReplaySpout(directory.getPath()).withRawJson(true),
+        taskContext(1, 7, 8), 20);
+
+    // then
+    assertThat(second).isEqualTo(Arrays.asList(1L, 2L, 3L));
+  }
+
+  @Test
+  public void shardedTaskWithoutSegmentsShouldEmitNothing() throws IOException {
+    // given more tasks than segments
+    File directory = captureOneTweetPerSegment(2);
+
+    // when
+    List<Long> third = replayIds(new TweetReplaySpout(directory.getPath()).withRawJson(true).withSharding(true),
+        taskContext(2, 7, 8, 9), 20);
+
+    // then
+    assertThat(third).isEmpty();
+  }
+
+  @SuppressWarnings("rawtypes")
+  @Test
+  public void replayedStatusesShouldMatchTheCapturedTweets() throws IOException {
+    // given
+    File directory = captureOneTweetPerSegment(2);
+    TweetReplaySpout spout = new TweetReplaySpout(directory.getPath());
+    List<Object> emitted = new ArrayList<Object>();
+
+    // when
+    spout.open(new HashMap(), taskContext(0, 7), recordingCollector(emitted));
+    for (int call = 0; call < 10; call++) {
+      spout.nextTuple();
+    }
+    spout.close();
+
+    // then
+    assertThat(emitted).hasSize(2);
+    assertThat(((Status) emitted.get(0)).getId()).isEqualTo(1L);
+    assertThat(((Status) emitted.get(0)).getText()).isEqualTo("tweet 1");
+    assertThat(((Status) emitted.get(1)).getUser().getFriendsCount()).isEqualTo(7);
+  }
+
+  @SuppressWarnings("rawtypes")
+  @Test
+  public void replayedRecordsShouldMatchTheCapturedTweets() throws IOException {
+    // given
+    File directory = captureOneTweetPerSegment(2);
+    TweetReplaySpout spout = new TweetReplaySpout(directory.getPath()).withCompactRecords(true);
+    List<Object> emitted = new ArrayList<Object>();
+
+    // when
+    spout.open(new HashMap(), taskContext(0, 7), recordingCollector(emitted));
+    for (int call = 0; call < 10; call++) {
+      spout.nextTuple();
+    }
+    spout.close();
+
+    // then
+    assertThat(emitted).hasSize(2);
+    assertThat(((TweetRecord) emitted.get(1)).getId()).isEqualTo(2L);
+    assertThat(((TweetRecord) emitted.get(1)).getText()).isEqualTo("tweet 2");
+  }
+
+  @Test
+  public void loopingReplayShouldStartOverWithTheFirstSegment() throws IOException {
+    // given
+    File directory = captureOneTweetPerSegment(2);
+
+    // when
+    List<Long> ids = replayIds(new TweetReplaySpout(directory.getPath()).withRawJson(true).withLoop(true),
+        taskContext(0, 7), 5);
+
+    // then
+    assertThat(ids).isEqualTo(Arrays.asList(1L, 2L, 1L, 2L, 1L));
+  }
+
+  @SuppressWarnings("rawtypes")
+  @Test(timeOut = 30000)
+  public void replayShouldBePacedByTheCaptureTimestampsAndTheSpeedFactor() throws IOException {
+    // given three tweets captured a second apart, replayed ten times faster
+    File directory = captureOneTweetPerSegment(3);
+    TweetReplaySpout spout = new TweetReplaySpout(directory.getPath()).withRawJson(true).withSpeedFactor(10);
+    List<Object> emitted = new ArrayList<Object>();
+    List<Long> emitNanos = new ArrayList<Long>();
+    spout.open(new HashMap(), taskContext(0, 7), recordingCollector(emitted));
+
+    // when
+    long firstNanos = System.nanoTime();
+    spout.nextTuple();
+    spout.nextTuple();
+    int emittedRightAfterTheFirst = emitted.size();
+    while (emitted.size() < 3) {
+      int before = emitted.size();
+      spout.nextTuple();
+      if (emitted.size() > before) {
+        emitNanos.add(System.nanoTime() - firstNanos);
+      }
+    }
+    spout.close();
+
+    // then
+    assertThat(emittedRightAfterTheFirst).isEqualTo(1);
+    assertThat(emitNanos.get(0)).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+    assertThat(emitNanos.get(1)).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(200));
+  }
+
+  @Test
+  public void unthrottledReplayShouldEmitOnEveryCall() throws IOException {
+    // given tweets captured a second apart
+    File directory = captureOneTweetPerSegment(3);
+
+    // when
+    List<Long> ids = replayIds(new TweetReplaySpout(directory.getPath()).withRawJson(true)
+        .withSpeedFactor(TweetReplaySpout.UNTHROTTLED), taskContext(0, 7), 3);
+
+    // then
+    assertThat(ids).isEqualTo(Arrays.asList(1L, 2L, 3L));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void negativeSpeedFactorShouldBeRejected() {
+    new TweetReplaySpout("irrelevant").withSpeedFactor(-1);
+  }
+
+}
@@ -0,0 +1,178 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.spout;
+
+import org.apache.storm.spout.SpoutOutputCollector;
+import org.apache.storm.starter.tools.IdleStrategy;
+import org.apache.storm.starter.twitter.MockTwitterStreamServer;
+import org.apache.storm.starter.twitter.RawTweet;
+import org.apache.storm.task.TopologyContext;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.Test;
+import twitter4j.Status;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.*;
+
+public class TwitterSampleSpoutTest {
+
+  private static final long RECEIVE_TIMEOUT_MILLIS = 30000;
+  private static final List<String> SERVED_TWEETS = Arrays.asList(
+      tweetJson(1001L, "first mock tweet"),
+      tweetJson(1002L, "second mock tweet"),
+      tweetJson(1003L, "third mock tweet"));
+
+  private static String tweetJson(long id, String text) {
+    return "{\"created_at\":\"Mon Oct 17 10:00:00 +0000 2016\",\"id\":" + id + ",\"id_str\":\"" + id
+        + "\",\"text\":\"" + text + "\",\"lang\":\"en\",\"user\":{\"id\":42,\"id_str\":\"42\","
+        + "\"screen_name\":\"mock\",\"friends_count\":7,\"created_at\":\"Mon Oct 17 10:00:00 +0000 2016\"},"
+        + "\"entities\":{\"hashtags\":[]}}";
+  }
+
+  private static TwitterSampleSpout spoutFor(MockTwitterStreamServer server) {
+    return new TwitterSampleSpout("consumerKey", "consumerSecret", "accessToken", "accessTokenSecret", new String[0])
+        .withStreamBaseUrl(server.getStreamBaseUrl())
+        .withIdleStrategy(new IdleStrategy.Sleep(5));
+  }
+
+  /**
+   * Records the first value of every tuple the collector is asked to emit
+   */
+  private static SpoutOutputCollector recordingCollector(final List<Object> emitted) {
+    SpoutOutputCollector collector = mock(SpoutOutputCollector.class);
+    when(collector.emit(anyListOf(Object.class))).thenAnswer(new Answer<List<Integer>>() {
+      @Override
+      public List<Integer> answer(InvocationOnMock invocation) {
+        emitted.add(((List<?>) invocation.getArguments()[0]).get(0));
+        return null;
+      }
+    });
+    return collector;
+  }
+
+  /**
+   * Calls nextTuple until the spout emitted at least the given number of tweets, and returns the first ones
+   */
+  private static List<Object> receive(TwitterSampleSpout spout, List<Object> emitted, int count) {
+    long deadline = System.currentTimeMillis() + RECEIVE_TIMEOUT_MILLIS;
+    while (emitted.size() < count && System.currentTimeMillis() < deadline) {
+      spout.nextTuple();
+    }
+    // the stream reconnects once the mock server closed it, so the tweets might be served again
+    return emitted.size() > count ? emitted.subList(0, count) : emitted;
+  }
+
+  @SuppressWarnings("rawtypes")
+  @Test
+  public void shouldEmitTheTweetsServedByTheMockStreamAsStatuses() throws Exception {
+    // given
+    MockTwitterStreamServer server = new MockTwitterStreamServer(MockTwitterStreamServer.listSource(SERVED_TWEETS),
+        MockTwitterStreamServer.UNTHROTTLED, false, 0);
+    TwitterSampleSpout spout = spoutFor(server);
+    List<Object> emitted = new ArrayList<Object>();
+    SpoutOutputCollector collector = recordingCollector(emitted);
+
+    // when
+    List<Object> received;
+    try {
+      spout.open(new HashMap(), mock(TopologyContext.class), collector);
+      received = receive(spout, emitted, SERVED_TWEETS.size());
+    }
+    finally {
+      spout.close();
+      server.close();
+    }
+
+    // then
+    assertThat(received).hasSize(SERVED_TWEETS.size());
+    List<String> texts = new ArrayList<String>();
+    List<Long> ids = new ArrayList<Long>();
+    for (Object tweet : received) {
+      texts.add(((Status) tweet).getText());
+      ids.add(((Status) tweet).getId());
+    }
+    assertThat(ids).isEqualTo(Arrays.asList(1001L, 1002L, 1003L));
+    assertThat(texts).isEqualTo(Arrays.asList("first mock tweet", "second mock tweet", "third mock tweet"));
+  }
+
+  @SuppressWarnings("rawtypes")
+  @Test
+  public void shouldEmitTheRawJsonServedByTheMockStream() throws Exception {
+    // given
+    MockTwitterStreamServer server = new MockTwitterStreamServer(MockTwitterStreamServer.listSource(SERVED_TWEETS),
+        MockTwitterStreamServer.UNTHROTTLED, false, 0);
+    TwitterSampleSpout spout = spoutFor(server).withRawJson(true);
+    List<Object> emitted = new ArrayList<Object>();
+    SpoutOutputCollector collector = recordingCollector(emitted);
+
+    // when
+    List<Object> received;
+    try {
+      spout.open(new HashMap(), mock(TopologyContext.class), collector);
+      received = receive(spout, emitted, SERVED_TWEETS.size());
+    }
+    finally {
+      spout.close();
+      server.close();
+    }
+
+    // then
+    List<String> receivedJson = new ArrayList<String>();
+    for (Object tweet : received) {
+      receivedJson.add(((RawTweet) tweet).getJsonAsString());
+    }
+    assertThat(receivedJson).isEqualTo(SERVED_TWEETS);
+  }
+
+  @Test
+  public void keywordShardsShouldDealTheSortedKeywordsOutRoundRobin() {
+    // given
+    String[] keyWords = { "storm", "hadoop", "kafka", "spark", "flink" };
+
+    // when
+    String[] first = TwitterSampleSpout.keywordShard(keyWords, 0, 2);
+    String[] second = TwitterSampleSpout.keywordShard(keyWords, 1, 2);
+
+    // then every keyword is tracked by exactly one task, whatever order the keywords were given in
+    assertThat(first).isEqualTo(new String[]{ "flink", "kafka", "storm" });
+    assertThat(second).isEqualTo(new String[]{ "hadoop", "spark" });
+    assertThat(TwitterSampleSpout.keywordShard(new String[]{ "spark", "kafka", "flink", "hadoop", "storm" }, 0, 2))
+        .isEqualTo(first);
+    assertThat(keyWords).isEqualTo(new String[]{ "storm", "hadoop", "kafka", "spark", "flink" });
+  }
+
+  @Test
+  public void keywordShardShouldBeEmptyForTasksBeyondTheNumberOfKeywords() {
+    // given
+    String[] keyWords = { "storm", "kafka" };
+
+    // when
+    String[] shard = TwitterSampleSpout.keywordShard(keyWords, 2, 3);
+
+    // then
+    assertThat(shard).isEmpty();
+  }
+
+}
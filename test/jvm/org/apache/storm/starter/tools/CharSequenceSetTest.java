@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.tools;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class CharSequenceSetTest {
+
+  @Test
+  public void shouldContainExactlyItsMembers() {
+    // given
+    CharSequenceSet set = new CharSequenceSet(Arrays.asList("the", "a", "", "they're"));
+
+    // then
+    assertThat(set.size()).isEqualTo(4);
+    assertThat(set.contains("the")).isTrue();
+    assertThat(set.contains(new StringBuilder("they're"))).isTrue();
+    assertThat(set.contains("")).isTrue();
+    assertThat(set.contains("th")).isFalse();
+    assertThat(set.contains("them")).isFalse();
+    assertThat(set.contains("The")).isFalse();
+  }
+
+  @Test
+  public void emptySetShouldContainNothing() {
+    CharSequenceSet set = new CharSequenceSet(Collections.<String>emptyList());
+
+    assertThat(set.size()).isEqualTo(0);
+    assertThat(set.contains("")).isFalse();
+    assertThat(set.contains("a")).isFalse();
+  }
+
+  @Test
+  public void duplicatesShouldBeIgnored() {
+    CharSequenceSet set = new CharSequenceSet(Arrays.asList("x", "y", "x", "x"));
+
+    assertThat(set.size()).isEqualTo(2);
+    assertThat(set.contains("x")).isTrue();
+    assertThat(set.contains("y")).isTrue();
+  }
+
+  @Test
+  public void shouldFindAllMembersOfALargeSet() {
+    // given
+    List<String> members = new ArrayList<String>();
+    for (int i = 0; i < 10000; i++) {
+      members.add("word" + i);
+    }
+
+    // when
+    CharSequenceSet set = new CharSequenceSet(members);
+
+    // then
+    for (String member : members) {
+      assertThat(set.contains(member)).isTrue();
+    }
+    for (int i = 10000; i < 20000; i++) {
+      assertThat(set.contains("word" + i)).isFalse();
+    }
+  }
+
+  @Test
+  public void shouldMatchTheWordViewsOfTheTokenizer() {
+    // given
+    CharSequenceSet set = new CharSequenceSet(Arrays.asList("the", "storm"));
+    WordTokenizer tokenizer = new WordTokenizer().reset("The #Storm rises");
+    List<Boolean> matches = new ArrayList<Boolean>();
+
+    // when
+    while (tokenizer.next()) {
+      matches.add(set.contains(tokenizer.word()));
+    }
+
+    // then
+    assertThat(matches).containsExactly(true, true, false);
+  }
+
+  @Test
+  public void loadShouldSkipCommentsAndBlankLines() throws IOException {
+    // given
+    File file = File.createTempFile("stopwords", ".txt");
+    file.deleteOnExit();
+    Files.write(file.toPath(), Arrays.asList("# stop words", "", "  foo ", "bar", "   "), StandardCharsets.UTF_8);
+
+    // when
+    CharSequenceSet set = CharSequenceSet.load(file);
+
+    // then
+    assertThat(set.size()).isEqualTo(2);
+    assertThat(set.contains("foo")).isTrue();
+    assertThat(set.contains("bar")).isTrue();
+    assertThat(set.contains("# stop words")).isFalse();
+  }
+}
@@ -0,0 +1,159 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.tools;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class CountMinWindowCounterTest {
+
+  @DataProvider
+  public Object[][] illegalArgumentsData() {
+    return new Object[][]{ { 0, 10, 0.01, 0.01 }, { 2, 0, 0.01, 0.01 }, { 2, 10, 0.0, 0.01 }, { 2, 10, 1.0, 0.01 },
+        { 2, 10, 0.01, 0.0 }, { 2, 10, 0.01, 1.0 } };
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class, dataProvider = "illegalArgumentsData")
+  public void illegalArgumentsShouldThrowIAE(int windowLengthInSlots, int candidatesPerSlot, double relativeError,
+      double failureProbability) {
+    new CountMinWindowCounter<Object>(windowLengthInSlots, candidatesPerSlot, relativeError, failureProbability);
+  }
+
+  @Test
+  public void sketchDimensionsShouldFollowFromTheErrorBounds() {
+    CountMinWindowCounter<Object> counter = new CountMinWindowCounter<Object>(2, 10, 0.001, 0.01);
+
+    assertThat(counter.getWidth()).isEqualTo(2719);
+    assertThat(counter.getDepth()).isEqualTo(5);
+  }
+
+  @Test
+  public void newInstanceShouldHaveEmptyCounts() {
+    CountMinWindowCounter<Object> counter = new CountMinWindowCounter<Object>(3, 10, 0.01, 0.01);
+
+    assertThat(counter.getCountsThenAdvanceWindow()).isEmpty();
+    assertThat(counter.getMaxError()).isEqualTo(0);
+  }
+
+  @Test
+  public void objectsWithEqualHashCodesShouldShareTheirCounters() {
+    // given
+    CountMinWindowCounter<String> counter = new CountMinWindowCounter<String>(1, 10, 0.001, 0.001);
+    assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+
+    // when
+    counter.incrementCount("Aa");
+    counter.incrementCount("Aa");
+    counter.incrementCount("Aa");
+    counter.incrementCount("BB");
+    Map<String, Long> counts = counter.getCountsThenAdvanceWindow();
+
+    // then the estimates exceed the true counts by more than the error bound of 0.004
+    assertThat(counts.get("Aa")).isEqualTo(4L);
+    assertThat(counts.get("BB")).isEqualTo(4L);
+  }
+
+  @Test
+  public void countsShouldSlideOutOfTheWindow() {
+    // given
+    CountMinWindowCounter<String> counter = new CountMinWindowCounter<String>(2, 10, 0.01, 0.01);
+
+    // when
+    counter.incrementCount("a");
+    counter.incrementCount("a");
+    Map<String, Long> first = counter.getCountsThenAdvanceWindow();
+    counter.incrementCount("a");
+    counter.incrementCount("b");
+    Map<String, Long> second = counter.getCountsThenAdvanceWindow();
+    Map<String, Long> third = counter.getCountsThenAdvanceWindow();
+    Map<String, Long> fourth = counter.getCountsThenAdvanceWindow();
+
+    // then
+    assertThat(first).isEqualTo(singletonCounts("a", 2));
+    assertThat(second.get("a")).isEqualTo(3);
+    assertThat(second.get("b")).isEqualTo(1);
+    assertThat(third).hasSize(2);
+    assertThat(third.get("a")).isEqualTo(1);
+    assertThat(third.get("b")).isEqualTo(1);
+    assertThat(fourth).isEmpty();
+  }
+
+  @Test
+  public void singleSlotWindowShouldTumble() {
+    // given
+    CountMinWindowCounter<String> counter = new CountMinWindowCounter<String>(1, 10, 0.01, 0.01);
+
+    // when
+    counter.incrementCount("a");
+    Map<String, Long> first = counter.getCountsThenAdvanceWindow();
+    counter.incrementCount("b");
+    Map<String, Long> second = counter.getCountsThenAdvanceWindow();
+
+    // then
+    assertThat(first).isEqualTo(singletonCounts("a", 1));
+    assertThat(second).isEqualTo(singletonCounts("b", 1));
+  }
+
+  @Test
+  public void heavyHittersShouldBeFoundWithinTheErrorBound() {
+    // given
+    ZipfDistribution zipf = new ZipfDistribution(100000, 1.1);
+    Random random = new Random(7);
+    CountMinWindowCounter<Integer> counter = new CountMinWindowCounter<Integer>(3, 50, 0.001, 0.01);
+    Map<Integer, Long> trueCounts = new HashMap<Integer, Long>();
+
+    // when
+    Map<Integer, Long> counts = null;
+    for (int slot = 0; slot < 3; slot++) {
+      for (int i = 0; i < 50000; i++) {
+        int obj = zipf.sample(random);
+        counter.incrementCount(obj);
+        Long count = trueCounts.get(obj);
+        trueCounts.put(obj, count == null ? 1L : count + 1);
+      }
+      counts = counter.getCountsThenAdvanceWindow();
+    }
+
+    // then
+    assertThat(counter.getMaxError()).isEqualTo(150);
+    for (int rank = 0; rank < 10; rank++) {
+      assertThat(counts).containsKey(rank);
+    }
+    int withinBound = 0;
+    for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+      long trueCount = trueCounts.get(entry.getKey());
+      assertThat(entry.getValue()).isGreaterThanOrEqualTo(trueCount);
+      if (entry.getValue() - trueCount <= counter.getMaxError()) {
+        withinBound++;
+      }
+    }
+    assertThat(withinBound).isGreaterThanOrEqualTo((int) (counts.size() * 0.95));
+  }
+
+  private static Map<String, Long> singletonCounts(String obj, long count) {
+    Map<String, Long> counts = new HashMap<String, Long>();
+    counts.put(obj, count);
+    return counts;
+  }
+}
@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.tools;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class FlatSlotBasedCounterTest {
+
+  @DataProvider
+  public Object[][] illegalNumSlotsData() {
+    return new Object[][]{ { -10 }, { -1 }, { 0 } };
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class, dataProvider = "illegalNumSlotsData")
+  public void negativeOrZeroNumSlotsShouldThrowIAE(int numSlots) {
+    new FlatSlotBasedCounter<Object>(numSlots);
+  }
+
+  @Test
+  public void newInstanceShouldHaveEmptyCounts() {
+    FlatSlotBasedCounter<Object> counter = new FlatSlotBasedCounter<Object>(3);
+
+    assertThat(counter.getCounts()).isEmpty();
+    assertThat(counter.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void totalsShouldFollowIncrementsAndWipes() {
+    // given
+    FlatSlotBasedCounter<String> counter = new FlatSlotBasedCounter<String>(3);
+    counter.incrementCount("a", 0);
+    counter.incrementCount("a", 1);
+    counter.incrementCount("a", 1);
+    counter.incrementCount("b", 1);
+
+    // when
+    counter.wipeSlot(1);
+
+    // then
+    assertThat(counter.getCount("a", 0)).isEqualTo(1);
+    assertThat(counter.getCount("a", 1)).isEqualTo(0);
+    assertThat(counter.getTotalCount("a")).isEqualTo(1);
+    assertThat(counter.getTotalCount("b")).isEqualTo(0);
+    assertThat(counter.size()).isEqualTo(2);
+    counter.wipeZeros();
+    assertThat(counter.size()).isEqualTo(1);
+    assertThat(counter.getCounts()).isEqualTo(singletonCounts("a", 1));
+  }
+
+  @Test
+  public void forEachShouldVisitEveryObjectWithItsTotal() {
+    // given
+    FlatSlotBasedCounter<String> counter = new FlatSlotBasedCounter<String>(2);
+    counter.incrementCount("a", 0);
+    counter.incrementCount("a", 1);
+    counter.incrementCount("b", 1);
+    final Map<String, Long> visited = new HashMap<String, Long>();
+
+    // when
+    counter.forEach(new FlatSlotBasedCounter.Visitor<String>() {
+      @Override
+      public void visit(String obj, long totalCount) {
+        visited.put(obj, totalCount);
+      }
+    });
+
+    // then
+    assertThat(visited).hasSize(2);
+    assertThat(visited.get("a")).isEqualTo(2);
+    assertThat(visited.get("b")).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldMatchSlotBasedCounterAcrossGrowthAndRemovals() {
+    // given
+    int numSlots = 4;
+    FlatSlotBasedCounter<Integer> flat = new FlatSlotBasedCounter<Integer>(numSlots);
+    SlotBasedCounter<Integer> reference = new SlotBasedCounter<Integer>(numSlots);
+    Random random = new Random(11);
+
+    // when
+    for (int round = 0; round < 40; round++) {
+      int slot = round % numSlots;
+      for (int i = 0; i < 2000; i++) {
+        // objects drift over time, so older ones drop out of the window and get removed
+        int obj = round * 50 + random.nextInt(3000);
+        flat.incrementCount(obj, slot);
+        reference.incrementCount(obj, slot);
+      }
+      int nextSlot = (slot + 1) % numSlots;
+      assertThat(flat.getCounts()).isEqualTo(reference.getCounts());
+      flat.wipeZeros();
+      reference.wipeZeros();
+      flat.wipeSlot(nextSlot);
+      reference.wipeSlot(nextSlot);
+    }
+
+    // then
+    flat.wipeZeros();
+    reference.wipeZeros();
+    Map<Integer, Long> counts = flat.getCounts();
+    assertThat(counts).isEqualTo(reference.getCounts());
+    assertThat(flat.size()).isEqualTo(counts.size());
+    for (Integer obj : counts.keySet()) {
+      assertThat(flat.getCount(obj, 0)).isEqualTo(reference.getCount(obj, 0));
+    }
+  }
+
+  private static Map<String, Long> singletonCounts(String obj, long count) {
+    Map<String, Long> counts = new HashMap<String, Long>();
+    counts.put(obj, count);
+    return counts;
+  }
+}
@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.tools;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class IdleStrategyTest {
+
+  private static final long MIN_PARK_NANOS = 1000;
+  private static final long MAX_PARK_NANOS = 8000;
+
+  @DataProvider
+  public Object[][] illegalParkPeriodData() {
+    return new Object[][]{ { 0L, 1000L }, { -1L, 1000L }, { 2000L, 1000L } };
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class, dataProvider = "illegalParkPeriodData")
+  public void backoffParkShouldRejectIllegalPeriods(long minParkNanos, long maxParkNanos) {
+    new IdleStrategy.BackoffPark(minParkNanos, maxParkNanos);
+  }
+
+  @Test
+  public void backoffParkShouldDoubleThePeriodUpToTheMaximum() {
+    // given
+    IdleStrategy.BackoffPark strategy = new IdleStrategy.BackoffPark(MIN_PARK_NANOS, MAX_PARK_NANOS);
+    assertThat(strategy.nextParkNanos()).isEqualTo(MIN_PARK_NANOS);
+
+    // when
+    strategy.idle();
+    long second = strategy.nextParkNanos();
+    strategy.idle();
+    long third = strategy.nextParkNanos();
+    strategy.idle();
+    long fourth = strategy.nextParkNanos();
+    strategy.idle();
+    long fifth = strategy.nextParkNanos();
+
+    // then
+    assertThat(second).isEqualTo(2000L);
+    assertThat(third).isEqualTo(4000L);
+    assertThat(fourth).isEqualTo(MAX_PARK_NANOS);
+    assertThat(fifth).isEqualTo(MAX_PARK_NANOS);
+  }
+
+  @Test
+  public void backoffParkShouldCapAPeriodThatIsNotAPowerOfTwoOfTheMinimum() {
+    // given
+    IdleStrategy.BackoffPark strategy = new IdleStrategy.BackoffPark(MIN_PARK_NANOS, 3000);
+
+    // when
+    strategy.idle();
+    strategy.idle();
+
+    // then
+    assertThat(strategy.nextParkNanos()).isEqualTo(3000L);
+  }
+
+  @Test
+  public void backoffParkShouldStartOverAfterReset() {
+    // given
+    IdleStrategy.BackoffPark strategy = new IdleStrategy.BackoffPark(MIN_PARK_NANOS, MAX_PARK_NANOS);
+    strategy.idle();
+    strategy.idle();
+
+    // when
+    strategy.reset();
+
+    // then
+    assertThat(strategy.nextParkNanos()).isEqualTo(MIN_PARK_NANOS);
+    strategy.idle();
+    assertThat(strategy.nextParkNanos()).isEqualTo(2000L);
+  }
+
+  @Test
+  public void sleepShouldWaitAtLeastTheSleepPeriod() {
+    // given
+    IdleStrategy strategy = new IdleStrategy.Sleep(20);
+    long start = System.nanoTime();
+
+    // when
+    strategy.idle();
+    strategy.reset();
+
+    // then
+    assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+  }
+
+  @Test
+  public void sleepShouldReturnRightAwayAndKeepTheInterruptWhenInterrupted() {
+    // given
+    IdleStrategy strategy = new IdleStrategy.Sleep(60000);
+    Thread.currentThread().interrupt();
+
+    // when
+    strategy.idle();
+
+    // then
+    assertThat(Thread.interrupted()).isTrue();
+  }
+
+  @Test
+  public void busySpinAndYieldShouldReturnRightAway() {
+    // given
+    IdleStrategy busySpin = new IdleStrategy.BusySpin();
+    IdleStrategy yield = new IdleStrategy.Yield();
+    long start = System.nanoTime();
+
+    // when
+    for (int i = 0; i < 1000; i++) {
+      busySpin.idle();
+      yield.idle();
+    }
+    busySpin.reset();
+    yield.reset();
+
+    // then
+    assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(10));
+  }
+
+}
@@ -0,0 +1,114 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.tools;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class RotatingBloomFilterTest {
+
+  @DataProvider
+  public Object[][] illegalExpectedKeysData() {
+    return new Object[][]{ { -10 }, { -1 }, { 0 } };
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class, dataProvider = "illegalExpectedKeysData")
+  public void lessThanOneExpectedKeyShouldThrowIAE(int expectedKeys) {
+    new RotatingBloomFilter(expectedKeys, 0.01);
+  }
+
+  @DataProvider
+  public Object[][] illegalFalsePositiveRateData() {
+    return new Object[][]{ { -0.5 }, { 0.0 }, { 1.0 }, { 1.5 } };
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class, dataProvider = "illegalFalsePositiveRateData")
+  public void falsePositiveRateOutsideOpenUnitIntervalShouldThrowIAE(double falsePositiveRate) {
+    new RotatingBloomFilter(1000, falsePositiveRate);
+  }
+
+  @Test
+  public void putShouldReportWhetherKeyWasSeenBefore() {
+    // given
+    RotatingBloomFilter filter = new RotatingBloomFilter(1000, 0.001);
+
+    // when
+    boolean firstPut = filter.put(42L);
+    boolean secondPut = filter.put(42L);
+
+    // then
+    assertThat(firstPut).isFalse();
+    assertThat(secondPut).isTrue();
+    assertThat(filter.mightContain(42L)).isTrue();
+  }
+
+  @Test
+  public void keysShouldBeRememberedForOneRotationAndForgottenAfterTwo() {
+    // given
+    RotatingBloomFilter filter = new RotatingBloomFilter(1000, 0.001);
+    filter.put(42L);
+
+    // when
+    filter.rotate();
+
+    // then
+    assertThat(filter.mightContain(42L)).isTrue();
+    filter.rotate();
+    assertThat(filter.mightContain(42L)).isFalse();
+  }
+
+  @Test
+  public void keyPutAgainAfterRotationShouldSurviveTheNextRotation() {
+    // given
+    RotatingBloomFilter filter = new RotatingBloomFilter(1000, 0.001);
+    filter.put(42L);
+    filter.rotate();
+
+    // when
+    boolean seen = filter.put(42L);
+    filter.rotate();
+
+    // then
+    assertThat(seen).isTrue();
+    assertThat(filter.mightContain(42L)).isTrue();
+  }
+
+  @Test
+  public void falsePositiveRateShouldStayNearTargetAtExpectedLoad() {
+    // given
+    int expectedKeys = 10000;
+    RotatingBloomFilter filter = new RotatingBloomFilter(expectedKeys, 0.01);
+    long firstId = 924982347123000L;
+    for (long id = firstId; id < firstId + expectedKeys; id++) {
+      filter.put(id);
+    }
+
+    // when
+    int falsePositives = 0;
+    for (long id = firstId + expectedKeys; id < firstId + 2 * expectedKeys; id++) {
+      if (filter.mightContain(id)) {
+        falsePositives++;
+      }
+    }
+
+    // then
+    assertThat(falsePositives).isLessThan(expectedKeys * 2 / 100);
+  }
+}
@@ -0,0 +1,172 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.tools;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class SpaceSavingTest {
+
+  @DataProvider
+  public Object[][] illegalCapacityData() {
+    return new Object[][]{ { -10 }, { -1 }, { 0 } };
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class, dataProvider = "illegalCapacityData")
+  public void negativeOrZeroCapacityShouldThrowIAE(int capacity) {
+    new SpaceSaving<String>(capacity);
+  }
+
+  @Test
+  public void countsShouldBeExactAsLongAsTheSummaryIsNotFull() {
+    // given
+    SpaceSaving<String> summary = new SpaceSaving<String>(3);
+
+    // when
+    summary.offer("a");
+    summary.offer("b", 5);
+    summary.offer("a");
+
+    // then
+    assertThat(summary.getCount("a")).isEqualTo(2);
+    assertThat(summary.getCount("b")).isEqualTo(5);
+    assertThat(summary.getCount("c")).isEqualTo(0);
+    assertThat(summary.getMaxError()).isEqualTo(0);
+    assertThat(summary.getTotal()).isEqualTo(7);
+    assertThat(summary.getTop(5)).containsExactly("b", "a");
+  }
+
+  @Test
+  public void newObjectShouldReplaceTheSmallestCounterAndInheritItsCount() {
+    // given
+    SpaceSaving<String> summary = new SpaceSaving<String>(2);
+    summary.offer("a", 3);
+    summary.offer("b", 1);
+
+    // when
+    summary.offer("c", 2);
+
+    // then
+    assertThat(summary.size()).isEqualTo(2);
+    assertThat(summary.getCount("b")).isEqualTo(0);
+    assertThat(summary.getCount("c")).isEqualTo(3);
+    assertThat(summary.getError("c")).isEqualTo(1);
+    assertThat(summary.getMaxError()).isEqualTo(3);
+  }
+
+  @DataProvider
+  public Object[][] zipfStreamData() {
+    return new Object[][]{ { 50, 1.0 }, { 200, 1.2 }, { 1000, 0.8 } };
+  }
+
+  @Test(dataProvider = "zipfStreamData")
+  public void estimatesShouldStayWithinTheErrorBounds(int capacity, double exponent) {
+    // given
+    ZipfDistribution zipf = new ZipfDistribution(10000, exponent);
+    Random random = new Random(capacity);
+    Map<Integer, Long> trueCounts = new HashMap<Integer, Long>();
+    SpaceSaving<Integer> summary = new SpaceSaving<Integer>(capacity);
+
+    // when
+    for (int i = 0; i < 100000; i++) {
+      int obj = zipf.sample(random);
+      Long count = trueCounts.get(obj);
+      trueCounts.put(obj, count == null ? 1L : count + 1);
+      summary.offer(obj);
+    }
+
+    // then
+    assertThat(summary.getMaxError()).isLessThanOrEqualTo(summary.getTotal() / capacity);
+    for (Map.Entry<Integer, Long> entry : trueCounts.entrySet()) {
+      long estimate = summary.getCount(entry.getKey());
+      if (estimate > 0) {
+        assertThat(estimate).isGreaterThanOrEqualTo(entry.getValue());
+        assertThat(estimate - summary.getError(entry.getKey())).isLessThanOrEqualTo(entry.getValue());
+      }
+      else {
+        assertThat(entry.getValue()).isLessThanOrEqualTo(summary.getMaxError());
+      }
+    }
+  }
+
+  @Test
+  public void mergedSummaryShouldStayWithinTheErrorBoundsOfTheCombinedStream() {
+    // given
+    ZipfDistribution zipf = new ZipfDistribution(5000, 1.0);
+    Random random = new Random(42);
+    Map<Integer, Long> trueCounts = new HashMap<Integer, Long>();
+    SpaceSaving<Integer> first = new SpaceSaving<Integer>(100);
+    SpaceSaving<Integer> second = new SpaceSaving<Integer>(100);
+    for (int i = 0; i < 50000; i++) {
+      int obj = zipf.sample(random);
+      // the second stream counts the objects in reverse popularity, so both summaries monitor different objects
+      if (i % 2 == 0) {
+        first.offer(obj);
+      }
+      else {
+        obj = 4999 - obj;
+        second.offer(obj);
+      }
+      Long count = trueCounts.get(obj);
+      trueCounts.put(obj, count == null ? 1L : count + 1);
+    }
+
+    // when
+    first.merge(second);
+
+    // then
+    assertThat(first.size()).isEqualTo(100);
+    assertThat(first.getTotal()).isEqualTo(50000);
+    assertThat(first.getMaxError()).isLessThanOrEqualTo(first.getTotal() / 100);
+    for (Map.Entry<Integer, Long> entry : trueCounts.entrySet()) {
+      long estimate = first.getCount(entry.getKey());
+      if (estimate > 0) {
+        assertThat(estimate).isGreaterThanOrEqualTo(entry.getValue());
+        assertThat(estimate - first.getError(entry.getKey())).isLessThanOrEqualTo(entry.getValue());
+      }
+      else {
+        assertThat(entry.getValue()).isLessThanOrEqualTo(first.getMaxError());
+      }
+    }
+    assertThat(first.getTop(2)).containsOnly(0, 4999);
+  }
+
+  @Test
+  public void clearShouldForgetAllCounts() {
+    // given
+    SpaceSaving<String> summary = new SpaceSaving<String>(2);
+    summary.offer("a");
+    summary.offer("b");
+    summary.offer("c");
+
+    // when
+    summary.clear();
+
+    // then
+    assertThat(summary.size()).isEqualTo(0);
+    assertThat(summary.getTotal()).isEqualTo(0);
+    assertThat(summary.getMaxError()).isEqualTo(0);
+    assertThat(summary.getCount("c")).isEqualTo(0);
+  }
+}
@@ -0,0 +1,164 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.tools;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class SpscRingBufferTest {
+
+  @DataProvider
+  public Object[][] illegalCapacityData() {
+    return new Object[][]{ { -10 }, { -1 }, { 0 } };
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class, dataProvider = "illegalCapacityData")
+  public void negativeOrZeroCapacityShouldThrowIAE(int capacity) {
+    new SpscRingBuffer<Object>(capacity);
+  }
+
+  @DataProvider
+  public Object[][] capacityRoundingData() {
+    return new Object[][]{ { 1, 1 }, { 2, 2 }, { 3, 4 }, { 1000, 1024 }, { 1024, 1024 } };
+  }
+
+  @Test(dataProvider = "capacityRoundingData")
+  public void capacityShouldBeRoundedUpToPowerOfTwo(int requestedCapacity, int expCapacity) {
+    assertThat(new SpscRingBuffer<Object>(requestedCapacity).capacity()).isEqualTo(expCapacity);
+  }
+
+  @Test
+  public void shouldReturnElementsInInsertionOrder() {
+    // given
+    SpscRingBuffer<String> buffer = new SpscRingBuffer<String>(4);
+
+    // when
+    buffer.offer("a");
+    buffer.offer("b");
+    buffer.offer("c");
+
+    // then
+    assertThat(buffer.size()).isEqualTo(3);
+    assertThat(buffer.poll()).isEqualTo("a");
+    assertThat(buffer.poll()).isEqualTo("b");
+    assertThat(buffer.poll()).isEqualTo("c");
+    assertThat(buffer.poll()).isNull();
+    assertThat(buffer.isEmpty()).isTrue();
+  }
+
+  @Test
+  public void offerShouldRejectNewestElementWhenFull() {
+    // given
+    SpscRingBuffer<String> buffer = new SpscRingBuffer<String>(2);
+    buffer.offer("a");
+    buffer.offer("b");
+
+    // when
+    boolean accepted = buffer.offer("c");
+
+    // then
+    assertThat(accepted).isFalse();
+    assertThat(buffer.poll()).isEqualTo("a");
+    assertThat(buffer.poll()).isEqualTo("b");
+    assertThat(buffer.poll()).isNull();
+  }
+
+  @Test
+  public void offerEvictingOldestShouldReplaceOldestElementWhenFull() {
+    // given
+    SpscRingBuffer<String> buffer = new SpscRingBuffer<String>(2);
+    assertThat(buffer.offerEvictingOldest("a")).isFalse();
+    assertThat(buffer.offerEvictingOldest("b")).isFalse();
+
+    // when
+    boolean evicted = buffer.offerEvictingOldest("c");
+
+    // then
+    assertThat(evicted).isTrue();
+    assertThat(buffer.poll()).isEqualTo("b");
+    assertThat(buffer.poll()).isEqualTo("c");
+    assertThat(buffer.poll()).isNull();
+  }
+
+  @Test
+  public void pollShouldExposeStampOfPolledElement() {
+    // given
+    SpscRingBuffer<String> buffer = new SpscRingBuffer<String>(2);
+    buffer.offer("a", 10L);
+    buffer.offerEvictingOldest("b", 20L);
+    buffer.offerEvictingOldest("c", 30L);
+
+    // when
+    String polled = buffer.poll();
+
+    // then
+    assertThat(polled).isEqualTo("b");
+    assertThat(buffer.getLastPolledStamp()).isEqualTo(20L);
+  }
+
+  @Test
+  public void highWaterMarkShouldTrackMaximumOccupancyUntilReset() {
+    // given
+    SpscRingBuffer<String> buffer = new SpscRingBuffer<String>(8);
+    buffer.offer("a");
+    buffer.offer("b");
+    buffer.offer("c");
+    buffer.poll();
+    buffer.poll();
+
+    // when
+    long highWaterMark = buffer.getHighWaterMarkAndReset();
+
+    // then
+    assertThat(highWaterMark).isEqualTo(3);
+    assertThat(buffer.getHighWaterMarkAndReset()).isEqualTo(0);
+  }
+
+  @Test
+  public void concurrentProducerAndConsumerShouldNeitherLoseNorDuplicateElements() throws InterruptedException {
+    // given
+    final int numElements = 200000;
+    final SpscRingBuffer<Integer> buffer = new SpscRingBuffer<Integer>(64);
+    Thread producer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 0; i < numElements; i++) {
+          while (!buffer.offer(i)) {
+            Thread.yield();
+          }
+        }
+      }
+    });
+
+    // when
+    producer.start();
+    int expected = 0;
+    while (expected < numElements) {
+      Integer element = buffer.poll();
+      if (element != null) {
+        // then
+        assertThat(element).isEqualTo(expected);
+        expected++;
+      }
+    }
+    producer.join();
+    assertThat(buffer.poll()).isNull();
+  }
+}
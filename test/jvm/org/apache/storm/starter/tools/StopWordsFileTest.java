@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.tools;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class StopWordsFileTest {
+
+  private static final long POLL_INTERVAL_MILLIS = 1000L;
+  private static final long NOW_MILLIS = 1476698400000L;
+  private static final CharSequenceSet BUILT_IN = new CharSequenceSet(Arrays.asList("the", "a"));
+
+  private static File writeStopWords(File file, String content, long lastModified) throws IOException {
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    assertThat(file.setLastModified(lastModified)).isTrue();
+    return file;
+  }
+
+  @Test
+  public void missingFileShouldKeepTheInitialStopWords() throws IOException {
+    // given
+    File file = new File(Files.createTempDirectory("stopwords").toFile(), "missing.txt");
+    StopWordsFile stopWordsFile = new StopWordsFile(file.getPath(), BUILT_IN, POLL_INTERVAL_MILLIS);
+
+    // when
+    CharSequenceSet stopWords = stopWordsFile.poll(NOW_MILLIS);
+
+    // then
+    assertThat(stopWords).isSameAs(BUILT_IN);
+  }
+
+  @Test
+  public void fileShouldBeReadOnTheFirstPoll() throws IOException {
+    // given
+    File file = writeStopWords(File.createTempFile("stopwords", ".txt"), "# custom\nrt\nvia\n", NOW_MILLIS - 60000L);
+    file.deleteOnExit();
+    StopWordsFile stopWordsFile = new StopWordsFile(file.getPath(), BUILT_IN, POLL_INTERVAL_MILLIS);
+
+    // when
+    CharSequenceSet stopWords = stopWordsFile.poll(NOW_MILLIS);
+
+    // then
+    assertThat(stopWords.size()).isEqualTo(2);
+    assertThat(stopWords.contains("rt")).isTrue();
+    assertThat(stopWords.contains("the")).isFalse();
+  }
+
+  @Test
+  public void modifiedFileShouldOnlyBeReadAgainAfterThePollInterval() throws IOException {
+    // given
+    File file = writeStopWords(File.createTempFile("stopwords", ".txt"), "rt\n", NOW_MILLIS - 60000L);
+    file.deleteOnExit();
+    StopWordsFile stopWordsFile = new StopWordsFile(file.getPath(), BUILT_IN, POLL_INTERVAL_MILLIS);
+    stopWordsFile.poll(NOW_MILLIS);
+    writeStopWords(file, "via\n", NOW_MILLIS - 30000L);
+
+    // when
+    CharSequenceSet withinInterval = stopWordsFile.poll(NOW_MILLIS + POLL_INTERVAL_MILLIS - 1);
+    CharSequenceSet afterInterval = stopWordsFile.poll(NOW_MILLIS + POLL_INTERVAL_MILLIS);
+
+    // then
+    assertThat(withinInterval.contains("rt")).isTrue();
+    assertThat(afterInterval.contains("rt")).isFalse();
+    assertThat(afterInterval.contains("via")).isTrue();
+  }
+
+  @Test
+  public void unmodifiedFileShouldNotBeReadAgain() throws IOException {
+    // given
+    File file = writeStopWords(File.createTempFile("stopwords", ".txt"), "rt\n", NOW_MILLIS - 60000L);
+    file.deleteOnExit();
+    StopWordsFile stopWordsFile = new StopWordsFile(file.getPath(), BUILT_IN, POLL_INTERVAL_MILLIS);
+    CharSequenceSet first = stopWordsFile.poll(NOW_MILLIS);
+
+    // when
+    CharSequenceSet second = stopWordsFile.poll(NOW_MILLIS + 10 * POLL_INTERVAL_MILLIS);
+
+    // then
+    assertThat(second).isSameAs(first);
+  }
+
+}
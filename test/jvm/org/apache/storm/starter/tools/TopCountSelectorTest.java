@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.tools;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class TopCountSelectorTest {
+
+  @DataProvider
+  public Object[][] illegalArgumentsData() {
+    return new Object[][]{ { -1, 1 }, { 4, 1 }, { 2, -1 } };
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class, dataProvider = "illegalArgumentsData")
+  public void sizeOutsideOfCountsOrNegativeKShouldThrowIAE(int size, int k) {
+    new TopCountSelector().selectTop(new int[3], size, k, true);
+  }
+
+  @Test
+  public void orderedSelectionShouldReturnPositionsByDecreasingCount() {
+    // given
+    int[] counts = { 3, 9, 1, 7, 5, 8 };
+
+    // when
+    int[] positions = new TopCountSelector().selectTop(counts, counts.length, 3, true);
+
+    // then
+    assertThat(positions).isEqualTo(new int[]{ 1, 5, 3 });
+  }
+
+  @Test
+  public void tiesShouldBeWonByTheFirstPosition() {
+    // given
+    int[] counts = { 2, 5, 2, 5, 2, 1 };
+
+    // when
+    int[] positions = new TopCountSelector().selectTop(counts, counts.length, 4, true);
+
+    // then
+    assertThat(positions).isEqualTo(new int[]{ 1, 3, 0, 2 });
+  }
+
+  @Test
+  public void onlyTheFirstSizeCountsShouldBeConsidered() {
+    // given
+    int[] counts = { 1, 2, 3, 100, 200 };
+
+    // when
+    int[] positions = new TopCountSelector().selectTop(counts, 3, 5, true);
+
+    // then
+    assertThat(positions).isEqualTo(new int[]{ 2, 1, 0 });
+  }
+
+  @Test
+  public void zeroKOrEmptyCountsShouldSelectNothing() {
+    TopCountSelector selector = new TopCountSelector();
+
+    assertThat(selector.selectTop(new int[]{ 1, 2 }, 2, 0, true)).isEmpty();
+    assertThat(selector.selectTop(new int[0], 0, 3, false)).isEmpty();
+  }
+
+  @DataProvider
+  public Object[][] randomCountsData() {
+    return new Object[][]{ { 1, 1 }, { 2, 1 }, { 10, 5 }, { 1000, 500 }, { 1001, 1 }, { 5000, 4999 }, { 5000, 2500 } };
+  }
+
+  @Test(dataProvider = "randomCountsData")
+  public void selectionShouldMatchAFullSort(int size, int k) {
+    // given
+    Random random = new Random(size * 31 + k);
+    int[] counts = new int[size];
+    for (int i = 0; i < size; i++) {
+      counts[i] = random.nextInt(size / 4 + 1) - 3;
+    }
+    long[] sorted = new long[size];
+    for (int i = 0; i < size; i++) {
+      sorted[i] = ((long) counts[i] << 32) | (Integer.MAX_VALUE - i);
+    }
+    Arrays.sort(sorted);
+    int[] expPositions = new int[k];
+    for (int i = 0; i < k; i++) {
+      expPositions[i] = Integer.MAX_VALUE - (int) sorted[size - 1 - i];
+    }
+    TopCountSelector selector = new TopCountSelector();
+
+    // when
+    int[] ordered = selector.selectTop(counts, size, k, true);
+    int[] unordered = selector.selectTop(counts, size, k, false);
+
+    // then
+    assertThat(ordered).isEqualTo(expPositions);
+    Arrays.sort(unordered);
+    Arrays.sort(expPositions);
+    assertThat(unordered).isEqualTo(expPositions);
+  }
+}
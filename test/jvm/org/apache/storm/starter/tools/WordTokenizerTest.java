@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.tools;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class WordTokenizerTest {
+
+  private static List<String> tokenize(WordTokenizer tokenizer, String text) {
+    List<String> words = new ArrayList<String>();
+    tokenizer.reset(text);
+    while (tokenizer.next()) {
+      words.add(tokenizer.word().toString());
+    }
+    return words;
+  }
+
+  @DataProvider
+  public Object[][] tokenizeData() {
+    return new Object[][]{
+        { "", new String[0] },
+        { " \t\n ", new String[0] },
+        { "hello world", new String[]{ "hello", "world" } },
+        { "  Hello\t\tWORLD 42 ", new String[]{ "hello", "world", "42" } },
+        { "#Storm is #1", new String[]{ "storm", "is", "1" } },
+        { "RT @user: start the party rt Rt", new String[]{ "start", "the", "party" } },
+        { "# ## #rt", new String[0] },
+        { "don't stop, http://t.co/x caf\u00e9 ok", new String[]{ "ok" } },
+        { "a\u2003b", new String[0] }
+    };
+  }
+
+  @Test(dataProvider = "tokenizeData")
+  public void shouldExtractLowercasedAlphanumericWords(String text, String[] expWords) {
+    assertThat(tokenize(new WordTokenizer(), text)).isEqualTo(Arrays.asList(expWords));
+  }
+
+  @Test
+  public void wordShouldBeAReusableViewOfTheCurrentToken() {
+    // given
+    WordTokenizer tokenizer = new WordTokenizer().reset("#Foo bar");
+
+    // when
+    CharSequence word = tokenizer.word();
+    tokenizer.next();
+
+    // then
+    assertThat(word.length()).isEqualTo(3);
+    assertThat(word.charAt(0)).isEqualTo('f');
+    assertThat(word.subSequence(1, 3).toString()).isEqualTo("oo");
+    tokenizer.next();
+    assertThat(word.toString()).isEqualTo("bar");
+    assertThat(tokenizer.word()).isSameAs(word);
+  }
+
+  @Test
+  public void shouldBeReusableForLongerTexts() {
+    // given
+    WordTokenizer tokenizer = new WordTokenizer();
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      text.append("word").append(i).append(' ');
+    }
+    tokenize(tokenizer, "short text");
+
+    // when
+    List<String> words = tokenize(tokenizer, text.toString());
+
+    // then
+    assertThat(words).hasSize(1000);
+    assertThat(words.get(999)).isEqualTo("word999");
+    assertThat(tokenize(tokenizer, "short again")).containsExactly("short", "again");
+  }
+
+  @Test(expectedExceptions = IndexOutOfBoundsException.class)
+  public void charAtOutsideOfTheWordShouldThrowIOOBE() {
+    WordTokenizer tokenizer = new WordTokenizer().reset("abc");
+    tokenizer.next();
+    tokenizer.word().charAt(3);
+  }
+}
@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.tools;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.offset;
+
+public class ZipfDistributionTest {
+
+  private static final int NUM_SAMPLES = 200000;
+
+  @DataProvider
+  public Object[][] illegalNumRanksData() {
+    return new Object[][]{ { -10 }, { -1 }, { 0 } };
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class, dataProvider = "illegalNumRanksData")
+  public void lessThanOneRankShouldThrowIAE(int numRanks) {
+    new ZipfDistribution(numRanks, 1.0);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void negativeExponentShouldThrowIAE() {
+    new ZipfDistribution(10, -0.5);
+  }
+
+  @Test
+  public void singleRankShouldAlwaysBeSampled() {
+    // given
+    ZipfDistribution distribution = new ZipfDistribution(1, 1.0);
+    Random random = new Random(42);
+
+    // when
+    int rank = distribution.sample(random);
+
+    // then
+    assertThat(rank).isEqualTo(0);
+  }
+
+  @DataProvider
+  public Object[][] distributionData() {
+    return new Object[][]{ { 10, 0.0 }, { 10, 1.0 }, { 100, 1.2 } };
+  }
+
+  @Test(dataProvider = "distributionData")
+  public void sampledFrequenciesShouldMatchZipfLaw(int numRanks, double exponent) {
+    // given
+    ZipfDistribution distribution = new ZipfDistribution(numRanks, exponent);
+    Random random = new Random(42);
+    double normalization = 0;
+    for (int k = 1; k <= numRanks; k++) {
+      normalization += 1.0 / Math.pow(k, exponent);
+    }
+
+    // when
+    int[] counts = new int[numRanks];
+    for (int i = 0; i < NUM_SAMPLES; i++) {
+      counts[distribution.sample(random)]++;
+    }
+
+    // then
+    for (int k = 0; k < Math.min(numRanks, 5); k++) {
+      double expFrequency = 1.0 / Math.pow(k + 1, exponent) / normalization;
+      assertThat((double) counts[k] / NUM_SAMPLES).isEqualTo(expFrequency, offset(0.01));
+    }
+  }
+}
@@ -0,0 +1,212 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.twitter;
+
+import org.apache.storm.hdfs.bolt.rotation.FileSizeRotationPolicy;
+import org.apache.storm.hdfs.bolt.rotation.NoRotationPolicy;
+import org.apache.storm.hdfs.bolt.rotation.TimedRotationPolicy;
+import org.apache.storm.hdfs.bolt.sync.CountSyncPolicy;
+import org.apache.storm.tuple.Tuple;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+
+public class BufferedFileSinkTest {
+
+  private static final long LONG_FLUSH_INTERVAL_MILLIS = 60000;
+
+  private static String read(File file) throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+  }
+
+  private static String repeat(char c, int times) {
+    char[] chars = new char[times];
+    Arrays.fill(chars, c);
+    return new String(chars);
+  }
+
+  @Test
+  public void shouldWriteAllRecordsOnClose() throws IOException {
+    // given
+    File directory = Files.createTempDirectory("sink").toFile();
+    File output = new File(directory, "output.txt");
+    Tuple tuple = mock(Tuple.class);
+    BufferedFileSink sink = new BufferedFileSink(output.getPath(), 16, new CountSyncPolicy(1000),
+        new NoRotationPolicy(), LONG_FLUSH_INTERVAL_MILLIS);
+
+    // when
+    sink.write(tuple, "first record spanning both buffers\n");
+    sink.write(tuple, "second\n".getBytes(StandardCharsets.UTF_8));
+    sink.write(tuple, "caf\u00e9\n");
+    sink.close();
+
+    // then
+    assertThat(read(output)).isEqualTo("first record spanning both buffers\nsecond\ncaf\u00e9\n");
+    assertThat(directory.list()).containsOnly("output.txt");
+  }
+
+  @Test
+  public void shouldStartTheNextFileWhenTheRotationPolicyFires() throws IOException {
+    // given
+    File directory = Files.createTempDirectory("sink").toFile();
+    File output = new File(directory, "output.txt");
+    Tuple tuple = mock(Tuple.class);
+    BufferedFileSink sink = new BufferedFileSink(output.getPath(), 4096, new CountSyncPolicy(1),
+        new FileSizeRotationPolicy(1.0f, FileSizeRotationPolicy.Units.KB), LONG_FLUSH_INTERVAL_MILLIS);
+    String a = repeat('a', 599) + "\n";
+    String b = repeat('b', 599) + "\n";
+    String c = repeat('c', 599) + "\n";
+
+    // when
+    sink.write(tuple, a);
+    sink.write(tuple, b);
+    sink.write(tuple, c);
+    sink.close();
+
+    // then
+    assertThat(read(output)).isEqualTo(a + b);
+    assertThat(read(new File(directory, "output.txt.1"))).isEqualTo(c);
+    assertThat(directory.list()).containsOnly("output.txt", "output.txt.1");
+  }
+
+  @Test
+  public void shouldFlushBufferedRecordsOnTheFlushInterval() throws Exception {
+    // given
+    File output = new File(Files.createTempDirectory("sink").toFile(), "output.txt");
+    BufferedFileSink sink = new BufferedFileSink(output.getPath(), 4096, new CountSyncPolicy(1000),
+        new NoRotationPolicy(), 10);
+
+    // when
+    sink.write(mock(Tuple.class), "buffered\n");
+    long deadline = System.currentTimeMillis() + 10000;
+    while (output.length() == 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+
+    // then
+    try {
+      assertThat(read(output)).isEqualTo("buffered\n");
+    }
+    finally {
+      sink.close();
+    }
+  }
+
+  @Test(timeOut = 30000)
+  public void shouldSurfaceABackgroundWriteFailureInsteadOfBlocking() throws IOException {
+    // given the file to rotate to can not be opened, as a directory of the same name exists
+    File directory = Files.createTempDirectory("sink").toFile();
+    File output = new File(directory, "output.txt");
+    assertThat(new File(directory, "output.txt.1").mkdir()).isTrue();
+    Tuple tuple = mock(Tuple.class);
+    BufferedFileSink sink = new BufferedFileSink(output.getPath(), 16, new CountSyncPolicy(1000),
+        new FileSizeRotationPolicy(1.0f, FileSizeRotationPolicy.Units.KB), LONG_FLUSH_INTERVAL_MILLIS);
+    String record = repeat('x', 99) + "\n";
+
+    // when
+    try {
+      while (true) {
+        sink.write(tuple, record);
+      }
+    }
+    catch (IOException e) {
+      // then
+      assertThat(e.getMessage()).contains(output.getPath());
+    }
+    try {
+      sink.close();
+      fail("close should report the failure as well");
+    }
+    catch (IOException expected) {
+    }
+  }
+
+  @Test(timeOut = 30000)
+  public void recordsShouldKeepTheirOrderAcrossIntervalFlushesAndTimedRotations() throws Exception {
+    // given buffers that fill up while the background thread flushes every millisecond and rotates every 20
+    File directory = Files.createTempDirectory("sink").toFile();
+    File output = new File(directory, "output.txt");
+    Tuple tuple = mock(Tuple.class);
+    BufferedFileSink sink = new BufferedFileSink(output.getPath(), 64, new CountSyncPolicy(1000),
+        new TimedRotationPolicy(0.02f, TimedRotationPolicy.TimeUnit.SECONDS), 1);
+    StringBuilder expected = new StringBuilder();
+
+    // when
+    for (int i = 0; i < 20000; i++) {
+      String record = "record " + i + "\n";
+      expected.append(record);
+      if (i % 2 == 0) {
+        sink.write(tuple, record);
+      }
+      else {
+        sink.write(tuple, record.getBytes(StandardCharsets.UTF_8));
+      }
+      if (i % 5000 == 4999) {
+        // a rotation is due at least once per pause, however fast the records are written
+        Thread.sleep(30);
+      }
+    }
+    sink.close();
+
+    // then the files, in the order they were started, hold the records in the order they were written
+    ByteArrayOutputStream written = new ByteArrayOutputStream();
+    written.write(Files.readAllBytes(output.toPath()));
+    for (int index = 1; index < directory.list().length; index++) {
+      written.write(Files.readAllBytes(new File(directory, "output.txt." + index).toPath()));
+    }
+    assertThat(directory.list().length).isGreaterThan(1);
+    assertThat(new String(written.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(expected.toString());
+  }
+
+  @Test(timeOut = 30000)
+  public void closeShouldNotWaitForAnInterruptedBackgroundThread() throws Exception {
+    // given
+    File output = new File(Files.createTempDirectory("sink").toFile(), "output.txt");
+    BufferedFileSink sink = new BufferedFileSink(output.getPath(), 4096, new CountSyncPolicy(1000),
+        new NoRotationPolicy(), LONG_FLUSH_INTERVAL_MILLIS);
+    Thread flusher = null;
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().equals("buffered-file-sink-" + output.getPath())) {
+        flusher = thread;
+      }
+    }
+    assertThat(flusher).isNotNull();
+    flusher.interrupt();
+    flusher.join();
+
+    // when
+    try {
+      sink.close();
+      fail("close should report that nothing was written");
+    }
+    catch (IOException expected) {
+      // then
+      assertThat(expected.getMessage()).contains(output.getPath());
+    }
+  }
+
+}
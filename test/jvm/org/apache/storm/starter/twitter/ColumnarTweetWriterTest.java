@@ -0,0 +1,251 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.twitter;
+
+import org.apache.storm.starter.twitter.ColumnarTweetFormat.Column;
+import org.apache.storm.starter.twitter.ColumnarTweetReader.ColumnRange;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class ColumnarTweetWriterTest {
+
+  private static final int SMALL_STRIPE_ROWS = 10;
+  private static final long FIRST_STATUS_ID = 700000000000000000L;
+  private static final long FIRST_CREATED_AT = 1476698400000L;
+
+  private static TweetRecord tweetOf(int i) {
+    List<String> hashtags = i % 3 == 0 ? Arrays.asList("storm", "tag" + (i % 2)) : Collections.<String>emptyList();
+    return new TweetRecord(FIRST_STATUS_ID + i,
+        i % 4 == 0 ? FIRST_STATUS_ID - i : TweetRecord.NO_RETWEETED_STATUS,
+        FIRST_CREATED_AT + i * 1000L,
+        i % 5 == 0 ? TweetRecord.UNKNOWN_USER_ID : 100 + i % 7,
+        i * 3,
+        i % 6 == 0 ? null : (i % 2 == 0 ? "en" : "fr"),
+        i % 9 == 0 ? null : "tweet number " + i + " \u2764",
+        hashtags);
+  }
+
+  private static File newFile() throws IOException {
+    return new File(Files.createTempDirectory("columnar").toFile(), "tweets" + ColumnarTweetFormat.FILE_EXTENSION);
+  }
+
+  private static void appendTweets(ColumnarTweetWriter writer, int from, int to) throws IOException {
+    for (int i = from; i < to; i++) {
+      writer.append(tweetOf(i));
+    }
+  }
+
+  private static List<TweetRecord> readAll(ColumnarTweetReader reader) throws IOException {
+    List<TweetRecord> tweets = new ArrayList<TweetRecord>();
+    ColumnarTweetReader.Cursor cursor = reader.scan(EnumSet.allOf(Column.class));
+    while (cursor.advance()) {
+      tweets.add(new TweetRecord(cursor.getId(), cursor.getRetweetedStatusId(), cursor.getCreatedAtMillis(),
+          cursor.getUserId(), cursor.getFriendsCount(), cursor.getLang(), cursor.getText(), cursor.getHashtags()));
+    }
+    return tweets;
+  }
+
+  private static List<TweetRecord> tweets(int from, int to) {
+    List<TweetRecord> tweets = new ArrayList<TweetRecord>();
+    for (int i = from; i < to; i++) {
+      tweets.add(tweetOf(i));
+    }
+    return tweets;
+  }
+
+  @Test
+  public void closedFileShouldGiveBackEveryField() throws IOException {
+    // given
+    File file = newFile();
+    ColumnarTweetWriter writer = new ColumnarTweetWriter(file, SMALL_STRIPE_ROWS);
+
+    // when
+    appendTweets(writer, 0, 45);
+    writer.close();
+    ColumnarTweetReader reader = new ColumnarTweetReader(file);
+
+    // then
+    assertThat(reader.getStripeCount()).isEqualTo(5);
+    assertThat(reader.getRowCount()).isEqualTo(45);
+    assertThat(readAll(reader)).isEqualTo(tweets(0, 45));
+    reader.close();
+  }
+
+  @Test
+  public void fileShouldBeReadableUpToItsLastStripeWithoutBeingClosed() throws IOException {
+    // given a writer that is never closed, with a partial stripe in memory
+    File file = newFile();
+    ColumnarTweetWriter writer = new ColumnarTweetWriter(file, SMALL_STRIPE_ROWS);
+
+    // when
+    appendTweets(writer, 0, 25);
+    ColumnarTweetReader reader = new ColumnarTweetReader(file);
+
+    // then
+    assertThat(writer.getBufferedRowCount()).isEqualTo(5);
+    assertThat(reader.getStripeCount()).isEqualTo(2);
+    assertThat(readAll(reader)).isEqualTo(tweets(0, 20));
+    reader.close();
+    writer.close();
+  }
+
+  @Test
+  public void flushShouldWriteThePartialStripe() throws IOException {
+    // given
+    File file = newFile();
+    ColumnarTweetWriter writer = new ColumnarTweetWriter(file, SMALL_STRIPE_ROWS);
+    appendTweets(writer, 0, 13);
+
+    // when
+    writer.flush();
+    appendTweets(writer, 13, 30);
+    ColumnarTweetReader reader = new ColumnarTweetReader(file);
+
+    // then stripes of 10, 3 and 10 rows, the last 7 tweets are still in memory
+    assertThat(writer.getBufferedRowCount()).isEqualTo(7);
+    assertThat(reader.getStripeCount()).isEqualTo(3);
+    assertThat(readAll(reader)).isEqualTo(tweets(0, 23));
+    reader.close();
+    writer.close();
+    ColumnarTweetReader closedReader = new ColumnarTweetReader(file);
+    assertThat(readAll(closedReader)).isEqualTo(tweets(0, 30));
+    closedReader.close();
+  }
+
+  @Test
+  public void newFileShouldBeReadableBeforeTheFirstStripe() throws IOException {
+    // given
+    File file = newFile();
+
+    // when
+    ColumnarTweetWriter writer = new ColumnarTweetWriter(file, SMALL_STRIPE_ROWS);
+    ColumnarTweetReader reader = new ColumnarTweetReader(file);
+
+    // then
+    assertThat(reader.getStripeCount()).isZero();
+    assertThat(readAll(reader)).isEmpty();
+    reader.close();
+    writer.close();
+  }
+
+  @Test
+  public void rangePredicateShouldSkipStripesWithoutMatches() throws IOException {
+    // given
+    File file = newFile();
+    ColumnarTweetWriter writer = new ColumnarTweetWriter(file, SMALL_STRIPE_ROWS);
+    appendTweets(writer, 0, 50);
+    writer.close();
+    ColumnarTweetReader reader = new ColumnarTweetReader(file);
+
+    // when tweets 22 to 27 are asked for, all in the third stripe
+    ColumnarTweetReader.Cursor cursor = reader.scan(EnumSet.of(Column.ID, Column.TEXT),
+        new ColumnRange(Column.CREATED_AT, FIRST_CREATED_AT + 22000L, FIRST_CREATED_AT + 27000L));
+    List<Long> ids = new ArrayList<Long>();
+    List<String> texts = new ArrayList<String>();
+    while (cursor.advance()) {
+      ids.add(cursor.getId());
+      texts.add(cursor.getText());
+    }
+
+    // then
+    List<Long> expectedIds = new ArrayList<Long>();
+    List<String> expectedTexts = new ArrayList<String>();
+    for (int i = 22; i <= 27; i++) {
+      expectedIds.add(FIRST_STATUS_ID + i);
+      expectedTexts.add(tweetOf(i).getText());
+    }
+    assertThat(ids).isEqualTo(expectedIds);
+    assertThat(texts).isEqualTo(expectedTexts);
+    assertThat(cursor.getSkippedStripeCount()).isEqualTo(4);
+    reader.close();
+  }
+
+  @Test
+  public void predicatesShouldBeCombined() throws IOException {
+    // given
+    File file = newFile();
+    ColumnarTweetWriter writer = new ColumnarTweetWriter(file, SMALL_STRIPE_ROWS);
+    appendTweets(writer, 0, 50);
+    writer.close();
+    ColumnarTweetReader reader = new ColumnarTweetReader(file);
+
+    // when
+    ColumnarTweetReader.Cursor cursor = reader.scan(EnumSet.of(Column.ID),
+        new ColumnRange(Column.ID, FIRST_STATUS_ID + 10, FIRST_STATUS_ID + 39),
+        new ColumnRange(Column.FRIENDS_COUNT, 0, 60));
+    List<Long> ids = new ArrayList<Long>();
+    while (cursor.advance()) {
+      ids.add(cursor.getId());
+    }
+
+    // then ids 10 to 20 have at most 60 friends, the stripes of ids 0-9 and 40-49 are never read
+    List<Long> expectedIds = new ArrayList<Long>();
+    for (int i = 10; i <= 20; i++) {
+      expectedIds.add(FIRST_STATUS_ID + i);
+    }
+    assertThat(ids).isEqualTo(expectedIds);
+    assertThat(cursor.getSkippedStripeCount()).isEqualTo(3);
+    reader.close();
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void unprojectedColumnShouldNotBeReadable() throws IOException {
+    // given
+    File file = newFile();
+    ColumnarTweetWriter writer = new ColumnarTweetWriter(file, SMALL_STRIPE_ROWS);
+    appendTweets(writer, 0, 5);
+    writer.close();
+    ColumnarTweetReader reader = new ColumnarTweetReader(file);
+    ColumnarTweetReader.Cursor cursor = reader.scan(EnumSet.of(Column.ID));
+    cursor.advance();
+
+    // when
+    cursor.getText();
+
+    // then the getter throws
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void tornFooterShouldBeRejected() throws IOException {
+    // given a file cut off in its trailer
+    File file = newFile();
+    ColumnarTweetWriter writer = new ColumnarTweetWriter(file, SMALL_STRIPE_ROWS);
+    appendTweets(writer, 0, 15);
+    writer.close();
+    try (RandomAccessFile truncated = new RandomAccessFile(file, "rw")) {
+      truncated.setLength(truncated.length() - 2);
+    }
+
+    // when
+    new ColumnarTweetReader(file);
+
+    // then the constructor throws
+  }
+
+}
@@ -0,0 +1,263 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.twitter;
+
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+
+public class CompressedBlockEncoderTest {
+
+  private static final int SMALL_BLOCK_BYTES = 100;
+
+  private static byte[] recordOf(int i) {
+    return ("tweet number " + i + " with some repeated text repeated text\n\n").getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Encodes the records into a file and returns their uncompressed concatenation
+   */
+  private static byte[] encode(File file, int recordCount, boolean finishLastBlock) throws IOException {
+    CompressedBlockEncoder encoder = new CompressedBlockEncoder(SMALL_BLOCK_BYTES, Deflater.DEFAULT_COMPRESSION);
+    ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    for (int i = 0; i < recordCount; i++) {
+      byte[] record = recordOf(i);
+      uncompressed.write(record);
+      compressed.write(encoder.append(record, 0, record.length));
+    }
+    if (finishLastBlock) {
+      compressed.write(encoder.finishBlock());
+    }
+    encoder.end();
+    Files.write(file.toPath(), compressed.toByteArray());
+    return uncompressed.toByteArray();
+  }
+
+  private static byte[] readAll(CompressedBlockReader reader) throws IOException {
+    ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+    for (int block = 0; block < reader.getBlockCount(); block++) {
+      uncompressed.write(reader.readBlock(block));
+    }
+    return uncompressed.toByteArray();
+  }
+
+  @Test
+  public void inflatingAllBlocksShouldGiveBackTheRecords() throws IOException {
+    // given
+    File file = File.createTempFile("tweets", CompressedBlockFormat.FILE_EXTENSION);
+    file.deleteOnExit();
+    byte[] expected = encode(file, 20, true);
+
+    // when
+    CompressedBlockReader reader = new CompressedBlockReader(file);
+
+    // then
+    assertThat(reader.getBlockCount()).isGreaterThan(1);
+    assertThat(reader.getUncompressedLength()).isEqualTo(expected.length);
+    assertThat(readAll(reader)).isEqualTo(expected);
+    assertThat(file.length()).isLessThan(expected.length);
+    reader.close();
+  }
+
+  @Test
+  public void blocksShouldBeCutAtRecordBoundaries() throws IOException {
+    // given
+    File file = File.createTempFile("tweets", CompressedBlockFormat.FILE_EXTENSION);
+    file.deleteOnExit();
+    encode(file, 20, true);
+    CompressedBlockReader reader = new CompressedBlockReader(file);
+
+    // when
+    byte[] firstBlock = reader.readBlock(0);
+
+    // then
+    String text = new String(firstBlock, StandardCharsets.UTF_8);
+    assertThat(text).startsWith("tweet number 0 ");
+    assertThat(text).endsWith("\n\n");
+    assertThat(firstBlock.length).isGreaterThanOrEqualTo(SMALL_BLOCK_BYTES);
+    reader.close();
+  }
+
+  @Test
+  public void unfinishedBlockShouldOnlyBeWrittenByFinishBlock() throws IOException {
+    // given
+    CompressedBlockEncoder encoder = new CompressedBlockEncoder(SMALL_BLOCK_BYTES, Deflater.DEFAULT_COMPRESSION);
+    byte[] record = recordOf(1);
+
+    // when
+    byte[] appended = encoder.append(record, 0, record.length);
+    int buffered = encoder.getBufferedBytes();
+    byte[] finished = encoder.finishBlock();
+
+    // then
+    assertThat(appended).isEmpty();
+    assertThat(buffered).isEqualTo(record.length);
+    assertThat(finished.length).isGreaterThan(CompressedBlockFormat.HEADER_SIZE);
+    assertThat(encoder.getBufferedBytes()).isZero();
+    assertThat(encoder.finishBlock()).isEmpty();
+    encoder.end();
+  }
+
+  @Test
+  public void partialTrailingBlockShouldBeIgnored() throws IOException {
+    // given a file cut off in the middle of its last block
+    File file = File.createTempFile("tweets", CompressedBlockFormat.FILE_EXTENSION);
+    file.deleteOnExit();
+    encode(file, 20, true);
+    CompressedBlockReader complete = new CompressedBlockReader(file);
+    int completeBlockCount = complete.getBlockCount();
+    long lastBlockOffset = complete.getUncompressedOffset(completeBlockCount - 1);
+    byte[] expected = readAll(complete);
+    complete.close();
+    try (RandomAccessFile truncated = new RandomAccessFile(file, "rw")) {
+      truncated.setLength(truncated.length() - 3);
+    }
+
+    // when
+    CompressedBlockReader reader = new CompressedBlockReader(file);
+
+    // then
+    assertThat(reader.getBlockCount()).isEqualTo(completeBlockCount - 1);
+    assertThat(reader.getUncompressedLength()).isEqualTo(lastBlockOffset);
+    byte[] read = readAll(reader);
+    assertThat(new String(read, StandardCharsets.UTF_8))
+        .isEqualTo(new String(expected, 0, (int) lastBlockOffset, StandardCharsets.UTF_8));
+    reader.close();
+  }
+
+  @Test
+  public void partialTrailingHeaderShouldBeIgnored() throws IOException {
+    // given a file that ends with the first bytes of a block header
+    File file = File.createTempFile("tweets", CompressedBlockFormat.FILE_EXTENSION);
+    file.deleteOnExit();
+    byte[] expected = encode(file, 20, true);
+    try (RandomAccessFile appended = new RandomAccessFile(file, "rw")) {
+      appended.seek(appended.length());
+      appended.writeInt(CompressedBlockFormat.MAGIC);
+    }
+
+    // when
+    CompressedBlockReader reader = new CompressedBlockReader(file);
+
+    // then
+    assertThat(readAll(reader)).isEqualTo(expected);
+    reader.close();
+  }
+
+  @Test
+  public void findBlockShouldLocateUncompressedPositions() throws IOException {
+    // given
+    File file = File.createTempFile("tweets", CompressedBlockFormat.FILE_EXTENSION);
+    file.deleteOnExit();
+    byte[] expected = encode(file, 20, true);
+    CompressedBlockReader reader = new CompressedBlockReader(file);
+
+    // when
+    int lastBlock = reader.getBlockCount() - 1;
+
+    // then
+    assertThat(reader.findBlock(0)).isEqualTo(0);
+    assertThat(reader.findBlock(reader.getUncompressedOffset(1) - 1)).isEqualTo(0);
+    assertThat(reader.findBlock(reader.getUncompressedOffset(1))).isEqualTo(1);
+    assertThat(reader.findBlock(expected.length - 1)).isEqualTo(lastBlock);
+    assertThat(reader.findBlock(expected.length)).isEqualTo(-1);
+    assertThat(reader.findBlock(-1)).isEqualTo(-1);
+    reader.close();
+  }
+
+  @Test
+  public void blocksShouldBeInflatedInParallel() throws IOException {
+    // given
+    File file = File.createTempFile("tweets", CompressedBlockFormat.FILE_EXTENSION);
+    file.deleteOnExit();
+    byte[] expected = encode(file, 50, true);
+    CompressedBlockReader reader = new CompressedBlockReader(file);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    // when
+    List<byte[]> blocks;
+    try {
+      blocks = reader.readBlocks(0, reader.getBlockCount(), executor);
+    }
+    finally {
+      executor.shutdown();
+    }
+
+    // then
+    ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+    for (byte[] block : blocks) {
+      uncompressed.write(block);
+    }
+    assertThat(uncompressed.toByteArray()).isEqualTo(expected);
+    reader.close();
+  }
+
+  @Test
+  public void corruptBlockShouldFailItsChecksum() throws IOException {
+    // given a flipped bit in the checksum of the first block
+    File file = File.createTempFile("tweets", CompressedBlockFormat.FILE_EXTENSION);
+    file.deleteOnExit();
+    encode(file, 20, true);
+    try (RandomAccessFile corrupted = new RandomAccessFile(file, "rw")) {
+      corrupted.seek(CompressedBlockFormat.HEADER_SIZE - 1);
+      int lastChecksumByte = corrupted.read();
+      corrupted.seek(CompressedBlockFormat.HEADER_SIZE - 1);
+      corrupted.write(lastChecksumByte ^ 1);
+    }
+    CompressedBlockReader reader = new CompressedBlockReader(file);
+
+    // when
+    try {
+      reader.readBlock(0);
+      fail("a corrupt block must not be returned");
+    }
+    catch (IOException expected) {
+      // then
+      assertThat(expected.getMessage()).contains("Checksum");
+    }
+    reader.readBlock(1);
+    reader.close();
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void fileWithoutBlocksShouldBeRejected() throws IOException {
+    // given
+    File file = File.createTempFile("tweets", ".txt");
+    file.deleteOnExit();
+    Files.write(file.toPath(), "plain text, not block-compressed".getBytes(StandardCharsets.UTF_8));
+
+    // when
+    new CompressedBlockReader(file);
+
+    // then the constructor throws
+  }
+
+}
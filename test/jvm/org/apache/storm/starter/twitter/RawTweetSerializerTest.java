@@ -0,0 +1,115 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.twitter;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.apache.storm.Config;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class RawTweetSerializerTest {
+
+  private static final String TWEET_JSON = "{\"created_at\":\"Mon Oct 17 10:15:30 +0000 2016\","
+      + "\"id\":787985642424233984,\"text\":\"caf\\u00e9 \u2764 #Storm\","
+      + "\"user\":{\"id\":137976812,\"friends_count\":321},"
+      + "\"entities\":{\"hashtags\":[{\"text\":\"Storm\",\"indices\":[7,13]}]},\"lang\":\"en\"}";
+
+  private static Kryo kryo() {
+    Kryo kryo = new Kryo();
+    kryo.register(RawTweet.class, new RawTweetSerializer());
+    return kryo;
+  }
+
+  @Test
+  public void rawTweetShouldSurviveARoundTrip() {
+    // given
+    RawTweet tweet = new RawTweet(TWEET_JSON.getBytes(StandardCharsets.UTF_8));
+    Kryo kryo = kryo();
+    Output output = new Output(256, -1);
+
+    // when
+    kryo.writeObject(output, tweet);
+    RawTweet read = kryo.readObject(new Input(output.toBytes()), RawTweet.class);
+
+    // then
+    assertThat(read).isEqualTo(tweet);
+    assertThat(read.getJsonAsString()).isEqualTo(TWEET_JSON);
+    assertThat(read.getId()).isEqualTo(787985642424233984L);
+    assertThat(read.getText()).isEqualTo("caf\u00e9 \u2764 #Storm");
+    assertThat(read.getFriendsCount()).isEqualTo(321);
+  }
+
+  @Test
+  public void onlyTheJsonShouldBeWritten() {
+    // given a tweet whose fields were extracted before it is sent
+    byte[] json = TWEET_JSON.getBytes(StandardCharsets.UTF_8);
+    RawTweet tweet = new RawTweet(json);
+    tweet.getText();
+    tweet.getHashtags();
+    Output output = new Output(256, -1);
+
+    // when
+    kryo().writeObject(output, tweet);
+
+    // then the length prefix is followed by the JSON only
+    assertThat(output.toBytes().length).isLessThanOrEqualTo(json.length + 5);
+  }
+
+  @Test
+  public void tweetsShouldFollowEachOtherInOneStream() {
+    // given
+    RawTweet first = new RawTweet("{\"id\":1}".getBytes(StandardCharsets.UTF_8));
+    RawTweet second = new RawTweet(new byte[0]);
+    Kryo kryo = kryo();
+    Output output = new Output(256, -1);
+
+    // when
+    kryo.writeObject(output, first);
+    kryo.writeObject(output, second);
+    Input input = new Input(output.toBytes());
+
+    // then
+    assertThat(kryo.readObject(input, RawTweet.class)).isEqualTo(first);
+    assertThat(kryo.readObject(input, RawTweet.class)).isEqualTo(second);
+    assertThat(input.eof()).isTrue();
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void registerShouldAddTheSerializerToTheTopologyConfiguration() {
+    // given
+    Config config = new Config();
+
+    // when
+    RawTweetSerializer.register(config);
+
+    // then
+    List<Map<String, String>> registrations = (List<Map<String, String>>) config.get(Config.TOPOLOGY_KRYO_REGISTER);
+    assertThat(registrations).containsOnly(
+        Collections.singletonMap(RawTweet.class.getName(), RawTweetSerializer.class.getName()));
+  }
+
+}
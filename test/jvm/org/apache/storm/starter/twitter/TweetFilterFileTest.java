@@ -0,0 +1,127 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.twitter;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class TweetFilterFileTest {
+
+  private static final long POLL_INTERVAL_MILLIS = 5000L;
+  private static final long NOW_MILLIS = 1476698400000L;
+
+  private static Tweet tweet(int friendsCount, String text) {
+    return new TweetRecord(1L, TweetRecord.NO_RETWEETED_STATUS, 0L, 42L, friendsCount, "en", text,
+        Collections.<String>emptyList());
+  }
+
+  private static File writeFilter(File file, String properties, long modifiedMillis) throws IOException {
+    Files.write(file.toPath(), properties.getBytes(StandardCharsets.ISO_8859_1));
+    assertThat(file.setLastModified(modifiedMillis)).isTrue();
+    return file;
+  }
+
+  @Test
+  public void firstPollShouldParseTheFile() throws IOException {
+    // given
+    File file = writeFilter(File.createTempFile("tweet-filter", ".properties"), "friendsCountBelow=10\n",
+        NOW_MILLIS - 60000);
+    TweetFilterFile filterFile = new TweetFilterFile(file.getPath(), POLL_INTERVAL_MILLIS);
+
+    // when
+    TweetPredicate predicate = filterFile.pollUpdate(NOW_MILLIS);
+
+    // then
+    assertThat(predicate).isNotNull();
+    assertThat(predicate.accept(tweet(5, "text"))).isTrue();
+    assertThat(predicate.accept(tweet(50, "text"))).isFalse();
+  }
+
+  @Test
+  public void unchangedFileShouldGiveNoUpdate() throws IOException {
+    // given
+    File file = writeFilter(File.createTempFile("tweet-filter", ".properties"), "friendsCountBelow=10\n",
+        NOW_MILLIS - 60000);
+    TweetFilterFile filterFile = new TweetFilterFile(file.getPath(), POLL_INTERVAL_MILLIS);
+    filterFile.pollUpdate(NOW_MILLIS);
+
+    // when
+    TweetPredicate predicate = filterFile.pollUpdate(NOW_MILLIS + POLL_INTERVAL_MILLIS);
+
+    // then
+    assertThat(predicate).isNull();
+  }
+
+  @Test
+  public void changedFileShouldOnlyBeReadOnceThePollIntervalPassed() throws IOException {
+    // given
+    File file = writeFilter(File.createTempFile("tweet-filter", ".properties"), "friendsCountBelow=10\n",
+        NOW_MILLIS - 60000);
+    TweetFilterFile filterFile = new TweetFilterFile(file.getPath(), POLL_INTERVAL_MILLIS);
+    filterFile.pollUpdate(NOW_MILLIS);
+    writeFilter(file, "textContainsAny=storm\n", NOW_MILLIS - 30000);
+
+    // when
+    TweetPredicate early = filterFile.pollUpdate(NOW_MILLIS + POLL_INTERVAL_MILLIS - 1);
+    TweetPredicate due = filterFile.pollUpdate(NOW_MILLIS + POLL_INTERVAL_MILLIS);
+
+    // then
+    assertThat(early).isNull();
+    assertThat(due).isNotNull();
+    assertThat(due.accept(tweet(50, "about storm"))).isTrue();
+    assertThat(due.accept(tweet(5, "about kafka"))).isFalse();
+  }
+
+  @Test
+  public void unparseableFileShouldGiveNoUpdateUntilItIsFixed() throws IOException {
+    // given
+    File file = writeFilter(File.createTempFile("tweet-filter", ".properties"), "friendsCountBelow=many\n",
+        NOW_MILLIS - 60000);
+    TweetFilterFile filterFile = new TweetFilterFile(file.getPath(), POLL_INTERVAL_MILLIS);
+
+    // when
+    TweetPredicate broken = filterFile.pollUpdate(NOW_MILLIS);
+    writeFilter(file, "friendsCountBelow=10\n", NOW_MILLIS - 30000);
+    TweetPredicate fixed = filterFile.pollUpdate(NOW_MILLIS + POLL_INTERVAL_MILLIS);
+
+    // then
+    assertThat(broken).isNull();
+    assertThat(fixed).isNotNull();
+  }
+
+  @Test
+  public void missingFileShouldGiveNoUpdate() throws IOException {
+    // given
+    File file = new File(Files.createTempDirectory("tweet-filter").toFile(), "missing.properties");
+    TweetFilterFile filterFile = new TweetFilterFile(file.getPath(), POLL_INTERVAL_MILLIS);
+
+    // when
+    TweetPredicate predicate = filterFile.pollUpdate(NOW_MILLIS);
+
+    // then
+    assertThat(predicate).isNull();
+  }
+
+}
@@ -0,0 +1,182 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.twitter;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import twitter4j.TwitterException;
+import twitter4j.TwitterObjectFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class TweetJsonScannerTest {
+
+  private static final String RETWEET_JSON = "{\"created_at\":\"Mon Oct 17 10:15:30 +0000 2016\","
+      + "\"id\":787985642424233984,\"id_str\":\"787985642424233984\","
+      + "\"text\":\"RT @storm: \\\"quoted\\\" caf\\u00e9 \\u2764\\nnext line #Storm #bigdata\","
+      + "\"source\":\"<a href=\\\"http://twitter.com\\\">web<\\/a>\",\"truncated\":false,"
+      + "\"user\":{\"id\":137976812,\"id_str\":\"137976812\",\"name\":\"Someone {with} [brackets]\","
+      + "\"screen_name\":\"someone\",\"friends_count\":321,\"followers_count\":12,"
+      + "\"created_at\":\"Wed Apr 28 08:00:00 +0000 2010\"},"
+      + "\"retweeted_status\":{\"created_at\":\"Sun Oct 16 22:00:00 +0000 2016\",\"id\":787800000000000000,"
+      + "\"text\":\"\\\"quoted\\\" caf\\u00e9\",\"user\":{\"id\":42,\"friends_count\":7},"
+      + "\"entities\":{\"hashtags\":[{\"text\":\"inner\",\"indices\":[0,6]}]},\"lang\":\"fr\"},"
+      + "\"entities\":{\"hashtags\":[{\"text\":\"Storm\",\"indices\":[52,58]},"
+      + "{\"text\":\"bigdata\",\"indices\":[59,67]}],\"urls\":[],\"user_mentions\":[]},"
+      + "\"lang\":\"en\",\"timestamp_ms\":\"1476699330000\"}";
+
+  private static final String MINIMAL_JSON = "{ \"id\" : 5 , \"text\" : \"plain\" , \"user\" : null ,"
+      + " \"lang\" : null }";
+
+  private static byte[] bytes(String json) {
+    return json.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @DataProvider
+  public Object[][] tweetJsons() {
+    // The same tweet with whitespace around the keys, which no string value of it contains
+    String spaced = RETWEET_JSON.replace("\",\"", "\" ,\n \"").replace("\":", "\" : ");
+    return new Object[][]{ { RETWEET_JSON }, { spaced } };
+  }
+
+  @Test(dataProvider = "tweetJsons")
+  public void scannedFieldsShouldMatchTheParsedStatus(String json) throws TwitterException {
+    // given
+    TweetRecord parsed = TweetRecord.fromStatus(TwitterObjectFactory.createStatus(json));
+
+    // when
+    RawTweet scanned = new RawTweet(bytes(json));
+
+    // then
+    assertThat(scanned.getId()).isEqualTo(parsed.getId());
+    assertThat(scanned.getRetweetedStatusId()).isEqualTo(parsed.getRetweetedStatusId());
+    assertThat(scanned.getCreatedAtMillis()).isEqualTo(parsed.getCreatedAtMillis());
+    assertThat(scanned.getUserId()).isEqualTo(parsed.getUserId());
+    assertThat(scanned.getFriendsCount()).isEqualTo(parsed.getFriendsCount());
+    assertThat(scanned.getLang()).isEqualTo(parsed.getLang());
+    assertThat(scanned.getText()).isEqualTo(parsed.getText());
+    assertThat(scanned.getHashtags()).isEqualTo(parsed.getHashtags());
+  }
+
+  @Test
+  public void nestedObjectsShouldNotShadowTopLevelFields() {
+    // given
+    byte[] json = bytes(RETWEET_JSON);
+
+    // when
+    long id = TweetJsonScanner.readLong(json, TweetJsonScanner.findValue(json, TweetJsonScanner.ID), -1L);
+    String lang = TweetJsonScanner.readString(json, TweetJsonScanner.findValue(json, TweetJsonScanner.LANG));
+    long retweetedId = TweetJsonScanner.readLong(json,
+        TweetJsonScanner.findValue(json, TweetJsonScanner.RETWEETED_STATUS, TweetJsonScanner.ID), -1L);
+    long friendsCount = TweetJsonScanner.readLong(json,
+        TweetJsonScanner.findValue(json, TweetJsonScanner.USER, TweetJsonScanner.FRIENDS_COUNT), -1L);
+
+    // then
+    assertThat(id).isEqualTo(787985642424233984L);
+    assertThat(lang).isEqualTo("en");
+    assertThat(retweetedId).isEqualTo(787800000000000000L);
+    assertThat(friendsCount).isEqualTo(321L);
+  }
+
+  @Test
+  public void escapedStringShouldBeDecoded() {
+    // given
+    byte[] json = bytes(RETWEET_JSON);
+
+    // when
+    String text = TweetJsonScanner.readString(json, TweetJsonScanner.findValue(json, TweetJsonScanner.TEXT));
+
+    // then
+    assertThat(text).isEqualTo("RT @storm: \"quoted\" caf\u00e9 \u2764\nnext line #Storm #bigdata");
+  }
+
+  @Test
+  public void hashtagsShouldBeReadFromTheTopLevelEntities() {
+    // given
+    byte[] json = bytes(RETWEET_JSON);
+
+    // when
+    int hashtags = TweetJsonScanner.findValue(json, TweetJsonScanner.ENTITIES, TweetJsonScanner.HASHTAGS);
+
+    // then
+    assertThat(TweetJsonScanner.readObjectArrayTexts(json, hashtags, TweetJsonScanner.TEXT))
+        .isEqualTo(Arrays.asList("Storm", "bigdata"));
+  }
+
+  @Test
+  public void missingAndNullFieldsShouldGiveDefaults() {
+    // given
+    byte[] json = bytes(MINIMAL_JSON);
+
+    // when
+    RawTweet tweet = new RawTweet(json);
+
+    // then
+    assertThat(tweet.getId()).isEqualTo(5L);
+    assertThat(tweet.getText()).isEqualTo("plain");
+    assertThat(tweet.hasUser()).isFalse();
+    assertThat(tweet.getUserId()).isEqualTo(TweetRecord.UNKNOWN_USER_ID);
+    assertThat(tweet.getRetweetedStatusId()).isEqualTo(TweetRecord.NO_RETWEETED_STATUS);
+    assertThat(tweet.getLang()).isNull();
+    assertThat(tweet.getHashtags()).isEqualTo(Collections.<String>emptyList());
+    assertThat(TweetJsonScanner.isNull(json, TweetJsonScanner.findValue(json, TweetJsonScanner.USER))).isTrue();
+    assertThat(TweetJsonScanner.findValue(json, TweetJsonScanner.CREATED_AT)).isEqualTo(-1);
+  }
+
+  @Test
+  public void twitterDateShouldHonourTheUtcOffset() {
+    // given
+    byte[] utc = bytes("\"Mon Oct 17 10:15:30 +0000 2016\"");
+    byte[] ahead = bytes("\"Mon Oct 17 12:45:30 +0230 2016\"");
+    byte[] malformed = bytes("\"Mon Foo 17 10:15:30 +0000 2016\"");
+
+    // when
+    long utcMillis = TweetJsonScanner.readTwitterDate(utc, 0);
+    long aheadMillis = TweetJsonScanner.readTwitterDate(ahead, 0);
+
+    // then
+    assertThat(utcMillis).isEqualTo(1476699330000L);
+    assertThat(aheadMillis).isEqualTo(utcMillis);
+    assertThat(TweetJsonScanner.readTwitterDate(malformed, 0)).isZero();
+  }
+
+  @Test
+  public void truncatedJsonShouldNotThrow() {
+    // given every prefix of a tweet, e.g. a record cut off by a crash
+    byte[] json = bytes(RETWEET_JSON);
+
+    for (int length = 0; length < json.length; length++) {
+      byte[] prefix = Arrays.copyOf(json, length);
+
+      // when
+      RawTweet tweet = new RawTweet(prefix);
+      tweet.getId();
+      tweet.getText();
+      tweet.getCreatedAtMillis();
+      tweet.getFriendsCount();
+
+      // then the lookups give up quietly
+      assertThat(tweet.getHashtags().size()).isLessThanOrEqualTo(2);
+    }
+  }
+
+}
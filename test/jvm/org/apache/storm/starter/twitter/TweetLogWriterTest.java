@@ -0,0 +1,220 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.twitter;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+
+public class TweetLogWriterTest {
+
+  private static final int SMALL_SEGMENT_BYTES = 512;
+  private static final int SMALL_INDEX_INTERVAL_BYTES = 64;
+  private static final long FIRST_TIMESTAMP = 1000000L;
+  private static final long FIRST_STATUS_ID = 5000L;
+
+  private static String textOf(int i) {
+    return "tweet number " + i + " \u2764";
+  }
+
+  private static void appendTweets(TweetLogWriter writer, int count) throws IOException {
+    for (int i = 0; i < count; i++) {
+      writer.append(FIRST_STATUS_ID + i, FIRST_TIMESTAMP + i * 10, textOf(i));
+    }
+  }
+
+  private static List<Long> scanStatusIds(TweetLogReader reader, long fromMillis, long toMillis) {
+    List<Long> statusIds = new ArrayList<Long>();
+    TweetLogReader.Cursor cursor = reader.scan(fromMillis, toMillis);
+    while (cursor.advance()) {
+      statusIds.add(cursor.statusId());
+    }
+    return statusIds;
+  }
+
+  private static List<Long> statusIds(int from, int to) {
+    List<Long> statusIds = new ArrayList<Long>();
+    for (int i = from; i < to; i++) {
+      statusIds.add(FIRST_STATUS_ID + i);
+    }
+    return statusIds;
+  }
+
+  @Test
+  public void sealedSegmentsShouldBeReadBackThroughTheirIndexes() throws IOException {
+    // given
+    File directory = Files.createTempDirectory("tweetlog").toFile();
+    TweetLogWriter writer = new TweetLogWriter(directory, SMALL_SEGMENT_BYTES, TweetLogWriter.NO_TIME_ROTATION,
+        SMALL_INDEX_INTERVAL_BYTES);
+
+    // when
+    appendTweets(writer, 50);
+    writer.close();
+    TweetLogReader reader = new TweetLogReader(directory);
+
+    // then
+    assertThat(reader.getSegmentCount()).isGreaterThan(1);
+    for (File segment : TweetLogFormat.listSegments(directory)) {
+      assertThat(TweetLogFormat.indexFileOf(segment).isFile()).isTrue();
+      assertThat(segment.length()).isLessThan(SMALL_SEGMENT_BYTES + 1);
+    }
+    for (int i = 0; i < 50; i++) {
+      assertThat(reader.lookup(FIRST_STATUS_ID + i)).isEqualTo(textOf(i));
+    }
+    assertThat(reader.lookup(FIRST_STATUS_ID - 1)).isNull();
+    assertThat(reader.lookup(FIRST_STATUS_ID + 50)).isNull();
+    assertThat(scanStatusIds(reader, FIRST_TIMESTAMP + 100, FIRST_TIMESTAMP + 300)).isEqualTo(statusIds(10, 30));
+    reader.close();
+  }
+
+  @Test
+  public void scanShouldExposeTheTextOfEachRecord() throws IOException {
+    // given
+    File directory = Files.createTempDirectory("tweetlog").toFile();
+    TweetLogWriter writer = new TweetLogWriter(directory, SMALL_SEGMENT_BYTES, TweetLogWriter.NO_TIME_ROTATION,
+        SMALL_INDEX_INTERVAL_BYTES);
+    appendTweets(writer, 3);
+    writer.close();
+
+    // when
+    TweetLogReader reader = new TweetLogReader(directory);
+    TweetLogReader.Cursor cursor = reader.scan(Long.MIN_VALUE, Long.MAX_VALUE);
+    List<String> texts = new ArrayList<String>();
+    while (cursor.advance()) {
+      texts.add(cursor.text());
+      assertThat(cursor.timestampMillis()).isEqualTo(FIRST_TIMESTAMP + (cursor.statusId() - FIRST_STATUS_ID) * 10);
+    }
+
+    // then
+    List<String> expected = new ArrayList<String>();
+    for (int i = 0; i < 3; i++) {
+      expected.add(textOf(i));
+    }
+    assertThat(texts).isEqualTo(expected);
+  }
+
+  @Test
+  public void unsealedTailSegmentShouldBeRecoveredByScanningIt() throws IOException {
+    // given a writer that never got to seal its last segment
+    File directory = Files.createTempDirectory("tweetlog").toFile();
+    TweetLogWriter writer = new TweetLogWriter(directory, SMALL_SEGMENT_BYTES, TweetLogWriter.NO_TIME_ROTATION,
+        SMALL_INDEX_INTERVAL_BYTES);
+    appendTweets(writer, 20);
+    writer.flush();
+
+    // when
+    TweetLogReader reader = new TweetLogReader(directory);
+
+    // then
+    File[] segments = TweetLogFormat.listSegments(directory);
+    assertThat(TweetLogFormat.indexFileOf(segments[segments.length - 1]).exists()).isFalse();
+    for (int i = 0; i < 20; i++) {
+      assertThat(reader.lookup(FIRST_STATUS_ID + i)).isEqualTo(textOf(i));
+    }
+    assertThat(scanStatusIds(reader, Long.MIN_VALUE, Long.MAX_VALUE)).isEqualTo(statusIds(0, 20));
+    reader.close();
+    writer.close();
+  }
+
+  @Test
+  public void truncatedTailSegmentShouldBeReadUpToItsLastCompleteRecord() throws IOException {
+    // given an unsealed segment copied into another log, cut off in the middle of its third record
+    File directory = Files.createTempDirectory("tweetlog").toFile();
+    TweetLogWriter writer = new TweetLogWriter(directory, SMALL_SEGMENT_BYTES, TweetLogWriter.NO_TIME_ROTATION,
+        SMALL_INDEX_INTERVAL_BYTES);
+    appendTweets(writer, 3);
+    writer.flush();
+    File segment = TweetLogFormat.listSegments(directory)[0];
+    File truncatedDirectory = Files.createTempDirectory("tweetlog").toFile();
+    File truncated = new File(truncatedDirectory, segment.getName());
+    Files.copy(segment.toPath(), truncated.toPath());
+    writer.close();
+    int thirdRecordOffset = TweetLogFormat.SEGMENT_HEADER_SIZE
+        + 2 * TweetLogFormat.RECORD_OVERHEAD + textOf(0).getBytes("UTF-8").length + textOf(1).getBytes("UTF-8").length;
+    try (RandomAccessFile file = new RandomAccessFile(truncated, "rw")) {
+      file.setLength(thirdRecordOffset + TweetLogFormat.RECORD_OVERHEAD + 3);
+    }
+
+    // when
+    TweetLogReader reader = new TweetLogReader(truncatedDirectory);
+
+    // then
+    assertThat(reader.lookup(FIRST_STATUS_ID)).isEqualTo(textOf(0));
+    assertThat(reader.lookup(FIRST_STATUS_ID + 1)).isEqualTo(textOf(1));
+    assertThat(reader.lookup(FIRST_STATUS_ID + 2)).isNull();
+    assertThat(scanStatusIds(reader, Long.MIN_VALUE, Long.MAX_VALUE)).isEqualTo(statusIds(0, 2));
+    reader.close();
+  }
+
+  @Test
+  public void segmentShouldBeSealedOnceItIsDue() throws IOException {
+    // given
+    File directory = Files.createTempDirectory("tweetlog").toFile();
+    TweetLogWriter writer = new TweetLogWriter(directory, SMALL_SEGMENT_BYTES, 1000L, SMALL_INDEX_INTERVAL_BYTES);
+    appendTweets(writer, 1);
+
+    // when
+    writer.rotateIfDue(System.currentTimeMillis() - 1000L);
+    File[] beforeDue = TweetLogFormat.listSegments(directory);
+    boolean indexedBeforeDue = TweetLogFormat.indexFileOf(beforeDue[0]).exists();
+    writer.rotateIfDue(System.currentTimeMillis() + 1000L);
+
+    // then
+    assertThat(indexedBeforeDue).isFalse();
+    assertThat(TweetLogFormat.indexFileOf(beforeDue[0]).exists()).isTrue();
+    writer.close();
+  }
+
+  @Test
+  public void oversizedTweetShouldBeRejectedWithAnIOException() throws IOException {
+    // given
+    File directory = Files.createTempDirectory("tweetlog").toFile();
+    TweetLogWriter writer = new TweetLogWriter(directory, SMALL_SEGMENT_BYTES, TweetLogWriter.NO_TIME_ROTATION,
+        SMALL_INDEX_INTERVAL_BYTES);
+    appendTweets(writer, 1);
+    StringBuilder oversized = new StringBuilder();
+    while (oversized.length() < SMALL_SEGMENT_BYTES) {
+      oversized.append("too long ");
+    }
+
+    // when
+    try {
+      writer.append(1L, FIRST_TIMESTAMP, oversized);
+      fail("an oversized tweet must not be appended");
+    }
+    catch (IOException expected) {
+    }
+    writer.append(FIRST_STATUS_ID + 1, FIRST_TIMESTAMP + 10, textOf(1));
+    writer.close();
+
+    // then
+    TweetLogReader reader = new TweetLogReader(directory);
+    assertThat(reader.lookup(1L)).isNull();
+    assertThat(scanStatusIds(reader, Long.MIN_VALUE, Long.MAX_VALUE)).isEqualTo(statusIds(0, 2));
+    assertThat(writer.getWrittenCount()).isEqualTo(2);
+  }
+
+}
@@ -0,0 +1,134 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.twitter;
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Properties;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class TweetPredicatesTest {
+
+  private static final long USER_ID = 42L;
+
+  private static Tweet tweet(int friendsCount, String text) {
+    return new TweetRecord(1L, TweetRecord.NO_RETWEETED_STATUS, 0L, USER_ID, friendsCount, "en", text,
+        Collections.<String>emptyList());
+  }
+
+  private static Tweet tweetWithoutUser(String text) {
+    return new TweetRecord(1L, TweetRecord.NO_RETWEETED_STATUS, 0L, TweetRecord.UNKNOWN_USER_ID, 0, "en", text,
+        Collections.<String>emptyList());
+  }
+
+  @Test
+  public void friendsCountBelowShouldExcludeTheBoundAndTweetsWithoutUser() {
+    // given
+    TweetPredicate predicate = TweetPredicates.friendsCountBelow(100);
+
+    // then
+    assertThat(predicate.accept(tweet(99, "text"))).isTrue();
+    assertThat(predicate.accept(tweet(100, "text"))).isFalse();
+    assertThat(predicate.accept(tweetWithoutUser("text"))).isFalse();
+  }
+
+  @Test
+  public void textContainsAnyShouldIgnoreCase() {
+    // given
+    TweetPredicate predicate = TweetPredicates.textContainsAny(Arrays.asList("#Storm", "kafka"));
+
+    // then
+    assertThat(predicate.accept(tweet(1, "Learning #STORM today"))).isTrue();
+    assertThat(predicate.accept(tweet(1, "KAFKA streams"))).isTrue();
+    assertThat(predicate.accept(tweet(1, "#stormy weather"))).isTrue();
+    assertThat(predicate.accept(tweet(1, "nothing to see"))).isFalse();
+    assertThat(predicate.accept(tweet(1, null))).isFalse();
+  }
+
+  @Test
+  public void textContainsAnyShouldNotDependOnTheDefaultLocale() {
+    // given a default locale whose lowercase of I is the dotless i
+    Locale defaultLocale = Locale.getDefault();
+    Locale.setDefault(new Locale("tr", "TR"));
+    try {
+      TweetPredicate predicate = TweetPredicates.textContainsAny(Arrays.asList("ISTANBUL"));
+
+      // then
+      assertThat(predicate.accept(tweet(1, "Hello from istanbul"))).isTrue();
+      assertThat(predicate.accept(tweet(1, "HELLO FROM ISTANBUL"))).isTrue();
+    }
+    finally {
+      Locale.setDefault(defaultLocale);
+    }
+  }
+
+  @Test
+  public void allOfShouldRequireEveryPredicate() {
+    // given
+    TweetPredicate predicate = TweetPredicates.allOf(TweetPredicates.friendsCountBelow(10),
+        TweetPredicates.textContainsAny(Arrays.asList("storm")));
+
+    // then
+    assertThat(predicate.accept(tweet(5, "storm"))).isTrue();
+    assertThat(predicate.accept(tweet(50, "storm"))).isFalse();
+    assertThat(predicate.accept(tweet(5, "kafka"))).isFalse();
+    assertThat(TweetPredicates.allOf().accept(tweetWithoutUser(null))).isTrue();
+    assertThat(TweetPredicates.acceptAll().accept(tweetWithoutUser(null))).isTrue();
+  }
+
+  @Test
+  public void parseShouldCombineTheGivenConditions() {
+    // given
+    Properties properties = new Properties();
+    properties.setProperty(TweetPredicates.FRIENDS_COUNT_BELOW_KEY, " 10 ");
+    properties.setProperty(TweetPredicates.TEXT_CONTAINS_ANY_KEY, "storm, ,kafka ,");
+
+    // when
+    TweetPredicate predicate = TweetPredicates.parse(properties);
+
+    // then
+    assertThat(predicate.accept(tweet(5, "about kafka"))).isTrue();
+    assertThat(predicate.accept(tweet(5, "about hadoop"))).isFalse();
+    assertThat(predicate.accept(tweet(10, "about storm"))).isFalse();
+    assertThat(predicate.toString()).isEqualTo("[friendsCountBelow=10, textContainsAny=[storm, kafka]]");
+  }
+
+  @Test
+  public void parseWithoutConditionsShouldAcceptEveryTweet() {
+    // when
+    TweetPredicate predicate = TweetPredicates.parse(new Properties());
+
+    // then
+    assertThat(predicate.accept(tweetWithoutUser(null))).isTrue();
+  }
+
+  @Test(expectedExceptions = NumberFormatException.class)
+  public void parseShouldRejectAFriendsCountThatIsNoNumber() {
+    // given
+    Properties properties = new Properties();
+    properties.setProperty(TweetPredicates.FRIENDS_COUNT_BELOW_KEY, "many");
+
+    // when
+    TweetPredicates.parse(properties);
+  }
+
+}
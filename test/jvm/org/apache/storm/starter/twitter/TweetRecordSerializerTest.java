@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.twitter;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.apache.storm.Config;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class TweetRecordSerializerTest {
+
+  private static TweetRecord roundTrip(TweetRecord record) {
+    Kryo kryo = new Kryo();
+    kryo.register(TweetRecord.class, new TweetRecordSerializer());
+    Output output = new Output(256, -1);
+    kryo.writeObject(output, record);
+    return kryo.readObject(new Input(output.toBytes()), TweetRecord.class);
+  }
+
+  @DataProvider
+  public Object[][] records() {
+    return new Object[][]{
+        { new TweetRecord(787985642424233984L, 787800000000000000L, 1476699330000L, 137976812L, 321, "en",
+            "RT @storm: \"quoted\" caf\u00e9 \u2764\nnext line #Storm #bigdata", Arrays.asList("Storm", "bigdata")) },
+        { new TweetRecord(5L, TweetRecord.NO_RETWEETED_STATUS, 0L, TweetRecord.UNKNOWN_USER_ID, 0, null, null,
+            Collections.<String>emptyList()) },
+        { new TweetRecord(Long.MAX_VALUE, Long.MIN_VALUE, -1L, Long.MAX_VALUE, Integer.MAX_VALUE, "", "",
+            Arrays.asList("")) } };
+  }
+
+  @Test(dataProvider = "records")
+  public void recordShouldSurviveARoundTrip(TweetRecord record) {
+    // when
+    TweetRecord read = roundTrip(record);
+
+    // then
+    assertThat(read).isEqualTo(record);
+    assertThat(read.getLang()).isEqualTo(record.getLang());
+    assertThat(read.getText()).isEqualTo(record.getText());
+    assertThat(read.getHashtags()).isEqualTo(record.getHashtags());
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void registerShouldAddTheSerializerToTheTopologyConfiguration() {
+    // given
+    Config config = new Config();
+
+    // when
+    TweetRecordSerializer.register(config);
+
+    // then
+    List<Map<String, String>> registrations = (List<Map<String, String>>) config.get(Config.TOPOLOGY_KRYO_REGISTER);
+    assertThat(registrations).containsOnly(
+        Collections.singletonMap(TweetRecord.class.getName(), TweetRecordSerializer.class.getName()));
+  }
+
+}
@@ -0,0 +1,170 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.twitter;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+
+public class TweetSegmentReaderTest {
+
+  private static final int QUEUE_CAPACITY = 100;
+
+  /**
+   * Writes the given payloads, one millisecond apart from the given time, and returns the single segment
+   */
+  private static File writeSegment(long firstTimestampMillis, String... payloads) throws IOException {
+    File directory = Files.createTempDirectory("segments").toFile();
+    TweetSegmentWriter writer = new TweetSegmentWriter(directory, TweetSegmentFormat.MAX_SEGMENT_BYTES,
+        QUEUE_CAPACITY);
+    for (int i = 0; i < payloads.length; i++) {
+      assertThat(writer.append(firstTimestampMillis + i, payloads[i])).isTrue();
+    }
+    writer.close();
+    File[] segments = TweetSegmentFormat.listSegments(directory);
+    assertThat(segments).hasSize(1);
+    return segments[0];
+  }
+
+  private static List<String> readAll(TweetSegmentReader reader) {
+    List<String> payloads = new ArrayList<String>();
+    while (reader.advance()) {
+      payloads.add(reader.payloadAsString());
+    }
+    return payloads;
+  }
+
+  @Test
+  public void writtenRecordsShouldBeReadBackInOrder() throws IOException {
+    // given
+    File segment = writeSegment(1000L, "{\"id\":1}", "{\"text\":\"caf\u00e9 \u2764\"}", "{\"id\":3}");
+
+    // when
+    TweetSegmentReader reader = new TweetSegmentReader(segment);
+    List<Long> timestamps = new ArrayList<Long>();
+    List<String> payloads = new ArrayList<String>();
+    List<Integer> lengths = new ArrayList<Integer>();
+    while (reader.advance()) {
+      timestamps.add(reader.timestampMillis());
+      payloads.add(reader.payloadAsString());
+      lengths.add(reader.payloadLength());
+    }
+    reader.close();
+
+    // then
+    assertThat(payloads).isEqualTo(Arrays.asList("{\"id\":1}", "{\"text\":\"caf\u00e9 \u2764\"}", "{\"id\":3}"));
+    assertThat(timestamps).isEqualTo(Arrays.asList(1000L, 1001L, 1002L));
+    assertThat(lengths.get(1)).isEqualTo("{\"text\":\"caf\u00e9 \u2764\"}".getBytes(StandardCharsets.UTF_8).length);
+    assertThat(reader.headerRecordCount()).isEqualTo(3L);
+    assertThat(reader.firstTimestampMillis()).isEqualTo(1000L);
+    assertThat(reader.lastTimestampMillis()).isEqualTo(1002L);
+  }
+
+  @Test
+  public void payloadViewShouldShareTheMappedRecord() throws IOException {
+    // given
+    TweetSegmentReader reader = new TweetSegmentReader(writeSegment(1000L, "{\"id\":1}", "{\"id\":22}"));
+
+    // when
+    reader.advance();
+    reader.advance();
+
+    // then
+    try {
+      assertThat(reader.payload().remaining()).isEqualTo(9);
+      assertThat(reader.payload().isReadOnly()).isTrue();
+      assertThat(reader.copyPayload()).isEqualTo("{\"id\":22}".getBytes(StandardCharsets.UTF_8));
+    }
+    finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void readerShouldStopAtARecordCutOffByACrash() throws IOException {
+    // given a segment missing the last byte of its last record
+    File segment = writeSegment(1000L, "{\"id\":1}", "{\"id\":2}");
+    RandomAccessFile file = new RandomAccessFile(segment, "rw");
+    file.setLength(file.length() - 1);
+    file.close();
+
+    // when
+    TweetSegmentReader reader = new TweetSegmentReader(segment);
+    List<String> payloads = readAll(reader);
+    reader.close();
+
+    // then
+    assertThat(payloads).isEqualTo(Arrays.asList("{\"id\":1}"));
+  }
+
+  @Test
+  public void fileThatIsNoSegmentShouldBeRejected() throws IOException {
+    // given
+    File file = File.createTempFile("not-a-segment", TweetSegmentFormat.SEGMENT_FILE_SUFFIX);
+    Files.write(file.toPath(), "{\"id\":1}\n{\"id\":2}\n{\"id\":3}\n{\"id\":4}\n".getBytes(StandardCharsets.UTF_8));
+
+    // when
+    try {
+      new TweetSegmentReader(file);
+      fail("a file without the segment header should be rejected");
+    }
+    catch (IOException expected) {
+      // then
+      assertThat(expected.getMessage()).contains(file.getPath());
+    }
+  }
+
+  @Test
+  public void segmentTooLargeToBeMappedShouldBeRejected() throws IOException {
+    // given a sparse file one byte larger than a mapping can be
+    File file = File.createTempFile("huge", TweetSegmentFormat.SEGMENT_FILE_SUFFIX);
+    RandomAccessFile huge = new RandomAccessFile(file, "rw");
+    huge.setLength(TweetSegmentFormat.MAX_SEGMENT_BYTES + 1);
+    huge.close();
+
+    // when
+    try {
+      new TweetSegmentReader(file);
+      fail("a segment larger than a mapping should be rejected");
+    }
+    catch (IOException expected) {
+      // then
+      assertThat(expected.getMessage()).contains(file.getPath());
+    }
+    finally {
+      assertThat(file.delete()).isTrue();
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void writerShouldRejectSegmentsTooLargeToBeMapped() throws IOException {
+    new TweetSegmentWriter(Files.createTempDirectory("segments").toFile(), TweetSegmentFormat.MAX_SEGMENT_BYTES + 1,
+        QUEUE_CAPACITY);
+  }
+
+}
@@ -0,0 +1,198 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.storm.starter.twitter;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class TweetSegmentWriterTest {
+
+  private static final int QUEUE_CAPACITY = 100;
+  private static final long RECEIVE_TIMEOUT_MILLIS = 30000;
+  // Every payload of these tests is 8 bytes long
+  private static final int RECORD_BYTES = TweetSegmentFormat.RECORD_OVERHEAD + 8;
+
+  private static String payload(int id) {
+    return "{\"id\":" + id + "}";
+  }
+
+  private static List<String> readAll(File segment) throws IOException {
+    TweetSegmentReader reader = new TweetSegmentReader(segment);
+    List<String> payloads = new ArrayList<String>();
+    while (reader.advance()) {
+      payloads.add(reader.payloadAsString());
+    }
+    reader.close();
+    return payloads;
+  }
+
+  private static ByteBuffer header(File segment) throws IOException {
+    byte[] bytes = Files.readAllBytes(segment.toPath());
+    return ByteBuffer.wrap(Arrays.copyOf(bytes, TweetSegmentFormat.HEADER_SIZE));
+  }
+
+  @Test
+  public void shouldStartANewSegmentOnceTheNextRecordWouldExceedTheSize() throws IOException {
+    // given room for two records per segment
+    File directory = Files.createTempDirectory("segments").toFile();
+    TweetSegmentWriter writer = new TweetSegmentWriter(directory, TweetSegmentFormat.HEADER_SIZE + 2 * RECORD_BYTES,
+        QUEUE_CAPACITY);
+
+    // when
+    for (int id = 1; id <= 5; id++) {
+      assertThat(writer.append(1000L + id, payload(id))).isTrue();
+    }
+    writer.close();
+
+    // then
+    File[] segments = TweetSegmentFormat.listSegments(directory);
+    assertThat(segments).hasSize(3);
+    assertThat(readAll(segments[0])).isEqualTo(Arrays.asList(payload(1), payload(2)));
+    assertThat(readAll(segments[1])).isEqualTo(Arrays.asList(payload(3), payload(4)));
+    assertThat(readAll(segments[2])).isEqualTo(Arrays.asList(payload(5)));
+    assertThat(segments[0].length()).isEqualTo(TweetSegmentFormat.HEADER_SIZE + 2 * RECORD_BYTES);
+    assertThat(writer.getWrittenCount()).isEqualTo(5L);
+    assertThat(writer.getDroppedCount()).isZero();
+  }
+
+  @Test
+  public void headerShouldHoldTheRecordCountAndTheTimestampRange() throws IOException {
+    // given
+    File directory = Files.createTempDirectory("segments").toFile();
+    TweetSegmentWriter writer = new TweetSegmentWriter(directory, TweetSegmentFormat.MAX_SEGMENT_BYTES,
+        QUEUE_CAPACITY);
+
+    // when
+    writer.append(1476698400000L, payload(1));
+    writer.append(1476698400500L, payload(2));
+    writer.append(1476698401000L, payload(3));
+    writer.close();
+
+    // then
+    File[] segments = TweetSegmentFormat.listSegments(directory);
+    assertThat(segments).hasSize(1);
+    assertThat(segments[0].getName()).isEqualTo("tweets-1476698400000-000000" + TweetSegmentFormat.SEGMENT_FILE_SUFFIX);
+    ByteBuffer header = header(segments[0]);
+    assertThat(header.getInt(0)).isEqualTo(TweetSegmentFormat.MAGIC);
+    assertThat(header.getInt(4)).isEqualTo(TweetSegmentFormat.VERSION);
+    assertThat(header.getLong(TweetSegmentFormat.RECORD_COUNT_OFFSET)).isEqualTo(3L);
+    assertThat(header.getLong(TweetSegmentFormat.FIRST_TIMESTAMP_OFFSET)).isEqualTo(1476698400000L);
+    assertThat(header.getLong(TweetSegmentFormat.LAST_TIMESTAMP_OFFSET)).isEqualTo(1476698401000L);
+  }
+
+  @Test
+  public void closeShouldWriteTheQueuedRecordsAndFinalizeTheOpenSegment() throws IOException {
+    // given
+    File directory = Files.createTempDirectory("segments").toFile();
+    TweetSegmentWriter writer = new TweetSegmentWriter(directory, TweetSegmentFormat.MAX_SEGMENT_BYTES,
+        QUEUE_CAPACITY);
+    for (int id = 1; id <= QUEUE_CAPACITY; id++) {
+      writer.append(1000L + id, payload(id));
+    }
+
+    // when
+    writer.close();
+
+    // then
+    File segment = writer.pollCompletedSegment();
+    assertThat(segment).isNotNull();
+    assertThat(writer.pollCompletedSegment()).isNull();
+    assertThat(header(segment).getLong(TweetSegmentFormat.RECORD_COUNT_OFFSET)).isEqualTo((long) QUEUE_CAPACITY);
+    assertThat(readAll(segment)).hasSize(QUEUE_CAPACITY);
+    assertThat(writer.getWrittenCount()).isEqualTo((long) QUEUE_CAPACITY);
+  }
+
+  @Test
+  public void appendAfterCloseShouldBeDroppedAndCounted() throws IOException {
+    // given
+    File directory = Files.createTempDirectory("segments").toFile();
+    TweetSegmentWriter writer = new TweetSegmentWriter(directory, TweetSegmentFormat.MAX_SEGMENT_BYTES,
+        QUEUE_CAPACITY);
+    writer.close();
+
+    // when
+    boolean appended = writer.append(1000L, payload(1));
+
+    // then
+    assertThat(appended).isFalse();
+    assertThat(writer.getDroppedCount()).isEqualTo(1L);
+    assertThat(TweetSegmentFormat.listSegments(directory)).isEmpty();
+  }
+
+  @Test(timeOut = 60000)
+  public void recordsArrivingWhileTheQueueIsFullShouldBeDroppedAndCounted() throws IOException {
+    // given a queue of two, and a large first record that keeps the writer thread busy
+    File directory = Files.createTempDirectory("segments").toFile();
+    TweetSegmentWriter writer = new TweetSegmentWriter(directory, TweetSegmentFormat.MAX_SEGMENT_BYTES, 2);
+    char[] large = new char[16 * 1024 * 1024];
+    Arrays.fill(large, 'x');
+    assertThat(writer.append(1000L, new String(large))).isTrue();
+
+    // when
+    int rejected = 0;
+    for (int id = 1; id <= 3; id++) {
+      if (!writer.append(1000L + id, payload(id))) {
+        rejected++;
+      }
+    }
+    writer.close();
+
+    // then
+    assertThat(rejected).isGreaterThan(0);
+    assertThat(writer.getDroppedCount()).isEqualTo((long) rejected);
+    assertThat(writer.getWrittenCount()).isEqualTo(4L - rejected);
+    assertThat(readAll(TweetSegmentFormat.listSegments(directory)[0])).hasSize(4 - rejected);
+  }
+
+  @Test(timeOut = 60000)
+  public void requestedRotationShouldFinalizeTheSegmentBeforeItIsFull() throws Exception {
+    // given
+    File directory = Files.createTempDirectory("segments").toFile();
+    TweetSegmentWriter writer = new TweetSegmentWriter(directory, TweetSegmentFormat.MAX_SEGMENT_BYTES,
+        QUEUE_CAPACITY);
+    writer.append(1000L, payload(1));
+
+    // when
+    writer.requestRotation();
+    File completed = null;
+    long deadline = System.currentTimeMillis() + RECEIVE_TIMEOUT_MILLIS;
+    while (completed == null && System.currentTimeMillis() < deadline) {
+      completed = writer.pollCompletedSegment();
+      Thread.sleep(10);
+    }
+    writer.append(2000L, payload(2));
+    writer.close();
+
+    // then
+    assertThat(completed).isNotNull();
+    assertThat(header(completed).getLong(TweetSegmentFormat.RECORD_COUNT_OFFSET)).isEqualTo(1L);
+    File[] segments = TweetSegmentFormat.listSegments(directory);
+    assertThat(segments).hasSize(2);
+    assertThat(readAll(segments[1])).isEqualTo(Arrays.asList(payload(2)));
+  }
+
+}